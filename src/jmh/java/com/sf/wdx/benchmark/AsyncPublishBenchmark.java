@@ -0,0 +1,90 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.publisher.AsyncPublisher;
+import com.sf.wdx.publisher.ConfirmPublisher;
+
+/**
+ * 描述：多个请求线程共用一个通道发送时，调用线程花在publish上的时间分布
+ * 		inline：ConfirmPublisher直接在调用线程上basicPublish（竞争通道锁、等确认窗口）；
+ * 		async：AsyncPublisher只入队，由I/O线程写出（DROP_OLDEST，调用线程从不等待）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class AsyncPublishBenchmark {
+
+	private static final String QUEUE_NAME = "async_publish_benchmark";
+
+	private static final byte[] BODY = new byte[128];
+
+	@Param({ "inline", "async" })
+	public String mode;
+
+	private Connection connection;
+
+	private ConfirmPublisher confirmPublisher;
+
+	private AsyncPublisher asyncPublisher;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-async-" + mode);
+		connection = factory.newConnection();
+		Channel channel = connection.createChannel();
+		channel.queueDeclare(QUEUE_NAME, false, false, false, null);
+		// autoAck消费者把队列排空
+		Channel consumer = connection.createChannel();
+		consumer.basicConsume(QUEUE_NAME, true, new DefaultConsumer(consumer));
+		if ("async".equals(mode)) {
+			asyncPublisher = new AsyncPublisher(channel, AsyncPublisher.DEFAULT_CAPACITY, AsyncPublisher.Backpressure.DROP_OLDEST, true);
+		} else {
+			confirmPublisher = new ConfirmPublisher(channel);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (asyncPublisher != null) {
+			asyncPublisher.close();
+		}
+		connection.close();
+	}
+
+	@Benchmark
+	public CompletableFuture<Void> publish() throws IOException, InterruptedException {
+		if (asyncPublisher != null) {
+			return asyncPublisher.publish("", QUEUE_NAME, MessageProperties.BASIC, BODY);
+		}
+		return confirmPublisher.publish("", QUEUE_NAME, MessageProperties.BASIC, BODY);
+	}
+}
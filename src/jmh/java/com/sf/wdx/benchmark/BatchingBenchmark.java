@@ -0,0 +1,115 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.ExchangeTypes;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.sf.wdx.consumer.Unbatcher;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.publisher.BatchingPublisher;
+
+/**
+ * 描述：Topic日志行大小的消息逐条发送 vs 批量打包发送，经过LoopbackBroker到消费者拆包的端到端吞吐量
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchingBenchmark {
+
+	private static final int MESSAGES = 1000;
+
+	private static final String EXCHANGE_NAME = "logs_topic_benchmark";
+
+	private static final String ROUTING_KEY = "cn.li.warn";
+
+	private Connection connection;
+
+	private Channel channel;
+
+	private BatchingPublisher publisher;
+
+	private final AtomicLong received = new AtomicLong();
+
+	private long expected;
+
+	private byte[] body;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-batching");
+		connection = factory.newConnection();
+		channel = connection.createChannel();
+		channel.exchangeDeclare(EXCHANGE_NAME, ExchangeTypes.TOPIC);
+		Channel consumerChannel = connection.createChannel();
+		String queueName = consumerChannel.queueDeclare().getQueue();
+		consumerChannel.queueBind(queueName, EXCHANGE_NAME, "cn.#");
+		consumerChannel.basicConsume(queueName, true, new DefaultConsumer(consumerChannel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				received.addAndGet(Unbatcher.forEach(properties, body, m -> {
+				}));
+			}
+		});
+		// 时间阈值设大，批次只按大小发送，每次调用结束时flush
+		publisher = new BatchingPublisher(connection.createChannel(), EXCHANGE_NAME, null, BatchingPublisher.DEFAULT_MAX_BYTES, 60000);
+		body = "cn.li.warn---2026-10-17 12:00:00---42".getBytes(StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		publisher.close();
+		connection.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void single() throws IOException {
+		for (int i = 0; i < MESSAGES; i++) {
+			channel.basicPublish(EXCHANGE_NAME, ROUTING_KEY, null, body);
+		}
+		await();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES)
+	public void batched() throws IOException {
+		for (int i = 0; i < MESSAGES; i++) {
+			publisher.publish(ROUTING_KEY, body);
+		}
+		publisher.flush();
+		await();
+	}
+
+	private void await() {
+		expected += MESSAGES;
+		while (received.get() < expected) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alibaba.fastjson.JSON;
+import com.sf.wdx.codec.Codecs;
+import com.sf.wdx.codec.JsonCodec;
+import com.sf.wdx.codec.Schema;
+import com.sf.wdx.codec.SchemaCodec;
+
+/**
+ * 描述：结构化消息体的编解码耗时和每条消息的垃圾（-prof gc）：fastjson文本 vs 流式JsonCodec vs 二进制SchemaCodec
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	/**
+	 * 描述：运单轨迹消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static class Waybill {
+
+		private long waybillNo;
+
+		private String zone;
+
+		private String status;
+
+		private int pieces;
+
+		private double weight;
+
+		private boolean cod;
+
+		public long getWaybillNo() {
+			return waybillNo;
+		}
+
+		public void setWaybillNo(long waybillNo) {
+			this.waybillNo = waybillNo;
+		}
+
+		public String getZone() {
+			return zone;
+		}
+
+		public void setZone(String zone) {
+			this.zone = zone;
+		}
+
+		public String getStatus() {
+			return status;
+		}
+
+		public void setStatus(String status) {
+			this.status = status;
+		}
+
+		public int getPieces() {
+			return pieces;
+		}
+
+		public void setPieces(int pieces) {
+			this.pieces = pieces;
+		}
+
+		public double getWeight() {
+			return weight;
+		}
+
+		public void setWeight(double weight) {
+			this.weight = weight;
+		}
+
+		public boolean isCod() {
+			return cod;
+		}
+
+		public void setCod(boolean cod) {
+			this.cod = cod;
+		}
+	}
+
+	private static final Schema<Waybill> SCHEMA = Schema.builder("waybill.v1", Waybill.class, Waybill::new)
+			.int64("waybillNo", Waybill::getWaybillNo, Waybill::setWaybillNo)
+			.string("zone", Waybill::getZone, Waybill::setZone)
+			.string("status", Waybill::getStatus, Waybill::setStatus)
+			.int32("pieces", Waybill::getPieces, Waybill::setPieces)
+			.float64("weight", Waybill::getWeight, Waybill::setWeight)
+			.bool("cod", Waybill::isCod, Waybill::setCod)
+			.build();
+
+	private final Codecs codecs = new Codecs();
+
+	private final JsonCodec<Waybill> jsonCodec = new JsonCodec<Waybill>(SCHEMA);
+
+	private final SchemaCodec<Waybill> schemaCodec = new SchemaCodec<Waybill>(SCHEMA);
+
+	private Waybill waybill;
+
+	private byte[] json;
+
+	private byte[] binary;
+
+	@Setup
+	public void setup() {
+		waybill = new Waybill();
+		waybill.setWaybillNo(755123456789L);
+		waybill.setZone("755W");
+		waybill.setStatus("IN_TRANSIT");
+		waybill.setPieces(3);
+		waybill.setWeight(12.5);
+		waybill.setCod(true);
+		json = JSON.toJSONBytes(waybill);
+		binary = codecs.encode(schemaCodec, waybill);
+	}
+
+	@Benchmark
+	public byte[] fastjsonEncode() {
+		return JSON.toJSONBytes(waybill);
+	}
+
+	@Benchmark
+	public Waybill fastjsonDecode() {
+		return JSON.parseObject(json, Waybill.class);
+	}
+
+	@Benchmark
+	public byte[] jsonCodecEncode() {
+		return codecs.encode(jsonCodec, waybill);
+	}
+
+	@Benchmark
+	public Waybill jsonCodecDecode() throws IOException {
+		return jsonCodec.decode(ByteBuffer.wrap(json));
+	}
+
+	@Benchmark
+	public byte[] schemaCodecEncode() {
+		return codecs.encode(schemaCodec, waybill);
+	}
+
+	@Benchmark
+	public Waybill schemaCodecDecode() throws IOException {
+		return schemaCodec.decode(ByteBuffer.wrap(binary));
+	}
+}
@@ -0,0 +1,82 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alibaba.fastjson.JSON;
+import com.sf.wdx.compress.Compression;
+import com.sf.wdx.compress.CompressionCodec;
+import com.sf.wdx.compress.DeflateCodec;
+import com.sf.wdx.compress.Lz4Codec;
+
+/**
+ * 描述：JSON消息体的压缩/解压耗时（deflate vs LZ4），压缩后大小在Setup中打印
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+	@Param({ DeflateCodec.ENCODING, Lz4Codec.ENCODING })
+	private String encoding;
+
+	/**
+	 * JSON数组的元素个数（约80字节一个）
+	 */
+	@Param({ "16", "256" })
+	private int records;
+
+	private CompressionCodec codec;
+
+	private byte[] body;
+
+	private byte[] packed;
+
+	@Setup
+	public void setup() {
+		codec = Compression.codec(encoding);
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < records; i++) {
+			Map<String, Object> record = new LinkedHashMap<String, Object>();
+			record.put("waybillNo", 755000000000L + i * 7919L);
+			record.put("zone", "755W" + (i % 13));
+			record.put("status", i % 3 == 0 ? "PICKED" : "IN_TRANSIT");
+			record.put("weight", (i * 37 % 1000) / 10.0);
+			list.add(record);
+		}
+		body = JSON.toJSONBytes(list);
+		packed = codec.compress(body, 0, body.length);
+		System.out.println(encoding + ": " + body.length + " -> " + packed.length + " bytes");
+	}
+
+	@Benchmark
+	public byte[] compress() {
+		return codec.compress(body, 0, body.length);
+	}
+
+	@Benchmark
+	public byte[] decompress() throws IOException {
+		return codec.decompress(packed, 0, packed.length);
+	}
+}
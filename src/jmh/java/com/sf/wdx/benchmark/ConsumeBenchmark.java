@@ -0,0 +1,116 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+
+/**
+ * 描述：消费者handleDelivery的解码路径（new String(body, "UTF-8")，直接调用，不经过broker所以不含ack），
+ * 		以及经过LoopbackBroker的完整投递（发送 -> 分发线程 -> 解码 -> 手动ack），每次调用发送BATCH条并等消费者全部收到，结果按消息数计。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumeBenchmark {
+
+	private static final int BATCH = 1000;
+
+	private static final String TASK_QUEUE_NAME = "task_queue";
+
+	private Connection connection;
+
+	private Channel channel;
+
+	private DefaultConsumer decoder;
+
+	private final AtomicLong received = new AtomicLong();
+
+	private long expected;
+
+	private Envelope envelope;
+
+	private byte[] body;
+
+	private Blackhole blackhole;
+
+	@Setup
+	public void setup(Blackhole bh) throws Exception {
+		this.blackhole = bh;
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-consume");
+		connection = factory.newConnection();
+		channel = connection.createChannel();
+		channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
+		// 直接调用：envelope不是broker投递的，不能ack（loopback和真实broker一样会因unknown delivery tag关闭通道）
+		decoder = new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				blackhole.consume(new String(body, "UTF-8"));
+			}
+		};
+		// 与Work.consumer相同的处理（去掉sleep和打印）
+		final Channel consumeChannel = connection.createChannel();
+		consumeChannel.basicQos(BATCH);
+		consumeChannel.basicConsume(TASK_QUEUE_NAME, false, new DefaultConsumer(consumeChannel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				String message = new String(body, "UTF-8");
+				blackhole.consume(message);
+				getChannel().basicAck(envelope.getDeliveryTag(), false);
+				received.incrementAndGet();
+			}
+		});
+		envelope = new Envelope(1, false, "", TASK_QUEUE_NAME);
+		body = "Hello World!2026-10-17 12:00:00----42".getBytes(StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Benchmark
+	public void handleDelivery() throws IOException {
+		decoder.handleDelivery(TASK_QUEUE_NAME, envelope, MessageProperties.PERSISTENT_TEXT_PLAIN, body);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void publishAndDeliver() throws IOException {
+		for (int i = 0; i < BATCH; i++) {
+			channel.basicPublish("", TASK_QUEUE_NAME, MessageProperties.PERSISTENT_TEXT_PLAIN, body);
+		}
+		expected += BATCH;
+		while (received.get() < expected) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.sf.wdx.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sf.wdx.util.DateUtils;
+
+/**
+ * 描述：多线程下DateUtils三种格式化方式的开销（date2Str全局锁 / format缓存格式器 / now缓存当前时间）
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DateUtilsBenchmark {
+
+	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+	@Benchmark
+	public String date2Str() {
+		return DateUtils.date2Str(new Date(), PATTERN);
+	}
+
+	@Benchmark
+	public String format() {
+		return DateUtils.format(new Date(), PATTERN);
+	}
+
+	@Benchmark
+	public String now() {
+		return DateUtils.now(PATTERN);
+	}
+}
@@ -0,0 +1,73 @@
+package com.sf.wdx.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.AMQP;
+import com.sf.wdx.consumer.DedupFilter;
+
+/**
+ * 描述：去重过滤器每条消息的开销
+ * 		fresh：新消息（登记并淘汰最早的一条，表满、缓存不命中）；duplicate：重复消息（命中）；
+ * 		keyOf：没有messageId时按1KB的body算哈希。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DedupBenchmark {
+
+	private static final int MAX_ENTRIES = 1 << 20;
+
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	@Param({ "false", "true" })
+	public boolean offHeap;
+
+	private DedupFilter filter;
+
+	private long next;
+
+	private final byte[] body = new byte[1024];
+
+	private final AMQP.BasicProperties props = new AMQP.BasicProperties();
+
+	@Setup
+	public void setup() {
+		filter = new DedupFilter(MAX_ENTRIES, 10, TimeUnit.MINUTES, offHeap);
+		// 先填满，后面每次登记都要淘汰
+		for (next = 1; next <= MAX_ENTRIES * 2L; next++) {
+			filter.tryClaim(next * GOLDEN);
+		}
+	}
+
+	@Benchmark
+	public boolean fresh() {
+		return filter.tryClaim(next++ * GOLDEN);
+	}
+
+	@Benchmark
+	public boolean duplicate() {
+		return filter.tryClaim((next - 1) * GOLDEN);
+	}
+
+	@Benchmark
+	public long keyOf() {
+		return DedupFilter.keyOf(props, body);
+	}
+}
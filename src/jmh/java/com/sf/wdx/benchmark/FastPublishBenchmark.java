@@ -0,0 +1,98 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.codec.CodecBuffer;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.publisher.FastPublisher;
+import com.sf.wdx.publisher.RoutingKeys;
+import com.sf.wdx.util.DateUtils;
+
+/**
+ * 描述：Topic.producer的发送路径每条消息产生的垃圾（看-prof gc的gc.alloc.rate.norm，单位B/op）
+ * 		concat：原来的写法（每条消息3个new Random、拼接routingKey和消息、getBytes）；
+ * 		fast：FastPublisher + RoutingKeys，客户端稳定后不分配对象（DateUtils每毫秒格式化一次时间，均摊到每条消息不到1字节）。
+ * 		交换机上没有绑定队列，LoopbackBroker按不可路由丢弃；它仍像网络发送一样复制消息体、包装消息（约64 B/op），两种写法都含这一部分。
+ * 		客户端的0分配由FastPublisherTest断言。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastPublishBenchmark {
+
+	private static final String EXCHANGE_NAME = "logs_topic";
+
+	private static final String[] LEVELS = { "info", "warn", "error" };
+
+	private static final String[] COUNTRYS = { "cn", "us", "kr" };
+
+	private static final String[] PERSONS = { "ming", "hong", "li" };
+
+	private static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+	private static final RoutingKeys ROUTING_KEYS = RoutingKeys.product(COUNTRYS, PERSONS, LEVELS);
+
+	private Connection connection;
+
+	private Channel channel;
+
+	private FastPublisher publisher;
+
+	private int i;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-fast-publish");
+		connection = factory.newConnection();
+		channel = connection.createChannel();
+		channel.exchangeDeclare(EXCHANGE_NAME, "topic");
+		publisher = new FastPublisher(channel, EXCHANGE_NAME, MessageProperties.TEXT_PLAIN);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Benchmark
+	public void concat() throws IOException {
+		String country = COUNTRYS[new Random().nextInt(1000) % 3];
+		String person = PERSONS[new Random().nextInt(1000) % 3];
+		String level = LEVELS[new Random().nextInt(1000) % 3];
+		String routingKey = country + "." + person + "." + level;
+		String message = routingKey + "---" + DateUtils.now(PATTERN) + "---" + (i++);
+		channel.basicPublish(EXCHANGE_NAME, routingKey, MessageProperties.TEXT_PLAIN, message.getBytes());
+	}
+
+	@Benchmark
+	public void fast() throws IOException {
+		int key = ROUTING_KEYS.random(ThreadLocalRandom.current());
+		CodecBuffer body = publisher.buffer();
+		body.writeBytes(ROUTING_KEYS.bytes(key)).writeAscii("---").writeBytes(DateUtils.nowBytes(PATTERN)).writeAscii("---").writeDecimal(i++);
+		publisher.publish(ROUTING_KEYS, key, body);
+	}
+}
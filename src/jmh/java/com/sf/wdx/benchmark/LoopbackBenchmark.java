@@ -0,0 +1,101 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+
+/**
+ * 描述：经过LoopbackBroker的端到端吞吐量（发送 -> 队列 -> 分发线程 -> handleDelivery -> ack）
+ * 		每次调用发送BATCH条消息并等待消费者全部收到，结果按消息数计。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackBenchmark {
+
+	private static final int BATCH = 1000;
+
+	private static final String QUEUE_NAME = "loopback_benchmark";
+
+	/**
+	 * true：autoAck；false：手动ack，每64条multiple ack一次，预取1000
+	 */
+	@Param({ "true", "false" })
+	public boolean autoAck;
+
+	private Connection connection;
+
+	private Channel producer;
+
+	private final AtomicLong received = new AtomicLong();
+
+	private long expected;
+
+	private byte[] body;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-" + autoAck);
+		connection = factory.newConnection();
+		producer = connection.createChannel();
+		producer.queueDeclare(QUEUE_NAME, true, false, false, null);
+		final Channel channel = connection.createChannel();
+		channel.basicQos(BATCH);
+		channel.basicConsume(QUEUE_NAME, autoAck, new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				long count = received.incrementAndGet();
+				if (!autoAck && (count & 63) == 0) {
+					channel.basicAck(envelope.getDeliveryTag(), true);
+				}
+			}
+		});
+		body = "Hello World!2026-10-17 12:00:00----42".getBytes(StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void publishAndConsume() throws IOException {
+		for (int i = 0; i < BATCH; i++) {
+			producer.basicPublish("", QUEUE_NAME, MessageProperties.PERSISTENT_TEXT_PLAIN, body);
+		}
+		expected += BATCH;
+		while (received.get() < expected) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.metrics.ClientMetrics;
+import com.sf.wdx.metrics.InstrumentedConnectionFactory;
+
+/**
+ * 描述：InstrumentedChannel的额外开销：confirm模式发送（含confirm延迟）、投递+手动ack（含耗时、ack延迟、占用）
+ * 		经过LoopbackBroker，每次调用发送BATCH条并等消费者全部确认，结果按消息数计；配合-prof gc查看记录指标是否分配内存
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+	private static final int BATCH = 1000;
+
+	private static final String QUEUE_NAME = "metrics_queue";
+
+	private static final byte[] BODY = new byte[128];
+
+	@Param({ "false", "true" })
+	private boolean instrumented;
+
+	private ClientMetrics metrics;
+
+	private Channel publishChannel;
+
+	private Channel consumeChannel;
+
+	private Connection connection;
+
+	private final AtomicLong received = new AtomicLong();
+
+	private long expected;
+
+	@Setup
+	public void setup() throws Exception {
+		metrics = new ClientMetrics(null, ClientMetrics.DEFAULT_PERIOD_MILLIS);
+		LoopbackConnectionFactory loopback = new LoopbackConnectionFactory();
+		loopback.setVirtualHost("/benchmark-metrics-" + instrumented);
+		connection = instrumented ? new InstrumentedConnectionFactory(loopback, metrics).newConnection() : loopback.newConnection();
+		publishChannel = connection.createChannel();
+		publishChannel.queueDeclare(QUEUE_NAME, true, false, false, null);
+		publishChannel.confirmSelect();
+		consumeChannel = connection.createChannel();
+		consumeChannel.basicQos(BATCH);
+		// 手动ack，每条投递处理完立即确认
+		consumeChannel.basicConsume(QUEUE_NAME, false, new DefaultConsumer(consumeChannel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				getChannel().basicAck(envelope.getDeliveryTag(), false);
+				received.incrementAndGet();
+			}
+		});
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		connection.close();
+		metrics.close();
+	}
+
+	/**
+	 * 发送BATCH条，等消费者全部处理完
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void publishAndConsume() throws IOException {
+		for (int i = 0; i < BATCH; i++) {
+			publishChannel.basicPublish("", QUEUE_NAME, MessageProperties.PERSISTENT_BASIC, BODY);
+		}
+		expected += BATCH;
+		while (received.get() < expected) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.sf.wdx.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.outbox.Outbox;
+import com.sf.wdx.outbox.OutboxJournal;
+import com.sf.wdx.publisher.ConfirmPublisher;
+
+/**
+ * 描述：调用线程花在发送上的时间分布
+ * 		confirm：ConfirmPublisher直接basicPublish；
+ * 		outbox-*：只追加到本地日志（NONE/INTERVAL刷盘策略），由转发线程发给LoopbackBroker并删除已确认的分段。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboxBenchmark {
+
+	private static final String QUEUE_NAME = "outbox_benchmark";
+
+	private static final byte[] BODY = new byte[128];
+
+	@Param({ "confirm", "outbox-none", "outbox-interval" })
+	public String mode;
+
+	private Connection connection;
+
+	private Connection drain;
+
+	private ConfirmPublisher confirmPublisher;
+
+	private Outbox outbox;
+
+	private File dir;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-" + mode);
+		// autoAck消费者把队列排空
+		drain = factory.newConnection();
+		Channel consumer = drain.createChannel();
+		consumer.queueDeclare(QUEUE_NAME, false, false, false, null);
+		consumer.basicConsume(QUEUE_NAME, true, new DefaultConsumer(consumer));
+		if (mode.startsWith("outbox")) {
+			dir = Files.createTempDirectory("outbox-benchmark").toFile();
+			OutboxJournal.Fsync fsync = "outbox-none".equals(mode) ? OutboxJournal.Fsync.NONE : OutboxJournal.Fsync.INTERVAL;
+			OutboxJournal journal = new OutboxJournal(dir, OutboxJournal.DEFAULT_SEGMENT_SIZE, OutboxJournal.DEFAULT_MAX_BYTES,
+					fsync, OutboxJournal.DEFAULT_FSYNC_INTERVAL_MILLIS);
+			outbox = new Outbox(journal, factory);
+		} else {
+			connection = factory.newConnection();
+			confirmPublisher = new ConfirmPublisher(connection.createChannel());
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (outbox != null) {
+			outbox.close(10, TimeUnit.SECONDS);
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		} else {
+			connection.close();
+		}
+		drain.close();
+	}
+
+	@Benchmark
+	public Object publish() throws Exception {
+		if (outbox != null) {
+			return outbox.publish("", QUEUE_NAME, MessageProperties.PERSISTENT_BASIC, BODY);
+		}
+		CompletableFuture<Void> future = confirmPublisher.publish("", QUEUE_NAME, MessageProperties.PERSISTENT_BASIC, BODY);
+		return future;
+	}
+}
@@ -0,0 +1,82 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.publisher.ConfirmPublisher;
+import com.sf.wdx.util.DateUtils;
+
+/**
+ * 描述：Work.producer的发送路径：拼装消息 + 持久化属性 + 发送（直接发送 / 异步确认发送）
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishBenchmark {
+
+	private static final String TASK_QUEUE_NAME = "task_queue";
+
+	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+	private Connection connection;
+
+	private Channel channel;
+
+	private ConfirmPublisher publisher;
+
+	private int i;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-publish");
+		connection = factory.newConnection();
+		channel = connection.createChannel();
+		channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
+		// autoAck空消费者把队列排空，只测发送方
+		channel.basicConsume(TASK_QUEUE_NAME, true, new DefaultConsumer(channel));
+		Channel confirmChannel = connection.createChannel();
+		publisher = new ConfirmPublisher(confirmChannel);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Benchmark
+	public void publish() throws IOException {
+		String message = "Hello World!" + DateUtils.now(PATTERN) + "----" + (i++);
+		channel.basicPublish("", TASK_QUEUE_NAME, MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public CompletableFuture<Void> confirmPublish() throws IOException, InterruptedException {
+		String message = "Hello World!" + DateUtils.now(PATTERN) + "----" + (i++);
+		return publisher.publish("", TASK_QUEUE_NAME, MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes(StandardCharsets.UTF_8));
+	}
+}
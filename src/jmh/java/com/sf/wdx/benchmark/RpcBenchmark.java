@@ -0,0 +1,77 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.rpc.Fibonacci;
+import com.sf.wdx.rpc.RpcClient;
+import com.sf.wdx.rpc.RpcHandler;
+import com.sf.wdx.rpc.RpcServer;
+
+/**
+ * 描述：RPC往返：RpcClient发请求 -> RpcServer工作线程计算fib -> 回复 -> 客户端future完成
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RpcBenchmark {
+
+	private static final String RPC_QUEUE_NAME = "rpc_queue";
+
+	private Connection connection;
+
+	private RpcServer server;
+
+	private RpcClient client;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory();
+		factory.setVirtualHost("/benchmark-rpc");
+		connection = factory.newConnection();
+		Channel channel = connection.createChannel();
+		channel.queueDeclare(RPC_QUEUE_NAME, false, false, false, null);
+		server = new RpcServer(channel, RPC_QUEUE_NAME, 4, new RpcHandler() {
+			@Override
+			public byte[] handle(byte[] body, AMQP.BasicProperties properties) throws Exception {
+				return Fibonacci.fib(Integer.parseInt(new String(body, "UTF-8"))).toString().getBytes("UTF-8");
+			}
+		});
+		server.start();
+		client = new RpcClient(connection.createChannel(), RPC_QUEUE_NAME);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		client.close();
+		server.close();
+		connection.close();
+	}
+
+	@Benchmark
+	public String roundTrip() throws IOException, InterruptedException, TimeoutException {
+		return client.callAndWait("30", 5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,69 @@
+package com.sf.wdx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+
+/**
+ * 描述：SpringMain的发送路径：RabbitTemplate.convertAndSend（SimpleMessageConverter + 缓存通道代理）
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpringTemplateBenchmark {
+
+	private static final String EXCHANGE_NAME = "fanoutExchange";
+
+	private static final String QUEUE_NAME = "spring-queue-helloworld";
+
+	private CachingConnectionFactory connectionFactory;
+
+	private RabbitTemplate template;
+
+	@Setup
+	public void setup() throws Exception {
+		LoopbackConnectionFactory loopback = new LoopbackConnectionFactory();
+		loopback.setVirtualHost("/benchmark-spring");
+		connectionFactory = new CachingConnectionFactory(loopback);
+		// 与spring-rabbitmq.xml一致：fanoutExchange绑定spring-queue-helloworld，autoAck消费者把队列排空
+		Channel channel = connectionFactory.createConnection().createChannel(false);
+		channel.exchangeDeclare(EXCHANGE_NAME, "fanout");
+		channel.queueDeclare(QUEUE_NAME, false, false, false, null);
+		channel.queueBind(QUEUE_NAME, EXCHANGE_NAME, "");
+		channel.basicConsume(QUEUE_NAME, true, new DefaultConsumer(channel));
+		template = new RabbitTemplate(connectionFactory);
+		template.setExchange(EXCHANGE_NAME);
+	}
+
+	@TearDown
+	public void tearDown() {
+		connectionFactory.destroy();
+	}
+
+	@Benchmark
+	public void convertAndSend() {
+		template.convertAndSend("Hello, world!");
+	}
+}
@@ -0,0 +1,309 @@
+package com.sf.wdx.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * 描述：编码用的可增长字节缓冲区，按线程池化
+ * 		acquire()取出当前线程的空闲缓冲区（没有时新建），写完后toByteArray()得到消息体，再release()放回。
+ * 		编码过程中只在缓冲区容量不够时扩容，除最终的消息体数组外不产生垃圾。
+ * 		release之后不能再使用该缓冲区；缓冲区不能跨线程release。
+ * 		同时提供消息体ByteBuffer上的变长整数读取方法，与写入方法对应。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class CodecBuffer {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * 超过这个容量的缓冲区不放回池中，避免偶尔的大消息长期占用内存
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+	/**
+	 * 每个线程最多保留的空闲缓冲区（嵌套编码时同一线程会同时持有多个）
+	 */
+	private static final int MAX_POOLED = 4;
+
+	private static final ThreadLocal<ArrayDeque<CodecBuffer>> POOL = new ThreadLocal<ArrayDeque<CodecBuffer>>() {
+		@Override
+		protected ArrayDeque<CodecBuffer> initialValue() {
+			return new ArrayDeque<CodecBuffer>(MAX_POOLED);
+		}
+	};
+
+	private byte[] array;
+
+	private int size;
+
+	public CodecBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public CodecBuffer(int capacity) {
+		this.array = new byte[capacity];
+	}
+
+	/**
+	 * 从当前线程的池中取出一个空缓冲区
+	 */
+	public static CodecBuffer acquire() {
+		CodecBuffer buffer = POOL.get().pollFirst();
+		if (buffer == null) {
+			return new CodecBuffer();
+		}
+		buffer.size = 0;
+		return buffer;
+	}
+
+	/**
+	 * 放回当前线程的池
+	 */
+	public void release() {
+		if (array.length > MAX_RETAINED_CAPACITY) {
+			return;
+		}
+		ArrayDeque<CodecBuffer> pool = POOL.get();
+		if (pool.size() < MAX_POOLED) {
+			pool.addFirst(this);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * 内部数组，有效内容是[0, size())
+	 */
+	public byte[] array() {
+		return array;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(array, size);
+	}
+
+	public CodecBuffer writeByte(int b) {
+		ensure(1);
+		array[size++] = (byte) b;
+		return this;
+	}
+
+	public CodecBuffer writeBytes(byte[] src) {
+		return writeBytes(src, 0, src.length);
+	}
+
+	public CodecBuffer writeBytes(byte[] src, int off, int len) {
+		ensure(len);
+		System.arraycopy(src, off, array, size, len);
+		size += len;
+		return this;
+	}
+
+	/**
+	 * 8字节大端
+	 */
+	public CodecBuffer writeLong(long v) {
+		ensure(8);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			array[size++] = (byte) (v >>> shift);
+		}
+		return this;
+	}
+
+	public CodecBuffer writeDouble(double v) {
+		return writeLong(Double.doubleToRawLongBits(v));
+	}
+
+	/**
+	 * 无符号变长整数（每字节7位，低位在前）
+	 */
+	public CodecBuffer writeVarInt(int v) {
+		ensure(5);
+		while ((v & ~0x7F) != 0) {
+			array[size++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		array[size++] = (byte) v;
+		return this;
+	}
+
+	public CodecBuffer writeVarLong(long v) {
+		ensure(10);
+		while ((v & ~0x7FL) != 0) {
+			array[size++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		array[size++] = (byte) v;
+		return this;
+	}
+
+	/**
+	 * 有符号数zigzag编码后按变长整数写入（绝对值小的负数也只占一两个字节）
+	 */
+	public CodecBuffer writeZigZagInt(int v) {
+		return writeVarInt((v << 1) ^ (v >> 31));
+	}
+
+	public CodecBuffer writeZigZagLong(long v) {
+		return writeVarLong((v << 1) ^ (v >> 63));
+	}
+
+	/**
+	 * 十进制ASCII
+	 */
+	public CodecBuffer writeDecimal(long v) {
+		if (v == Long.MIN_VALUE) {
+			return writeAscii("-9223372036854775808");
+		}
+		ensure(20);
+		if (v < 0) {
+			array[size++] = '-';
+			v = -v;
+		}
+		int start = size;
+		do {
+			array[size++] = (byte) ('0' + v % 10);
+			v /= 10;
+		} while (v != 0);
+		// 反转
+		for (int i = start, j = size - 1; i < j; i++, j--) {
+			byte t = array[i];
+			array[i] = array[j];
+			array[j] = t;
+		}
+		return this;
+	}
+
+	/**
+	 * 只含ASCII字符的文本（调用方保证）
+	 */
+	public CodecBuffer writeAscii(String s) {
+		int length = s.length();
+		ensure(length);
+		for (int i = 0; i < length; i++) {
+			array[size++] = (byte) s.charAt(i);
+		}
+		return this;
+	}
+
+	/**
+	 * UTF-8编码写入，不经过中间byte[]；不成对的代理字符写成'?'（与String.getBytes一致）
+	 *	@ReturnType	int		写入的字节数
+	 */
+	public int writeUtf8(CharSequence s) {
+		return writeUtf8(s, 0, s.length());
+	}
+
+	/**
+	 * 写入s的[from, to)区间
+	 */
+	public int writeUtf8(CharSequence s, int from, int to) {
+		ensure((to - from) * 3);
+		int start = size;
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				array[size++] = (byte) c;
+			} else if (c < 0x800) {
+				array[size++] = (byte) (0xC0 | (c >> 6));
+				array[size++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				int cp = -1;
+				if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+					cp = Character.toCodePoint(c, s.charAt(++i));
+				}
+				if (cp < 0) {
+					array[size++] = '?';
+				} else {
+					array[size++] = (byte) (0xF0 | (cp >> 18));
+					array[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+					array[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+					array[size++] = (byte) (0x80 | (cp & 0x3F));
+				}
+			} else {
+				array[size++] = (byte) (0xE0 | (c >> 12));
+				array[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				array[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return size - start;
+	}
+
+	/**
+	 * UTF-8编码后的字节数（与writeUtf8一致）
+	 */
+	public static int utf8Length(CharSequence s) {
+		int length = s.length();
+		int bytes = 0;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				bytes++;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					i++;
+					bytes += 4;
+				} else {
+					bytes++;
+				}
+			} else {
+				bytes += 3;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * 读取writeVarInt写入的值
+	 *	@Param  @throws java.nio.BufferUnderflowException		数据不完整
+	 */
+	public static int readVarInt(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("malformed varint");
+	}
+
+	public static long readVarLong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("malformed varlong");
+	}
+
+	public static int readZigZagInt(ByteBuffer in) {
+		int v = readVarInt(in);
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	public static long readZigZagLong(ByteBuffer in) {
+		long v = readVarLong(in);
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private void ensure(int n) {
+		if (size + n > array.length) {
+			array = Arrays.copyOf(array, Math.max(array.length * 2, size + n));
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import com.sf.wdx.compress.Compression;
+
+/**
+ * 描述：基于Codecs的Spring MessageConverter，替代默认的SimpleMessageConverter
+ * 		用于RabbitTemplate（convertAndSend）和监听容器（监听方法的参数）。
+ * 		String按UTF-8编码为text/plain，byte[]原样发送，其他对象用注册的编解码器；
+ * 		接收时先按contentEncoding解压，再按(contentType, type)解码。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class CodecMessageConverter implements MessageConverter {
+
+	private final Codecs codecs;
+
+	public CodecMessageConverter() {
+		this(Codecs.getDefault());
+	}
+
+	public CodecMessageConverter(Codecs codecs) {
+		this.codecs = codecs;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+		byte[] body;
+		if (object instanceof byte[]) {
+			body = (byte[]) object;
+			messageProperties.setContentType(MessageProperties.CONTENT_TYPE_BYTES);
+		} else {
+			MessageCodec<Object> codec;
+			try {
+				codec = (MessageCodec<Object>) codecs.codecFor(object.getClass());
+			} catch (IllegalArgumentException e) {
+				throw new MessageConversionException(e.getMessage(), e);
+			}
+			body = codecs.encode(codec, object);
+			messageProperties.setContentType(codec.getContentType());
+			if (codec.getTypeName() != null) {
+				messageProperties.setType(codec.getTypeName());
+			}
+		}
+		messageProperties.setContentLength(body.length);
+		return new Message(body, messageProperties);
+	}
+
+	@Override
+	public Object fromMessage(Message message) throws MessageConversionException {
+		MessageProperties properties = message.getMessageProperties();
+		try {
+			if (properties == null) {
+				return message.getBody();
+			}
+			byte[] body = Compression.decode(properties.getContentEncoding(), message.getBody());
+			return codecs.decode(properties.getContentType(), properties.getType(), body);
+		} catch (IOException e) {
+			throw new MessageConversionException("failed to decode message: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.compress.Compression;
+
+/**
+ * 描述：编解码器注册表，以及原生Channel API上的编码发送、按消息属性解码
+ * 		发送端按对象类型选择编解码器，在消息属性中写入contentType和type；
+ * 		消费端按(contentType, type)找到解码器，contentEncoding是压缩算法时先解压（见compress.Compression）。
+ * 		找不到解码器时：text/*按UTF-8解码为String，其他原样返回byte[]。
+ * 		register同时用于编码和解码；registerDecoder只用于解码（例：从JSON切换到二进制时，消费端先兼容两种格式）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Codecs {
+
+	private static final Codecs DEFAULT = new Codecs();
+
+	/**
+	 * 对象类型 -> 编码器
+	 */
+	private final ConcurrentMap<Class<?>, MessageCodec<?>> encoders = new ConcurrentHashMap<Class<?>, MessageCodec<?>>();
+
+	/**
+	 * contentType -> (type -> 解码器)，两级Map查找时不用拼接字符串
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<String, MessageCodec<?>>> decoders = new ConcurrentHashMap<String, ConcurrentMap<String, MessageCodec<?>>>();
+
+	/**
+	 * 编码器的消息属性（contentType和type固定，每个编码器只创建一次）
+	 */
+	private final ConcurrentMap<MessageCodec<?>, AMQP.BasicProperties> properties = new ConcurrentHashMap<MessageCodec<?>, AMQP.BasicProperties>();
+
+	public Codecs() {
+		register(Utf8Codec.INSTANCE);
+	}
+
+	/**
+	 * 进程内共享的注册表（Spring的CodecMessageConverter默认使用）
+	 */
+	public static Codecs getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * 注册编解码器：同一对象类型后注册的编码器生效
+	 */
+	public Codecs register(MessageCodec<?> codec) {
+		encoders.put(codec.getType(), codec);
+		return registerDecoder(codec);
+	}
+
+	public Codecs registerDecoder(MessageCodec<?> codec) {
+		ConcurrentMap<String, MessageCodec<?>> byType = decoders.get(codec.getContentType());
+		if (byType == null) {
+			decoders.putIfAbsent(codec.getContentType(), new ConcurrentHashMap<String, MessageCodec<?>>());
+			byType = decoders.get(codec.getContentType());
+		}
+		byType.put(typeKey(codec.getTypeName()), codec);
+		return this;
+	}
+
+	/**
+	 * 对象类型的编码器
+	 *	@Param  @throws IllegalArgumentException	未注册
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> MessageCodec<T> codecFor(Class<T> type) {
+		MessageCodec<T> codec = (MessageCodec<T>) encoders.get(type);
+		if (codec == null) {
+			throw new IllegalArgumentException("no codec registered for " + type.getName());
+		}
+		return codec;
+	}
+
+	/**
+	 * 消息对应的解码器，没有时返回null
+	 */
+	public MessageCodec<?> codecFor(String contentType, String typeName) {
+		if (contentType == null) {
+			return null;
+		}
+		ConcurrentMap<String, MessageCodec<?>> byType = decoders.get(contentType);
+		if (byType == null) {
+			return null;
+		}
+		MessageCodec<?> codec = byType.get(typeKey(typeName));
+		// 只注册了一个不区分type的解码器（例：text/plain）
+		return codec == null && typeName != null ? byType.get("") : codec;
+	}
+
+	/**
+	 * 用池化缓冲区编码，返回消息体
+	 */
+	public <T> byte[] encode(MessageCodec<T> codec, T value) {
+		CodecBuffer buffer = CodecBuffer.acquire();
+		try {
+			codec.encode(value, buffer);
+			return buffer.toByteArray();
+		} finally {
+			buffer.release();
+		}
+	}
+
+	/**
+	 * 设置了contentType和type的消息属性
+	 *	@Param  @param template		其他属性（deliveryMode等），为null时返回缓存的属性对象
+	 */
+	public AMQP.BasicProperties properties(MessageCodec<?> codec, AMQP.BasicProperties template) {
+		if (template == null) {
+			AMQP.BasicProperties props = properties.get(codec);
+			if (props == null) {
+				props = new AMQP.BasicProperties.Builder().contentType(codec.getContentType()).type(codec.getTypeName()).build();
+				properties.putIfAbsent(codec, props);
+			}
+			return props;
+		}
+		return template.builder().contentType(codec.getContentType()).type(codec.getTypeName()).build();
+	}
+
+	/**
+	 * 按value的类型编码后发送
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午11:05:12
+	 *  @Param  @param channel
+	 *  @Param  @param exchange
+	 *  @Param  @param routingKey
+	 *  @Param  @param template		消息属性模板，可为null
+	 *  @Param  @param value
+	 *  @Param  @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void publish(Channel channel, String exchange, String routingKey, AMQP.BasicProperties template, T value) throws IOException {
+		MessageCodec<T> codec = codecFor((Class<T>) value.getClass());
+		channel.basicPublish(exchange, routingKey, properties(codec, template), encode(codec, value));
+	}
+
+	/**
+	 * 按消息属性解码（先解压）
+	 *	@ReturnType	Object		解码后的对象；没有对应解码器时text/*为String，其他为byte[]
+	 *	@Date	2026年10月17日	下午11:06:40
+	 *  @Param  @throws IOException		解压或解码失败
+	 */
+	public Object decode(AMQP.BasicProperties props, byte[] body) throws IOException {
+		if (props == null) {
+			return body;
+		}
+		return decode(props.getContentType(), props.getType(), Compression.decode(props, body));
+	}
+
+	/**
+	 * 按消息属性解码为指定类型
+	 *		没有contentType的旧消息按String读取时按UTF-8解码
+	 *	@Param  @throws IOException		解码失败，或消息不是该类型
+	 */
+	public <T> T decode(AMQP.BasicProperties props, byte[] body, Class<T> type) throws IOException {
+		Object value = decode(props, body);
+		if (type == String.class && value instanceof byte[]) {
+			value = Utf8Codec.INSTANCE.decode(ByteBuffer.wrap((byte[]) value));
+		}
+		if (value != null && !type.isInstance(value)) {
+			throw new IOException("expected " + type.getName() + " but message decoded as " + value.getClass().getName());
+		}
+		return type.cast(value);
+	}
+
+	/**
+	 * 解码已解压的消息体
+	 */
+	public Object decode(String contentType, String typeName, byte[] body) throws IOException {
+		MessageCodec<?> codec = codecFor(contentType, typeName);
+		if (codec != null) {
+			return codec.decode(ByteBuffer.wrap(body));
+		}
+		if (contentType != null && contentType.startsWith("text/")) {
+			return Utf8Codec.INSTANCE.decode(ByteBuffer.wrap(body));
+		}
+		return body;
+	}
+
+	private static String typeKey(String typeName) {
+		return typeName == null ? "" : typeName;
+	}
+}
@@ -0,0 +1,603 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 描述：JsonCodec用的流式读写
+ * 		写：字符串转义后直接以UTF-8写入CodecBuffer，整数直接写十进制数字。
+ * 		读：Reader在消息体字节上逐字节扫描，字段名按字节与预编码的字段名比较，整数和常见的小数直接从字节解析，
+ * 			不含转义的字符串直接从字节构造String；只有字段值本身的String会被创建。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+final class Json {
+
+	private static final long MIN_LONG_DIV_10 = Long.MIN_VALUE / 10;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * 可以精确表示的10的幂（double尾数53位）
+	 */
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private Json() {
+	}
+
+	/**
+	 * 带引号和转义的字符串，null写成null
+	 */
+	static void writeString(CodecBuffer out, CharSequence s) {
+		if (s == null) {
+			out.writeAscii("null");
+			return;
+		}
+		out.writeByte('"');
+		int length = s.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			// 不需要转义的一段整体写入
+			if (i > start) {
+				out.writeUtf8(s, start, i);
+			}
+			start = i + 1;
+			out.writeByte('\\');
+			switch (c) {
+			case '"':
+				out.writeByte('"');
+				break;
+			case '\\':
+				out.writeByte('\\');
+				break;
+			case '\n':
+				out.writeByte('n');
+				break;
+			case '\r':
+				out.writeByte('r');
+				break;
+			case '\t':
+				out.writeByte('t');
+				break;
+			default:
+				out.writeByte('u').writeByte('0').writeByte('0').writeByte(HEX[c >> 4]).writeByte(HEX[c & 0xF]);
+			}
+		}
+		if (start < length) {
+			out.writeUtf8(s, start, length);
+		}
+		out.writeByte('"');
+	}
+
+	/**
+	 * 整数值的double写成整数；NaN和无穷大不是合法的JSON数字，写成null
+	 */
+	static void writeDouble(CodecBuffer out, double v) {
+		if (Double.isNaN(v) || Double.isInfinite(v)) {
+			out.writeAscii("null");
+		} else if (v == (long) v && Math.abs(v) < 1e15 && !(v == 0 && 1 / v < 0)) {
+			out.writeDecimal((long) v);
+		} else {
+			out.writeAscii(Double.toString(v));
+		}
+	}
+
+	/**
+	 * 描述：消息体字节上的JSON扫描器，按线程复用
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	static final class Reader {
+
+		private static final ThreadLocal<Reader> READERS = new ThreadLocal<Reader>() {
+			@Override
+			protected Reader initialValue() {
+				return new Reader();
+			}
+		};
+
+		private byte[] buf;
+
+		private int pos;
+
+		private int end;
+
+		/**
+		 * 含转义的字符串解码用
+		 */
+		private char[] chars = new char[64];
+
+		private int keyStart;
+
+		private int keyEnd;
+
+		/**
+		 * 字段名含转义时解码后的字段名，否则为null
+		 */
+		private String escapedKey;
+
+		/**
+		 * readDouble解析中的有效数字
+		 */
+		private long mantissa;
+
+		static Reader of(byte[] buf, int off, int len) {
+			Reader reader = READERS.get();
+			reader.buf = buf;
+			reader.pos = off;
+			reader.end = off + len;
+			return reader;
+		}
+
+		/**
+		 * 解码结束后释放对消息体的引用
+		 */
+		void clear() {
+			buf = null;
+			escapedKey = null;
+		}
+
+		/**
+		 * 跳过空白，返回下一个字节（不消耗），没有时返回-1
+		 */
+		int peek() {
+			while (pos < end) {
+				byte b = buf[pos];
+				if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+					return b;
+				}
+				pos++;
+			}
+			return -1;
+		}
+
+		void expect(char c) throws IOException {
+			if (peek() != c) {
+				throw error("expected '" + c + "'");
+			}
+			pos++;
+		}
+
+		boolean tryConsume(char c) {
+			if (peek() == c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * 对象成员之后：','返回true，'}'返回false
+		 */
+		boolean nextMember() throws IOException {
+			int b = peek();
+			pos++;
+			if (b == ',') {
+				return true;
+			}
+			if (b == '}') {
+				return false;
+			}
+			throw error("expected ',' or '}'");
+		}
+
+		boolean consumeNull() throws IOException {
+			if (peek() != 'n') {
+				return false;
+			}
+			literal("null");
+			return true;
+		}
+
+		/**
+		 * 读取字段名和冒号
+		 */
+		void readKey() throws IOException {
+			expect('"');
+			keyStart = pos;
+			escapedKey = null;
+			while (true) {
+				if (pos >= end) {
+					throw error("unterminated key");
+				}
+				byte b = buf[pos];
+				if (b == '"') {
+					break;
+				}
+				if (b == '\\') {
+					pos = keyStart - 1;
+					escapedKey = readString();
+					pos--;
+					break;
+				}
+				pos++;
+			}
+			keyEnd = pos;
+			pos++;
+			expect(':');
+		}
+
+		/**
+		 * 当前字段名是否等于name（nameBytes是name的UTF-8编码）
+		 */
+		boolean keyEquals(String name, byte[] nameBytes) {
+			if (escapedKey != null) {
+				return escapedKey.equals(name);
+			}
+			int length = keyEnd - keyStart;
+			if (length != nameBytes.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (buf[keyStart + i] != nameBytes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		String key() {
+			return escapedKey != null ? escapedKey : new String(buf, keyStart, keyEnd - keyStart, StandardCharsets.UTF_8);
+		}
+
+		boolean readBoolean() throws IOException {
+			int b = peek();
+			if (b == 't') {
+				literal("true");
+				return true;
+			}
+			if (b == 'f') {
+				literal("false");
+				return false;
+			}
+			throw error("expected boolean");
+		}
+
+		long readLong() throws IOException {
+			int start = skipSpaceAndMark();
+			boolean negative = false;
+			if (pos < end && buf[pos] == '-') {
+				negative = true;
+				pos++;
+			}
+			int digitsStart = pos;
+			long value = 0;
+			while (pos < end) {
+				int d = buf[pos] - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				// 按负数累加，Long.MIN_VALUE也能表示
+				if (value < MIN_LONG_DIV_10 || (value == MIN_LONG_DIV_10 && d > 8)) {
+					throw error("integer overflow");
+				}
+				value = value * 10 - d;
+				pos++;
+			}
+			if (pos == digitsStart) {
+				throw error("expected number");
+			}
+			if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+				// 带小数或指数的数字按double解析后截断
+				pos = start;
+				return (long) readDouble();
+			}
+			if (!negative) {
+				if (value == Long.MIN_VALUE) {
+					throw error("integer overflow");
+				}
+				value = -value;
+			}
+			return value;
+		}
+
+		double readDouble() throws IOException {
+			int start = skipSpaceAndMark();
+			boolean negative = false;
+			if (pos < end && buf[pos] == '-') {
+				negative = true;
+				pos++;
+			}
+			mantissa = 0;
+			int digits = 0;
+			int scale = 0;
+			boolean any = false;
+			// 1.整数部分
+			while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+				digits = accumulate(buf[pos++] - '0', digits);
+				any = true;
+			}
+			// 2.小数部分
+			if (pos < end && buf[pos] == '.') {
+				pos++;
+				while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+					digits = accumulate(buf[pos++] - '0', digits);
+					scale--;
+					any = true;
+				}
+			}
+			if (!any) {
+				throw error("expected number");
+			}
+			// 3.指数部分
+			if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+				pos++;
+				boolean expNegative = false;
+				if (pos < end && (buf[pos] == '+' || buf[pos] == '-')) {
+					expNegative = buf[pos++] == '-';
+				}
+				int exp = 0;
+				int expStart = pos;
+				while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+					exp = Math.min(exp * 10 + (buf[pos++] - '0'), 100000);
+				}
+				if (pos == expStart) {
+					throw error("expected exponent");
+				}
+				scale += expNegative ? -exp : exp;
+			}
+			// 有效数字不超过15位且10的幂可精确表示时，一次乘除即得正确舍入的结果
+			if (digits <= 15 && scale >= -22 && scale <= 22) {
+				double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+				return negative ? -value : value;
+			}
+			return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+		}
+
+		/**
+		 * 字符串值，null字面量返回null
+		 */
+		String readString() throws IOException {
+			if (consumeNull()) {
+				return null;
+			}
+			expect('"');
+			int start = pos;
+			// 1.不含转义：直接从字节构造
+			while (pos < end) {
+				byte b = buf[pos];
+				if (b == '"') {
+					pos++;
+					return new String(buf, start, pos - 1 - start, StandardCharsets.UTF_8);
+				}
+				if (b == '\\') {
+					break;
+				}
+				pos++;
+			}
+			if (pos >= end) {
+				throw error("unterminated string");
+			}
+			// 2.含转义：逐字符解码到char[]
+			pos = start;
+			int n = 0;
+			while (true) {
+				if (pos >= end) {
+					throw error("unterminated string");
+				}
+				int b = buf[pos++] & 0xFF;
+				if (n + 2 > chars.length) {
+					chars = Arrays.copyOf(chars, chars.length * 2);
+				}
+				if (b == '"') {
+					return new String(chars, 0, n);
+				}
+				if (b == '\\') {
+					if (pos >= end) {
+						throw error("unterminated escape");
+					}
+					int e = buf[pos++];
+					switch (e) {
+					case '"':
+					case '\\':
+					case '/':
+						chars[n++] = (char) e;
+						break;
+					case 'b':
+						chars[n++] = '\b';
+						break;
+					case 'f':
+						chars[n++] = '\f';
+						break;
+					case 'n':
+						chars[n++] = '\n';
+						break;
+					case 'r':
+						chars[n++] = '\r';
+						break;
+					case 't':
+						chars[n++] = '\t';
+						break;
+					case 'u':
+						chars[n++] = (char) hex4();
+						break;
+					default:
+						throw error("invalid escape");
+					}
+				} else if (b < 0x80) {
+					chars[n++] = (char) b;
+				} else {
+					n = decodeUtf8(b, n);
+				}
+			}
+		}
+
+		byte[] readBase64() throws IOException {
+			String s = readString();
+			if (s == null) {
+				return null;
+			}
+			try {
+				return java.util.Base64.getDecoder().decode(s);
+			} catch (IllegalArgumentException e) {
+				throw error("invalid base64");
+			}
+		}
+
+		/**
+		 * 跳过一个任意值（未知字段）
+		 */
+		void skipValue() throws IOException {
+			int b = peek();
+			if (b == '"') {
+				skipString();
+			} else if (b == '{' || b == '[') {
+				int depth = 0;
+				do {
+					if (pos >= end) {
+						throw error("unterminated value");
+					}
+					byte c = buf[pos];
+					if (c == '"') {
+						skipString();
+						continue;
+					}
+					if (c == '{' || c == '[') {
+						depth++;
+					} else if (c == '}' || c == ']') {
+						depth--;
+					}
+					pos++;
+				} while (depth > 0);
+			} else {
+				int start = pos;
+				while (pos < end) {
+					byte c = buf[pos];
+					if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+						break;
+					}
+					pos++;
+				}
+				if (pos == start) {
+					throw error("expected value");
+				}
+			}
+		}
+
+		/**
+		 * 值之后只允许空白
+		 */
+		void expectEnd() throws IOException {
+			if (peek() != -1) {
+				throw error("trailing data");
+			}
+		}
+
+		IOException error(String message) {
+			return new IOException("malformed json: " + message + " at offset " + pos);
+		}
+
+		/**
+		 * 累加一位数字到mantissa，返回有效数字位数（前导0不计）；超过18位后不再累加，此时会回退到Double.parseDouble
+		 */
+		private int accumulate(int d, int digits) {
+			if (mantissa != 0 || d != 0) {
+				digits++;
+			}
+			if (digits <= 18) {
+				mantissa = mantissa * 10 + d;
+			}
+			return digits;
+		}
+
+		private int skipSpaceAndMark() {
+			peek();
+			return pos;
+		}
+
+		private void skipString() throws IOException {
+			pos++;
+			while (pos < end) {
+				byte b = buf[pos++];
+				if (b == '"') {
+					return;
+				}
+				if (b == '\\') {
+					pos++;
+				}
+			}
+			throw error("unterminated string");
+		}
+
+		private void literal(String word) throws IOException {
+			int length = word.length();
+			if (end - pos < length) {
+				throw error("expected " + word);
+			}
+			for (int i = 0; i < length; i++) {
+				if (buf[pos + i] != word.charAt(i)) {
+					throw error("expected " + word);
+				}
+			}
+			pos += length;
+		}
+
+		private int hex4() throws IOException {
+			if (end - pos < 4) {
+				throw error("truncated \\u escape");
+			}
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int d = Character.digit(buf[pos++], 16);
+				if (d < 0) {
+					throw error("invalid \\u escape");
+				}
+				value = value << 4 | d;
+			}
+			return value;
+		}
+
+		/**
+		 * 解码一个多字节UTF-8字符（首字节b已读），非法序列解码为U+FFFD
+		 */
+		private int decodeUtf8(int b, int n) {
+			int extra;
+			int cp;
+			if (b >= 0xF0 && b < 0xF8) {
+				extra = 3;
+				cp = b & 0x07;
+			} else if (b >= 0xE0) {
+				extra = b < 0xF0 ? 2 : 0;
+				cp = b & 0x0F;
+			} else if (b >= 0xC0) {
+				extra = 1;
+				cp = b & 0x1F;
+			} else {
+				extra = 0;
+				cp = 0;
+			}
+			if (extra == 0 || end - pos < extra) {
+				chars[n++] = '\uFFFD';
+				return n;
+			}
+			for (int i = 0; i < extra; i++) {
+				int c = buf[pos] & 0xFF;
+				if ((c & 0xC0) != 0x80) {
+					chars[n++] = '\uFFFD';
+					return n;
+				}
+				cp = cp << 6 | (c & 0x3F);
+				pos++;
+			}
+			if (cp >= 0x10000) {
+				chars[n++] = Character.highSurrogate(cp);
+				chars[n++] = Character.lowSurrogate(cp);
+			} else {
+				chars[n++] = (char) cp;
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 描述：按Schema的流式JSON编解码（与fastjson等序列化的扁平对象格式兼容）
+ * 		编码直接把字段写入CodecBuffer；解码在消息体字节上扫描，字段名按字节比较，未知字段跳过，
+ * 		不创建整段JSON的String，也不创建JSONObject/Map等中间对象。
+ * 		只支持Schema中的基本类型字段，嵌套对象和数组作为未知字段跳过。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class JsonCodec<T> implements MessageCodec<T> {
+
+	public static final String CONTENT_TYPE = "application/json";
+
+	private final Schema<T> schema;
+
+	public JsonCodec(Schema<T> schema) {
+		this.schema = schema;
+	}
+
+	@Override
+	public Class<T> getType() {
+		return schema.getType();
+	}
+
+	@Override
+	public String getContentType() {
+		return CONTENT_TYPE;
+	}
+
+	@Override
+	public String getTypeName() {
+		return schema.getName();
+	}
+
+	@Override
+	public void encode(T value, CodecBuffer out) {
+		if (value == null) {
+			out.writeAscii("null");
+			return;
+		}
+		out.writeByte('{');
+		Schema.Field<T>[] fields = schema.fields();
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				out.writeByte(',');
+			}
+			out.writeBytes(fields[i].jsonKey);
+			fields[i].writeJson(value, out);
+		}
+		out.writeByte('}');
+	}
+
+	@Override
+	public T decode(ByteBuffer in) throws IOException {
+		byte[] bytes;
+		int off;
+		int len = in.remaining();
+		if (in.hasArray()) {
+			bytes = in.array();
+			off = in.arrayOffset() + in.position();
+		} else {
+			bytes = new byte[len];
+			in.duplicate().get(bytes);
+			off = 0;
+		}
+		in.position(in.limit());
+		Json.Reader reader = Json.Reader.of(bytes, off, len);
+		try {
+			return read(reader);
+		} finally {
+			reader.clear();
+		}
+	}
+
+	private T read(Json.Reader reader) throws IOException {
+		if (reader.consumeNull()) {
+			reader.expectEnd();
+			return null;
+		}
+		T target = schema.newInstance();
+		Schema.Field<T>[] fields = schema.fields();
+		reader.expect('{');
+		if (!reader.tryConsume('}')) {
+			// 字段通常按schema顺序出现，从上一个字段的下一个开始找
+			int next = 0;
+			do {
+				reader.readKey();
+				Schema.Field<T> field = null;
+				for (int i = 0; i < fields.length; i++) {
+					int index = (next + i) % fields.length;
+					if (reader.keyEquals(fields[index].name, fields[index].nameBytes)) {
+						field = fields[index];
+						next = index + 1;
+						break;
+					}
+				}
+				if (field == null) {
+					reader.skipValue();
+				} else {
+					field.readJson(target, reader);
+				}
+			} while (reader.nextMember());
+		}
+		reader.expectEnd();
+		return target;
+	}
+}
@@ -0,0 +1,41 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 描述：消息体编解码器，对象直接写入池化的CodecBuffer、直接从消息体的ByteBuffer读出，不经过中间String
+ * 		(contentType, typeName)对应BasicProperties的contentType和type，消费端据此找到解码器。
+ * 		实现必须线程安全。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public interface MessageCodec<T> {
+
+	/**
+	 * 能编码的对象类型
+	 */
+	Class<T> getType();
+
+	/**
+	 * 例：application/x-wdx-schema、application/json、text/plain
+	 */
+	String getContentType();
+
+	/**
+	 * 消息属性type的值（同一contentType下区分不同的对象类型），null表示不设置
+	 */
+	String getTypeName();
+
+	/**
+	 * 把value追加写入out
+	 */
+	void encode(T value, CodecBuffer out);
+
+	/**
+	 * 从in的position读到limit
+	 *	@Param  @throws IOException		数据格式错误
+	 */
+	T decode(ByteBuffer in) throws IOException;
+
+}
@@ -0,0 +1,435 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 描述：消息对象的字段描述（字段名、类型、getter/setter），SchemaCodec和JsonCodec共用
+ * 		用getter/setter的方法引用描述字段，不用反射：编解码时直接调用，基本类型不装箱。
+ * 		字段顺序即二进制格式中的顺序：只能在末尾追加新字段，不能删除、调整顺序或修改类型（否则要换一个schema名）。
+ * 		例：Schema.builder("waybill.v1", Waybill.class, Waybill::new).int64("waybillNo", Waybill::getWaybillNo, Waybill::setWaybillNo)...build()
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class Schema<T> {
+
+	private final String name;
+
+	private final Class<T> type;
+
+	private final Supplier<T> factory;
+
+	private final Field<T>[] fields;
+
+	private Schema(Builder<T> builder) {
+		this.name = builder.name;
+		this.type = builder.type;
+		this.factory = builder.factory;
+		@SuppressWarnings("unchecked")
+		Field<T>[] array = (Field<T>[]) builder.fields.toArray(new Field<?>[builder.fields.size()]);
+		this.fields = array;
+	}
+
+	/**
+	 *	@Param  @param name			schema名，写入消息属性type（带版本号，例：waybill.v1）
+	 *	@Param  @param type			对象类型
+	 *	@Param  @param factory		解码时创建空对象
+	 */
+	public static <T> Builder<T> builder(String name, Class<T> type, Supplier<T> factory) {
+		return new Builder<T>(name, type, factory);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	T newInstance() {
+		return factory.get();
+	}
+
+	Field<T>[] fields() {
+		return fields;
+	}
+
+	/**
+	 * 描述：Schema构建器
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static final class Builder<T> {
+
+		private final String name;
+
+		private final Class<T> type;
+
+		private final Supplier<T> factory;
+
+		private final List<Field<T>> fields = new ArrayList<Field<T>>();
+
+		private final Set<String> names = new HashSet<String>();
+
+		private Builder(String name, Class<T> type, Supplier<T> factory) {
+			this.name = name;
+			this.type = type;
+			this.factory = factory;
+		}
+
+		public Builder<T> int32(String field, ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+			return add(new IntField<T>(field, getter, setter));
+		}
+
+		public Builder<T> int64(String field, ToLongFunction<T> getter, ObjLongConsumer<T> setter) {
+			return add(new LongField<T>(field, getter, setter));
+		}
+
+		public Builder<T> float64(String field, ToDoubleFunction<T> getter, ObjDoubleConsumer<T> setter) {
+			return add(new DoubleField<T>(field, getter, setter));
+		}
+
+		public Builder<T> bool(String field, Predicate<T> getter, BiConsumer<T, Boolean> setter) {
+			return add(new BooleanField<T>(field, getter, setter));
+		}
+
+		public Builder<T> string(String field, Function<T, String> getter, BiConsumer<T, String> setter) {
+			return add(new StringField<T>(field, getter, setter));
+		}
+
+		/**
+		 * 二进制字段（JSON中为Base64字符串）
+		 */
+		public Builder<T> bytes(String field, Function<T, byte[]> getter, BiConsumer<T, byte[]> setter) {
+			return add(new BytesField<T>(field, getter, setter));
+		}
+
+		public Schema<T> build() {
+			return new Schema<T>(this);
+		}
+
+		private Builder<T> add(Field<T> field) {
+			if (!names.add(field.name)) {
+				throw new IllegalArgumentException("duplicate field '" + field.name + "' in schema " + name);
+			}
+			fields.add(field);
+			return this;
+		}
+	}
+
+	/**
+	 * 描述：一个字段的二进制和JSON读写
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	abstract static class Field<T> {
+
+		final String name;
+
+		/**
+		 * 字段名的UTF-8编码（读JSON时按字节比较）
+		 */
+		final byte[] nameBytes;
+
+		/**
+		 * 预编码的"name":（写JSON时整体复制）
+		 */
+		final byte[] jsonKey;
+
+		Field(String name) {
+			this.name = name;
+			this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+			CodecBuffer key = new CodecBuffer(nameBytes.length + 8);
+			Json.writeString(key, name);
+			key.writeByte(':');
+			this.jsonKey = key.toByteArray();
+		}
+
+		abstract void writeBinary(T value, CodecBuffer out);
+
+		abstract void readBinary(T target, ByteBuffer in) throws IOException;
+
+		abstract void writeJson(T value, CodecBuffer out);
+
+		abstract void readJson(T target, Json.Reader in) throws IOException;
+	}
+
+	private static final class IntField<T> extends Field<T> {
+
+		private final ToIntFunction<T> getter;
+
+		private final ObjIntConsumer<T> setter;
+
+		IntField(String name, ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+			super(name);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		void writeBinary(T value, CodecBuffer out) {
+			out.writeZigZagInt(getter.applyAsInt(value));
+		}
+
+		@Override
+		void readBinary(T target, ByteBuffer in) {
+			setter.accept(target, CodecBuffer.readZigZagInt(in));
+		}
+
+		@Override
+		void writeJson(T value, CodecBuffer out) {
+			out.writeDecimal(getter.applyAsInt(value));
+		}
+
+		@Override
+		void readJson(T target, Json.Reader in) throws IOException {
+			if (!in.consumeNull()) {
+				long v = in.readLong();
+				if (v != (int) v) {
+					throw in.error("int overflow in field " + name);
+				}
+				setter.accept(target, (int) v);
+			}
+		}
+	}
+
+	private static final class LongField<T> extends Field<T> {
+
+		private final ToLongFunction<T> getter;
+
+		private final ObjLongConsumer<T> setter;
+
+		LongField(String name, ToLongFunction<T> getter, ObjLongConsumer<T> setter) {
+			super(name);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		void writeBinary(T value, CodecBuffer out) {
+			out.writeZigZagLong(getter.applyAsLong(value));
+		}
+
+		@Override
+		void readBinary(T target, ByteBuffer in) {
+			setter.accept(target, CodecBuffer.readZigZagLong(in));
+		}
+
+		@Override
+		void writeJson(T value, CodecBuffer out) {
+			out.writeDecimal(getter.applyAsLong(value));
+		}
+
+		@Override
+		void readJson(T target, Json.Reader in) throws IOException {
+			if (!in.consumeNull()) {
+				setter.accept(target, in.readLong());
+			}
+		}
+	}
+
+	private static final class DoubleField<T> extends Field<T> {
+
+		private final ToDoubleFunction<T> getter;
+
+		private final ObjDoubleConsumer<T> setter;
+
+		DoubleField(String name, ToDoubleFunction<T> getter, ObjDoubleConsumer<T> setter) {
+			super(name);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		void writeBinary(T value, CodecBuffer out) {
+			out.writeDouble(getter.applyAsDouble(value));
+		}
+
+		@Override
+		void readBinary(T target, ByteBuffer in) {
+			setter.accept(target, in.getDouble());
+		}
+
+		@Override
+		void writeJson(T value, CodecBuffer out) {
+			Json.writeDouble(out, getter.applyAsDouble(value));
+		}
+
+		@Override
+		void readJson(T target, Json.Reader in) throws IOException {
+			// NaN和无穷大写成了null
+			setter.accept(target, in.consumeNull() ? Double.NaN : in.readDouble());
+		}
+	}
+
+	private static final class BooleanField<T> extends Field<T> {
+
+		private final Predicate<T> getter;
+
+		private final BiConsumer<T, Boolean> setter;
+
+		BooleanField(String name, Predicate<T> getter, BiConsumer<T, Boolean> setter) {
+			super(name);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		void writeBinary(T value, CodecBuffer out) {
+			out.writeByte(getter.test(value) ? 1 : 0);
+		}
+
+		@Override
+		void readBinary(T target, ByteBuffer in) {
+			// Boolean.valueOf返回缓存实例，不产生垃圾
+			setter.accept(target, Boolean.valueOf(in.get() != 0));
+		}
+
+		@Override
+		void writeJson(T value, CodecBuffer out) {
+			out.writeAscii(getter.test(value) ? "true" : "false");
+		}
+
+		@Override
+		void readJson(T target, Json.Reader in) throws IOException {
+			if (!in.consumeNull()) {
+				setter.accept(target, Boolean.valueOf(in.readBoolean()));
+			}
+		}
+	}
+
+	private static final class StringField<T> extends Field<T> {
+
+		private final Function<T, String> getter;
+
+		private final BiConsumer<T, String> setter;
+
+		StringField(String name, Function<T, String> getter, BiConsumer<T, String> setter) {
+			super(name);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		/**
+		 * 长度+1写成变长整数（0表示null），然后是UTF-8内容
+		 */
+		@Override
+		void writeBinary(T value, CodecBuffer out) {
+			String s = getter.apply(value);
+			if (s == null) {
+				out.writeVarInt(0);
+				return;
+			}
+			out.writeVarInt(CodecBuffer.utf8Length(s) + 1);
+			out.writeUtf8(s);
+		}
+
+		@Override
+		void readBinary(T target, ByteBuffer in) throws IOException {
+			int length = readLength(in, name);
+			if (length < 0) {
+				setter.accept(target, null);
+				return;
+			}
+			String s;
+			if (in.hasArray()) {
+				s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+				in.position(in.position() + length);
+			} else {
+				byte[] bytes = new byte[length];
+				in.get(bytes);
+				s = new String(bytes, StandardCharsets.UTF_8);
+			}
+			setter.accept(target, s);
+		}
+
+		@Override
+		void writeJson(T value, CodecBuffer out) {
+			Json.writeString(out, getter.apply(value));
+		}
+
+		@Override
+		void readJson(T target, Json.Reader in) throws IOException {
+			setter.accept(target, in.readString());
+		}
+	}
+
+	private static final class BytesField<T> extends Field<T> {
+
+		private final Function<T, byte[]> getter;
+
+		private final BiConsumer<T, byte[]> setter;
+
+		BytesField(String name, Function<T, byte[]> getter, BiConsumer<T, byte[]> setter) {
+			super(name);
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		void writeBinary(T value, CodecBuffer out) {
+			byte[] bytes = getter.apply(value);
+			if (bytes == null) {
+				out.writeVarInt(0);
+				return;
+			}
+			out.writeVarInt(bytes.length + 1);
+			out.writeBytes(bytes);
+		}
+
+		@Override
+		void readBinary(T target, ByteBuffer in) throws IOException {
+			int length = readLength(in, name);
+			if (length < 0) {
+				setter.accept(target, null);
+				return;
+			}
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			setter.accept(target, bytes);
+		}
+
+		@Override
+		void writeJson(T value, CodecBuffer out) {
+			byte[] bytes = getter.apply(value);
+			if (bytes == null) {
+				out.writeAscii("null");
+				return;
+			}
+			out.writeByte('"').writeBytes(Base64.getEncoder().encode(bytes)).writeByte('"');
+		}
+
+		@Override
+		void readJson(T target, Json.Reader in) throws IOException {
+			setter.accept(target, in.readBase64());
+		}
+	}
+
+	/**
+	 * 读取长度+1前缀，返回-1表示null
+	 */
+	private static int readLength(ByteBuffer in, String field) throws IOException {
+		int length = CodecBuffer.readVarInt(in) - 1;
+		if (length > in.remaining() || length < -1) {
+			throw new IOException("field " + field + " length " + length + " exceeds remaining " + in.remaining());
+		}
+		return length;
+	}
+}
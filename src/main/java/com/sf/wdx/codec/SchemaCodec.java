@@ -0,0 +1,63 @@
+package com.sf.wdx.codec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 描述：按Schema的紧凑二进制编码
+ * 		消息体就是按字段顺序排列的字段值，没有字段名和分隔符：整数zigzag变长编码，double 8字节，字符串和byte[]为长度前缀+内容。
+ * 		消息体在所有字段读完前结束时，剩下的字段保持对象的默认值；读完所有字段后还有剩余字节时忽略，
+ * 		因此在schema末尾追加字段后，新旧版本的生产者和消费者可以互通。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class SchemaCodec<T> implements MessageCodec<T> {
+
+	public static final String CONTENT_TYPE = "application/x-wdx-schema";
+
+	private final Schema<T> schema;
+
+	public SchemaCodec(Schema<T> schema) {
+		this.schema = schema;
+	}
+
+	@Override
+	public Class<T> getType() {
+		return schema.getType();
+	}
+
+	@Override
+	public String getContentType() {
+		return CONTENT_TYPE;
+	}
+
+	@Override
+	public String getTypeName() {
+		return schema.getName();
+	}
+
+	@Override
+	public void encode(T value, CodecBuffer out) {
+		for (Schema.Field<T> field : schema.fields()) {
+			field.writeBinary(value, out);
+		}
+	}
+
+	@Override
+	public T decode(ByteBuffer in) throws IOException {
+		T target = schema.newInstance();
+		try {
+			for (Schema.Field<T> field : schema.fields()) {
+				if (!in.hasRemaining()) {
+					break;
+				}
+				field.readBinary(target, in);
+			}
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("malformed " + schema.getName() + " message", e);
+		}
+		in.position(in.limit());
+		return target;
+	}
+}
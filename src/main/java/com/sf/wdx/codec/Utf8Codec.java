@@ -0,0 +1,50 @@
+package com.sf.wdx.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 描述：文本消息（text/plain，UTF-8），替代String.getBytes和new String(body, "UTF-8")
+ * 		编码直接写入池化缓冲区；解码直接从消息体数组构造String（JDK对UTF-8有专门的快速路径）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Utf8Codec implements MessageCodec<String> {
+
+	public static final String CONTENT_TYPE = "text/plain";
+
+	public static final Utf8Codec INSTANCE = new Utf8Codec();
+
+	@Override
+	public Class<String> getType() {
+		return String.class;
+	}
+
+	@Override
+	public String getContentType() {
+		return CONTENT_TYPE;
+	}
+
+	@Override
+	public String getTypeName() {
+		return null;
+	}
+
+	@Override
+	public void encode(String value, CodecBuffer out) {
+		out.writeUtf8(value);
+	}
+
+	@Override
+	public String decode(ByteBuffer in) {
+		int length = in.remaining();
+		String s;
+		if (in.hasArray()) {
+			s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		} else {
+			s = StandardCharsets.UTF_8.decode(in.duplicate()).toString();
+		}
+		in.position(in.limit());
+		return s;
+	}
+}
@@ -0,0 +1,205 @@
+package com.sf.wdx.compress;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rabbitmq.client.AMQP;
+
+/**
+ * 描述：消息体压缩策略（发送端）与按contentEncoding解压（消费端）
+ * 		发送端：消息体达到threshold字节才压缩，压缩后没有变小就原样发送；压缩后在BasicProperties.contentEncoding写入算法标识。
+ * 		消费端：decode按contentEncoding查找已注册的算法解压，未设置或不是压缩算法的contentEncoding（例：Spring写入的UTF-8）原样返回，
+ * 			因此压缩的和未压缩的消息可以混在同一个队列里，消费端先升级、发送端再开启压缩即可平滑切换。
+ * 		props里已经有contentEncoding（不是本类写入的）时不压缩，避免覆盖发送方的编码信息。
+ * 		内置deflate和x-lz4-block，其他算法通过register注册（消费端和发送端都要注册）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Compression {
+
+	public static final int DEFAULT_THRESHOLD = 1024;
+
+	private static final ConcurrentMap<String, CompressionCodec> CODECS = new ConcurrentHashMap<String, CompressionCodec>();
+
+	static {
+		register(new DeflateCodec());
+		register(new Lz4Codec());
+	}
+
+	private final CompressionCodec codec;
+
+	private final int threshold;
+
+	private final LongAdder compressed = new LongAdder();
+
+	private final LongAdder skipped = new LongAdder();
+
+	private final LongAdder bytesIn = new LongAdder();
+
+	private final LongAdder bytesOut = new LongAdder();
+
+	/**
+	 *	@Param  @param encoding		已注册的算法标识，例：DeflateCodec.ENCODING、Lz4Codec.ENCODING
+	 *	@Param  @param threshold	小于这个字节数的消息不压缩
+	 */
+	public Compression(String encoding, int threshold) {
+		this(codec(encoding), threshold);
+	}
+
+	public Compression(CompressionCodec codec, int threshold) {
+		if (codec == null) {
+			throw new IllegalArgumentException("codec must not be null");
+		}
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+		}
+		this.codec = codec;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * 注册压缩算法（同名覆盖）
+	 */
+	public static void register(CompressionCodec codec) {
+		CODECS.put(codec.getEncoding(), codec);
+	}
+
+	/**
+	 * 按contentEncoding查找算法
+	 *	@Param  @throws IllegalArgumentException	未注册
+	 */
+	public static CompressionCodec codec(String encoding) {
+		CompressionCodec codec = CODECS.get(encoding);
+		if (codec == null) {
+			throw new IllegalArgumentException("unknown content encoding: " + encoding + ", supported: " + CODECS.keySet());
+		}
+		return codec;
+	}
+
+	/**
+	 * 消费端支持的contentEncoding
+	 */
+	public static Set<String> getSupportedEncodings() {
+		return Collections.unmodifiableSet(CODECS.keySet());
+	}
+
+	/**
+	 * 按需压缩
+	 *	@ReturnType	Payload		需要发送的props和body（未压缩时就是传入的对象）
+	 *	@Date	2026年10月17日	下午8:12:30
+	 *  @Param  @param props	可为null
+	 *  @Param  @param body
+	 *  @Param  @return
+	 */
+	public Payload encode(AMQP.BasicProperties props, byte[] body) {
+		if (body.length < threshold || (props != null && props.getContentEncoding() != null)) {
+			skipped.increment();
+			return new Payload(props, body);
+		}
+		byte[] packed = codec.compress(body, 0, body.length);
+		bytesIn.add(body.length);
+		if (packed.length >= body.length) {
+			// 不可压缩的数据（已压缩的图片、加密数据等）原样发送
+			skipped.increment();
+			bytesOut.add(body.length);
+			return new Payload(props, body);
+		}
+		compressed.increment();
+		bytesOut.add(packed.length);
+		AMQP.BasicProperties.Builder builder = props == null ? new AMQP.BasicProperties.Builder() : props.builder();
+		return new Payload(builder.contentEncoding(codec.getEncoding()).build(), packed);
+	}
+
+	/**
+	 * 按contentEncoding解压，未压缩的消息原样返回
+	 *	@ReturnType	byte[]
+	 *	@Date	2026年10月17日	下午8:15:02
+	 *  @Param  @param props
+	 *  @Param  @param body
+	 *  @Param  @return
+	 *  @Param  @throws IOException		数据损坏
+	 */
+	public static byte[] decode(AMQP.BasicProperties props, byte[] body) throws IOException {
+		return decode(props == null ? null : props.getContentEncoding(), body);
+	}
+
+	/**
+	 * 按contentEncoding解压（用于没有AMQP.BasicProperties的场合，例：Spring的MessageProperties）
+	 */
+	public static byte[] decode(String encoding, byte[] body) throws IOException {
+		if (encoding == null) {
+			return body;
+		}
+		CompressionCodec codec = CODECS.get(encoding);
+		if (codec == null) {
+			return body;
+		}
+		return codec.decompress(body, 0, body.length);
+	}
+
+	/**
+	 * 消息是否被压缩（contentEncoding是已注册的算法）
+	 */
+	public static boolean isCompressed(AMQP.BasicProperties props) {
+		return props != null && props.getContentEncoding() != null && CODECS.containsKey(props.getContentEncoding());
+	}
+
+	public String getEncoding() {
+		return codec.getEncoding();
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * 压缩发送的消息数
+	 */
+	public long getCompressed() {
+		return compressed.sum();
+	}
+
+	/**
+	 * 未压缩（低于阈值、已有contentEncoding或压缩后没有变小）的消息数
+	 */
+	public long getSkipped() {
+		return skipped.sum();
+	}
+
+	/**
+	 * 压缩率（压缩后字节数 / 尝试压缩的字节数），没有压缩过时为1
+	 */
+	public double getRatio() {
+		long in = bytesIn.sum();
+		return in == 0 ? 1 : (double) bytesOut.sum() / in;
+	}
+
+	/**
+	 * 描述：encode的结果
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static final class Payload {
+
+		private final AMQP.BasicProperties properties;
+
+		private final byte[] body;
+
+		Payload(AMQP.BasicProperties properties, byte[] body) {
+			this.properties = properties;
+			this.body = body;
+		}
+
+		public AMQP.BasicProperties getProperties() {
+			return properties;
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+	}
+}
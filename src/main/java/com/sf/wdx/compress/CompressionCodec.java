@@ -0,0 +1,34 @@
+package com.sf.wdx.compress;
+
+import java.io.IOException;
+
+/**
+ * 描述：消息体压缩算法
+ * 		实现必须线程安全（可按线程复用内部的压缩器和缓冲区），getEncoding()即写入BasicProperties.contentEncoding的值。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public interface CompressionCodec {
+
+	/**
+	 * 解压结果的最大长度（与RabbitMQ默认的最大消息大小一致），超过的按数据损坏处理，不按消息里声明的长度分配内存
+	 */
+	int MAX_DECOMPRESSED_LENGTH = 128 * 1024 * 1024;
+
+	/**
+	 * contentEncoding标识，例：deflate
+	 */
+	String getEncoding();
+
+	/**
+	 * 压缩src[off, off + len)，返回新数组
+	 */
+	byte[] compress(byte[] src, int off, int len);
+
+	/**
+	 * 解压src[off, off + len)，返回新数组
+	 *	@Param  @throws IOException		数据损坏，或解压后超过MAX_DECOMPRESSED_LENGTH
+	 */
+	byte[] decompress(byte[] src, int off, int len) throws IOException;
+
+}
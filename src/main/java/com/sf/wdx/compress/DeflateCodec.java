@@ -0,0 +1,111 @@
+package com.sf.wdx.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 描述：deflate压缩（zlib格式，与HTTP的Content-Encoding: deflate一致）
+ * 		Deflater/Inflater持有本地内存，创建和释放都很贵，每个线程复用一个实例和一块输出缓冲区。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class DeflateCodec implements CompressionCodec {
+
+	public static final String ENCODING = "deflate";
+
+	/**
+	 * 线程输出缓冲区超过这个大小时不保留，避免偶尔的大消息长期占用内存
+	 */
+	private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+	private final ThreadLocal<Deflater> deflaters;
+
+	private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+		@Override
+		protected Inflater initialValue() {
+			return new Inflater();
+		}
+	};
+
+	private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[8192];
+		}
+	};
+
+	public DeflateCodec() {
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 *	@Param  @param level	压缩级别0-9（Deflater.BEST_SPEED ~ Deflater.BEST_COMPRESSION）
+	 */
+	public DeflateCodec(final int level) {
+		this.deflaters = new ThreadLocal<Deflater>() {
+			@Override
+			protected Deflater initialValue() {
+				return new Deflater(level);
+			}
+		};
+	}
+
+	@Override
+	public String getEncoding() {
+		return ENCODING;
+	}
+
+	@Override
+	public byte[] compress(byte[] src, int off, int len) {
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		deflater.setInput(src, off, len);
+		deflater.finish();
+		byte[] buffer = buffers.get();
+		int size = 0;
+		while (!deflater.finished()) {
+			if (size == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			size += deflater.deflate(buffer, size, buffer.length - size);
+		}
+		return result(buffer, size);
+	}
+
+	@Override
+	public byte[] decompress(byte[] src, int off, int len) throws IOException {
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		inflater.setInput(src, off, len);
+		byte[] buffer = buffers.get();
+		int size = 0;
+		try {
+			while (!inflater.finished()) {
+				if (size == buffer.length) {
+					if (size >= MAX_DECOMPRESSED_LENGTH) {
+						throw new IOException("deflate stream inflates beyond " + MAX_DECOMPRESSED_LENGTH + " bytes");
+					}
+					buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, MAX_DECOMPRESSED_LENGTH));
+				}
+				int n = inflater.inflate(buffer, size, buffer.length - size);
+				if (n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("truncated deflate stream");
+				}
+				size += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("corrupt deflate stream", e);
+		}
+		return result(buffer, size);
+	}
+
+	private byte[] result(byte[] buffer, int size) {
+		if (buffer.length <= MAX_RETAINED_BUFFER) {
+			buffers.set(buffer);
+		}
+		return Arrays.copyOf(buffer, size);
+	}
+}
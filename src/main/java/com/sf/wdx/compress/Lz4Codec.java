@@ -0,0 +1,253 @@
+package com.sf.wdx.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 描述：LZ4块格式的快速压缩（纯Java实现，压缩率低于deflate，速度快一个数量级）
+ * 		消息体 = [4字节大端原始长度][LZ4 block]，LZ4 block可以用任何标准LZ4实现的块解压函数解开。
+ * 		单趟贪心匹配：4字节哈希表找候选，向前向后扩展匹配；长时间找不到匹配时加大步长，不可压缩的数据很快跳过。
+ * 		哈希表和输出缓冲区按线程复用。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Lz4Codec implements CompressionCodec {
+
+	public static final String ENCODING = "x-lz4-block";
+
+	private static final int MIN_MATCH = 4;
+
+	/**
+	 * 最后5个字节必须是字面量，最后一个匹配必须在结尾12个字节之前开始（LZ4格式要求）
+	 */
+	private static final int LAST_LITERALS = 5;
+
+	private static final int MF_LIMIT = 12;
+
+	private static final int MAX_DISTANCE = 65535;
+
+	private static final int HASH_LOG = 12;
+
+	private static final int ML_MASK = 15;
+
+	private static final int RUN_MASK = 15;
+
+	private static final int SKIP_TRIGGER = 6;
+
+	/**
+	 * 一个输入字节最多解压出255个字节（匹配长度的扩展字节），头部声明的长度超过这个比例的一定是损坏的数据
+	 */
+	private static final int MAX_RATIO = 255;
+
+	/**
+	 * 线程输出缓冲区超过这个大小时不保留
+	 */
+	private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+	private final ThreadLocal<int[]> tables = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1 << HASH_LOG];
+		}
+	};
+
+	private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[8192];
+		}
+	};
+
+	@Override
+	public String getEncoding() {
+		return ENCODING;
+	}
+
+	@Override
+	public byte[] compress(byte[] src, int off, int len) {
+		byte[] dst = buffers.get();
+		if (dst.length < 4 + maxCompressedLength(len)) {
+			dst = new byte[4 + maxCompressedLength(len)];
+			if (dst.length <= MAX_RETAINED_BUFFER) {
+				buffers.set(dst);
+			}
+		}
+		dst[0] = (byte) (len >>> 24);
+		dst[1] = (byte) (len >>> 16);
+		dst[2] = (byte) (len >>> 8);
+		dst[3] = (byte) len;
+		int op = 4;
+		int end = off + len;
+		int anchor = off;
+		if (len >= MF_LIMIT + 1) {
+			int[] table = tables.get();
+			// 表中存"下标 - off + 1"，0表示空
+			Arrays.fill(table, 0);
+			int mflimit = end - MF_LIMIT;
+			int matchLimit = end - LAST_LITERALS;
+			int ip = off;
+			int searchCount = 1 << SKIP_TRIGGER;
+			while (ip < mflimit) {
+				int sequence = readInt(src, ip);
+				int h = hash(sequence);
+				int ref = table[h] - 1 + off;
+				table[h] = ip - off + 1;
+				if (ref < off || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+					// 连续找不到匹配时步长逐渐加大
+					ip += searchCount++ >>> SKIP_TRIGGER;
+					continue;
+				}
+				searchCount = 1 << SKIP_TRIGGER;
+				// 1.向前扩展
+				while (ip > anchor && ref > off && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+				// 2.向后扩展
+				int matchLen = MIN_MATCH;
+				while (ip + matchLen < matchLimit && src[ref + matchLen] == src[ip + matchLen]) {
+					matchLen++;
+				}
+				op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLen);
+				ip += matchLen;
+				anchor = ip;
+				// 3.匹配末尾附近的位置也放进哈希表，提高下一次命中率
+				if (ip - 2 >= off && ip < mflimit) {
+					table[hash(readInt(src, ip - 2))] = ip - 2 - off + 1;
+				}
+			}
+		}
+		// 剩余的字面量
+		op = writeLiterals(src, anchor, end - anchor, dst, op, 0);
+		return Arrays.copyOf(dst, op);
+	}
+
+	@Override
+	public byte[] decompress(byte[] src, int off, int len) throws IOException {
+		if (len < 4) {
+			throw new IOException("lz4 block too short");
+		}
+		int size = ((src[off] & 0xFF) << 24) | ((src[off + 1] & 0xFF) << 16) | ((src[off + 2] & 0xFF) << 8) | (src[off + 3] & 0xFF);
+		if (size < 0) {
+			throw new IOException("lz4 block has negative length " + size);
+		}
+		// 长度来自消息，先按上限和输入大小校验再分配
+		if (size > MAX_DECOMPRESSED_LENGTH || size > (long) (len - 4) * MAX_RATIO) {
+			throw new IOException("lz4 block declares " + size + " bytes from " + (len - 4) + " compressed bytes");
+		}
+		byte[] dst = new byte[size];
+		int ip = off + 4;
+		int end = off + len;
+		int op = 0;
+		while (ip < end) {
+			int token = src[ip++] & 0xFF;
+			// 1.字面量
+			int literals = token >>> 4;
+			if (literals == RUN_MASK) {
+				int b;
+				do {
+					if (ip >= end) {
+						throw new IOException("lz4 block truncated in literal length");
+					}
+					b = src[ip++] & 0xFF;
+					literals += b;
+				} while (b == 255);
+			}
+			if (literals > end - ip || literals > size - op) {
+				throw new IOException("lz4 literals overflow at " + (ip - off));
+			}
+			System.arraycopy(src, ip, dst, op, literals);
+			ip += literals;
+			op += literals;
+			if (ip == end) {
+				break;
+			}
+			// 2.匹配
+			if (end - ip < 2) {
+				throw new IOException("lz4 block truncated in offset");
+			}
+			int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+			ip += 2;
+			if (offset == 0 || offset > op) {
+				throw new IOException("lz4 invalid match offset " + offset + " at " + (ip - off));
+			}
+			int matchLen = token & ML_MASK;
+			if (matchLen == ML_MASK) {
+				int b;
+				do {
+					if (ip >= end) {
+						throw new IOException("lz4 block truncated in match length");
+					}
+					b = src[ip++] & 0xFF;
+					matchLen += b;
+				} while (b == 255);
+			}
+			matchLen += MIN_MATCH;
+			if (matchLen > size - op) {
+				throw new IOException("lz4 match overflow at " + (ip - off));
+			}
+			int from = op - offset;
+			if (offset >= matchLen) {
+				System.arraycopy(dst, from, dst, op, matchLen);
+				op += matchLen;
+			} else {
+				// 重叠复制（重复模式），逐字节
+				for (int i = 0; i < matchLen; i++) {
+					dst[op++] = dst[from + i];
+				}
+			}
+		}
+		if (op != size) {
+			throw new IOException("lz4 block decoded " + op + " bytes, expected " + size);
+		}
+		return dst;
+	}
+
+	static int maxCompressedLength(int len) {
+		return len + len / 255 + 16;
+	}
+
+	private static int writeSequence(byte[] src, int anchor, int literals, byte[] dst, int op, int offset, int matchLen) {
+		int tokenPos = op;
+		op = writeLiterals(src, anchor, literals, dst, op, 0);
+		dst[op++] = (byte) offset;
+		dst[op++] = (byte) (offset >>> 8);
+		int ml = matchLen - MIN_MATCH;
+		if (ml >= ML_MASK) {
+			dst[tokenPos] |= ML_MASK;
+			op = writeLength(dst, op, ml - ML_MASK);
+		} else {
+			dst[tokenPos] |= ml;
+		}
+		return op;
+	}
+
+	private static int writeLiterals(byte[] src, int anchor, int literals, byte[] dst, int op, int low) {
+		int tokenPos = op++;
+		if (literals >= RUN_MASK) {
+			dst[tokenPos] = (byte) (RUN_MASK << 4 | low);
+			op = writeLength(dst, op, literals - RUN_MASK);
+		} else {
+			dst[tokenPos] = (byte) (literals << 4 | low);
+		}
+		System.arraycopy(src, anchor, dst, op, literals);
+		return op + literals;
+	}
+
+	private static int writeLength(byte[] dst, int op, int length) {
+		while (length >= 255) {
+			dst[op++] = (byte) 255;
+			length -= 255;
+		}
+		dst[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt(byte[] src, int i) {
+		return (src[i] & 0xFF) | ((src[i + 1] & 0xFF) << 8) | ((src[i + 2] & 0xFF) << 16) | ((src[i + 3] & 0xFF) << 24);
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
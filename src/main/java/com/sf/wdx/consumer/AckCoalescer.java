@@ -0,0 +1,264 @@
+package com.sf.wdx.consumer;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * 描述：手动ack的合并器，把逐条的basicAck(tag, false)合并成一次basicAck(tag, true)
+ * 		消费者处理完一条消息后调用ack(tag)登记完成，合并器找出"从上次确认之后连续完成"的最大投递标签，
+ * 		攒够maxBatch条，或最早一条等待超过maxDelay时，发送一次multiple=true的ack。
+ * 		消息可以乱序完成（多线程处理）：只有前面的标签全部完成，连续边界才向前推进，不会误确认未处理完的消息。
+ * 		注意：
+ * 		1.一个通道上所有手动ack的投递都要经过同一个合并器，否则别处确认的标签会让连续边界停住；
+ * 		2.basicQos的预取数要大于maxBatch，否则broker停止投递，只能等定时刷新；
+ * 		3.关闭时先close()把已完成的确认发出去，再关闭通道，否则这些消息会被broker重新投递。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class AckCoalescer implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AckCoalescer.class);
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final Channel channel;
+
+	private final int maxBatch;
+
+	private final long maxDelayNanos;
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * 已发送ack的最大标签（<= acked的都已确认）
+	 */
+	private long acked;
+
+	/**
+	 * 连续完成的边界（<= base的都已完成）
+	 */
+	private long base;
+
+	/**
+	 * 超过边界、已完成但还不连续的标签，按tag & mask映射到环形位图
+	 */
+	private long[] bits = new long[INITIAL_CAPACITY / 64];
+
+	private int mask = INITIAL_CAPACITY - 1;
+
+	/**
+	 * 超过边界的已完成标签中最大的一个
+	 */
+	private long highest;
+
+	/**
+	 * 第一条未发送ack的完成时间
+	 */
+	private long pendingSince;
+
+	private long frames;
+
+	private long tags;
+
+	private boolean closed;
+
+	/**
+	 *	@Param  @param channel			消费者所在的通道
+	 *	@Param  @param maxBatch			攒够多少条连续完成的消息发送一次ack
+	 *	@Param  @param maxDelayMillis	完成的消息最多等待多久就发送ack
+	 */
+	public AckCoalescer(Channel channel, int maxBatch, long maxDelayMillis) {
+		if (maxBatch <= 0 || maxDelayMillis <= 0) {
+			throw new IllegalArgumentException("maxBatch and maxDelayMillis must be positive: " + maxBatch + ", " + maxDelayMillis);
+		}
+		this.channel = channel;
+		this.maxBatch = maxBatch;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "ack-coalescer-" + channel.getChannelNumber());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// 按maxDelay的一半检查，最长等待不超过1.5倍maxDelay
+		long tick = Math.max(1, maxDelayMillis / 2);
+		this.timer.scheduleWithFixedDelay(this::flushExpired, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 登记一条消息处理完成，必要时发送合并的ack
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午9:20:05
+	 *  @Param  @param deliveryTag
+	 *  @Param  @throws IOException
+	 */
+	public synchronized void ack(long deliveryTag) throws IOException {
+		if (closed) {
+			// 已关闭则直接逐条确认
+			channel.basicAck(deliveryTag, false);
+			return;
+		}
+		complete(deliveryTag);
+		if (base - acked >= maxBatch) {
+			send();
+		}
+	}
+
+	/**
+	 * 拒绝一条消息：立即发送nack，该标签按已完成处理，不阻塞后面标签的合并确认
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午9:21:37
+	 *  @Param  @param deliveryTag
+	 *  @Param  @param requeue		是否重新入队
+	 *  @Param  @throws IOException
+	 */
+	public synchronized void nack(long deliveryTag, boolean requeue) throws IOException {
+		channel.basicNack(deliveryTag, false, requeue);
+		if (!closed) {
+			complete(deliveryTag);
+		}
+	}
+
+	/**
+	 * 立即发送已连续完成部分的ack
+	 */
+	public synchronized void flush() throws IOException {
+		if (base > acked) {
+			send();
+		}
+	}
+
+	/**
+	 * 已完成、尚未发送ack的连续消息数
+	 */
+	public synchronized long getPending() {
+		return base - acked;
+	}
+
+	/**
+	 * 已完成但前面还有未完成消息、暂时不能确认的消息数
+	 */
+	public synchronized int getOutOfOrder() {
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * 发送的ack帧数
+	 */
+	public synchronized long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * 合并ack覆盖的投递标签数（含单独nack的标签，tags / frames即平均每帧确认的消息数）
+	 */
+	public synchronized long getTags() {
+		return tags;
+	}
+
+	/**
+	 * 发送剩余的连续确认并停止定时刷新（不关闭通道）
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		timer.shutdownNow();
+		if (base > acked && channel.isOpen()) {
+			send();
+		}
+	}
+
+	private void complete(long tag) {
+		if (tag <= base || tag > base + mask + 1 && !grow(tag)) {
+			return;
+		}
+		if (tag == base + 1) {
+			// 顺序完成的快速路径
+			base = tag;
+			advance();
+		} else {
+			bits[(int) (tag & mask) >>> 6] |= 1L << tag;
+			if (tag > highest) {
+				highest = tag;
+			}
+		}
+		if (pendingSince == 0 && base > acked) {
+			pendingSince = System.nanoTime();
+		}
+	}
+
+	/**
+	 * 把位图中紧接在边界后面的标签并入边界
+	 */
+	private void advance() {
+		while (base < highest) {
+			long next = base + 1;
+			int index = (int) (next & mask) >>> 6;
+			long bit = 1L << next;
+			if ((bits[index] & bit) == 0) {
+				return;
+			}
+			bits[index] &= ~bit;
+			base = next;
+		}
+	}
+
+	/**
+	 * 乱序窗口超过位图容量时扩容
+	 */
+	private boolean grow(long tag) {
+		long span = tag - base;
+		if (span > Integer.MAX_VALUE / 2) {
+			return false;
+		}
+		int capacity = mask + 1;
+		while (capacity < span) {
+			capacity <<= 1;
+		}
+		long[] old = bits;
+		int oldMask = mask;
+		bits = new long[capacity / 64];
+		mask = capacity - 1;
+		for (long t = base + 1; t <= highest; t++) {
+			if ((old[(int) (t & oldMask) >>> 6] & (1L << t)) != 0) {
+				bits[(int) (t & mask) >>> 6] |= 1L << t;
+			}
+		}
+		return true;
+	}
+
+	private void send() throws IOException {
+		channel.basicAck(base, true);
+		frames++;
+		tags += base - acked;
+		acked = base;
+		pendingSince = 0;
+	}
+
+	private void flushExpired() {
+		synchronized (this) {
+			if (base <= acked || System.nanoTime() - pendingSince < maxDelayNanos) {
+				return;
+			}
+			try {
+				if (channel.isOpen()) {
+					send();
+				}
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("flush acks up to {} failed", base, e);
+			}
+		}
+	}
+}
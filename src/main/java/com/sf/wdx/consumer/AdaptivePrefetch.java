@@ -0,0 +1,223 @@
+package com.sf.wdx.consumer;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * 描述：自适应预取，按消费者的处理耗时和broker往返时间在运行时调整basicQos
+ * 		预取窗口的目标是"刚好把管道填满"（带宽时延积）：消费者处理完手上的消息时，下一条已经在路上。
+ * 			管道 = 并行度 + ceil(往返时间 / 单条处理耗时 * 并行度)
+ * 			目标预取 = 管道 + 已处理完但还在AckCoalescer里等待合并发送的消息数，限制在[下限, maxPrefetch]
+ * 		下限为minPrefetch；配合AckCoalescer时至少为合并条数+1（预取不大于合并条数时broker停止投递，只能等定时刷新）。
+ * 		处理快的消费者窗口变大，不再每条消息等一个往返；处理慢的消费者窗口收缩到接近1，不会囤积消息，保持公平分发。
+ * 		往返时间用定时调用basicQos（同步等待qos-ok）的耗时测量，调整和测量是同一个调用。
+ * 		使用通道级别的预取（global=true），调整立即对已有的消费者生效，所以一个通道只放一个消费者。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class AdaptivePrefetch implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AdaptivePrefetch.class);
+
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * 平滑系数：新样本的权重
+	 */
+	private static final double ALPHA = 0.3;
+
+	private final Channel channel;
+
+	private final int minPrefetch;
+
+	private final int maxPrefetch;
+
+	/**
+	 * 实际使用的下限：minPrefetch，合并确认时不小于ackBatch + 1
+	 */
+	private int floor;
+
+	private int parallelism = 1;
+
+	private int ackBatch;
+
+	private long ackDelayNanos;
+
+	private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+	/**
+	 * 本周期内的处理耗时样本
+	 */
+	private final LongAdder serviceNanos = new LongAdder();
+
+	private final LongAdder serviceCount = new LongAdder();
+
+	private ScheduledThreadPoolExecutor timer;
+
+	private volatile int prefetch;
+
+	/**
+	 * 平滑后的单条处理耗时和往返时间（纳秒），0表示还没有样本
+	 */
+	private volatile double service;
+
+	private volatile double rtt;
+
+	private volatile long adjustments;
+
+	/**
+	 *	@Param  @param channel			消费者所在的通道（只放一个消费者）
+	 *	@Param  @param minPrefetch		预取下限，>= 1
+	 *	@Param  @param maxPrefetch		预取上限
+	 */
+	public AdaptivePrefetch(Channel channel, int minPrefetch, int maxPrefetch) {
+		if (minPrefetch < 1 || maxPrefetch < minPrefetch) {
+			throw new IllegalArgumentException("require 1 <= minPrefetch <= maxPrefetch: " + minPrefetch + ", " + maxPrefetch);
+		}
+		this.channel = channel;
+		this.minPrefetch = minPrefetch;
+		this.maxPrefetch = maxPrefetch;
+		this.floor = minPrefetch;
+	}
+
+	/**
+	 * 同时处理消息的线程数（消费者把消息交给线程池时设置）
+	 */
+	public AdaptivePrefetch parallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		return this;
+	}
+
+	/**
+	 * 配合AckCoalescer使用时，已处理完、等待合并确认的消息也占着预取额度，预取下限提高到maxBatch + 1
+	 */
+	public AdaptivePrefetch ackBatching(int maxBatch, long maxDelayMillis) {
+		if (maxBatch >= maxPrefetch) {
+			throw new IllegalArgumentException("maxPrefetch must exceed the ack batch: " + maxPrefetch + " <= " + maxBatch);
+		}
+		this.ackBatch = maxBatch;
+		this.ackDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.floor = Math.max(minPrefetch, maxBatch + 1);
+		return this;
+	}
+
+	/**
+	 * 调整周期
+	 */
+	public AdaptivePrefetch interval(long intervalMillis) {
+		this.intervalMillis = Math.max(1, intervalMillis);
+		return this;
+	}
+
+	/**
+	 * 按下限设置初始预取并开始定时调整，在basicConsume之前调用
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午9:48:12
+	 *  @Param  @throws IOException
+	 */
+	public synchronized void start() throws IOException {
+		if (timer != null) {
+			throw new IllegalStateException("already started");
+		}
+		apply(floor);
+		timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "adaptive-prefetch-" + channel.getChannelNumber());
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(this::adjust, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 记录一条消息的处理耗时（handleDelivery或工作线程中调用，无锁）
+	 */
+	public void record(long nanos) {
+		serviceNanos.add(nanos);
+		serviceCount.increment();
+	}
+
+	public int getPrefetch() {
+		return prefetch;
+	}
+
+	public double getServiceMicros() {
+		return service / 1000.0;
+	}
+
+	public double getRttMicros() {
+		return rtt / 1000.0;
+	}
+
+	/**
+	 * 预取窗口被调整的次数
+	 */
+	public long getAdjustments() {
+		return adjustments;
+	}
+
+	/**
+	 * 按当前的处理耗时和往返时间计算目标预取
+	 *	@ReturnType	int
+	 *	@Date	2026年10月17日	下午9:50:31
+	 */
+	public int target() {
+		double s = service;
+		if (s <= 0) {
+			return prefetch;
+		}
+		double rate = parallelism / s;
+		double pipeline = parallelism + Math.ceil(rtt * rate);
+		double held = ackBatch > 0 ? Math.min(ackBatch, Math.ceil(ackDelayNanos * rate)) : 0;
+		return (int) Math.max(floor, Math.min(maxPrefetch, pipeline + held));
+	}
+
+	@Override
+	public synchronized void close() {
+		if (timer != null) {
+			timer.shutdownNow();
+		}
+	}
+
+	private synchronized void adjust() {
+		try {
+			// 1.本周期的平均处理耗时（空闲周期没有样本，保持不变）
+			long count = serviceCount.sumThenReset();
+			long nanos = serviceNanos.sumThenReset();
+			if (count > 0) {
+				double sample = (double) nanos / count;
+				service = service <= 0 ? sample : service + ALPHA * (sample - service);
+			}
+			if (!channel.isOpen()) {
+				return;
+			}
+			// 2.变化超过1/8才调整，避免来回抖动；不调整时用同一个值测一次往返
+			int current = prefetch;
+			int target = target();
+			int next = Math.abs(target - current) >= Math.max(1, current / 8) ? target : current;
+			apply(next);
+			if (next != current) {
+				adjustments++;
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("adjust prefetch on channel {} failed", channel.getChannelNumber(), e);
+		}
+	}
+
+	/**
+	 * 设置预取，同时用basicQos的耗时作为往返时间样本
+	 */
+	private void apply(int value) throws IOException {
+		long begin = System.nanoTime();
+		channel.basicQos(value, true);
+		double sample = System.nanoTime() - begin;
+		rtt = rtt <= 0 ? sample : rtt + ALPHA * (sample - rtt);
+		prefetch = value;
+	}
+}
@@ -0,0 +1,95 @@
+package com.sf.wdx.consumer;
+
+import java.io.IOException;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：在手动ack的消费者前面加一层去重：重复的消息直接确认，不再交给handleDelivery
+ * 		被包装的消费者要在handleDelivery返回前处理完消息（同步处理）；它抛出异常时key被释放，重新投递的消息会再处理。
+ * 		被包装的消费者自己nack并重新入队的消息会被当成已处理，重新投递时被跳过，这种情况应抛出异常。
+ * 		异步处理的消费者请用DispatchingConsumer.deduplicatedBy，处理完成后才算数。
+ * 		重复消息的确认走AckCoalescer（与被包装的消费者用同一个），没有时直接basicAck。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class DedupConsumer implements Consumer {
+
+	private final Channel channel;
+
+	private final Consumer delegate;
+
+	private final DedupFilter filter;
+
+	private final AckCoalescer acks;
+
+	/**
+	 *	@Param  @param channel		消费通道
+	 *	@Param  @param delegate		被包装的消费者
+	 *	@Param  @param filter		去重过滤器（可以被多个消费者共用）
+	 *	@Param  @param acks			合并确认，null表示直接basicAck
+	 */
+	public DedupConsumer(Channel channel, Consumer delegate, DedupFilter filter, AckCoalescer acks) {
+		this.channel = channel;
+		this.delegate = delegate;
+		this.filter = filter;
+		this.acks = acks;
+	}
+
+	@Override
+	public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+		long key = DedupFilter.keyOf(properties, body);
+		// 1.已经处理过：确认后跳过
+		if (!filter.tryClaim(key)) {
+			if (acks != null) {
+				acks.ack(envelope.getDeliveryTag());
+			} else {
+				channel.basicAck(envelope.getDeliveryTag(), false);
+			}
+			return;
+		}
+		// 2.处理，失败时释放key
+		boolean ok = false;
+		try {
+			delegate.handleDelivery(consumerTag, envelope, properties, body);
+			ok = true;
+		} finally {
+			if (!ok) {
+				filter.release(key);
+			}
+		}
+	}
+
+	@Override
+	public void handleConsumeOk(String consumerTag) {
+		delegate.handleConsumeOk(consumerTag);
+	}
+
+	@Override
+	public void handleCancelOk(String consumerTag) {
+		delegate.handleCancelOk(consumerTag);
+	}
+
+	@Override
+	public void handleCancel(String consumerTag) throws IOException {
+		delegate.handleCancel(consumerTag);
+	}
+
+	@Override
+	public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+		delegate.handleShutdownSignal(consumerTag, sig);
+	}
+
+	@Override
+	public void handleRecoverOk(String consumerTag) {
+		delegate.handleRecoverOk(consumerTag);
+	}
+
+	public DedupFilter getFilter() {
+		return filter;
+	}
+}
@@ -0,0 +1,161 @@
+package com.sf.wdx.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rabbitmq.client.AMQP;
+import com.sf.wdx.util.ExpiringLongSet;
+import com.sf.wdx.util.Hashing;
+
+/**
+ * 描述：消息去重过滤器，记住最近处理过的消息，broker重新投递（消费者崩溃、通道关闭）或发送端重发（发件箱）时跳过
+ * 		消息的key是messageId的64位哈希，没有messageId时是body的64位哈希（内容相同的消息视为同一条）。
+ * 		key保存在ExpiringLongSet中，超过maxEntries或存活时间ttl的按插入顺序淘汰，可放在堆外；
+ * 		按key的高位分成STRIPES段，每段一把锁，多个消费者线程共用一个过滤器时竞争很小。
+ * 		用法：处理前tryClaim，返回false是重复消息，直接确认；处理失败时release，让重新投递的消息可以再处理。
+ * 		只在本进程内有效，进程重启后从空开始；64位哈希冲突（约百万条里3e-8的概率）会把一条新消息误判为重复。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class DedupFilter {
+
+	public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+	private static final int STRIPES = 16;
+
+	private final ExpiringLongSet[] sets = new ExpiringLongSet[STRIPES];
+
+	/**
+	 * 只按数量淘汰时不需要读时钟
+	 */
+	private final boolean timed;
+
+	private final LongAdder lookups = new LongAdder();
+
+	private final LongAdder duplicates = new LongAdder();
+
+	/**
+	 * 默认记住最近DEFAULT_MAX_ENTRIES条，存活10分钟，堆内
+	 */
+	public DedupFilter() {
+		this(DEFAULT_MAX_ENTRIES, 10, TimeUnit.MINUTES, false);
+	}
+
+	/**
+	 *	@Param  @param maxEntries		最多记住的消息数（应大于broker重新投递前可能积压的消息数：预取数 × 消费者数）
+	 *	@Param  @param ttl				记住多久，<=0表示只按数量淘汰
+	 *	@Param  @param unit
+	 *	@Param  @param offHeap			是否放在堆外（每条约48字节）
+	 */
+	public DedupFilter(int maxEntries, long ttl, TimeUnit unit, boolean offHeap) {
+		int perStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+		long ttlNanos = unit.toNanos(ttl);
+		this.timed = ttlNanos > 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sets[i] = new ExpiringLongSet(perStripe, ttlNanos, offHeap);
+		}
+	}
+
+	/**
+	 * 消息的去重key
+	 *	@ReturnType	long
+	 *	@Date	2026年10月17日	下午12:20:16
+	 *  @Param  @param properties
+	 *  @Param  @param body
+	 *  @Param  @return
+	 */
+	public static long keyOf(AMQP.BasicProperties properties, byte[] body) {
+		String messageId = properties == null ? null : properties.getMessageId();
+		if (messageId != null) {
+			return Hashing.hash64(messageId);
+		}
+		return Hashing.hash64(body);
+	}
+
+	/**
+	 * 登记开始处理key
+	 *	@ReturnType	boolean		false表示已经处理过（或正在处理），应跳过
+	 *	@Date	2026年10月17日	下午12:22:48
+	 */
+	public boolean tryClaim(long key) {
+		lookups.increment();
+		ExpiringLongSet set = sets[stripe(key)];
+		boolean claimed;
+		synchronized (set) {
+			claimed = set.add(key, now());
+		}
+		if (!claimed) {
+			duplicates.increment();
+		}
+		return claimed;
+	}
+
+	/**
+	 * 处理失败，忘掉key（重新投递时再处理）
+	 */
+	public void release(long key) {
+		ExpiringLongSet set = sets[stripe(key)];
+		synchronized (set) {
+			set.remove(key);
+		}
+	}
+
+	/**
+	 * 是否已经处理过（只查询，不登记）
+	 */
+	public boolean contains(long key) {
+		ExpiringLongSet set = sets[stripe(key)];
+		synchronized (set) {
+			return set.contains(key, now());
+		}
+	}
+
+	/**
+	 * 查询次数
+	 */
+	public long getLookups() {
+		return lookups.sum();
+	}
+
+	/**
+	 * 判为重复被跳过的次数
+	 */
+	public long getDuplicates() {
+		return duplicates.sum();
+	}
+
+	/**
+	 * 重复率（命中率）
+	 */
+	public double getHitRate() {
+		long total = lookups.sum();
+		return total == 0 ? 0 : (double) duplicates.sum() / total;
+	}
+
+	/**
+	 * 当前记住的消息数
+	 */
+	public int size() {
+		int size = 0;
+		for (ExpiringLongSet set : sets) {
+			synchronized (set) {
+				size += set.size();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DedupFilter[size=%d, lookups=%d, duplicates=%d, hitRate=%.4f]", size(), getLookups(), getDuplicates(), getHitRate());
+	}
+
+	private long now() {
+		return timed ? System.nanoTime() : 0;
+	}
+
+	private static int stripe(long key) {
+		// 段号用高位，段内的哈希表用低位
+		return (int) (key >>> 60) & (STRIPES - 1);
+	}
+}
@@ -0,0 +1,403 @@
+package com.sf.wdx.consumer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * 描述：把每条投递交给执行器处理的消费者，慢处理器不再占住通道的分发线程
+ * 		JDK 21+用虚拟线程（每条消息一个，反射获取，编译目标仍是Java 8），更早的JDK退回有界的平台线程池。
+ * 		设置keyedBy后，key相同的消息进入同一个串行通道（lane），按投递顺序逐条处理，不同key之间并发；没有key的消息直接并发。
+ * 		处理完成后经AckCoalescer（或直接basicAck）确认，失败时nack。
+ * 		设置deduplicatedBy后，重复的消息不再分发、直接确认；处理成功才算处理过，失败的消息重新投递时会再处理。
+ * 		同时处理的消息数不超过maxInFlight：broker的预取窗口（basicQos）本身就限制了未确认数，
+ * 		这里再用信号量兜底，预取设为0或大于maxInFlight时分发线程在此等待，不会无限堆积任务。
+ * 		注意：虚拟线程在synchronized块里做阻塞I/O会占住载体线程（JDK 21），处理器里尽量用j.u.c的锁。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class DispatchingConsumer extends DefaultConsumer implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DispatchingConsumer.class);
+
+	/**
+	 * 消息处理器，正常返回即确认，抛异常则nack
+	 */
+	public interface Handler {
+
+		void handle(Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws Exception;
+
+	}
+
+	/**
+	 * 消息的顺序key（如订单号），返回null表示该消息不需要排序
+	 */
+	public interface KeyExtractor {
+
+		String keyOf(Envelope envelope, AMQP.BasicProperties properties, byte[] body);
+
+	}
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+	/**
+	 * 没有虚拟线程时平台线程池的上限
+	 */
+	public static final int MAX_PLATFORM_THREADS = 200;
+
+	private final Handler handler;
+
+	private final AckCoalescer acks;
+
+	private final int maxInFlight;
+
+	private final Semaphore window;
+
+	private final ExecutorService executor;
+
+	/**
+	 * 执行器由本类创建时close负责关闭
+	 */
+	private final boolean ownsExecutor;
+
+	private KeyExtractor keyExtractor;
+
+	private boolean requeueRejected = true;
+
+	private DedupFilter dedupFilter;
+
+	/**
+	 * key -> 串行通道（有待处理消息时存在，处理完即移除）
+	 */
+	private final Map<String, Lane> lanes = new HashMap<String, Lane>();
+
+	private final LongAdder handled = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	public DispatchingConsumer(Channel channel, Handler handler, AckCoalescer acks) {
+		this(channel, handler, acks, DEFAULT_MAX_IN_FLIGHT, null);
+	}
+
+	/**
+	 *	@Param  @param channel			消费通道（手动ack）
+	 *	@Param  @param handler			消息处理器
+	 *	@Param  @param acks				合并确认，null表示逐条basicAck
+	 *	@Param  @param maxInFlight		同时处理的最大消息数，应不小于通道的预取数
+	 *	@Param  @param executor			处理消息的执行器，null表示newExecutor(maxInFlight)（close时关闭）
+	 */
+	public DispatchingConsumer(Channel channel, Handler handler, AckCoalescer acks, int maxInFlight, ExecutorService executor) {
+		super(channel);
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		}
+		this.handler = handler;
+		this.acks = acks;
+		this.maxInFlight = maxInFlight;
+		this.window = new Semaphore(maxInFlight);
+		this.ownsExecutor = executor == null;
+		this.executor = executor == null ? newExecutor("dispatch-" + channel.getChannelNumber(), maxInFlight) : executor;
+	}
+
+	/**
+	 * 按key串行处理
+	 */
+	public DispatchingConsumer keyedBy(KeyExtractor keyExtractor) {
+		this.keyExtractor = keyExtractor;
+		return this;
+	}
+
+	/**
+	 * 处理失败的消息是否重新入队（默认true）
+	 */
+	public DispatchingConsumer requeueRejected(boolean requeueRejected) {
+		this.requeueRejected = requeueRejected;
+		return this;
+	}
+
+	/**
+	 * 跳过已经处理过的消息（redelivered或发送端重发）
+	 */
+	public DispatchingConsumer deduplicatedBy(DedupFilter dedupFilter) {
+		this.dedupFilter = dedupFilter;
+		return this;
+	}
+
+	/**
+	 * 虚拟线程执行器（JDK 21+），否则最多min(maxThreads, MAX_PLATFORM_THREADS)个守护线程的线程池
+	 *	@ReturnType	ExecutorService
+	 *	@Date	2026年10月17日	下午11:05:12
+	 *  @Param  @param name			平台线程名前缀
+	 *  @Param  @param maxThreads	平台线程数上限
+	 *  @Param  @return
+	 */
+	public static ExecutorService newExecutor(String name, int maxThreads) {
+		ExecutorService virtual = newVirtualThreadExecutor();
+		if (virtual != null) {
+			return virtual;
+		}
+		int threads = Math.min(maxThreads, MAX_PLATFORM_THREADS);
+		final AtomicInteger index = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+			Thread thread = new Thread(r, name + "-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// 空闲时线程全部退出
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * 当前JDK是否支持虚拟线程
+	 */
+	public static boolean isVirtualThreadAvailable() {
+		ExecutorService virtual = newVirtualThreadExecutor();
+		if (virtual == null) {
+			return false;
+		}
+		virtual.shutdown();
+		return true;
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// JDK 21之前没有该方法（JDK 19/20未开启预览时调用失败）
+			return null;
+		}
+	}
+
+	@Override
+	public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+		// 0.重复的消息直接确认
+		long dedupKey = 0;
+		if (dedupFilter != null) {
+			dedupKey = DedupFilter.keyOf(properties, body);
+			if (!dedupFilter.tryClaim(dedupKey)) {
+				if (acks != null) {
+					acks.ack(envelope.getDeliveryTag());
+				} else {
+					getChannel().basicAck(envelope.getDeliveryTag(), false);
+				}
+				return;
+			}
+		}
+		// 1.占用一个处理名额（正常情况下预取窗口保证不会在这里等待）
+		try {
+			window.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			if (dedupFilter != null) {
+				dedupFilter.release(dedupKey);
+			}
+			getChannel().basicNack(envelope.getDeliveryTag(), false, true);
+			return;
+		}
+		Task task = new Task(envelope, properties, body, dedupKey);
+		String key = keyExtractor == null ? null : keyExtractor.keyOf(envelope, properties, body);
+		// 2.没有key直接并发执行，有key的进入对应的串行通道
+		if (key == null) {
+			execute(task);
+			return;
+		}
+		Lane start = null;
+		synchronized (lanes) {
+			Lane lane = lanes.get(key);
+			if (lane == null) {
+				lane = new Lane(key);
+				lanes.put(key, lane);
+			}
+			lane.tasks.add(task);
+			if (!lane.running) {
+				lane.running = true;
+				start = lane;
+			}
+		}
+		if (start != null) {
+			execute(start);
+		}
+	}
+
+	private void execute(Runnable runnable) {
+		try {
+			executor.execute(runnable);
+		} catch (RejectedExecutionException e) {
+			// 执行器已关闭：在分发线程上处理，保证名额归还、消息得到确认
+			runnable.run();
+		}
+	}
+
+	private void process(Task task) {
+		long deliveryTag = task.envelope.getDeliveryTag();
+		try {
+			boolean ok = true;
+			try {
+				handler.handle(task.envelope, task.properties, task.body);
+				handled.increment();
+			} catch (Exception e) {
+				ok = false;
+				failed.increment();
+				LOG.warn("delivery {} failed", deliveryTag, e);
+				if (dedupFilter != null) {
+					dedupFilter.release(task.dedupKey);
+				}
+			}
+			// 处理完成反馈到确认路径
+			if (acks != null) {
+				if (ok) {
+					acks.ack(deliveryTag);
+				} else {
+					acks.nack(deliveryTag, requeueRejected);
+				}
+			} else if (ok) {
+				getChannel().basicAck(deliveryTag, false);
+			} else {
+				getChannel().basicNack(deliveryTag, false, requeueRejected);
+			}
+		} catch (IOException | RuntimeException e) {
+			// 通道已关闭，未确认的消息由broker重新投递
+			LOG.warn("ack {} failed: {}", deliveryTag, e.toString());
+		} finally {
+			window.release();
+		}
+	}
+
+	/**
+	 * 正在处理（含排队）的消息数
+	 */
+	public int getInFlight() {
+		return maxInFlight - window.availablePermits();
+	}
+
+	/**
+	 * 当前有待处理消息的key数
+	 */
+	public int getLanes() {
+		synchronized (lanes) {
+			return lanes.size();
+		}
+	}
+
+	public long getHandled() {
+		return handled.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * 等待已接收的消息处理完（调用前先basicCancel，否则还会有新投递），关闭自己创建的执行器
+	 *	@ReturnType	boolean		是否在超时前全部处理完
+	 *	@Date	2026年10月17日	下午11:08:40
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 *  @Param  @throws InterruptedException
+	 */
+	public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+		boolean drained = window.tryAcquire(maxInFlight, timeout, unit);
+		if (drained) {
+			window.release(maxInFlight);
+		}
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+		return drained;
+	}
+
+	/**
+	 * close(30, TimeUnit.SECONDS)，被中断时恢复中断标志后返回（不再等待处理中的消息）
+	 */
+	@Override
+	public void close() {
+		try {
+			close(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 描述：一条待处理的投递
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private final class Task implements Runnable {
+
+		final Envelope envelope;
+
+		final AMQP.BasicProperties properties;
+
+		final byte[] body;
+
+		final long dedupKey;
+
+		Task(Envelope envelope, AMQP.BasicProperties properties, byte[] body, long dedupKey) {
+			this.envelope = envelope;
+			this.properties = properties;
+			this.body = body;
+			this.dedupKey = dedupKey;
+		}
+
+		@Override
+		public void run() {
+			process(this);
+		}
+	}
+
+	/**
+	 * 描述：一个key的串行通道，同一时刻最多一个线程在执行，队列空时从lanes中移除
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private final class Lane implements Runnable {
+
+		final String key;
+
+		final ArrayDeque<Task> tasks = new ArrayDeque<Task>(4);
+
+		boolean running;
+
+		Lane(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Task task;
+				synchronized (lanes) {
+					task = tasks.poll();
+					if (task == null) {
+						running = false;
+						lanes.remove(key);
+						return;
+					}
+				}
+				process(task);
+			}
+		}
+	}
+}
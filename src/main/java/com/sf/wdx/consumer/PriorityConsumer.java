@@ -0,0 +1,445 @@
+package com.sf.wdx.consumer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.sf.wdx.metrics.HistogramSnapshot;
+import com.sf.wdx.metrics.LatencyHistogram;
+
+/**
+ * 描述：按优先级和截止时间调度预取消息的消费者，放在投递和处理器之间
+ * 		预取到的消息先进入本地堆，最多concurrency个处理任务每次取最紧急的一条：priority高的先处理，同优先级截止时间早的先处理，再按到达顺序。
+ * 		截止时间 = timestamp（没有时取收到的时间）+ expiration（毫秒）；没有expiration的消息没有截止时间。
+ * 		收到时和取出时已过期的消息不交给处理器，直接basicNack(requeue=false)：队列配置了死信交换机（x-dead-letter-exchange）时进入死信队列，否则丢弃。
+ * 		堆里的过期消息由单独的定时线程每SWEEP_INTERVAL_MILLIS清理一次，处理任务都卡在慢消息上、或高优先级消息持续到达时，过期消息也不会一直占着预取窗口。
+ * 		处理任务在DispatchingConsumer的执行器上运行（JDK 21+为虚拟线程），但同时最多concurrency个：不限并发时消息不会排队，也就无从调度；
+ * 		需要同一key按顺序处理时用DispatchingConsumer.keyedBy。预取数应大于concurrency，堆里才有可选的消息；AMQP的timestamp精度是秒，真实broker上截止时间最多提前1秒，短于几秒的期限建议不设timestamp。
+ * 		每个优先级的排队时间（收到到开始处理）记入直方图，过载时看高优先级的p99是否平稳。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class PriorityConsumer extends DefaultConsumer implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PriorityConsumer.class);
+
+	/**
+	 * AMQP优先级0-9（broker的优先级队列也建议不超过10级），更大的值按9处理
+	 */
+	public static final int MAX_PRIORITY = 9;
+
+	public static final long SWEEP_INTERVAL_MILLIS = 100;
+
+	private static final Comparator<Task> URGENCY = (a, b) -> {
+		if (a.priority != b.priority) {
+			return b.priority - a.priority;
+		}
+		if (a.deadline != b.deadline) {
+			return a.deadline < b.deadline ? -1 : 1;
+		}
+		return Long.compare(a.sequence, b.sequence);
+	};
+
+	private final DispatchingConsumer.Handler handler;
+
+	private final AckCoalescer acks;
+
+	private final PriorityQueue<Task> heap = new PriorityQueue<Task>(64, URGENCY);
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition idle = lock.newCondition();
+
+	private final int concurrency;
+
+	private final ExecutorService executor;
+
+	/**
+	 * 执行器由本类创建时close负责关闭
+	 */
+	private final boolean ownsExecutor;
+
+	private final ScheduledThreadPoolExecutor sweeper;
+
+	/**
+	 * 以下字段由lock保护
+	 */
+	private long sequence;
+
+	/**
+	 * 正在运行的处理任务数（不超过concurrency）
+	 */
+	private int running;
+
+	private boolean closed;
+
+	private boolean requeueRejected = true;
+
+	private final LatencyHistogram[] waitTime = new LatencyHistogram[MAX_PRIORITY + 1];
+
+	private final LongAdder handled = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder expired = new LongAdder();
+
+	public PriorityConsumer(Channel channel, DispatchingConsumer.Handler handler, AckCoalescer acks, int concurrency) {
+		this(channel, handler, acks, concurrency, null);
+	}
+
+	/**
+	 *	@Param  @param channel			消费通道（手动ack）
+	 *	@Param  @param handler			消息处理器，正常返回即确认，抛异常则nack
+	 *	@Param  @param acks				合并确认，null表示逐条basicAck
+	 *	@Param  @param concurrency		同时处理的最大消息数
+	 *	@Param  @param executor			运行处理任务的执行器，null表示DispatchingConsumer.newExecutor(concurrency)（close时关闭）
+	 */
+	public PriorityConsumer(Channel channel, DispatchingConsumer.Handler handler, AckCoalescer acks, int concurrency, ExecutorService executor) {
+		super(channel);
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+		}
+		this.handler = handler;
+		this.acks = acks;
+		this.concurrency = concurrency;
+		for (int i = 0; i <= MAX_PRIORITY; i++) {
+			waitTime[i] = new LatencyHistogram();
+		}
+		this.ownsExecutor = executor == null;
+		this.executor = executor == null ? DispatchingConsumer.newExecutor("priority-" + channel.getChannelNumber(), concurrency) : executor;
+		this.sweeper = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "priority-sweep-" + channel.getChannelNumber());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 处理失败的消息是否重新入队（默认true；过期的消息总是不重新入队）
+	 */
+	public PriorityConsumer requeueRejected(boolean requeueRejected) {
+		this.requeueRejected = requeueRejected;
+		return this;
+	}
+
+	@Override
+	public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+		long now = System.currentTimeMillis();
+		Task task = new Task(envelope, properties, body, priorityOf(properties), deadlineOf(properties, now), System.nanoTime());
+		// 1.收到时已过期：不进堆
+		if (task.deadline <= now) {
+			reject(task);
+			return;
+		}
+		// 2.进堆，处理任务不足concurrency个时再启动一个
+		boolean start;
+		lock.lock();
+		try {
+			if (closed) {
+				// 已关闭：不确认，通道关闭后由broker重新投递
+				return;
+			}
+			task.sequence = sequence++;
+			heap.add(task);
+			start = running < concurrency;
+			if (start) {
+				running++;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (start) {
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				// 执行器已关闭：在分发线程上处理，保证堆里的消息得到确认
+				drain();
+			}
+		}
+	}
+
+	/**
+	 * 通道关闭后堆里的deliveryTag都失效了（broker会重新投递）：清空并停止，正在处理的任务做完当前消息后退出
+	 */
+	@Override
+	public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+		stop();
+	}
+
+	/**
+	 * 消息的优先级（没有时为0）
+	 */
+	static int priorityOf(AMQP.BasicProperties properties) {
+		Integer priority = properties == null ? null : properties.getPriority();
+		if (priority == null || priority < 0) {
+			return 0;
+		}
+		return Math.min(priority, MAX_PRIORITY);
+	}
+
+	/**
+	 * 消息的截止时间（毫秒时间戳），没有expiration或无法解析时为Long.MAX_VALUE
+	 */
+	static long deadlineOf(AMQP.BasicProperties properties, long receivedAt) {
+		String expiration = properties == null ? null : properties.getExpiration();
+		if (expiration == null || expiration.isEmpty()) {
+			return Long.MAX_VALUE;
+		}
+		long ttl;
+		try {
+			ttl = Long.parseLong(expiration);
+		} catch (NumberFormatException e) {
+			return Long.MAX_VALUE;
+		}
+		if (ttl < 0) {
+			return Long.MAX_VALUE;
+		}
+		long base = properties.getTimestamp() == null ? receivedAt : properties.getTimestamp().getTime();
+		long deadline = base + ttl;
+		// 溢出（ttl接近Long.MAX_VALUE）时按没有截止时间处理
+		return deadline < base ? Long.MAX_VALUE : deadline;
+	}
+
+	/**
+	 * 处理任务：反复取最紧急的消息，过期的拒绝，其余交给处理器；堆空时退出
+	 */
+	private void drain() {
+		while (true) {
+			Task task;
+			lock.lock();
+			try {
+				task = heap.poll();
+				if (task == null) {
+					running--;
+					if (running == 0) {
+						idle.signalAll();
+					}
+					return;
+				}
+			} finally {
+				lock.unlock();
+			}
+			// 取出时过期的同样不处理
+			if (task.deadline <= System.currentTimeMillis()) {
+				reject(task);
+			} else {
+				process(task);
+			}
+		}
+	}
+
+	/**
+	 * 定时线程：拒绝堆里已过期的消息（不依赖处理任务空出来）
+	 */
+	private void sweep() {
+		List<Task> swept = new ArrayList<Task>(0);
+		long now = System.currentTimeMillis();
+		lock.lock();
+		try {
+			heap.removeIf(task -> task.deadline <= now && swept.add(task));
+			if (!swept.isEmpty() && running == 0 && heap.isEmpty()) {
+				idle.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+		for (Task task : swept) {
+			reject(task);
+		}
+	}
+
+	private void process(Task task) {
+		long deliveryTag = task.envelope.getDeliveryTag();
+		waitTime[task.priority].record(System.nanoTime() - task.receivedNanos);
+		boolean ok = true;
+		try {
+			handler.handle(task.envelope, task.properties, task.body);
+			handled.increment();
+		} catch (Exception e) {
+			ok = false;
+			failed.increment();
+			LOG.warn("delivery {} failed", deliveryTag, e);
+		}
+		try {
+			if (acks != null) {
+				if (ok) {
+					acks.ack(deliveryTag);
+				} else {
+					acks.nack(deliveryTag, requeueRejected);
+				}
+			} else if (ok) {
+				getChannel().basicAck(deliveryTag, false);
+			} else {
+				getChannel().basicNack(deliveryTag, false, requeueRejected);
+			}
+		} catch (IOException | RuntimeException e) {
+			// 通道已关闭，未确认的消息由broker重新投递
+			LOG.warn("ack {} failed: {}", deliveryTag, e.toString());
+		}
+	}
+
+	/**
+	 * 过期：不重新入队，有死信交换机时由broker转发
+	 */
+	private void reject(Task task) {
+		expired.increment();
+		long deliveryTag = task.envelope.getDeliveryTag();
+		try {
+			if (acks != null) {
+				acks.nack(deliveryTag, false);
+			} else {
+				getChannel().basicNack(deliveryTag, false, false);
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("reject {} failed: {}", deliveryTag, e.toString());
+		}
+	}
+
+	/**
+	 * 堆里等待处理的消息数
+	 */
+	public int getQueued() {
+		lock.lock();
+		try {
+			return heap.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getHandled() {
+		return handled.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * 因过期被拒绝的消息数
+	 */
+	public long getExpired() {
+		return expired.sum();
+	}
+
+	/**
+	 * 某个优先级的排队时间分布（纳秒，从收到到开始处理）
+	 */
+	public HistogramSnapshot getWaitTime(int priority) {
+		return waitTime[Math.max(0, Math.min(priority, MAX_PRIORITY))].snapshot();
+	}
+
+	@Override
+	public String toString() {
+		return "PriorityConsumer[concurrency=" + concurrency + ", queued=" + getQueued() + ", handled=" + getHandled() + ", failed=" + getFailed()
+				+ ", expired=" + getExpired() + "]";
+	}
+
+	/**
+	 * 等待堆里的消息处理完（调用前先basicCancel，否则还会有新投递），然后停止清理线程，关闭自己创建的执行器
+	 *	@ReturnType	boolean		是否在超时前全部处理完
+	 *	@Date	2026年10月17日	下午5:20:36
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 *  @Param  @throws InterruptedException
+	 */
+	public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		boolean drained;
+		lock.lock();
+		try {
+			while ((running > 0 || !heap.isEmpty()) && remaining > 0) {
+				remaining = idle.awaitNanos(remaining);
+			}
+			drained = running == 0 && heap.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+		stop();
+		return drained;
+	}
+
+	/**
+	 * 清空堆（留在堆里的消息不确认，通道关闭后由broker重新投递），不再接收投递；正在处理的任务做完当前消息后退出
+	 */
+	private void stop() {
+		lock.lock();
+		try {
+			closed = true;
+			heap.clear();
+			if (running == 0) {
+				idle.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+		sweeper.shutdownNow();
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 最多等待30秒让堆里的消息处理完；等待中被中断则恢复中断标志并返回
+	 */
+	@Override
+	public void close() {
+		try {
+			close(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 描述：一条待处理的投递
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Task {
+
+		final Envelope envelope;
+
+		final AMQP.BasicProperties properties;
+
+		final byte[] body;
+
+		final int priority;
+
+		final long deadline;
+
+		final long receivedNanos;
+
+		/**
+		 * 到达顺序（lock保护下赋值）
+		 */
+		long sequence;
+
+		Task(Envelope envelope, AMQP.BasicProperties properties, byte[] body, int priority, long deadline, long receivedNanos) {
+			this.envelope = envelope;
+			this.properties = properties;
+			this.body = body;
+			this.priority = priority;
+			this.deadline = deadline;
+			this.receivedNanos = receivedNanos;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.sf.wdx.consumer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.rabbitmq.client.AMQP;
+import com.sf.wdx.compress.Compression;
+import com.sf.wdx.publisher.BatchingPublisher;
+
+/**
+ * 描述：拆开BatchingPublisher打包的消息体，逐条交给处理器
+ * 		不复制：每条消息是同一个body数组上position/limit圈出的窗口，整个拆包过程复用一个ByteBuffer，不产生垃圾。
+ * 		处理器返回后窗口就会移到下一条，需要保留时自行slice()或复制。
+ * 		不是批量格式的消息体整体作为一条交给处理器，消费者代码不用区分；压缩过的消息体（contentEncoding）先解压再拆包。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class Unbatcher {
+
+	/**
+	 * 拆出的单条消息处理器
+	 */
+	public interface Handler {
+
+		/**
+		 *	@Param  @param message		当前消息在body上的窗口（position到limit），不要修改内容
+		 */
+		void handle(ByteBuffer message) throws IOException;
+
+	}
+
+	private Unbatcher() {
+	}
+
+	public static boolean isBatch(AMQP.BasicProperties properties) {
+		return properties != null && BatchingPublisher.BATCH_CONTENT_TYPE.equals(properties.getContentType());
+	}
+
+	/**
+	 * 逐条处理消息体中的消息
+	 *	@ReturnType	int		消息条数
+	 *	@Date	2026年10月17日	下午10:20:18
+	 *  @Param  @param properties
+	 *  @Param  @param body
+	 *  @Param  @param handler
+	 *  @Param  @throws IOException		批量格式或压缩数据损坏，或处理器抛出
+	 */
+	public static int forEach(AMQP.BasicProperties properties, byte[] body, Handler handler) throws IOException {
+		body = Compression.decode(properties, body);
+		ByteBuffer view = ByteBuffer.wrap(body);
+		if (!isBatch(properties)) {
+			handler.handle(view);
+			return 1;
+		}
+		int count = 0;
+		int pos = 0;
+		int end = body.length;
+		while (pos < end) {
+			if (end - pos < 4) {
+				throw new IOException("malformed batch: truncated length at offset " + pos);
+			}
+			int length = ((body[pos] & 0xFF) << 24) | ((body[pos + 1] & 0xFF) << 16) | ((body[pos + 2] & 0xFF) << 8) | (body[pos + 3] & 0xFF);
+			pos += 4;
+			if (length < 0 || length > end - pos) {
+				throw new IOException("malformed batch: length " + length + " at offset " + (pos - 4) + " exceeds body");
+			}
+			// 先设limit再设position，窗口始终合法
+			view.limit(pos + length);
+			view.position(pos);
+			handler.handle(view);
+			view.clear();
+			pos += length;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * 按UTF-8解码一条消息（直接从数组解码，不移动窗口）
+	 */
+	public static String utf8(ByteBuffer message) {
+		if (message.hasArray()) {
+			return new String(message.array(), message.arrayOffset() + message.position(), message.remaining(), StandardCharsets.UTF_8);
+		}
+		return StandardCharsets.UTF_8.decode(message.duplicate()).toString();
+	}
+}
@@ -0,0 +1,713 @@
+package com.sf.wdx.failover;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.ListAddressResolver;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.sf.wdx.metrics.HistogramSnapshot;
+import com.sf.wdx.metrics.InstrumentedConnectionFactory;
+import com.sf.wdx.metrics.LatencyHistogram;
+import com.sf.wdx.topology.TopologyRegistry;
+
+/**
+ * 描述：多地址故障转移连接
+ * 		按地址列表（固定顺序或每次打乱）连接，连接断开（broker关闭连接、TCP断开、心跳超时）后立即在恢复线程上重连：
+ * 		先依次尝试其余地址（上次失败的地址排在最后），一轮都失败后按带抖动的指数退避等待再试下一轮。
+ * 		连上后依次：声明登记的拓扑（TopologyRegistry）、重建消费者（新通道 + basicQos + basicConsume）、
+ * 		按原顺序重发所有未确认的消息，最后才接收新的发送；断开期间的publish只进入未确认队列，不阻塞（队列满时阻塞）。
+ * 		重发保证至少一次：断开前已被broker接收但确认丢失的消息会重复，消费端用DedupFilter去重。
+ * 		关闭了客户端自带的自动恢复（与本类的恢复冲突）；心跳和连接超时调小，静默断开（网线、交换机故障）约2个心跳周期发现。
+ * 		从发现断开到消费者恢复、重发完成的耗时记入恢复时间直方图（getRecoveryTime）。
+ * 		只支持命名队列上的消费者：服务器命名的排他队列随旧连接删除，要由调用方在ConsumerFactory里重新声明。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class FailoverConnection implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FailoverConnection.class);
+
+	/**
+	 * 心跳间隔（秒），客户端连续2个周期收不到broker的数据即认为连接断开
+	 */
+	public static final int DEFAULT_HEARTBEAT_SECONDS = 2;
+
+	/**
+	 * TCP连接和握手超时，地址不可达时不至于卡住默认的60秒
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 1000;
+
+	public static final long DEFAULT_MIN_BACKOFF_MILLIS = 50;
+
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5000;
+
+	/**
+	 * 最多未确认的消息数（断开期间积压的消息也计入），满了publish阻塞
+	 */
+	public static final int DEFAULT_MAX_UNCONFIRMED = 10000;
+
+	/**
+	 * close时放入window的许可数：唤醒所有等待的publish，关闭后不再限流（留出余量，迟到的确认再release也不会溢出）
+	 */
+	private static final int CLOSED_PERMITS = Integer.MAX_VALUE / 2;
+
+	/**
+	 * 描述：在新通道上创建消费者（每次恢复调用一次）
+	 */
+	public interface ConsumerFactory {
+
+		Consumer create(Channel channel) throws IOException;
+
+	}
+
+	private final ConnectionFactory factory;
+
+	private final List<Address> addresses;
+
+	private final boolean shuffle;
+
+	private int heartbeatSeconds = DEFAULT_HEARTBEAT_SECONDS;
+
+	private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+	private long minBackoffMillis = DEFAULT_MIN_BACKOFF_MILLIS;
+
+	private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+
+	private int maxUnconfirmed = DEFAULT_MAX_UNCONFIRMED;
+
+	private TopologyRegistry topology;
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	/**
+	 * 未确认的消息，按发送顺序（本地序号）
+	 */
+	private final ConcurrentSkipListMap<Long, Pending> pending = new ConcurrentSkipListMap<Long, Pending>();
+
+	/**
+	 * 当前通道的发送序号 -> 本地序号
+	 */
+	private final ConcurrentSkipListMap<Long, Long> inflight = new ConcurrentSkipListMap<Long, Long>();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private final Object publishLock = new Object();
+
+	private Semaphore window;
+
+	private final ScheduledThreadPoolExecutor recovery;
+
+	private final LatencyHistogram recoveryTime = new LatencyHistogram();
+
+	private final LongAdder recoveries = new LongAdder();
+
+	private final LongAdder failedAttempts = new LongAdder();
+
+	private final LongAdder republished = new LongAdder();
+
+	private volatile Connection connection;
+
+	private volatile Address address;
+
+	/**
+	 * 发送通道及其代次（每次重连加一），publishLock保护
+	 */
+	private Channel publishChannel;
+
+	private long epoch;
+
+	/**
+	 * 发现断开的时间，0表示已连接
+	 */
+	private volatile long failedAt;
+
+	private volatile long lastRecoveryNanos;
+
+	private volatile boolean started;
+
+	private volatile boolean closed;
+
+	/**
+	 *	@Param  @param factory		连接工厂（账号、vhost等），会被关闭自动恢复并设置心跳和连接超时
+	 *	@Param  @param addresses	broker地址列表
+	 *	@Param  @param shuffle		true：每次连接前打乱顺序（多个客户端分散到各节点）；false：按顺序优先连接前面的地址
+	 */
+	public FailoverConnection(ConnectionFactory factory, List<Address> addresses, boolean shuffle) {
+		if (addresses.isEmpty()) {
+			throw new IllegalArgumentException("no broker addresses");
+		}
+		this.factory = factory;
+		this.addresses = new ArrayList<Address>(addresses);
+		this.shuffle = shuffle;
+		this.recovery = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "failover-recovery");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 心跳间隔（秒，0表示关闭心跳），start之前设置
+	 */
+	public FailoverConnection setHeartbeatSeconds(int heartbeatSeconds) {
+		this.heartbeatSeconds = heartbeatSeconds;
+		return this;
+	}
+
+	public FailoverConnection setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * 一轮地址都连不上时的退避范围（每轮翻倍，实际等待在[一半, 全部]之间随机）
+	 */
+	public FailoverConnection setBackoff(long minMillis, long maxMillis) {
+		if (minMillis <= 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("bad backoff range: " + minMillis + ".." + maxMillis);
+		}
+		this.minBackoffMillis = minMillis;
+		this.maxBackoffMillis = maxMillis;
+		return this;
+	}
+
+	public FailoverConnection setMaxUnconfirmed(int maxUnconfirmed) {
+		this.maxUnconfirmed = maxUnconfirmed;
+		return this;
+	}
+
+	/**
+	 * 每次连上后声明的拓扑
+	 */
+	public FailoverConnection setTopology(TopologyRegistry topology) {
+		this.topology = topology;
+		return this;
+	}
+
+	/**
+	 * 连接第一个可用的地址（尝试一轮），之后断开时自动恢复
+	 *	@ReturnType	FailoverConnection
+	 *	@Date	2026年10月17日	下午4:30:12
+	 *  @Param  @return
+	 *  @Param  @throws IOException		所有地址都连不上
+	 */
+	public synchronized FailoverConnection start() throws IOException {
+		if (started) {
+			return this;
+		}
+		// 1.调整连接工厂：关闭自带的自动恢复，缩短心跳和超时
+		tune(factory);
+		if (factory instanceof InstrumentedConnectionFactory) {
+			tune(((InstrumentedConnectionFactory) factory).getDelegate());
+		}
+		window = new Semaphore(maxUnconfirmed);
+		started = true;
+		// 2.连接一轮
+		Exception last = null;
+		for (Address candidate : order(null)) {
+			try {
+				connect(candidate);
+				return this;
+			} catch (Exception e) {
+				failedAttempts.increment();
+				last = e;
+			}
+		}
+		started = false;
+		throw new IOException("cannot connect to any of " + addresses + ": " + last, last);
+	}
+
+	/**
+	 * 登记消费者，连接恢复后自动在新通道上重建
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午4:31:40
+	 *  @Param  @param queue		命名队列
+	 *  @Param  @param prefetch		basicQos，0表示不限
+	 *  @Param  @param autoAck
+	 *  @Param  @param consumers	在给定通道上创建消费者
+	 *  @Param  @throws IOException
+	 */
+	public void consume(String queue, int prefetch, boolean autoAck, ConsumerFactory consumers) throws IOException {
+		Subscription subscription = new Subscription(queue, prefetch, autoAck, consumers);
+		// 先登记再读connection：与connect中"先发布connection再补建"配对，两边至少有一边看到对方，不会漏建
+		subscriptions.add(subscription);
+		Connection current = connection;
+		if (current != null && current.isOpen()) {
+			try {
+				subscription.start(current);
+			} catch (IOException | ShutdownSignalException e) {
+				// 连接正在断开，恢复时重建
+			}
+		}
+	}
+
+	/**
+	 * 发送消息，broker确认后future完成；断开期间进入未确认队列，恢复后按顺序重发
+	 *	@ReturnType	CompletableFuture<Void>		nack或close时异常完成
+	 *	@Date	2026年10月17日	下午4:33:05
+	 *  @Param  @throws InterruptedException	未确认的消息达到上限时等待被中断
+	 */
+	public CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body)
+			throws InterruptedException {
+		if (!started || closed) {
+			throw new IllegalStateException("failover connection is not running");
+		}
+		window.acquire();
+		// 等待期间可能已关闭（close放出许可唤醒等待者）
+		if (closed) {
+			throw new IllegalStateException("failover connection is not running");
+		}
+		Pending message = new Pending(ids.incrementAndGet(), exchange, routingKey, props, body);
+		pending.put(message.id, message);
+		// put之后再检查一次：close已经遍历过pending时由这里异常完成，不会留下永不完成的future
+		if (closed) {
+			if (pending.remove(message.id) != null) {
+				message.future.completeExceptionally(new IOException("failover connection closed"));
+			}
+			return message.future;
+		}
+		synchronized (publishLock) {
+			if (publishChannel != null) {
+				try {
+					send(message);
+				} catch (IOException | ShutdownSignalException e) {
+					// 通道已断开，恢复后重发
+				}
+			}
+		}
+		return message.future;
+	}
+
+	public boolean isConnected() {
+		Connection current = connection;
+		return current != null && current.isOpen() && failedAt == 0;
+	}
+
+	/**
+	 * 当前连接（断开期间可能是已关闭的旧连接，不要长期持有）
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * 当前连接的地址
+	 */
+	public Address getAddress() {
+		return address;
+	}
+
+	/**
+	 * 恢复次数（不含第一次连接）
+	 */
+	public long getRecoveries() {
+		return recoveries.sum();
+	}
+
+	/**
+	 * 连接失败的次数（每个地址每次尝试计一次）
+	 */
+	public long getFailedAttempts() {
+		return failedAttempts.sum();
+	}
+
+	/**
+	 * 恢复后重发的消息数
+	 */
+	public long getRepublished() {
+		return republished.sum();
+	}
+
+	public int getUnconfirmed() {
+		return pending.size();
+	}
+
+	/**
+	 * 最近一次恢复耗时（纳秒）：从发现断开到消费者重建、未确认消息重发完成
+	 */
+	public long getLastRecoveryNanos() {
+		return lastRecoveryNanos;
+	}
+
+	/**
+	 * 恢复耗时的分布（纳秒）
+	 */
+	public HistogramSnapshot getRecoveryTime() {
+		return recoveryTime.snapshot();
+	}
+
+	@Override
+	public String toString() {
+		return "FailoverConnection[address=" + address + ", connected=" + isConnected() + ", recoveries=" + getRecoveries() + ", failedAttempts="
+				+ getFailedAttempts() + ", unconfirmed=" + getUnconfirmed() + ", republished=" + getRepublished() + ", recovery="
+				+ getRecoveryTime().toLatencyString() + "]";
+	}
+
+	/**
+	 * 关闭连接，未确认的消息异常完成，等待window的publish被唤醒后抛IllegalStateException
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		recovery.shutdownNow();
+		Connection current = connection;
+		if (current != null && current.isOpen()) {
+			try {
+				current.close();
+			} catch (IOException | ShutdownSignalException e) {
+				current.abort();
+			}
+		}
+		IOException cause = new IOException("failover connection closed");
+		for (Pending message : pending.values()) {
+			if (pending.remove(message.id) != null) {
+				message.future.completeExceptionally(cause);
+			}
+		}
+		if (window != null) {
+			window.release(CLOSED_PERMITS);
+		}
+	}
+
+	private void tune(ConnectionFactory target) {
+		target.setAutomaticRecoveryEnabled(false);
+		target.setRequestedHeartbeat(heartbeatSeconds);
+		target.setConnectionTimeout(connectTimeoutMillis);
+		target.setHandshakeTimeout(Math.max(connectTimeoutMillis, 1000));
+	}
+
+	/**
+	 * 本轮尝试的地址顺序，上次失败的地址排在最后
+	 */
+	private List<Address> order(Address failed) {
+		List<Address> order = new ArrayList<Address>(addresses);
+		if (shuffle) {
+			Collections.shuffle(order, ThreadLocalRandom.current());
+		}
+		if (failed != null && order.remove(failed)) {
+			order.add(failed);
+		}
+		return order;
+	}
+
+	/**
+	 * 连接一个地址并恢复消费者、重发未确认的消息
+	 */
+	private void connect(Address candidate) throws IOException, TimeoutException {
+		// 每次只连一个地址，由本类决定顺序（不展开DNS里的多个IP）
+		Connection created = factory.newConnection(new ListAddressResolver(Collections.singletonList(candidate)));
+		// close()的中断停不下newConnection：连上时已关闭就直接丢弃
+		if (closed) {
+			created.abort();
+			return;
+		}
+		try {
+			// 1.拓扑
+			if (topology != null) {
+				topology.apply(created);
+			}
+			// 2.消费者
+			for (Subscription subscription : subscriptions) {
+				subscription.start(created);
+			}
+			// 3.切换到新的发送通道，按顺序重发未确认的消息（之后的publish排在重发的消息之后）
+			synchronized (publishLock) {
+				openPublishChannel(created);
+				for (Pending message : pending.values()) {
+					if (message.sent) {
+						republished.increment();
+					}
+					send(message);
+				}
+			}
+			// 4.与close()互斥地发布连接：close之后发布的连接和消费者不会再有人关闭
+			synchronized (this) {
+				if (closed) {
+					created.abort();
+					return;
+				}
+				connection = created;
+				address = candidate;
+			}
+			// 补建：步骤2之后、connection发布之前consume登记的消费者（start对同一连接只执行一次）
+			for (Subscription subscription : subscriptions) {
+				subscription.start(created);
+			}
+			created.addShutdownListener(cause -> connectionLost(created, cause));
+		} catch (IOException | RuntimeException e) {
+			synchronized (publishLock) {
+				publishChannel = null;
+			}
+			created.abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * 打开新的确认模式发送通道，开始新的代次（调用方持有publishLock）
+	 */
+	private void openPublishChannel(Connection owner) throws IOException {
+		Channel channel = owner.createChannel();
+		if (channel == null) {
+			throw new IOException("no channel available on " + owner);
+		}
+		channel.confirmSelect();
+		epoch++;
+		inflight.clear();
+		long channelEpoch = epoch;
+		channel.addConfirmListener(new Confirms(channelEpoch));
+		channel.addShutdownListener(cause -> {
+			if (!cause.isHardError() && !cause.isInitiatedByApplication()) {
+				recovery.execute(() -> publishChannelLost(owner, channelEpoch, cause));
+			}
+		});
+		publishChannel = channel;
+	}
+
+	/**
+	 * 发送通道被通道级错误关闭（如交换机不存在）：无法判断是哪条消息引起的，重发会再次触发，
+	 * 这个通道上未确认的消息异常完成，之后的发送用新通道
+	 */
+	private void publishChannelLost(Connection owner, long channelEpoch, ShutdownSignalException cause) {
+		List<Long> failed = new ArrayList<Long>();
+		synchronized (publishLock) {
+			if (closed || channelEpoch != epoch || owner != connection || !owner.isOpen()) {
+				return;
+			}
+			failed.addAll(inflight.values());
+			try {
+				openPublishChannel(owner);
+			} catch (IOException | RuntimeException e) {
+				// 连接也断了，由connectionLost恢复
+				publishChannel = null;
+			}
+		}
+		LOG.warn("publish channel closed: {}, failing {} unconfirmed messages", cause.getMessage(), failed.size());
+		IOException failure = new IOException("publish channel closed: " + cause.getMessage(), cause);
+		for (Long id : failed) {
+			Pending message = pending.remove(id);
+			if (message != null) {
+				window.release();
+				message.future.completeExceptionally(failure);
+			}
+		}
+	}
+
+	/**
+	 * 调用方持有publishLock
+	 */
+	private void send(Pending message) throws IOException {
+		if (message.epoch == epoch) {
+			return;
+		}
+		long seqNo = publishChannel.getNextPublishSeqNo();
+		inflight.put(seqNo, message.id);
+		message.epoch = epoch;
+		message.sent = true;
+		publishChannel.basicPublish(message.exchange, message.routingKey, message.props, message.body);
+	}
+
+	private void connectionLost(Connection lost, ShutdownSignalException cause) {
+		if (closed || lost != connection) {
+			return;
+		}
+		failedAt = System.nanoTime();
+		synchronized (publishLock) {
+			publishChannel = null;
+			epoch++;
+		}
+		LOG.warn("connection to {} lost: {}, failing over", address, cause.getMessage());
+		recovery.execute(() -> recover(address));
+	}
+
+	/**
+	 * 恢复线程：轮流尝试各地址，一轮失败后抖动退避
+	 */
+	private void recover(Address failed) {
+		long backoff = minBackoffMillis;
+		while (!closed) {
+			for (Address candidate : order(failed)) {
+				if (closed) {
+					return;
+				}
+				try {
+					connect(candidate);
+					if (closed) {
+						return;
+					}
+					long elapsed = System.nanoTime() - failedAt;
+					failedAt = 0;
+					lastRecoveryNanos = elapsed;
+					recoveryTime.record(elapsed);
+					recoveries.increment();
+					LOG.info("recovered on {} in {}ms, republished {} so far", candidate, TimeUnit.NANOSECONDS.toMillis(elapsed), republished.sum());
+					return;
+				} catch (Exception e) {
+					failedAttempts.increment();
+				}
+			}
+			// 一轮都失败：在[backoff/2, backoff]之间随机等待，多个客户端不会同时重连
+			long sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+			try {
+				Thread.sleep(sleep);
+			} catch (InterruptedException e) {
+				return;
+			}
+			backoff = Math.min(backoff * 2, maxBackoffMillis);
+		}
+	}
+
+	/**
+	 * 描述：一个通道代次的确认回调（旧通道的迟到回调被忽略）
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private final class Confirms implements ConfirmListener {
+
+		private final long channelEpoch;
+
+		Confirms(long channelEpoch) {
+			this.channelEpoch = channelEpoch;
+		}
+
+		@Override
+		public void handleAck(long deliveryTag, boolean multiple) {
+			complete(deliveryTag, multiple, null);
+		}
+
+		@Override
+		public void handleNack(long deliveryTag, boolean multiple) {
+			complete(deliveryTag, multiple, new IOException("message nacked by broker"));
+		}
+
+		private void complete(long deliveryTag, boolean multiple, IOException failure) {
+			List<Long> done = new ArrayList<Long>();
+			synchronized (publishLock) {
+				if (channelEpoch != epoch) {
+					return;
+				}
+				NavigableMap<Long, Long> confirmed = multiple ? inflight.headMap(deliveryTag, true) : inflight.subMap(deliveryTag, true, deliveryTag, true);
+				for (Map.Entry<Long, Long> entry : confirmed.entrySet()) {
+					done.add(entry.getValue());
+				}
+				confirmed.clear();
+			}
+			for (Long id : done) {
+				Pending message = pending.remove(id);
+				if (message == null) {
+					continue;
+				}
+				window.release();
+				if (failure == null) {
+					message.future.complete(null);
+				} else {
+					message.future.completeExceptionally(failure);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 描述：一个需要在每次恢复后重建的消费者
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Subscription {
+
+		final String queue;
+
+		final int prefetch;
+
+		final boolean autoAck;
+
+		final ConsumerFactory consumers;
+
+		/**
+		 * 已在其上建立消费者的连接（this保护）
+		 */
+		private Connection startedOn;
+
+		Subscription(String queue, int prefetch, boolean autoAck, ConsumerFactory consumers) {
+			this.queue = queue;
+			this.prefetch = prefetch;
+			this.autoAck = autoAck;
+			this.consumers = consumers;
+		}
+
+		/**
+		 * 在连接上建立消费者，同一连接重复调用时不再建立
+		 */
+		synchronized void start(Connection connection) throws IOException {
+			if (startedOn == connection) {
+				return;
+			}
+			Channel channel = connection.createChannel();
+			channel.basicQos(prefetch);
+			channel.basicConsume(queue, autoAck, consumers.create(channel));
+			startedOn = connection;
+		}
+	}
+
+	/**
+	 * 描述：未确认的消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Pending {
+
+		final long id;
+
+		final String exchange;
+
+		final String routingKey;
+
+		final AMQP.BasicProperties props;
+
+		final byte[] body;
+
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		/**
+		 * 最后一次发送所在的通道代次（publishLock保护）
+		 */
+		long epoch = -1;
+
+		boolean sent;
+
+		Pending(long id, String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+			this.id = id;
+			this.exchange = exchange;
+			this.routingKey = routingKey;
+			this.props = props;
+			this.body = body;
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package com.sf.wdx.helloworld;
 
 import java.io.IOException;
-import java.util.Date;
 
 import org.junit.Test;
 
@@ -12,6 +11,7 @@ import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
+import com.sf.wdx.codec.Codecs;
 import com.sf.wdx.util.DateUtils;
 
 /**
@@ -50,7 +50,7 @@ public class HelloWorld {
 	      @Override
 	      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
 	          throws IOException {
-	        String message = new String(body, "UTF-8");
+	        String message = Codecs.getDefault().decode(properties, body, String.class);
 	        System.out.println(" [x] Received '" + message + "'");
 	      }
 	    };
@@ -83,8 +83,8 @@ public class HelloWorld {
 		// 6.发送消息
 		for (int i = 0; i < 100; i++) {
 			Thread.sleep(1000);
-			String message = "Hello World!" + DateUtils.date2Str(new Date(), PATTERN);
-			channel.basicPublish("", QUEUE_NAME, null, message.getBytes("UTF-8"));
+			String message = "Hello World!" + DateUtils.now(PATTERN);
+			Codecs.getDefault().publish(channel, "", QUEUE_NAME, null, message);
 			System.out.println(" [x] Sent '" + message + "'");
 		}
 		// 7.关闭
@@ -0,0 +1,412 @@
+package com.sf.wdx.load;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.consumer.AckCoalescer;
+import com.sf.wdx.metrics.HistogramSnapshot;
+import com.sf.wdx.metrics.LatencyHistogram;
+import com.sf.wdx.publisher.ConfirmPublisher;
+import com.sf.wdx.rpc.RpcClient;
+import com.sf.wdx.rpc.RpcServer;
+import com.sf.wdx.topic.TopicMatcher;
+import com.sf.wdx.util.ConnectionUtil;
+
+/**
+ * 描述：开环压测工具
+ * 		每个生产者线程按固定时间表发送（第i条的计划时间 = 开始时间 + i × 间隔），不等待broker或消费者，
+ * 		落后时立即补发、不跳过，因此broker变慢时积压会真实地反映在延迟里。
+ * 		延迟按计划发送时间计算（修正coordinated omission：卡住期间本该发出的消息也计入了等待时间），
+ * 		同时给出按实际发送时间计算的延迟作对照；两者差距大说明发送端被阻塞（流控、确认窗口、CPU不足）。
+ * 		消息体开头放计划时间和实际时间（System.nanoTime），生产者和消费者在同一个进程里，时钟一致。
+ * 		预热期间发送的消息不计入结果；结束后等待在途消息收完（最多DRAIN_SECONDS秒），没收到的计为丢失。
+ * 		进度输出到stderr，结果按--format输出到stdout（json/csv便于发布前的容量对比）。
+ * 		运行：mvn -q compile exec:java -Dexec.mainClass=com.sf.wdx.load.LoadGenerator -Dexec.args="--pattern topic --rate 20000 --producers 2 --consumers 4"
+ * 		（加-Dwdx.mq.transport=loopback时压进程内的LoopbackBroker）
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class LoadGenerator {
+
+	private static final String PREFIX = "load.";
+
+	private static final int DRAIN_SECONDS = 10;
+
+	private static final String[] COUNTRIES = { "cn", "us", "uk", "jp" };
+
+	private static final String[] PERSONS = { "li", "wang", "zhang", "smith" };
+
+	private static final String[] LEVELS = { "info", "warn", "error" };
+
+	/**
+	 * topic模式消费者依次使用的绑定模式
+	 */
+	private static final String[] TOPIC_PATTERNS = { "cn.#", "*.*.error", "us.*.*", "#.info", "*.li.*", "#" };
+
+	private final LoadOptions options;
+
+	/**
+	 * 按计划发送时间计算的端到端延迟（已修正）
+	 */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * 按实际发送时间计算的端到端延迟（未修正）
+	 */
+	private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+	/**
+	 * 实际发送时间落后计划时间多少
+	 */
+	private final LatencyHistogram sendLag = new LatencyHistogram();
+
+	private final LatencyHistogram confirmLatency = new LatencyHistogram();
+
+	private final LongAdder sent = new LongAdder();
+
+	private final LongAdder expected = new LongAdder();
+
+	private final LongAdder received = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final AtomicLong sendErrors = new AtomicLong();
+
+	/**
+	 * 发送用的routingKey（按消息序号轮流使用）和每个key应投递的份数
+	 */
+	private String exchange = "";
+
+	private String[] routingKeys;
+
+	private int[] fanout;
+
+	private volatile long measureFrom;
+
+	public LoadGenerator(LoadOptions options) {
+		this.options = options;
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadOptions options;
+		try {
+			options = LoadOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+			return;
+		}
+		LoadReport report = new LoadGenerator(options).run();
+		System.out.println(report.format(options.getFormat()));
+		System.exit(report.getLost() == 0 && report.getSendErrors() == 0 ? 0 : 1);
+	}
+
+	/**
+	 * 执行一次压测
+	 *	@ReturnType	LoadReport
+	 *	@Date	2026年10月17日	下午1:20:05
+	 *  @Param  @return
+	 *  @Param  @throws Exception
+	 */
+	public LoadReport run() throws Exception {
+		// 1.生产者和消费者各用一个连接
+		ConnectionFactory factory = ConnectionUtil.getConnectionFactory();
+		if (options.getUri() != null) {
+			factory.setUri(options.getUri());
+		}
+		Connection consumerConnection = factory.newConnection();
+		Connection producerConnection = factory.newConnection();
+		List<AutoCloseable> closeables = new ArrayList<AutoCloseable>();
+		try {
+			// 2.按模式声明拓扑、启动消费者
+			startConsumers(consumerConnection, closeables);
+			// 3.生产者通道（多个生产者线程共用）
+			Channel[] channels = new Channel[options.getChannels()];
+			ConfirmPublisher[] confirms = new ConfirmPublisher[channels.length];
+			RpcClient[] clients = new RpcClient[channels.length];
+			for (int i = 0; i < channels.length; i++) {
+				channels[i] = producerConnection.createChannel();
+				if (options.getPattern() == LoadOptions.Pattern.RPC) {
+					clients[i] = new RpcClient(channels[i], exchange, routingKeys[0], true);
+					closeables.add(clients[i]);
+				} else if (options.isConfirm()) {
+					confirms[i] = new ConfirmPublisher(channels[i]);
+					closeables.add(confirms[i]);
+				}
+			}
+			// 4.按时间表发送，主线程定期输出进度
+			long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+			measureFrom = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+			long end = measureFrom + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+			Thread[] producers = new Thread[options.getProducers()];
+			for (int i = 0; i < producers.length; i++) {
+				final int index = i;
+				final Channel channel = channels[i % channels.length];
+				final ConfirmPublisher confirm = confirms[i % channels.length];
+				final RpcClient client = clients[i % channels.length];
+				producers[i] = new Thread(() -> produce(index, channel, confirm, client, start, end), "load-producer-" + i);
+				producers[i].setDaemon(true);
+				producers[i].start();
+			}
+			List<LoadReport.Interval> intervals = report(producers, start, end);
+			// 5.等待在途消息收完
+			long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+			while (received.sum() < expected.sum() && System.nanoTime() < drainDeadline) {
+				Thread.sleep(10);
+			}
+			return new LoadReport(options, latency.snapshot(), serviceTime.snapshot(), sendLag.snapshot(),
+					options.isConfirm() ? confirmLatency.snapshot() : null, sent.sum(), expected.sum(), received.sum(), failed.sum(),
+					sendErrors.get(), intervals);
+		} finally {
+			for (AutoCloseable closeable : closeables) {
+				try {
+					closeable.close();
+				} catch (Exception e) {
+					System.err.println(" [!] close failed: " + e);
+				}
+			}
+			producerConnection.abort();
+			consumerConnection.abort();
+		}
+	}
+
+	private void startConsumers(Connection connection, List<AutoCloseable> closeables) throws IOException, TimeoutException {
+		Channel admin = connection.createChannel();
+		int consumers = options.getConsumers();
+		switch (options.getPattern()) {
+		case WORK: {
+			// 1.一个队列，多个消费者竞争
+			String queue = PREFIX + "work";
+			admin.queueDeclare(queue, false, false, true, null);
+			admin.queuePurge(queue);
+			routingKeys = new String[] { queue };
+			fanout = new int[] { 1 };
+			for (int i = 0; i < consumers; i++) {
+				consume(connection, queue, closeables);
+			}
+			break;
+		}
+		case FANOUT: {
+			// 2.每个消费者一个队列，每条消息投递consumers份
+			exchange = PREFIX + "fanout";
+			admin.exchangeDeclare(exchange, "fanout");
+			routingKeys = new String[] { "" };
+			fanout = new int[] { consumers };
+			for (int i = 0; i < consumers; i++) {
+				String queue = admin.queueDeclare().getQueue();
+				admin.queueBind(queue, exchange, "");
+				consume(connection, queue, closeables);
+			}
+			break;
+		}
+		case DIRECT: {
+			// 3.消费者i绑定key.i，消息轮流发到各个key
+			exchange = PREFIX + "direct";
+			admin.exchangeDeclare(exchange, "direct");
+			routingKeys = new String[consumers];
+			fanout = new int[consumers];
+			for (int i = 0; i < consumers; i++) {
+				routingKeys[i] = "key." + i;
+				fanout[i] = 1;
+				String queue = admin.queueDeclare().getQueue();
+				admin.queueBind(queue, exchange, routingKeys[i]);
+				consume(connection, queue, closeables);
+			}
+			break;
+		}
+		case TOPIC: {
+			// 4.routingKey取<country>.<person>.<level>的所有组合，每个key的投递份数用TopicMatcher按消费者的模式算出
+			exchange = PREFIX + "topic";
+			admin.exchangeDeclare(exchange, "topic");
+			TopicMatcher<Integer> matcher = new TopicMatcher<Integer>();
+			for (int i = 0; i < consumers; i++) {
+				String pattern = TOPIC_PATTERNS[i % TOPIC_PATTERNS.length];
+				matcher.add(pattern, i);
+				String queue = admin.queueDeclare().getQueue();
+				admin.queueBind(queue, exchange, pattern);
+				consume(connection, queue, closeables);
+			}
+			routingKeys = new String[COUNTRIES.length * PERSONS.length * LEVELS.length];
+			fanout = new int[routingKeys.length];
+			int k = 0;
+			for (String country : COUNTRIES) {
+				for (String person : PERSONS) {
+					for (String level : LEVELS) {
+						routingKeys[k] = country + "." + person + "." + level;
+						fanout[k] = matcher.match(routingKeys[k], null);
+						k++;
+					}
+				}
+			}
+			break;
+		}
+		case RPC: {
+			// 5.服务端原样返回请求，延迟在客户端收到响应时记录
+			String queue = PREFIX + "rpc";
+			admin.queueDeclare(queue, false, false, true, null);
+			admin.queuePurge(queue);
+			routingKeys = new String[] { queue };
+			fanout = new int[] { 1 };
+			RpcServer server = new RpcServer(connection.createChannel(), queue, consumers, (body, properties) -> body);
+			server.start();
+			closeables.add(server);
+			break;
+		}
+		default:
+			throw new IllegalArgumentException("unsupported pattern " + options.getPattern());
+		}
+		admin.close();
+	}
+
+	private void consume(Connection connection, String queue, List<AutoCloseable> closeables) throws IOException {
+		Channel channel = connection.createChannel();
+		if (options.getPrefetch() > 0) {
+			channel.basicQos(options.getPrefetch());
+		}
+		// 预取数的一半合并成一次ack
+		AckCoalescer acks = new AckCoalescer(channel, Math.max(1, options.getPrefetch() / 2), 10);
+		closeables.add(0, acks);
+		channel.basicConsume(queue, false, new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				delivered(body, System.nanoTime());
+				acks.ack(envelope.getDeliveryTag());
+			}
+		});
+	}
+
+	/**
+	 * 记录一条收到的消息（或RPC响应）
+	 */
+	private void delivered(byte[] body, long now) {
+		ByteBuffer header = ByteBuffer.wrap(body);
+		long intended = header.getLong(0);
+		if (intended < measureFrom) {
+			return;
+		}
+		received.increment();
+		latency.record(now - intended);
+		serviceTime.record(now - header.getLong(8));
+	}
+
+	private void produce(int index, Channel channel, ConfirmPublisher confirm, RpcClient client, long start, long end) {
+		double interval = 1e9 * options.getProducers() / options.getRate();
+		// 各生产者错开，合起来是均匀的时间表
+		long offset = (long) (interval * index / options.getProducers());
+		Random random = new Random(index);
+		SizeDistribution size = options.getSize();
+		AMQP.BasicProperties props = options.isPersistent() ? MessageProperties.PERSISTENT_BASIC : MessageProperties.BASIC;
+		for (long i = 0; ; i++) {
+			// 1.等到计划时间（已经落后时不等待，立即补发）
+			final long intended = start + offset + (long) (i * interval);
+			if (intended >= end) {
+				return;
+			}
+			waitUntil(intended);
+			// 2.消息体开头写入计划时间和实际发送时间
+			byte[] body = new byte[size.next(random)];
+			long now = System.nanoTime();
+			ByteBuffer.wrap(body).putLong(0, intended).putLong(8, now);
+			int key = (int) ((i * options.getProducers() + index) % routingKeys.length);
+			boolean measured = intended >= measureFrom;
+			if (measured) {
+				sendLag.record(now - intended);
+				sent.increment();
+				expected.add(fanout[key]);
+			}
+			// 3.发送
+			try {
+				if (client != null) {
+					client.call(body, DRAIN_SECONDS, TimeUnit.SECONDS).whenComplete((reply, e) -> {
+						if (e != null) {
+							failed.increment();
+						} else {
+							delivered(reply, System.nanoTime());
+						}
+					});
+				} else if (confirm != null) {
+					confirm.publish(exchange, routingKeys[key], props, body).whenComplete((v, e) -> {
+						if (e != null) {
+							failed.increment();
+						} else if (measured) {
+							confirmLatency.record(System.nanoTime() - intended);
+						}
+					});
+				} else {
+					channel.basicPublish(exchange, routingKeys[key], props, body);
+				}
+			} catch (IOException | RuntimeException e) {
+				if (sendErrors.getAndIncrement() == 0) {
+					System.err.println(" [!] send failed: " + e);
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 等到deadline：离得远时park，最后一小段让出CPU自旋
+	 */
+	private static void waitUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (remaining > 100000) {
+				LockSupport.parkNanos(remaining - 50000);
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * 每隔interval秒输出一行进度到stderr，直到生产者结束
+	 */
+	private List<LoadReport.Interval> report(Thread[] producers, long start, long end) throws InterruptedException {
+		List<LoadReport.Interval> intervals = new ArrayList<LoadReport.Interval>();
+		long period = TimeUnit.SECONDS.toNanos(Math.max(1, options.getIntervalSeconds()));
+		HistogramSnapshot last = latency.snapshot();
+		long lastSent = 0;
+		long lastReceived = 0;
+		long tick = measureFrom;
+		System.err.println(" [*] " + options + ", warming up " + options.getWarmupSeconds() + "s");
+		while (tick < end) {
+			tick += period;
+			long wait = tick - System.nanoTime();
+			if (wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+			HistogramSnapshot now = latency.snapshot();
+			long sentNow = sent.sum();
+			long receivedNow = received.sum();
+			LoadReport.Interval interval = new LoadReport.Interval((tick - measureFrom) / 1e9, sentNow - lastSent, receivedNow - lastReceived,
+					now.minus(last), period);
+			intervals.add(interval);
+			if (options.getIntervalSeconds() > 0) {
+				System.err.println(" [*] " + interval);
+			}
+			last = now;
+			lastSent = sentNow;
+			lastReceived = receivedNow;
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		return intervals;
+	}
+}
@@ -0,0 +1,266 @@
+package com.sf.wdx.load;
+
+import java.util.List;
+import java.util.Locale;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.sf.wdx.metrics.HistogramSnapshot;
+
+/**
+ * 描述：一次压测的结果，可输出为文本、JSON（含每个区间的进度）或CSV（一行表头一行数据，便于追加到历史记录里对比）
+ * 		延迟单位微秒；latency是按计划发送时间修正过的端到端延迟，serviceTime是按实际发送时间的（未修正）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class LoadReport {
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+	private final LoadOptions options;
+
+	private final HistogramSnapshot latency;
+
+	private final HistogramSnapshot serviceTime;
+
+	private final HistogramSnapshot sendLag;
+
+	private final HistogramSnapshot confirmLatency;
+
+	private final long sent;
+
+	private final long expected;
+
+	private final long received;
+
+	private final long failed;
+
+	private final long sendErrors;
+
+	private final List<Interval> intervals;
+
+	LoadReport(LoadOptions options, HistogramSnapshot latency, HistogramSnapshot serviceTime, HistogramSnapshot sendLag,
+			HistogramSnapshot confirmLatency, long sent, long expected, long received, long failed, long sendErrors, List<Interval> intervals) {
+		this.options = options;
+		this.latency = latency;
+		this.serviceTime = serviceTime;
+		this.sendLag = sendLag;
+		this.confirmLatency = confirmLatency;
+		this.sent = sent;
+		this.expected = expected;
+		this.received = received;
+		this.failed = failed;
+		this.sendErrors = sendErrors;
+		this.intervals = intervals;
+	}
+
+	/**
+	 * 计入结果的发送数（不含预热）
+	 */
+	public long getSent() {
+		return sent;
+	}
+
+	/**
+	 * 应收到的投递数（fanout、topic模式下一条消息投递多份）
+	 */
+	public long getExpected() {
+		return expected;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	/**
+	 * 等待结束后仍没收到的投递数
+	 */
+	public long getLost() {
+		return Math.max(0, expected - received);
+	}
+
+	public long getSendErrors() {
+		return sendErrors;
+	}
+
+	/**
+	 * 实际达到的发送速率（条/秒）
+	 */
+	public double getSendRate() {
+		return sent / (double) options.getDurationSeconds();
+	}
+
+	/**
+	 * 实际达到的接收速率（投递/秒）
+	 */
+	public double getReceiveRate() {
+		return received / (double) options.getDurationSeconds();
+	}
+
+	public HistogramSnapshot getLatency() {
+		return latency;
+	}
+
+	public HistogramSnapshot getServiceTime() {
+		return serviceTime;
+	}
+
+	public String format(LoadOptions.Format format) {
+		switch (format) {
+		case JSON:
+			return toJson();
+		case CSV:
+			return toCsv();
+		default:
+			return toString();
+		}
+	}
+
+	public String toJson() {
+		JSONObject json = new JSONObject(true);
+		JSONObject config = new JSONObject(true);
+		config.put("pattern", options.getPattern().name().toLowerCase(Locale.ROOT));
+		config.put("targetRate", options.getRate());
+		config.put("size", options.getSize().toString());
+		config.put("producers", options.getProducers());
+		config.put("consumers", options.getConsumers());
+		config.put("channels", options.getChannels());
+		config.put("durationSeconds", options.getDurationSeconds());
+		config.put("warmupSeconds", options.getWarmupSeconds());
+		config.put("prefetch", options.getPrefetch());
+		config.put("confirm", options.isConfirm());
+		config.put("persistent", options.isPersistent());
+		json.put("config", config);
+		json.put("sent", sent);
+		json.put("expected", expected);
+		json.put("received", received);
+		json.put("lost", getLost());
+		json.put("failed", failed);
+		json.put("sendErrors", sendErrors);
+		json.put("sendRate", round(getSendRate()));
+		json.put("receiveRate", round(getReceiveRate()));
+		json.put("latencyMicros", toJson(latency));
+		json.put("serviceTimeMicros", toJson(serviceTime));
+		json.put("sendLagMicros", toJson(sendLag));
+		if (confirmLatency != null) {
+			json.put("confirmLatencyMicros", toJson(confirmLatency));
+		}
+		JSONArray array = new JSONArray();
+		for (Interval interval : intervals) {
+			JSONObject item = new JSONObject(true);
+			item.put("second", round(interval.second));
+			item.put("sendRate", round(interval.sendRate()));
+			item.put("receiveRate", round(interval.receiveRate()));
+			item.put("latencyMicros", toJson(interval.latency));
+			array.add(item);
+		}
+		json.put("intervals", array);
+		return JSON.toJSONString(json, SerializerFeature.PrettyFormat);
+	}
+
+	private static JSONObject toJson(HistogramSnapshot snapshot) {
+		JSONObject json = new JSONObject(true);
+		json.put("count", snapshot.getCount());
+		json.put("mean", round(snapshot.getMean() / 1000));
+		for (double percentile : PERCENTILES) {
+			json.put("p" + label(percentile), micros(snapshot.getValueAtPercentile(percentile)));
+		}
+		json.put("max", micros(snapshot.getMax()));
+		return json;
+	}
+
+	/**
+	 * 表头 + 一行汇总
+	 */
+	public String toCsv() {
+		StringBuilder header = new StringBuilder("pattern,target_rate,size,producers,consumers,channels,duration_s,confirm,persistent,"
+				+ "sent,received,lost,send_rate,receive_rate");
+		StringBuilder row = new StringBuilder();
+		row.append(options.getPattern().name().toLowerCase(Locale.ROOT)).append(',').append(options.getRate()).append(',')
+				.append(options.getSize()).append(',').append(options.getProducers()).append(',').append(options.getConsumers()).append(',')
+				.append(options.getChannels()).append(',').append(options.getDurationSeconds()).append(',').append(options.isConfirm()).append(',')
+				.append(options.isPersistent()).append(',').append(sent).append(',').append(received).append(',').append(getLost()).append(',')
+				.append(round(getSendRate())).append(',').append(round(getReceiveRate()));
+		appendCsv(header, row, "latency", latency);
+		appendCsv(header, row, "service", serviceTime);
+		appendCsv(header, row, "send_lag", sendLag);
+		return header + "\n" + row;
+	}
+
+	private static void appendCsv(StringBuilder header, StringBuilder row, String name, HistogramSnapshot snapshot) {
+		for (double percentile : PERCENTILES) {
+			header.append(',').append(name).append("_p").append(label(percentile).replace('.', '_')).append("_us");
+			row.append(',').append(micros(snapshot.getValueAtPercentile(percentile)));
+		}
+		header.append(',').append(name).append("_max_us");
+		row.append(',').append(micros(snapshot.getMax()));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(options).append('\n');
+		text.append(String.format("sent %d (%.1f msg/s), received %d of %d (%.1f msg/s), lost %d, failed %d, send errors %d%n", sent,
+				getSendRate(), received, expected, getReceiveRate(), getLost(), failed, sendErrors));
+		text.append("latency (corrected)   ").append(latency.toLatencyString()).append('\n');
+		text.append("service time          ").append(serviceTime.toLatencyString()).append('\n');
+		text.append("send lag              ").append(sendLag.toLatencyString());
+		if (confirmLatency != null) {
+			text.append('\n').append("confirm latency       ").append(confirmLatency.toLatencyString());
+		}
+		return text.toString();
+	}
+
+	private static String label(double percentile) {
+		return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+	}
+
+	private static double micros(long nanos) {
+		return round(nanos / 1000.0);
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 10) / 10.0;
+	}
+
+	/**
+	 * 描述：一个进度区间
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	static final class Interval {
+
+		final double second;
+
+		final long sent;
+
+		final long received;
+
+		final HistogramSnapshot latency;
+
+		final long periodNanos;
+
+		Interval(double second, long sent, long received, HistogramSnapshot latency, long periodNanos) {
+			this.second = second;
+			this.sent = sent;
+			this.received = received;
+			this.latency = latency;
+			this.periodNanos = periodNanos;
+		}
+
+		double sendRate() {
+			return sent * 1e9 / periodNanos;
+		}
+
+		double receiveRate() {
+			return received * 1e9 / periodNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%6.1fs  sent %8.0f/s  received %8.0f/s  %s", second, sendRate(), receiveRate(), latency.toLatencyString());
+		}
+	}
+}
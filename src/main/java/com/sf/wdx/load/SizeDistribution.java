@@ -0,0 +1,95 @@
+package com.sf.wdx.load;
+
+import java.util.Random;
+
+/**
+ * 描述：消息体大小的分布
+ * 		写法：1024（固定）、uniform:64-4096（均匀）、exp:1024（指数分布，均值1024，截断到均值的20倍）。
+ * 		不小于MIN_SIZE：消息体开头要放计划发送时间和实际发送时间。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class SizeDistribution {
+
+	/**
+	 * 消息体头部：计划发送时间 + 实际发送时间（各8字节）
+	 */
+	public static final int MIN_SIZE = 16;
+
+	private static final int EXP_CAP = 20;
+
+	private final String spec;
+
+	private final char kind;
+
+	private final int min;
+
+	private final int max;
+
+	private final double mean;
+
+	private SizeDistribution(String spec, char kind, int min, int max, double mean) {
+		this.spec = spec;
+		this.kind = kind;
+		this.min = Math.max(MIN_SIZE, min);
+		this.max = Math.max(this.min, max);
+		this.mean = mean;
+	}
+
+	/**
+	 * 解析分布
+	 *	@ReturnType	SizeDistribution
+	 *	@Date	2026年10月17日	下午1:05:22
+	 *  @Param  @param spec		例：1024、uniform:64-4096、exp:1024
+	 *  @Param  @return
+	 */
+	public static SizeDistribution parse(String spec) {
+		try {
+			if (spec.startsWith("uniform:")) {
+				String[] range = spec.substring("uniform:".length()).split("-");
+				int min = Integer.parseInt(range[0].trim());
+				int max = Integer.parseInt(range[1].trim());
+				if (min > max) {
+					throw new IllegalArgumentException("min > max");
+				}
+				return new SizeDistribution(spec, 'u', min, max, (min + max) / 2.0);
+			}
+			if (spec.startsWith("exp:")) {
+				int mean = Integer.parseInt(spec.substring("exp:".length()).trim());
+				return new SizeDistribution(spec, 'e', MIN_SIZE, mean * EXP_CAP, mean);
+			}
+			int size = Integer.parseInt(spec.trim());
+			return new SizeDistribution(spec, 'f', size, size, size);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("bad size distribution '" + spec + "' (expected 1024, uniform:64-4096 or exp:1024)", e);
+		}
+	}
+
+	/**
+	 * 取下一个大小（random由调用线程独占）
+	 */
+	public int next(Random random) {
+		switch (kind) {
+		case 'u':
+			return min + random.nextInt(max - min + 1);
+		case 'e':
+			long size = Math.round(-mean * Math.log(1 - random.nextDouble()));
+			return (int) Math.max(min, Math.min(max, size));
+		default:
+			return min;
+		}
+	}
+
+	public int getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	@Override
+	public String toString() {
+		return spec;
+	}
+}
@@ -0,0 +1,464 @@
+package com.sf.wdx.loopback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.amqp.core.ExchangeTypes;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.client.impl.AMQImpl;
+
+/**
+ * 描述：进程内的AMQP broker，一个vhost一个实例
+ * 		交换机、队列、绑定、消费者、预取、ack/nack/reject、confirm、mandatory、direct reply-to的语义与RabbitMQ一致，
+ * 		消息不经过网络和序列化，生产者和消费者在同一个JVM里即可运行示例代码、压测和故障测试。
+ * 		不支持事务、headers交换机、交换机之间的绑定、消息TTL和持久化（durable只做声明一致性校验）。
+ * 		模拟集群：连接按地址（host:port）归属到节点，kill(node)强制关闭该节点上的连接并拒绝新连接，restart(node)恢复；
+ * 		交换机、队列和消息由所有节点共享（相当于镜像/仲裁队列），用于测试客户端的故障转移。
+ * 		通过LoopbackConnectionFactory连接，ConnectionUtil在-Dwdx.mq.transport=loopback时自动切换。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class LoopbackBroker {
+
+	private static final ConcurrentMap<String, LoopbackBroker> BROKERS = new ConcurrentHashMap<String, LoopbackBroker>();
+
+	/**
+	 * 没有指定消费者线程池的连接共享的分发线程池
+	 */
+	private static final ExecutorService SHARED_DISPATCH = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger index = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "loopback-dispatch-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private static final String DEFAULT_EXCHANGE = "";
+
+	/**
+	 * 每个线程复用的路由结果列表
+	 */
+	private static final ThreadLocal<List<LoopbackQueue>> TARGETS = new ThreadLocal<List<LoopbackQueue>>() {
+		@Override
+		protected List<LoopbackQueue> initialValue() {
+			return new ArrayList<LoopbackQueue>();
+		}
+	};
+
+	private final String virtualHost;
+
+	private final ConcurrentMap<String, LoopbackExchange> exchanges = new ConcurrentHashMap<String, LoopbackExchange>();
+
+	private final ConcurrentMap<String, LoopbackQueue> queues = new ConcurrentHashMap<String, LoopbackQueue>();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private final Set<LoopbackConnection> connections = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 被kill的节点（host:port）
+	 */
+	private final Set<String> downNodes = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 模拟的资源告警原因，null表示未告警
+	 */
+	private volatile String blockedReason;
+
+	final LongAdder published = new LongAdder();
+
+	final LongAdder unroutable = new LongAdder();
+
+	final LongAdder delivered = new LongAdder();
+
+	final LongAdder acknowledged = new LongAdder();
+
+	final LongAdder requeued = new LongAdder();
+
+	final LongAdder deadLettered = new LongAdder();
+
+	private LoopbackBroker(String virtualHost) {
+		this.virtualHost = virtualHost;
+		// 预声明的交换机
+		exchanges.put(DEFAULT_EXCHANGE, new LoopbackExchange(DEFAULT_EXCHANGE, ExchangeTypes.DIRECT, true, false));
+		exchanges.put("amq.direct", new LoopbackExchange("amq.direct", ExchangeTypes.DIRECT, true, false));
+		exchanges.put("amq.fanout", new LoopbackExchange("amq.fanout", ExchangeTypes.FANOUT, true, false));
+		exchanges.put("amq.topic", new LoopbackExchange("amq.topic", ExchangeTypes.TOPIC, true, false));
+	}
+
+	/**
+	 * 获取vhost对应的broker，不存在则创建（同一个JVM内同名vhost共享交换机和队列）
+	 *	@ReturnType	LoopbackBroker
+	 *	@Date	2026年10月17日	下午8:20:31
+	 *  @Param  @param virtualHost
+	 *  @Param  @return
+	 */
+	public static LoopbackBroker forVirtualHost(String virtualHost) {
+		LoopbackBroker broker = BROKERS.get(virtualHost);
+		if (broker == null) {
+			LoopbackBroker created = new LoopbackBroker(virtualHost);
+			broker = BROKERS.putIfAbsent(virtualHost, created);
+			if (broker == null) {
+				broker = created;
+			}
+		}
+		return broker;
+	}
+
+	public String getVirtualHost() {
+		return virtualHost;
+	}
+
+	/**
+	 * 队列中就绪（未投递）的消息数，队列不存在返回-1
+	 */
+	public int messageCount(String queue) {
+		LoopbackQueue q = queues.get(queue);
+		return q == null ? -1 : q.messageCount();
+	}
+
+	/**
+	 * 队列上的消费者数，队列不存在返回-1
+	 */
+	public int consumerCount(String queue) {
+		LoopbackQueue q = queues.get(queue);
+		return q == null ? -1 : q.consumerCount();
+	}
+
+	public long getPublished() {
+		return published.sum();
+	}
+
+	public long getUnroutable() {
+		return unroutable.sum();
+	}
+
+	public long getDelivered() {
+		return delivered.sum();
+	}
+
+	public long getAcknowledged() {
+		return acknowledged.sum();
+	}
+
+	public long getRequeued() {
+		return requeued.sum();
+	}
+
+	public long getDeadLettered() {
+		return deadLettered.sum();
+	}
+
+	/**
+	 * 模拟内存/磁盘告警：所有连接收到connection.blocked，之后这些连接上的basicPublish阻塞，直到unblock()
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午9:52:18
+	 *  @Param  @param reason		例：low on memory
+	 */
+	public void block(String reason) {
+		blockedReason = reason;
+		for (LoopbackConnection connection : connections) {
+			connection.blocked(reason);
+		}
+	}
+
+	/**
+	 * 解除告警，所有连接收到connection.unblocked
+	 */
+	public void unblock() {
+		blockedReason = null;
+		for (LoopbackConnection connection : connections) {
+			connection.unblocked();
+		}
+	}
+
+	public boolean isBlocked() {
+		return blockedReason != null;
+	}
+
+	/**
+	 * 模拟节点宕机：该节点上的连接收到connection.close（320 CONNECTION_FORCED），之后连接该节点被拒绝，直到restart
+	 *	@ReturnType	int		被关闭的连接数
+	 *	@Date	2026年10月17日	下午4:10:26
+	 *  @Param  @param node		host:port，例：localhost:5672
+	 */
+	public int kill(String node) {
+		downNodes.add(node);
+		int killed = 0;
+		for (LoopbackConnection connection : connections) {
+			if (node.equals(connection.getNode())) {
+				connection.shutdown(new ShutdownSignalException(true, false,
+						new AMQImpl.Connection.Close(AMQP.CONNECTION_FORCED, "CONNECTION_FORCED - broker forced connection closure with reason 'shutdown'", 0, 0),
+						connection));
+				killed++;
+			}
+		}
+		return killed;
+	}
+
+	/**
+	 * 节点恢复，可以重新连接
+	 */
+	public void restart(String node) {
+		downNodes.remove(node);
+	}
+
+	public boolean isUp(String node) {
+		return !downNodes.contains(node);
+	}
+
+	/**
+	 * 地址对应的节点名（host:port，未指定端口时为5672）
+	 */
+	public static String node(Address address) {
+		return address.getHost() + ":" + (address.getPort() == -1 ? AMQP.PROTOCOL.PORT : address.getPort());
+	}
+
+	@Override
+	public String toString() {
+		return "LoopbackBroker[" + virtualHost + "] exchanges=" + exchanges.size() + ", queues=" + queues.size() + ", published=" + getPublished()
+				+ ", unroutable=" + getUnroutable() + ", delivered=" + getDelivered() + ", acknowledged=" + getAcknowledged() + ", requeued="
+				+ getRequeued() + ", deadLettered=" + getDeadLettered();
+	}
+
+	static ExecutorService sharedDispatch() {
+		return SHARED_DISPATCH;
+	}
+
+	long nextId() {
+		return ids.incrementAndGet();
+	}
+
+	/**
+	 * 路由一条消息
+	 *	@ReturnType	int		投递到的队列数，交换机不存在返回-1
+	 *	@Date	2026年10月17日	下午8:24:07
+	 */
+	int route(String exchange, String routingKey, LoopbackMessage message) {
+		if (DEFAULT_EXCHANGE.equals(exchange)) {
+			// 默认交换机：routingKey即队列名
+			LoopbackQueue queue = queues.get(routingKey);
+			if (queue == null) {
+				return 0;
+			}
+			queue.enqueue(message);
+			return 1;
+		}
+		LoopbackExchange target = exchanges.get(exchange);
+		if (target == null) {
+			return -1;
+		}
+		List<LoopbackQueue> targets = TARGETS.get();
+		try {
+			target.route(routingKey, targets);
+			int size = targets.size();
+			for (int i = 0; i < size; i++) {
+				targets.get(i).enqueue(message);
+			}
+			return size;
+		} finally {
+			targets.clear();
+		}
+	}
+
+	LoopbackQueue getQueue(String name) {
+		return queues.get(name);
+	}
+
+	synchronized LoopbackExchange declareExchange(String name, String type, boolean durable, boolean autoDelete) throws Refused {
+		if (!LoopbackExchange.isSupportedType(type)) {
+			throw new Refused(AMQP.NOT_IMPLEMENTED, "NOT_IMPLEMENTED - exchange type '" + type + "' is not supported by the loopback broker");
+		}
+		LoopbackExchange exchange = exchanges.get(name);
+		if (exchange == null) {
+			if (name.startsWith("amq.")) {
+				throw new Refused(AMQP.ACCESS_REFUSED, "ACCESS_REFUSED - exchange name '" + name + "' contains reserved prefix 'amq.*'");
+			}
+			exchange = new LoopbackExchange(name, type, durable, autoDelete);
+			exchanges.put(name, exchange);
+		} else if (!exchange.type.equals(type) || exchange.durable != durable || exchange.autoDelete != autoDelete) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - inequivalent arg for exchange '" + name + "' in vhost '"
+					+ virtualHost + "'");
+		}
+		return exchange;
+	}
+
+	LoopbackExchange declareExchangePassive(String name) throws Refused {
+		LoopbackExchange exchange = exchanges.get(name);
+		if (exchange == null) {
+			throw notFound("exchange", name);
+		}
+		return exchange;
+	}
+
+	synchronized void deleteExchange(String name, boolean ifUnused) throws Refused {
+		if (DEFAULT_EXCHANGE.equals(name) || name.startsWith("amq.")) {
+			throw new Refused(AMQP.ACCESS_REFUSED, "ACCESS_REFUSED - operation not permitted on exchange '" + name + "'");
+		}
+		LoopbackExchange exchange = exchanges.get(name);
+		if (exchange == null) {
+			return;
+		}
+		if (ifUnused && exchange.hasBindings()) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - exchange '" + name + "' in use");
+		}
+		exchanges.remove(name);
+	}
+
+	synchronized LoopbackQueue declareQueue(String name, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments,
+			LoopbackConnection connection) throws Refused {
+		if (name.isEmpty()) {
+			name = "amq.gen-" + nextId();
+		} else if (name.startsWith("amq.")) {
+			throw new Refused(AMQP.ACCESS_REFUSED, "ACCESS_REFUSED - queue name '" + name + "' contains reserved prefix 'amq.*'");
+		}
+		LoopbackQueue queue = queues.get(name);
+		if (queue == null) {
+			queue = new LoopbackQueue(this, name, durable, exclusive ? connection : null, autoDelete, arguments);
+			queues.put(name, queue);
+			return queue;
+		}
+		checkOwner(queue, connection);
+		if (queue.durable != durable || (queue.owner != null) != exclusive || queue.autoDelete != autoDelete) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - inequivalent arg for queue '" + name + "' in vhost '"
+					+ virtualHost + "'");
+		}
+		return queue;
+	}
+
+	LoopbackQueue declareQueuePassive(String name, LoopbackConnection connection) throws Refused {
+		LoopbackQueue queue = queues.get(name);
+		if (queue == null) {
+			throw notFound("queue", name);
+		}
+		checkOwner(queue, connection);
+		return queue;
+	}
+
+	/**
+	 * direct reply-to的伪队列：每个通道一个，exclusive + autoDelete
+	 */
+	synchronized LoopbackQueue declareReplyQueue(String name, LoopbackConnection connection) {
+		LoopbackQueue queue = new LoopbackQueue(this, name, false, connection, true, null);
+		queues.put(name, queue);
+		return queue;
+	}
+
+	/**
+	 *	@ReturnType	int		删除时队列中的消息数
+	 *	@Date	2026年10月17日	下午8:31:44
+	 */
+	synchronized int deleteQueue(String name, boolean ifUnused, boolean ifEmpty, LoopbackConnection connection) throws Refused {
+		LoopbackQueue queue = queues.get(name);
+		if (queue == null) {
+			return 0;
+		}
+		checkOwner(queue, connection);
+		if (ifUnused && queue.hasConsumers()) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - queue '" + name + "' in use");
+		}
+		int count = queue.messageCount();
+		if (ifEmpty && count > 0) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - queue '" + name + "' not empty");
+		}
+		removeQueue(queue);
+		return count;
+	}
+
+	synchronized int purgeQueue(String name, LoopbackConnection connection) throws Refused {
+		LoopbackQueue queue = declareQueuePassive(name, connection);
+		return queue.purge();
+	}
+
+	synchronized void bindQueue(String queueName, String exchangeName, String routingKey, boolean bind, LoopbackConnection connection)
+			throws Refused {
+		if (DEFAULT_EXCHANGE.equals(exchangeName)) {
+			throw new Refused(AMQP.ACCESS_REFUSED, "ACCESS_REFUSED - operation not permitted on the default exchange");
+		}
+		LoopbackQueue queue = declareQueuePassive(queueName, connection);
+		LoopbackExchange exchange = declareExchangePassive(exchangeName);
+		if (bind) {
+			exchange.bind(queue, routingKey);
+		} else {
+			exchange.unbind(queue, routingKey);
+		}
+	}
+
+	/**
+	 * 删除队列：解除所有绑定，通知仍在消费的消费者被取消
+	 */
+	synchronized void removeQueue(LoopbackQueue queue) {
+		if (!queues.remove(queue.name, queue)) {
+			return;
+		}
+		for (LoopbackExchange exchange : exchanges.values()) {
+			exchange.unbindAll(queue);
+		}
+		for (LoopbackConsumer consumer : queue.delete()) {
+			consumer.channel.consumerCancelled(consumer);
+		}
+	}
+
+	void connectionOpened(LoopbackConnection connection) {
+		connections.add(connection);
+		String reason = blockedReason;
+		if (reason != null) {
+			connection.blocked(reason);
+		}
+	}
+
+	/**
+	 * 连接关闭时删除它的exclusive队列
+	 */
+	synchronized void connectionClosed(LoopbackConnection connection) {
+		connections.remove(connection);
+		for (LoopbackQueue queue : new ArrayList<LoopbackQueue>(queues.values())) {
+			if (queue.owner == connection) {
+				removeQueue(queue);
+			}
+		}
+	}
+
+	private static void checkOwner(LoopbackQueue queue, LoopbackConnection connection) throws Refused {
+		if (queue.owner != null && queue.owner != connection) {
+			throw new Refused(AMQP.RESOURCE_LOCKED, "RESOURCE_LOCKED - cannot obtain exclusive access to locked queue '" + queue.name + "'");
+		}
+	}
+
+	private Refused notFound(String kind, String name) {
+		return new Refused(AMQP.NOT_FOUND, "NOT_FOUND - no " + kind + " '" + name + "' in vhost '" + virtualHost + "'");
+	}
+
+	/**
+	 * 描述：broker拒绝了操作，由通道转换成通道关闭（与RabbitMQ的channel exception一致）
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	static final class Refused extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		final int code;
+
+		Refused(int code, String text) {
+			super(text);
+			this.code = code;
+		}
+	}
+}
@@ -0,0 +1,1087 @@
+package com.sf.wdx.loopback;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Command;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.Method;
+import com.rabbitmq.client.ReturnListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.client.impl.AMQImpl;
+import com.sf.wdx.loopback.LoopbackBroker.Refused;
+import com.sf.wdx.util.SerialExecutor;
+
+/**
+ * 描述：LoopbackBroker上的通道
+ * 		消费者回调、return、confirm回调都在本通道的串行执行器上按顺序执行（与真实客户端每个通道一个分发顺序一致），
+ * 		不占用发送线程；broker拒绝的操作按RabbitMQ的方式关闭通道（同步方法抛IOException，异步方法只关闭通道）。
+ * 		confirm模式下消息路由完成即确认，连续的确认合并成一次multiple ack。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class LoopbackChannel implements Channel {
+
+	/**
+	 * direct reply-to的保留名称
+	 */
+	static final String DIRECT_REPLY_TO = "amq.rabbitmq.reply-to";
+
+	private static final AMQP.BasicProperties EMPTY_PROPS = new AMQP.BasicProperties();
+
+	private final LoopbackConnection connection;
+
+	private final LoopbackBroker broker;
+
+	private final int channelNumber;
+
+	/**
+	 * 回调按顺序在连接的分发线程池上执行
+	 */
+	private final SerialExecutor dispatcher;
+
+	private final Map<String, LoopbackConsumer> consumers = new ConcurrentHashMap<String, LoopbackConsumer>();
+
+	private final List<ShutdownListener> shutdownListeners = new CopyOnWriteArrayList<ShutdownListener>();
+
+	private final List<ReturnListener> returnListeners = new CopyOnWriteArrayList<ReturnListener>();
+
+	private final List<ConfirmListener> confirmListeners = new CopyOnWriteArrayList<ConfirmListener>();
+
+	/**
+	 * 投递标签和未确认消息（按投递顺序）
+	 */
+	private final Object deliveryLock = new Object();
+
+	private final LinkedHashMap<Long, Delivery> unacked = new LinkedHashMap<Long, Delivery>();
+
+	private long deliveryTag;
+
+	/**
+	 * 通道级别的预取（basicQos(n, true)），0表示不限；globalUnacked统计本通道所有消费者未确认的消息
+	 */
+	private volatile int globalPrefetch;
+
+	private final AtomicInteger globalUnacked = new AtomicInteger();
+
+	/**
+	 * basicQos(n, false)的值，对之后创建的消费者生效
+	 */
+	private volatile int consumerPrefetch;
+
+	/**
+	 * 发送串行化，保证发送序号与路由顺序一致
+	 */
+	private final Object publishLock = new Object();
+
+	private volatile boolean confirmMode;
+
+	private long nextPublishSeqNo = 1;
+
+	/**
+	 * 已路由、待回调confirm的最大序号；lastConfirmed只在分发线程上读写
+	 */
+	private final AtomicLong routedSeqNo = new AtomicLong();
+
+	private final AtomicBoolean confirmScheduled = new AtomicBoolean();
+
+	private long lastConfirmed;
+
+	private final Runnable flushConfirms = new Runnable() {
+		@Override
+		public void run() {
+			flushConfirms();
+		}
+	};
+
+	private volatile String replyQueueName;
+
+	private volatile Consumer defaultConsumer;
+
+	private volatile ShutdownSignalException closeReason;
+
+	LoopbackChannel(LoopbackConnection connection, LoopbackBroker broker, int channelNumber, SerialExecutor dispatcher) {
+		this.connection = connection;
+		this.broker = broker;
+		this.channelNumber = channelNumber;
+		this.dispatcher = dispatcher;
+	}
+
+	// ---------------------------------------------------------------- 发送
+
+	@Override
+	public void basicPublish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) throws IOException {
+		basicPublish(exchange, routingKey, false, false, props, body);
+	}
+
+	@Override
+	public void basicPublish(String exchange, String routingKey, boolean mandatory, AMQP.BasicProperties props, byte[] body) throws IOException {
+		basicPublish(exchange, routingKey, mandatory, false, props, body);
+	}
+
+	@Override
+	public void basicPublish(final String exchange, final String routingKey, boolean mandatory, boolean immediate, AMQP.BasicProperties props,
+			byte[] body) throws IOException {
+		ensureOpen();
+		connection.awaitUnblocked();
+		if (immediate) {
+			closeWithError(AMQP.NOT_IMPLEMENTED, "NOT_IMPLEMENTED - immediate=true");
+			return;
+		}
+		final AMQP.BasicProperties properties = replyTo(props == null ? EMPTY_PROPS : props);
+		if (properties == null) {
+			closeWithError(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - fast reply consumer does not exist");
+			return;
+		}
+		// 与网络发送一样，发送方之后修改body不影响已发出的消息
+		final byte[] copy = body.clone();
+		synchronized (publishLock) {
+			long seqNo = confirmMode ? nextPublishSeqNo++ : 0;
+			broker.published.increment();
+			int routed = broker.route(exchange, routingKey, new LoopbackMessage(exchange, routingKey, properties, copy));
+			if (routed < 0) {
+				closeWithError(AMQP.NOT_FOUND, "NOT_FOUND - no exchange '" + exchange + "' in vhost '" + broker.getVirtualHost() + "'");
+				return;
+			}
+			if (routed == 0) {
+				broker.unroutable.increment();
+				if (mandatory) {
+					dispatcher.execute(() -> {
+						for (ReturnListener listener : returnListeners) {
+							try {
+								listener.handleReturn(AMQP.NO_ROUTE, "NO_ROUTE", exchange, routingKey, properties, copy);
+							} catch (Throwable t) {
+								connection.getExceptionHandler().handleReturnListenerException(this, t);
+							}
+						}
+					});
+				}
+			}
+			if (seqNo > 0) {
+				routedSeqNo.set(seqNo);
+				if (confirmScheduled.compareAndSet(false, true)) {
+					dispatcher.execute(flushConfirms);
+				}
+			}
+		}
+	}
+
+	/**
+	 * direct reply-to：把replyTo替换成本通道的伪队列名，通道上没有reply-to消费者时返回null
+	 */
+	private AMQP.BasicProperties replyTo(AMQP.BasicProperties props) {
+		if (!DIRECT_REPLY_TO.equals(props.getReplyTo())) {
+			return props;
+		}
+		String queueName = replyQueueName;
+		return queueName == null ? null : props.builder().replyTo(queueName).build();
+	}
+
+	/**
+	 * 合并回调confirm：一次回调确认到目前为止路由完成的所有消息
+	 */
+	private void flushConfirms() {
+		confirmScheduled.set(false);
+		long upTo = routedSeqNo.get();
+		if (upTo <= lastConfirmed || closeReason != null) {
+			return;
+		}
+		boolean multiple = upTo - lastConfirmed > 1;
+		lastConfirmed = upTo;
+		for (ConfirmListener listener : confirmListeners) {
+			try {
+				listener.handleAck(upTo, multiple);
+			} catch (Throwable t) {
+				connection.getExceptionHandler().handleConfirmListenerException(this, t);
+			}
+		}
+	}
+
+	@Override
+	public AMQP.Confirm.SelectOk confirmSelect() {
+		ensureOpen();
+		confirmMode = true;
+		return new AMQImpl.Confirm.SelectOk();
+	}
+
+	@Override
+	public long getNextPublishSeqNo() {
+		synchronized (publishLock) {
+			return confirmMode ? nextPublishSeqNo : 0;
+		}
+	}
+
+	@Override
+	public void addConfirmListener(ConfirmListener listener) {
+		confirmListeners.add(listener);
+	}
+
+	@Override
+	public boolean removeConfirmListener(ConfirmListener listener) {
+		return confirmListeners.remove(listener);
+	}
+
+	@Override
+	public void clearConfirmListeners() {
+		confirmListeners.clear();
+	}
+
+	/**
+	 * 路由在basicPublish中同步完成，返回时已全部确认（loopback不会nack）
+	 */
+	@Override
+	public boolean waitForConfirms() {
+		ensureOpen();
+		if (!confirmMode) {
+			throw new IllegalStateException("Confirms not selected");
+		}
+		return true;
+	}
+
+	@Override
+	public boolean waitForConfirms(long timeout) {
+		return waitForConfirms();
+	}
+
+	@Override
+	public void waitForConfirmsOrDie() {
+		waitForConfirms();
+	}
+
+	@Override
+	public void waitForConfirmsOrDie(long timeout) {
+		waitForConfirms();
+	}
+
+	@Override
+	public void addReturnListener(ReturnListener listener) {
+		returnListeners.add(listener);
+	}
+
+	@Override
+	public boolean removeReturnListener(ReturnListener listener) {
+		return returnListeners.remove(listener);
+	}
+
+	@Override
+	public void clearReturnListeners() {
+		returnListeners.clear();
+	}
+
+	@Override
+	@Deprecated
+	public void addFlowListener(com.rabbitmq.client.FlowListener listener) {
+	}
+
+	@Override
+	@Deprecated
+	public boolean removeFlowListener(com.rabbitmq.client.FlowListener listener) {
+		return false;
+	}
+
+	@Override
+	@Deprecated
+	public void clearFlowListeners() {
+	}
+
+	@Override
+	@Deprecated
+	public boolean flowBlocked() {
+		return false;
+	}
+
+	// ---------------------------------------------------------------- 消费
+
+	@Override
+	public String basicConsume(String queue, Consumer callback) throws IOException {
+		return basicConsume(queue, false, "", false, false, null, callback);
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, Consumer callback) throws IOException {
+		return basicConsume(queue, autoAck, "", false, false, null, callback);
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, Map<String, Object> arguments, Consumer callback) throws IOException {
+		return basicConsume(queue, autoAck, "", false, false, arguments, callback);
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, String consumerTag, Consumer callback) throws IOException {
+		return basicConsume(queue, autoAck, consumerTag, false, false, null, callback);
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, String consumerTag, boolean noLocal, boolean exclusive,
+			Map<String, Object> arguments, final Consumer callback) throws IOException {
+		ensureOpen();
+		LoopbackQueue target;
+		try {
+			if (DIRECT_REPLY_TO.equals(queue)) {
+				target = replyQueue(autoAck);
+			} else {
+				target = broker.declareQueuePassive(queue, connection);
+				if (exclusive && target.hasConsumers()) {
+					throw new Refused(AMQP.ACCESS_REFUSED, "ACCESS_REFUSED - queue '" + queue + "' in use, cannot consume exclusively");
+				}
+			}
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+		final String tag = consumerTag == null || consumerTag.isEmpty() ? "amq.ctag-" + broker.nextId() : consumerTag;
+		LoopbackConsumer consumer = new LoopbackConsumer(tag, target, this, callback, autoAck, consumerPrefetch);
+		if (consumers.putIfAbsent(tag, consumer) != null) {
+			throw channelError(new Refused(AMQP.NOT_ALLOWED, "NOT_ALLOWED - attempt to reuse consumer tag '" + tag + "'"));
+		}
+		// consumeOk先于任何投递回调
+		dispatcher.execute(() -> callback.handleConsumeOk(tag));
+		target.addConsumer(consumer);
+		return tag;
+	}
+
+	private LoopbackQueue replyQueue(boolean autoAck) throws Refused {
+		if (!autoAck) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - reply consumer cannot acknowledge");
+		}
+		if (replyQueueName != null) {
+			throw new Refused(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - reply consumer already set");
+		}
+		String name = DIRECT_REPLY_TO + "." + connection.getSequence() + "." + channelNumber;
+		LoopbackQueue queue = broker.declareReplyQueue(name, connection);
+		replyQueueName = name;
+		return queue;
+	}
+
+	@Override
+	public void basicCancel(final String consumerTag) throws IOException {
+		ensureOpen();
+		LoopbackConsumer consumer = consumers.remove(consumerTag);
+		if (consumer == null) {
+			throw new IOException("Unknown consumerTag");
+		}
+		detach(consumer);
+		dispatcher.execute(() -> consumer.callback.handleCancelOk(consumerTag));
+	}
+
+	/**
+	 * 把消费者从队列上摘掉，autoDelete队列没有消费者后删除
+	 */
+	private void detach(LoopbackConsumer consumer) {
+		if (consumer.queue.removeConsumer(consumer)) {
+			broker.removeQueue(consumer.queue);
+		}
+		if (consumer.queue.name.equals(replyQueueName)) {
+			replyQueueName = null;
+		}
+	}
+
+	/**
+	 * 队列被删除，broker取消了消费者（consumer_cancel_notify）
+	 */
+	void consumerCancelled(final LoopbackConsumer consumer) {
+		if (consumers.remove(consumer.tag, consumer)) {
+			dispatcher.execute(() -> {
+				try {
+					consumer.callback.handleCancel(consumer.tag);
+				} catch (Throwable t) {
+					connection.getExceptionHandler().handleConsumerException(this, t, consumer.callback, consumer.tag, "handleCancel");
+				}
+			});
+		}
+	}
+
+	/**
+	 * 投递一条消息（在队列锁内调用）：分配投递标签，登记未确认消息，回调交给分发线程
+	 */
+	void deliver(final LoopbackConsumer consumer, final LoopbackMessage message) {
+		broker.delivered.increment();
+		synchronized (deliveryLock) {
+			final long tag = ++deliveryTag;
+			if (consumer.autoAck) {
+				broker.acknowledged.increment();
+			} else {
+				unacked.put(tag, new Delivery(message, consumer.queue, consumer));
+			}
+			// 在deliveryLock内提交，保证回调顺序与投递标签顺序一致
+			dispatcher.execute(() -> {
+				if (closeReason != null) {
+					// 通道已关闭，未确认的消息已经（或即将）重新入队
+					return;
+				}
+				try {
+					consumer.callback.handleDelivery(consumer.tag, new Envelope(tag, message.redelivered, message.exchange, message.routingKey),
+							message.props, message.body);
+				} catch (Throwable t) {
+					connection.getExceptionHandler().handleConsumerException(this, t, consumer.callback, consumer.tag, "handleDelivery");
+				}
+			});
+		}
+	}
+
+	/**
+	 * 占用通道级别的预取额度
+	 */
+	boolean tryAcquireCredit() {
+		if (closeReason != null) {
+			return false;
+		}
+		while (true) {
+			int current = globalUnacked.get();
+			int limit = globalPrefetch;
+			if (limit > 0 && current >= limit) {
+				return false;
+			}
+			if (globalUnacked.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	void releaseCredit() {
+		globalUnacked.decrementAndGet();
+	}
+
+	@Override
+	public GetResponse basicGet(String queue, boolean autoAck) throws IOException {
+		ensureOpen();
+		LoopbackQueue target;
+		try {
+			target = broker.declareQueuePassive(queue, connection);
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+		LoopbackMessage message = target.poll();
+		if (message == null) {
+			return null;
+		}
+		broker.delivered.increment();
+		long tag;
+		synchronized (deliveryLock) {
+			tag = ++deliveryTag;
+			if (autoAck) {
+				broker.acknowledged.increment();
+			} else {
+				// basicGet不受预取限制，consumer为null
+				unacked.put(tag, new Delivery(message, target, null));
+			}
+		}
+		Envelope envelope = new Envelope(tag, message.redelivered, message.exchange, message.routingKey);
+		return new GetResponse(envelope, message.props, message.body, target.messageCount());
+	}
+
+	@Override
+	public void basicAck(long deliveryTag, boolean multiple) {
+		settle(deliveryTag, multiple, Outcome.ACK);
+	}
+
+	@Override
+	public void basicNack(long deliveryTag, boolean multiple, boolean requeue) {
+		settle(deliveryTag, multiple, requeue ? Outcome.REQUEUE : Outcome.DISCARD);
+	}
+
+	@Override
+	public void basicReject(long deliveryTag, boolean requeue) {
+		settle(deliveryTag, false, requeue ? Outcome.REQUEUE : Outcome.DISCARD);
+	}
+
+	/**
+	 * ack/nack/reject：移出未确认表，归还预取额度，按结果确认、重新入队或死信，然后继续投递
+	 */
+	private void settle(long tag, boolean multiple, Outcome outcome) {
+		ensureOpen();
+		List<Delivery> settled;
+		synchronized (deliveryLock) {
+			if (multiple) {
+				settled = new ArrayList<Delivery>();
+				// tag为0表示全部
+				Iterator<Map.Entry<Long, Delivery>> it = unacked.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<Long, Delivery> entry = it.next();
+					if (tag != 0 && entry.getKey() > tag) {
+						break;
+					}
+					settled.add(entry.getValue());
+					it.remove();
+				}
+			} else {
+				Delivery delivery = unacked.remove(tag);
+				if (delivery == null) {
+					settled = null;
+				} else {
+					settled = Collections.singletonList(delivery);
+				}
+			}
+		}
+		if (settled == null || (multiple && settled.isEmpty() && tag != 0)) {
+			closeWithError(AMQP.PRECONDITION_FAILED, "PRECONDITION_FAILED - unknown delivery tag " + tag);
+			return;
+		}
+		for (int i = 0; i < settled.size(); i++) {
+			Delivery delivery = settled.get(i);
+			if (delivery.consumer != null) {
+				delivery.consumer.release();
+			}
+			if (outcome == Outcome.ACK) {
+				broker.acknowledged.increment();
+			} else if (outcome == Outcome.DISCARD) {
+				if (delivery.queue.deadLetter(delivery.message)) {
+					broker.deadLettered.increment();
+				}
+			}
+		}
+		if (outcome == Outcome.REQUEUE) {
+			requeue(settled);
+		}
+		drainConsumers();
+	}
+
+	/**
+	 * 按队列分组、保持原顺序放回队头
+	 */
+	private void requeue(List<Delivery> deliveries) {
+		Map<LoopbackQueue, List<LoopbackMessage>> byQueue = new LinkedHashMap<LoopbackQueue, List<LoopbackMessage>>();
+		for (Delivery delivery : deliveries) {
+			List<LoopbackMessage> messages = byQueue.get(delivery.queue);
+			if (messages == null) {
+				messages = new ArrayList<LoopbackMessage>();
+				byQueue.put(delivery.queue, messages);
+			}
+			messages.add(delivery.message);
+		}
+		for (Map.Entry<LoopbackQueue, List<LoopbackMessage>> entry : byQueue.entrySet()) {
+			broker.requeued.add(entry.getValue().size());
+			entry.getKey().requeue(entry.getValue());
+		}
+	}
+
+	/**
+	 * 预取额度释放后，让本通道消费的队列继续投递
+	 */
+	private void drainConsumers() {
+		for (LoopbackConsumer consumer : consumers.values()) {
+			if (!consumer.autoAck) {
+				consumer.queue.drain();
+			}
+		}
+	}
+
+	@Override
+	public void basicQos(int prefetchSize, int prefetchCount, boolean global) {
+		ensureOpen();
+		if (global) {
+			// 通道级别的预取立即生效，调大后马上补发
+			int previous = globalPrefetch;
+			globalPrefetch = prefetchCount;
+			if (prefetchCount == 0 || prefetchCount > previous) {
+				drainConsumers();
+			}
+		} else {
+			consumerPrefetch = prefetchCount;
+		}
+	}
+
+	@Override
+	public void basicQos(int prefetchCount, boolean global) {
+		basicQos(0, prefetchCount, global);
+	}
+
+	@Override
+	public void basicQos(int prefetchCount) {
+		basicQos(0, prefetchCount, false);
+	}
+
+	@Override
+	public AMQP.Basic.RecoverOk basicRecover() {
+		return basicRecover(true);
+	}
+
+	/**
+	 * 所有未确认的消息重新入队（RabbitMQ不支持requeue=false，同样按重新入队处理）
+	 */
+	@Override
+	public AMQP.Basic.RecoverOk basicRecover(boolean requeue) {
+		ensureOpen();
+		List<Delivery> pending = takeUnacked();
+		for (Delivery delivery : pending) {
+			if (delivery.consumer != null) {
+				delivery.consumer.release();
+			}
+		}
+		requeue(pending);
+		for (final LoopbackConsumer consumer : consumers.values()) {
+			dispatcher.execute(() -> consumer.callback.handleRecoverOk(consumer.tag));
+		}
+		drainConsumers();
+		return new AMQImpl.Basic.RecoverOk();
+	}
+
+	private List<Delivery> takeUnacked() {
+		synchronized (deliveryLock) {
+			List<Delivery> pending = new ArrayList<Delivery>(unacked.values());
+			unacked.clear();
+			return pending;
+		}
+	}
+
+	// ---------------------------------------------------------------- 声明
+
+	@Override
+	public AMQP.Queue.DeclareOk queueDeclare() throws IOException {
+		return queueDeclare("", false, true, true, null);
+	}
+
+	@Override
+	public AMQP.Queue.DeclareOk queueDeclare(String queue, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments)
+			throws IOException {
+		ensureOpen();
+		try {
+			LoopbackQueue declared = broker.declareQueue(queue, durable, exclusive, autoDelete, arguments, connection);
+			return new AMQImpl.Queue.DeclareOk(declared.name, declared.messageCount(), declared.consumerCount());
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public void queueDeclareNoWait(String queue, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments)
+			throws IOException {
+		queueDeclare(queue, durable, exclusive, autoDelete, arguments);
+	}
+
+	@Override
+	public AMQP.Queue.DeclareOk queueDeclarePassive(String queue) throws IOException {
+		ensureOpen();
+		if (DIRECT_REPLY_TO.equals(queue)) {
+			return new AMQImpl.Queue.DeclareOk(queue, 0, 0);
+		}
+		try {
+			LoopbackQueue declared = broker.declareQueuePassive(queue, connection);
+			return new AMQImpl.Queue.DeclareOk(declared.name, declared.messageCount(), declared.consumerCount());
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public AMQP.Queue.DeleteOk queueDelete(String queue) throws IOException {
+		return queueDelete(queue, false, false);
+	}
+
+	@Override
+	public AMQP.Queue.DeleteOk queueDelete(String queue, boolean ifUnused, boolean ifEmpty) throws IOException {
+		ensureOpen();
+		try {
+			return new AMQImpl.Queue.DeleteOk(broker.deleteQueue(queue, ifUnused, ifEmpty, connection));
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public void queueDeleteNoWait(String queue, boolean ifUnused, boolean ifEmpty) throws IOException {
+		queueDelete(queue, ifUnused, ifEmpty);
+	}
+
+	@Override
+	public AMQP.Queue.PurgeOk queuePurge(String queue) throws IOException {
+		ensureOpen();
+		try {
+			return new AMQImpl.Queue.PurgeOk(broker.purgeQueue(queue, connection));
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public AMQP.Queue.BindOk queueBind(String queue, String exchange, String routingKey) throws IOException {
+		return queueBind(queue, exchange, routingKey, null);
+	}
+
+	@Override
+	public AMQP.Queue.BindOk queueBind(String queue, String exchange, String routingKey, Map<String, Object> arguments) throws IOException {
+		bind(queue, exchange, routingKey, true);
+		return new AMQImpl.Queue.BindOk();
+	}
+
+	@Override
+	public void queueBindNoWait(String queue, String exchange, String routingKey, Map<String, Object> arguments) throws IOException {
+		bind(queue, exchange, routingKey, true);
+	}
+
+	@Override
+	public AMQP.Queue.UnbindOk queueUnbind(String queue, String exchange, String routingKey) throws IOException {
+		return queueUnbind(queue, exchange, routingKey, null);
+	}
+
+	@Override
+	public AMQP.Queue.UnbindOk queueUnbind(String queue, String exchange, String routingKey, Map<String, Object> arguments) throws IOException {
+		bind(queue, exchange, routingKey, false);
+		return new AMQImpl.Queue.UnbindOk();
+	}
+
+	private void bind(String queue, String exchange, String routingKey, boolean bind) throws IOException {
+		ensureOpen();
+		try {
+			broker.bindQueue(queue, exchange, routingKey, bind, connection);
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type) throws IOException {
+		return exchangeDeclare(exchange, type, false, false, false, null);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type) throws IOException {
+		return exchangeDeclare(exchange, type.getType(), false, false, false, null);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable) throws IOException {
+		return exchangeDeclare(exchange, type, durable, false, false, null);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type, boolean durable) throws IOException {
+		return exchangeDeclare(exchange, type.getType(), durable, false, false, null);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete,
+			Map<String, Object> arguments) throws IOException {
+		return exchangeDeclare(exchange, type, durable, autoDelete, false, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type, boolean durable, boolean autoDelete,
+			Map<String, Object> arguments) throws IOException {
+		return exchangeDeclare(exchange, type.getType(), durable, autoDelete, false, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type, boolean durable, boolean autoDelete,
+			boolean internal, Map<String, Object> arguments) throws IOException {
+		return exchangeDeclare(exchange, type.getType(), durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete, boolean internal,
+			Map<String, Object> arguments) throws IOException {
+		ensureOpen();
+		try {
+			broker.declareExchange(exchange, type, durable, autoDelete);
+			return new AMQImpl.Exchange.DeclareOk();
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public void exchangeDeclareNoWait(String exchange, String type, boolean durable, boolean autoDelete, boolean internal,
+			Map<String, Object> arguments) throws IOException {
+		exchangeDeclare(exchange, type, durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public void exchangeDeclareNoWait(String exchange, BuiltinExchangeType type, boolean durable, boolean autoDelete, boolean internal,
+			Map<String, Object> arguments) throws IOException {
+		exchangeDeclare(exchange, type.getType(), durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclarePassive(String name) throws IOException {
+		ensureOpen();
+		try {
+			broker.declareExchangePassive(name);
+			return new AMQImpl.Exchange.DeclareOk();
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public AMQP.Exchange.DeleteOk exchangeDelete(String exchange) throws IOException {
+		return exchangeDelete(exchange, false);
+	}
+
+	@Override
+	public AMQP.Exchange.DeleteOk exchangeDelete(String exchange, boolean ifUnused) throws IOException {
+		ensureOpen();
+		try {
+			broker.deleteExchange(exchange, ifUnused);
+			return new AMQImpl.Exchange.DeleteOk();
+		} catch (Refused e) {
+			throw channelError(e);
+		}
+	}
+
+	@Override
+	public void exchangeDeleteNoWait(String exchange, boolean ifUnused) throws IOException {
+		exchangeDelete(exchange, ifUnused);
+	}
+
+	@Override
+	public AMQP.Exchange.BindOk exchangeBind(String destination, String source, String routingKey) {
+		throw new UnsupportedOperationException("exchange-to-exchange bindings are not supported by the loopback broker");
+	}
+
+	@Override
+	public AMQP.Exchange.BindOk exchangeBind(String destination, String source, String routingKey, Map<String, Object> arguments) {
+		throw new UnsupportedOperationException("exchange-to-exchange bindings are not supported by the loopback broker");
+	}
+
+	@Override
+	public void exchangeBindNoWait(String destination, String source, String routingKey, Map<String, Object> arguments) {
+		throw new UnsupportedOperationException("exchange-to-exchange bindings are not supported by the loopback broker");
+	}
+
+	@Override
+	public AMQP.Exchange.UnbindOk exchangeUnbind(String destination, String source, String routingKey) {
+		throw new UnsupportedOperationException("exchange-to-exchange bindings are not supported by the loopback broker");
+	}
+
+	@Override
+	public AMQP.Exchange.UnbindOk exchangeUnbind(String destination, String source, String routingKey, Map<String, Object> arguments) {
+		throw new UnsupportedOperationException("exchange-to-exchange bindings are not supported by the loopback broker");
+	}
+
+	@Override
+	public void exchangeUnbindNoWait(String destination, String source, String routingKey, Map<String, Object> arguments) {
+		throw new UnsupportedOperationException("exchange-to-exchange bindings are not supported by the loopback broker");
+	}
+
+	@Override
+	public AMQP.Tx.SelectOk txSelect() {
+		throw new UnsupportedOperationException("transactions are not supported by the loopback broker");
+	}
+
+	@Override
+	public AMQP.Tx.CommitOk txCommit() {
+		throw new UnsupportedOperationException("transactions are not supported by the loopback broker");
+	}
+
+	@Override
+	public AMQP.Tx.RollbackOk txRollback() {
+		throw new UnsupportedOperationException("transactions are not supported by the loopback broker");
+	}
+
+	@Override
+	public void asyncRpc(Method method) {
+		throw new UnsupportedOperationException("raw AMQP methods are not supported by the loopback broker");
+	}
+
+	@Override
+	public Command rpc(Method method) {
+		throw new UnsupportedOperationException("raw AMQP methods are not supported by the loopback broker");
+	}
+
+	@Override
+	public long messageCount(String queue) throws IOException {
+		return queueDeclarePassive(queue).getMessageCount();
+	}
+
+	@Override
+	public long consumerCount(String queue) throws IOException {
+		return queueDeclarePassive(queue).getConsumerCount();
+	}
+
+	// ---------------------------------------------------------------- 关闭
+
+	@Override
+	public int getChannelNumber() {
+		return channelNumber;
+	}
+
+	@Override
+	public Connection getConnection() {
+		return connection;
+	}
+
+	@Override
+	public Consumer getDefaultConsumer() {
+		return defaultConsumer;
+	}
+
+	@Override
+	public void setDefaultConsumer(Consumer consumer) {
+		this.defaultConsumer = consumer;
+	}
+
+	@Override
+	public void close() {
+		close(AMQP.REPLY_SUCCESS, "OK");
+	}
+
+	@Override
+	public void close(int closeCode, String closeMessage) {
+		ensureOpen();
+		shutdown(new ShutdownSignalException(false, true, new AMQImpl.Channel.Close(closeCode, closeMessage, 0, 0), this));
+	}
+
+	@Override
+	public void abort() {
+		abort(AMQP.REPLY_SUCCESS, "OK");
+	}
+
+	@Override
+	public void abort(int closeCode, String closeMessage) {
+		shutdown(new ShutdownSignalException(false, true, new AMQImpl.Channel.Close(closeCode, closeMessage, 0, 0), this));
+	}
+
+	@Override
+	public boolean isOpen() {
+		return closeReason == null;
+	}
+
+	@Override
+	public ShutdownSignalException getCloseReason() {
+		return closeReason;
+	}
+
+	@Override
+	public void addShutdownListener(ShutdownListener listener) {
+		shutdownListeners.add(listener);
+		ShutdownSignalException reason = closeReason;
+		if (reason != null && shutdownListeners.remove(listener)) {
+			// 已经关闭则立即回调
+			listener.shutdownCompleted(reason);
+		}
+	}
+
+	@Override
+	public void removeShutdownListener(ShutdownListener listener) {
+		shutdownListeners.remove(listener);
+	}
+
+	@Override
+	public void notifyListeners() {
+		ShutdownSignalException reason = closeReason;
+		if (reason != null) {
+			for (ShutdownListener listener : shutdownListeners) {
+				listener.shutdownCompleted(reason);
+			}
+		}
+	}
+
+	/**
+	 * 关闭通道：摘掉消费者，未确认消息重新入队，通知消费者和关闭监听器
+	 *	@ReturnType	boolean		false表示通道已经关闭
+	 *	@Date	2026年10月17日	下午8:52:37
+	 */
+	boolean shutdown(final ShutdownSignalException cause) {
+		synchronized (deliveryLock) {
+			if (closeReason != null) {
+				return false;
+			}
+			closeReason = cause;
+		}
+		connection.channelClosed(this);
+		// 1.从队列上摘掉消费者
+		final List<LoopbackConsumer> cancelled = new ArrayList<LoopbackConsumer>(consumers.values());
+		consumers.clear();
+		for (LoopbackConsumer consumer : cancelled) {
+			detach(consumer);
+		}
+		// 2.未确认的消息重新入队（摘掉消费者之后才取，不会漏掉并发投递进来的消息）
+		List<Delivery> pending = takeUnacked();
+		for (Delivery delivery : pending) {
+			if (delivery.consumer != null) {
+				delivery.consumer.release();
+			}
+		}
+		requeue(pending);
+		// 3.在分发线程上通知消费者，排在已提交的回调之后
+		dispatcher.execute(() -> {
+			for (LoopbackConsumer consumer : cancelled) {
+				try {
+					consumer.callback.handleShutdownSignal(consumer.tag, cause);
+				} catch (Throwable t) {
+					connection.getExceptionHandler().handleConsumerException(this, t, consumer.callback, consumer.tag, "handleShutdownSignal");
+				}
+			}
+		});
+		notifyListeners();
+		return true;
+	}
+
+	/**
+	 * 异步方法（publish、ack等）出错：只关闭通道，之后的调用抛AlreadyClosedException
+	 */
+	private void closeWithError(int code, String text) {
+		shutdown(new ShutdownSignalException(false, false, new AMQImpl.Channel.Close(code, text, 0, 0), this));
+	}
+
+	/**
+	 * 同步方法出错：关闭通道并返回要抛出的IOException（与真实客户端一致，cause为ShutdownSignalException）
+	 */
+	private IOException channelError(Refused refused) {
+		closeWithError(refused.code, refused.getMessage());
+		return new IOException(closeReason);
+	}
+
+	private void ensureOpen() {
+		ShutdownSignalException reason = closeReason;
+		if (reason != null) {
+			throw new AlreadyClosedException(reason);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "LoopbackChannel(" + connection + ", " + channelNumber + ")";
+	}
+
+	/**
+	 * 描述：ack/nack/reject的处理结果
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private enum Outcome {
+		ACK, REQUEUE, DISCARD
+	}
+
+	/**
+	 * 描述：一条已投递未确认的消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Delivery {
+
+		final LoopbackMessage message;
+
+		final LoopbackQueue queue;
+
+		/**
+		 * basicGet取出的消息为null
+		 */
+		final LoopbackConsumer consumer;
+
+		Delivery(LoopbackMessage message, LoopbackQueue queue, LoopbackConsumer consumer) {
+			this.message = message;
+			this.queue = queue;
+			this.consumer = consumer;
+		}
+	}
+}
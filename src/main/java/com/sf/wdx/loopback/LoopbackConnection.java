@@ -0,0 +1,347 @@
+package com.sf.wdx.loopback;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.BlockedListener;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ExceptionHandler;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.rabbitmq.client.impl.AMQImpl;
+import com.rabbitmq.client.impl.DefaultExceptionHandler;
+import com.sf.wdx.util.SerialExecutor;
+
+/**
+ * 描述：LoopbackBroker上的连接
+ * 		每个通道一个串行执行器，共享连接的消费者线程池（newConnection传入的线程池，未传入则用broker的共享线程池）。
+ * 		关闭连接会关闭所有通道并删除该连接的exclusive队列。
+ * 		broker.block()后通知BlockedListener，并让basicPublish阻塞到unblock()（与RabbitMQ停止读取被阻塞连接的socket效果一致）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class LoopbackConnection implements Connection {
+
+	private final LoopbackBroker broker;
+
+	private final ExecutorService executor;
+
+	private final String clientProvidedName;
+
+	private final Map<String, Object> clientProperties;
+
+	/**
+	 * 连接的节点（host:port）
+	 */
+	private final String node;
+
+	/**
+	 * 连接序号，用于生成direct reply-to的伪队列名
+	 */
+	private final long sequence;
+
+	private final Map<Integer, LoopbackChannel> channels = new ConcurrentHashMap<Integer, LoopbackChannel>();
+
+	private final AtomicInteger nextChannelNumber = new AtomicInteger();
+
+	private final List<ShutdownListener> shutdownListeners = new CopyOnWriteArrayList<ShutdownListener>();
+
+	private final List<BlockedListener> blockedListeners = new CopyOnWriteArrayList<BlockedListener>();
+
+	private final ExceptionHandler exceptionHandler = new DefaultExceptionHandler();
+
+	private volatile ShutdownSignalException closeReason;
+
+	private volatile String id;
+
+	/**
+	 * broker阻塞发送的原因，null表示未阻塞
+	 */
+	private volatile String blockedReason;
+
+	private final Object unblockedSignal = new Object();
+
+	LoopbackConnection(LoopbackBroker broker, String node, ExecutorService executor, String clientProvidedName, Map<String, Object> clientProperties) {
+		this.broker = broker;
+		this.node = node;
+		this.executor = executor == null ? LoopbackBroker.sharedDispatch() : executor;
+		this.clientProvidedName = clientProvidedName;
+		this.clientProperties = clientProperties == null ? Collections.<String, Object> emptyMap() : clientProperties;
+		this.sequence = broker.nextId();
+	}
+
+	public LoopbackBroker getBroker() {
+		return broker;
+	}
+
+	/**
+	 * 连接的节点（host:port）
+	 */
+	public String getNode() {
+		return node;
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	@Override
+	public Channel createChannel() {
+		ensureOpen();
+		while (true) {
+			int number = nextChannelNumber.incrementAndGet();
+			Channel channel = createChannel(number);
+			if (channel != null) {
+				return channel;
+			}
+		}
+	}
+
+	/**
+	 * 通道号已被占用时返回null（与真实客户端一致）
+	 */
+	@Override
+	public Channel createChannel(int channelNumber) {
+		ensureOpen();
+		LoopbackChannel channel = new LoopbackChannel(this, broker, channelNumber, new SerialExecutor(executor));
+		if (channels.putIfAbsent(channelNumber, channel) != null) {
+			return null;
+		}
+		return channel;
+	}
+
+	void channelClosed(LoopbackChannel channel) {
+		channels.remove(channel.getChannelNumber(), channel);
+	}
+
+	@Override
+	public void close() {
+		close(AMQP.REPLY_SUCCESS, "OK");
+	}
+
+	@Override
+	public void close(int closeCode, String closeMessage) {
+		ensureOpen();
+		abort(closeCode, closeMessage);
+	}
+
+	@Override
+	public void close(int timeout) {
+		close();
+	}
+
+	@Override
+	public void close(int closeCode, String closeMessage, int timeout) {
+		close(closeCode, closeMessage);
+	}
+
+	@Override
+	public void abort() {
+		abort(AMQP.REPLY_SUCCESS, "OK");
+	}
+
+	@Override
+	public void abort(int closeCode, String closeMessage) {
+		shutdown(new ShutdownSignalException(true, true, new AMQImpl.Connection.Close(closeCode, closeMessage, 0, 0), this));
+	}
+
+	@Override
+	public void abort(int timeout) {
+		abort();
+	}
+
+	@Override
+	public void abort(int closeCode, String closeMessage, int timeout) {
+		abort(closeCode, closeMessage);
+	}
+
+	/**
+	 * 关闭连接：关闭所有通道，删除exclusive队列，通知关闭监听器
+	 */
+	void shutdown(ShutdownSignalException cause) {
+		synchronized (this) {
+			if (closeReason != null) {
+				return;
+			}
+			closeReason = cause;
+		}
+		for (LoopbackChannel channel : new ArrayList<LoopbackChannel>(channels.values())) {
+			channel.shutdown(cause);
+		}
+		broker.connectionClosed(this);
+		notifyListeners();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return closeReason == null;
+	}
+
+	@Override
+	public ShutdownSignalException getCloseReason() {
+		return closeReason;
+	}
+
+	@Override
+	public void addShutdownListener(ShutdownListener listener) {
+		shutdownListeners.add(listener);
+		ShutdownSignalException reason = closeReason;
+		if (reason != null && shutdownListeners.remove(listener)) {
+			listener.shutdownCompleted(reason);
+		}
+	}
+
+	@Override
+	public void removeShutdownListener(ShutdownListener listener) {
+		shutdownListeners.remove(listener);
+	}
+
+	@Override
+	public void notifyListeners() {
+		ShutdownSignalException reason = closeReason;
+		if (reason != null) {
+			for (ShutdownListener listener : shutdownListeners) {
+				listener.shutdownCompleted(reason);
+			}
+		}
+	}
+
+	@Override
+	public void addBlockedListener(BlockedListener listener) {
+		blockedListeners.add(listener);
+	}
+
+	@Override
+	public boolean removeBlockedListener(BlockedListener listener) {
+		return blockedListeners.remove(listener);
+	}
+
+	@Override
+	public void clearBlockedListeners() {
+		blockedListeners.clear();
+	}
+
+	@Override
+	public InetAddress getAddress() {
+		return InetAddress.getLoopbackAddress();
+	}
+
+	@Override
+	public int getPort() {
+		return Integer.parseInt(node.substring(node.lastIndexOf(':') + 1));
+	}
+
+	@Override
+	public int getChannelMax() {
+		return 0;
+	}
+
+	@Override
+	public int getFrameMax() {
+		return 0;
+	}
+
+	@Override
+	public int getHeartbeat() {
+		return 0;
+	}
+
+	@Override
+	public Map<String, Object> getClientProperties() {
+		return clientProperties;
+	}
+
+	@Override
+	public String getClientProvidedName() {
+		return clientProvidedName;
+	}
+
+	@Override
+	public Map<String, Object> getServerProperties() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public ExceptionHandler getExceptionHandler() {
+		return exceptionHandler;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	void blocked(String reason) {
+		blockedReason = reason;
+		for (BlockedListener listener : blockedListeners) {
+			try {
+				listener.handleBlocked(reason);
+			} catch (Throwable t) {
+				// 与真实客户端一样交给ExceptionHandler
+				exceptionHandler.handleBlockedListenerException(this, t);
+			}
+		}
+	}
+
+	void unblocked() {
+		synchronized (unblockedSignal) {
+			blockedReason = null;
+			unblockedSignal.notifyAll();
+		}
+		for (BlockedListener listener : blockedListeners) {
+			try {
+				listener.handleUnblocked();
+			} catch (Throwable t) {
+				exceptionHandler.handleBlockedListenerException(this, t);
+			}
+		}
+	}
+
+	/**
+	 * 连接被阻塞时发送线程在此等待，连接关闭或解除阻塞后返回
+	 */
+	void awaitUnblocked() throws InterruptedIOException {
+		if (blockedReason == null) {
+			return;
+		}
+		synchronized (unblockedSignal) {
+			while (blockedReason != null && closeReason == null) {
+				try {
+					unblockedSignal.wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("interrupted while connection blocked: " + blockedReason);
+				}
+			}
+		}
+	}
+
+	private void ensureOpen() {
+		ShutdownSignalException reason = closeReason;
+		if (reason != null) {
+			throw new AlreadyClosedException(reason);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "loopback://" + node + broker.getVirtualHost() + "#" + sequence;
+	}
+}
@@ -0,0 +1,69 @@
+package com.sf.wdx.loopback;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.AddressResolver;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.ListAddressResolver;
+
+/**
+ * 描述：连接到进程内LoopbackBroker的连接工厂
+ * 		所有newConnection重载最终都走到这里，账号被忽略，按getVirtualHost()选择broker；
+ * 		地址列表按顺序连接第一个没有被kill的节点（与真实客户端依次尝试地址一致），全部被kill时抛出ConnectException。
+ * 		地址不做DNS解析，节点名就是配置的host:port（newConnection()连的是localhost:5672，不是127.0.0.1:5672）。
+ * 		可直接替换ConnectionFactory，也可交给Spring的CachingConnectionFactory。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class LoopbackConnectionFactory extends ConnectionFactory {
+
+	/**
+	 * 指定的broker，为null时按vhost查找
+	 */
+	private final LoopbackBroker broker;
+
+	public LoopbackConnectionFactory() {
+		this(null);
+	}
+
+	public LoopbackConnectionFactory(LoopbackBroker broker) {
+		this.broker = broker;
+	}
+
+	/**
+	 * 本工厂创建的连接所在的broker
+	 */
+	public LoopbackBroker getBroker() {
+		return broker != null ? broker : LoopbackBroker.forVirtualHost(getVirtualHost());
+	}
+
+	@Override
+	public Connection newConnection(ExecutorService executor, AddressResolver addressResolver, String clientProvidedName) throws IOException {
+		LoopbackBroker target = getBroker();
+		List<Address> addresses = addressResolver == null ? Collections.singletonList(new Address(getHost(), getPort()))
+				: addressResolver.getAddresses();
+		for (Address address : addresses) {
+			String node = LoopbackBroker.node(address);
+			if (target.isUp(node)) {
+				LoopbackConnection connection = new LoopbackConnection(target, node, executor, clientProvidedName, getClientProperties());
+				target.connectionOpened(connection);
+				return connection;
+			}
+		}
+		throw new ConnectException("Connection refused: " + addresses);
+	}
+
+	/**
+	 * 单个地址时父类会解析DNS（localhost变成127.0.0.1），kill(host:port)就匹配不上，这里原样使用
+	 */
+	@Override
+	protected AddressResolver createAddressResolver(List<Address> addresses) {
+		return new ListAddressResolver(addresses);
+	}
+}
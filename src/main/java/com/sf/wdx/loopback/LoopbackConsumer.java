@@ -0,0 +1,69 @@
+package com.sf.wdx.loopback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rabbitmq.client.Consumer;
+
+/**
+ * 描述：队列上的一个消费者（basicConsume的结果）
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+final class LoopbackConsumer {
+
+	final String tag;
+
+	final LoopbackQueue queue;
+
+	final LoopbackChannel channel;
+
+	final Consumer callback;
+
+	final boolean autoAck;
+
+	/**
+	 * 消费者级别的预取数，0表示不限（basicConsume时通道上basicQos(n, false)的值）
+	 */
+	final int prefetch;
+
+	/**
+	 * 已投递未确认的消息数
+	 */
+	final AtomicInteger unacked = new AtomicInteger();
+
+	LoopbackConsumer(String tag, LoopbackQueue queue, LoopbackChannel channel, Consumer callback, boolean autoAck, int prefetch) {
+		this.tag = tag;
+		this.queue = queue;
+		this.channel = channel;
+		this.callback = callback;
+		this.autoAck = autoAck;
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * 占用一个预取额度（在队列锁内调用），autoAck的消费者不受预取限制
+	 *	@ReturnType	boolean		false表示消费者或通道的预取窗口已满
+	 *	@Date	2026年10月17日	下午8:05:12
+	 */
+	boolean tryAcquire() {
+		if (autoAck) {
+			return true;
+		}
+		if (prefetch > 0 && unacked.get() >= prefetch) {
+			return false;
+		}
+		if (!channel.tryAcquireCredit()) {
+			return false;
+		}
+		unacked.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * 确认、拒绝或通道关闭时归还预取额度
+	 */
+	void release() {
+		unacked.decrementAndGet();
+		channel.releaseCredit();
+	}
+}
@@ -0,0 +1,202 @@
+package com.sf.wdx.loopback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.amqp.core.ExchangeTypes;
+
+import com.sf.wdx.topic.TopicMatcher;
+
+/**
+ * 描述：交换机（direct、fanout、topic）
+ * 		绑定关系变化时重建不可变的路由表，路由时只读路由表，不加锁。
+ * 		topic交换机按routingKey缓存匹配结果（随路由表一起重建），同一个routingKey只匹配一次，之后路由不再分配内存。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+final class LoopbackExchange {
+
+	/**
+	 * topic路由缓存的routingKey上限，routingKey取值过多时超出的部分每次重新匹配
+	 */
+	static final int MAX_CACHED_ROUTING_KEYS = 4096;
+
+	final String name;
+
+	final String type;
+
+	final boolean durable;
+
+	final boolean autoDelete;
+
+	/**
+	 * 绑定关系（修改时加锁）
+	 */
+	private final List<Binding> bindings = new ArrayList<Binding>();
+
+	private volatile Routes routes = new Routes(Collections.<String, List<LoopbackQueue>>emptyMap(),
+			Collections.<LoopbackQueue>emptyList(), new TopicMatcher<LoopbackQueue>());
+
+	LoopbackExchange(String name, String type, boolean durable, boolean autoDelete) {
+		this.name = name;
+		this.type = type;
+		this.durable = durable;
+		this.autoDelete = autoDelete;
+	}
+
+	static boolean isSupportedType(String type) {
+		return ExchangeTypes.DIRECT.equals(type) || ExchangeTypes.FANOUT.equals(type) || ExchangeTypes.TOPIC.equals(type);
+	}
+
+	synchronized void bind(LoopbackQueue queue, String routingKey) {
+		for (Binding binding : bindings) {
+			if (binding.queue == queue && binding.routingKey.equals(routingKey)) {
+				return;
+			}
+		}
+		bindings.add(new Binding(queue, routingKey));
+		rebuild();
+	}
+
+	synchronized void unbind(LoopbackQueue queue, String routingKey) {
+		for (int i = 0; i < bindings.size(); i++) {
+			Binding binding = bindings.get(i);
+			if (binding.queue == queue && binding.routingKey.equals(routingKey)) {
+				bindings.remove(i);
+				rebuild();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 删除队列时解除该队列的所有绑定
+	 */
+	synchronized void unbindAll(LoopbackQueue queue) {
+		boolean changed = false;
+		for (int i = bindings.size() - 1; i >= 0; i--) {
+			if (bindings.get(i).queue == queue) {
+				bindings.remove(i);
+				changed = true;
+			}
+		}
+		if (changed) {
+			rebuild();
+		}
+	}
+
+	synchronized boolean hasBindings() {
+		return !bindings.isEmpty();
+	}
+
+	/**
+	 * 按交换机类型找出目标队列，结果追加到out（同一个队列只出现一次）
+	 */
+	void route(String routingKey, List<LoopbackQueue> out) {
+		Routes current = routes;
+		if (ExchangeTypes.FANOUT.equals(type)) {
+			out.addAll(current.fanout);
+		} else if (ExchangeTypes.TOPIC.equals(type)) {
+			List<LoopbackQueue> matched = current.topicRoute(routingKey);
+			for (int i = 0; i < matched.size(); i++) {
+				LoopbackQueue queue = matched.get(i);
+				if (!out.contains(queue)) {
+					out.add(queue);
+				}
+			}
+		} else {
+			List<LoopbackQueue> queues = current.direct.get(routingKey);
+			if (queues != null) {
+				out.addAll(queues);
+			}
+		}
+	}
+
+	private void rebuild() {
+		Map<String, List<LoopbackQueue>> direct = new HashMap<String, List<LoopbackQueue>>();
+		List<LoopbackQueue> fanout = new ArrayList<LoopbackQueue>();
+		TopicMatcher<LoopbackQueue> topic = new TopicMatcher<LoopbackQueue>();
+		for (Binding binding : bindings) {
+			List<LoopbackQueue> queues = direct.get(binding.routingKey);
+			if (queues == null) {
+				queues = new ArrayList<LoopbackQueue>(1);
+				direct.put(binding.routingKey, queues);
+			}
+			if (!queues.contains(binding.queue)) {
+				queues.add(binding.queue);
+			}
+			if (!fanout.contains(binding.queue)) {
+				fanout.add(binding.queue);
+			}
+			topic.add(binding.routingKey, binding.queue);
+		}
+		routes = new Routes(direct, fanout, topic);
+	}
+
+	/**
+	 * 描述：一条绑定
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Binding {
+
+		final LoopbackQueue queue;
+
+		final String routingKey;
+
+		Binding(LoopbackQueue queue, String routingKey) {
+			this.queue = queue;
+			this.routingKey = routingKey;
+		}
+	}
+
+	/**
+	 * 描述：不可变的路由表快照
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Routes {
+
+		final Map<String, List<LoopbackQueue>> direct;
+
+		final List<LoopbackQueue> fanout;
+
+		final TopicMatcher<LoopbackQueue> topic;
+
+		/**
+		 * routingKey -> 去重后的目标队列（只属于这份快照，绑定变化后随快照丢弃）
+		 */
+		private final ConcurrentHashMap<String, List<LoopbackQueue>> topicCache = new ConcurrentHashMap<String, List<LoopbackQueue>>();
+
+		Routes(Map<String, List<LoopbackQueue>> direct, List<LoopbackQueue> fanout, TopicMatcher<LoopbackQueue> topic) {
+			this.direct = direct;
+			this.fanout = fanout;
+			this.topic = topic;
+		}
+
+		List<LoopbackQueue> topicRoute(String routingKey) {
+			List<LoopbackQueue> queues = topicCache.get(routingKey);
+			if (queues != null) {
+				return queues;
+			}
+			List<LoopbackQueue> matched = topic.handlersFor(routingKey);
+			queues = new ArrayList<LoopbackQueue>(matched.size());
+			for (int i = 0; i < matched.size(); i++) {
+				LoopbackQueue queue = matched.get(i);
+				if (!queues.contains(queue)) {
+					queues.add(queue);
+				}
+			}
+			queues = queues.isEmpty() ? Collections.<LoopbackQueue>emptyList() : Collections.unmodifiableList(queues);
+			// 超过上限不再缓存（并发时可能略超）
+			if (topicCache.size() < MAX_CACHED_ROUTING_KEYS) {
+				topicCache.put(routingKey, queues);
+			}
+			return queues;
+		}
+	}
+}
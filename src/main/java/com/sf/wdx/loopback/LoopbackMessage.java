@@ -0,0 +1,31 @@
+package com.sf.wdx.loopback;
+
+import com.rabbitmq.client.AMQP;
+
+/**
+ * 描述：broker内部的一条消息，body在多个队列之间共享，不复制
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+final class LoopbackMessage {
+
+	final String exchange;
+
+	final String routingKey;
+
+	final AMQP.BasicProperties props;
+
+	final byte[] body;
+
+	/**
+	 * 被重新入队（nack/reject requeue、通道关闭时未ack）后置为true
+	 */
+	volatile boolean redelivered;
+
+	LoopbackMessage(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+		this.exchange = exchange;
+		this.routingKey = routingKey;
+		this.props = props;
+		this.body = body;
+	}
+}
@@ -0,0 +1,196 @@
+package com.sf.wdx.loopback;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述：队列
+ * 		就绪消息按FIFO保存，多个消费者之间轮询投递，每个消费者受预取窗口限制；
+ * 		重新入队的消息放回队头，保持原来的相对顺序。
+ * 		支持exclusive（连接关闭时删除）、autoDelete（最后一个消费者取消时删除）和
+ * 		x-dead-letter-exchange / x-dead-letter-routing-key（reject/nack且不重新入队时转发）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+final class LoopbackQueue {
+
+	static final String ARG_DEAD_LETTER_EXCHANGE = "x-dead-letter-exchange";
+
+	static final String ARG_DEAD_LETTER_ROUTING_KEY = "x-dead-letter-routing-key";
+
+	final String name;
+
+	final boolean durable;
+
+	final boolean autoDelete;
+
+	/**
+	 * exclusive队列的所属连接，非exclusive为null
+	 */
+	final LoopbackConnection owner;
+
+	private final LoopbackBroker broker;
+
+	private final String deadLetterExchange;
+
+	private final String deadLetterRoutingKey;
+
+	private final ArrayDeque<LoopbackMessage> ready = new ArrayDeque<LoopbackMessage>();
+
+	private final List<LoopbackConsumer> consumers = new ArrayList<LoopbackConsumer>();
+
+	/**
+	 * 下一次轮询的起始消费者下标
+	 */
+	private int next;
+
+	private boolean deleted;
+
+	LoopbackQueue(LoopbackBroker broker, String name, boolean durable, LoopbackConnection owner, boolean autoDelete, Map<String, Object> arguments) {
+		this.broker = broker;
+		this.name = name;
+		this.durable = durable;
+		this.owner = owner;
+		this.autoDelete = autoDelete;
+		Object dlx = arguments == null ? null : arguments.get(ARG_DEAD_LETTER_EXCHANGE);
+		Object dlk = arguments == null ? null : arguments.get(ARG_DEAD_LETTER_ROUTING_KEY);
+		this.deadLetterExchange = dlx == null ? null : dlx.toString();
+		this.deadLetterRoutingKey = dlk == null ? null : dlk.toString();
+	}
+
+	/**
+	 * 消息入队并尝试投递
+	 */
+	void enqueue(LoopbackMessage message) {
+		synchronized (this) {
+			if (deleted) {
+				return;
+			}
+			ready.addLast(message);
+			dispatch();
+		}
+	}
+
+	/**
+	 * 重新入队（按原顺序放回队头），置redelivered
+	 */
+	void requeue(List<LoopbackMessage> messages) {
+		synchronized (this) {
+			if (deleted) {
+				return;
+			}
+			for (int i = messages.size() - 1; i >= 0; i--) {
+				LoopbackMessage message = messages.get(i);
+				message.redelivered = true;
+				ready.addFirst(message);
+			}
+			dispatch();
+		}
+	}
+
+	/**
+	 * 预取额度释放后继续投递
+	 */
+	void drain() {
+		synchronized (this) {
+			dispatch();
+		}
+	}
+
+	/**
+	 * 拒绝且不重新入队：配置了死信交换机则转发，否则丢弃
+	 *	@ReturnType	boolean		是否转发到了死信交换机
+	 *	@Date	2026年10月17日	下午8:11:40
+	 */
+	boolean deadLetter(LoopbackMessage message) {
+		if (deadLetterExchange == null) {
+			return false;
+		}
+		String routingKey = deadLetterRoutingKey == null ? message.routingKey : deadLetterRoutingKey;
+		return broker.route(deadLetterExchange, routingKey, new LoopbackMessage(deadLetterExchange, routingKey, message.props, message.body)) > 0;
+	}
+
+	/**
+	 * basicGet：取出一条就绪消息，没有则返回null
+	 */
+	synchronized LoopbackMessage poll() {
+		return ready.pollFirst();
+	}
+
+	synchronized void addConsumer(LoopbackConsumer consumer) {
+		consumers.add(consumer);
+		dispatch();
+	}
+
+	/**
+	 *	@ReturnType	boolean		是否因autoDelete需要删除队列
+	 *	@Date	2026年10月17日	下午8:13:02
+	 */
+	synchronized boolean removeConsumer(LoopbackConsumer consumer) {
+		if (!consumers.remove(consumer)) {
+			return false;
+		}
+		return autoDelete && consumers.isEmpty() && !deleted;
+	}
+
+	synchronized boolean hasConsumers() {
+		return !consumers.isEmpty();
+	}
+
+	synchronized int messageCount() {
+		return ready.size();
+	}
+
+	synchronized int consumerCount() {
+		return consumers.size();
+	}
+
+	synchronized int purge() {
+		int count = ready.size();
+		ready.clear();
+		return count;
+	}
+
+	/**
+	 * 标记删除，清空消息，返回仍在消费的消费者（由调用方通知取消）
+	 */
+	synchronized List<LoopbackConsumer> delete() {
+		deleted = true;
+		ready.clear();
+		List<LoopbackConsumer> cancelled = new ArrayList<LoopbackConsumer>(consumers);
+		consumers.clear();
+		return cancelled;
+	}
+
+	synchronized boolean isDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * 在队列锁内把就绪消息轮询投递给有预取额度的消费者
+	 */
+	private void dispatch() {
+		while (!ready.isEmpty()) {
+			LoopbackConsumer consumer = nextConsumer();
+			if (consumer == null) {
+				return;
+			}
+			consumer.channel.deliver(consumer, ready.pollFirst());
+		}
+	}
+
+	private LoopbackConsumer nextConsumer() {
+		int size = consumers.size();
+		for (int i = 0; i < size; i++) {
+			int index = (next + i) % size;
+			LoopbackConsumer consumer = consumers.get(index);
+			if (consumer.tryAcquire()) {
+				next = index + 1;
+				return consumer;
+			}
+		}
+		return null;
+	}
+}
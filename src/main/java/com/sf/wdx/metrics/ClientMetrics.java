@@ -0,0 +1,273 @@
+package com.sf.wdx.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 描述：客户端指标注册表：按交换机、按队列汇总InstrumentedChannel记录的指标
+ * 		每个交换机/队列第一次出现时注册JMX MXBean（com.sf.wdx.mq:type=Exchange|Queue,name=...），
+ * 		每隔periodMillis生成一次周期快照（MetricsSnapshot），JMX的延迟属性即最近一个周期的分布，并通知监听器。
+ * 		记录路径只有LongAdder和直方图的原子自增，不加锁、不产生垃圾；快照和JMX读取在统计线程上完成。
+ * 		服务端命名的队列（amq.gen-*，每个临时消费者一个）合并记在SERVER_NAMED_QUEUE下，不单独注册；
+ * 		队列/交换机被删除，或auto-delete、exclusive队列的最后一个消费者取消后，移除其指标并注销MBean，注册表不会只增不减。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ClientMetrics implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClientMetrics.class);
+
+	/**
+	 * 周期快照的监听器
+	 */
+	public interface Listener {
+
+		void onSnapshot(MetricsSnapshot snapshot);
+
+	}
+
+	public static final String DEFAULT_DOMAIN = "com.sf.wdx.mq";
+
+	public static final long DEFAULT_PERIOD_MILLIS = 10000;
+
+	static final String DEFAULT_EXCHANGE = "(default)";
+
+	static final String SERVER_NAMED_PREFIX = "amq.gen-";
+
+	static final String SERVER_NAMED_QUEUE = "(server-named)";
+
+	private static volatile ClientMetrics defaultMetrics;
+
+	private final String domain;
+
+	private final long periodMillis;
+
+	private final ConcurrentMap<String, ExchangeMetrics> exchanges = new ConcurrentHashMap<String, ExchangeMetrics>();
+
+	private final ConcurrentMap<String, QueueMetrics> queues = new ConcurrentHashMap<String, QueueMetrics>();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private final List<ObjectName> registered = new CopyOnWriteArrayList<ObjectName>();
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private volatile MetricsSnapshot latest;
+
+	private long lastRollNanos = System.nanoTime();
+
+	/**
+	 *	@Param  @param domain			JMX域名，null表示不注册JMX
+	 *	@Param  @param periodMillis		统计周期
+	 */
+	public ClientMetrics(String domain, long periodMillis) {
+		if (periodMillis <= 0) {
+			throw new IllegalArgumentException("periodMillis must be positive: " + periodMillis);
+		}
+		this.domain = domain;
+		this.periodMillis = periodMillis;
+		this.latest = new MetricsSnapshot(System.currentTimeMillis(), 0, new ArrayList<ExchangeMetrics.Snapshot>(), new ArrayList<QueueMetrics.Snapshot>());
+		this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "client-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.timer.scheduleAtFixedRate(this::roll, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 进程内共享的实例（注册JMX，周期10秒），ConnectionUtil开启指标时使用
+	 */
+	public static ClientMetrics getDefault() {
+		if (defaultMetrics == null) {
+			synchronized (ClientMetrics.class) {
+				if (defaultMetrics == null) {
+					defaultMetrics = new ClientMetrics(DEFAULT_DOMAIN, DEFAULT_PERIOD_MILLIS);
+				}
+			}
+		}
+		return defaultMetrics;
+	}
+
+	/**
+	 * 交换机的指标（默认交换机传""）
+	 */
+	public ExchangeMetrics exchange(String name) {
+		if (name.isEmpty()) {
+			name = DEFAULT_EXCHANGE;
+		}
+		// 先get，已存在时不创建对象
+		ExchangeMetrics metrics = exchanges.get(name);
+		if (metrics == null) {
+			ExchangeMetrics created = new ExchangeMetrics(name);
+			metrics = exchanges.putIfAbsent(name, created);
+			if (metrics == null) {
+				metrics = created;
+				register("Exchange", name, created);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * 队列的指标（服务端命名的队列共用一个）
+	 */
+	public QueueMetrics queue(String name) {
+		if (name.startsWith(SERVER_NAMED_PREFIX)) {
+			name = SERVER_NAMED_QUEUE;
+		}
+		QueueMetrics metrics = queues.get(name);
+		if (metrics == null) {
+			QueueMetrics created = new QueueMetrics(name);
+			metrics = queues.putIfAbsent(name, created);
+			if (metrics == null) {
+				metrics = created;
+				register("Queue", name, created);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * 交换机已删除：移除指标并注销MBean
+	 */
+	public void removeExchange(String name) {
+		if (name.isEmpty()) {
+			return;
+		}
+		ExchangeMetrics metrics = exchanges.remove(name);
+		if (metrics != null) {
+			unregister("Exchange", name);
+		}
+	}
+
+	/**
+	 * 队列已删除：移除指标并注销MBean（服务端命名队列的汇总保留）
+	 */
+	public void removeQueue(String name) {
+		QueueMetrics metrics = queues.get(name);
+		if (metrics != null) {
+			remove(metrics);
+		}
+	}
+
+	/**
+	 * 移除这一个实例（之后同名队列重新出现时会新建）
+	 */
+	void remove(QueueMetrics metrics) {
+		String name = metrics.getName();
+		if (!SERVER_NAMED_QUEUE.equals(name) && queues.remove(name, metrics)) {
+			unregister("Queue", name);
+		}
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 最近一个周期的快照
+	 */
+	public MetricsSnapshot getSnapshot() {
+		return latest;
+	}
+
+	public long getPeriodMillis() {
+		return periodMillis;
+	}
+
+	/**
+	 * 停止周期统计并注销JMX
+	 */
+	@Override
+	public void close() {
+		timer.shutdownNow();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registered) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				// 已被注销
+			}
+		}
+		registered.clear();
+	}
+
+	/**
+	 * 结束当前周期，生成快照（统计线程定时调用）
+	 */
+	synchronized MetricsSnapshot roll() {
+		long now = System.nanoTime();
+		long period = now - lastRollNanos;
+		lastRollNanos = now;
+		List<ExchangeMetrics.Snapshot> exchangeSnapshots = new ArrayList<ExchangeMetrics.Snapshot>();
+		for (ExchangeMetrics metrics : exchanges.values()) {
+			exchangeSnapshots.add(metrics.roll(period));
+		}
+		List<QueueMetrics.Snapshot> queueSnapshots = new ArrayList<QueueMetrics.Snapshot>();
+		for (QueueMetrics metrics : queues.values()) {
+			queueSnapshots.add(metrics.roll(period));
+		}
+		MetricsSnapshot snapshot = new MetricsSnapshot(System.currentTimeMillis(), TimeUnit.NANOSECONDS.toMillis(period), exchangeSnapshots, queueSnapshots);
+		latest = snapshot;
+		for (Listener listener : listeners) {
+			try {
+				listener.onSnapshot(snapshot);
+			} catch (RuntimeException e) {
+				LOG.warn("metrics listener {} failed", listener, e);
+			}
+		}
+		return snapshot;
+	}
+
+	private synchronized void register(String type, String name, Object mbean) {
+		if (domain == null) {
+			return;
+		}
+		try {
+			ObjectName objectName = objectName(type, name);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(mbean, objectName);
+				registered.add(objectName);
+			}
+		} catch (JMException e) {
+			LOG.warn("register metrics MBean for {} {} failed", type, name, e);
+		}
+	}
+
+	private synchronized void unregister(String type, String name) {
+		if (domain == null) {
+			return;
+		}
+		try {
+			ObjectName objectName = objectName(type, name);
+			if (registered.remove(objectName)) {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			// 已被注销
+		}
+	}
+
+	private ObjectName objectName(String type, String name) throws JMException {
+		return new ObjectName(domain + ":type=" + type + ",name=" + ObjectName.quote(name));
+	}
+}
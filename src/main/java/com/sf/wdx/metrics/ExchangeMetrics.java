@@ -0,0 +1,190 @@
+package com.sf.wdx.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：一个交换机的发送端指标：发送条数和字节数、确认延迟（basicPublish到broker ack）、nack和退回条数
+ * 		默认交换机（""）的名字记为(default)。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ExchangeMetrics implements ExchangeMetricsMXBean {
+
+	private final String name;
+
+	final LongAdder published = new LongAdder();
+
+	final LongAdder publishedBytes = new LongAdder();
+
+	final LongAdder confirmed = new LongAdder();
+
+	final LongAdder nacked = new LongAdder();
+
+	final LongAdder returned = new LongAdder();
+
+	final LatencyHistogram confirmLatency = new LatencyHistogram();
+
+	private volatile Snapshot last;
+
+	private Snapshot previous;
+
+	ExchangeMetrics(String name) {
+		this.name = name;
+		this.previous = new Snapshot(name, 0, 0, 0, 0, 0, HistogramSnapshot.EMPTY, 0);
+		this.last = previous;
+	}
+
+	/**
+	 * 累计值快照，并记下与上一次调用之间的区间值（JMX读取区间值）
+	 */
+	synchronized Snapshot roll(long periodNanos) {
+		Snapshot current = new Snapshot(name, published.sum(), publishedBytes.sum(), confirmed.sum(), nacked.sum(), returned.sum(),
+				confirmLatency.snapshot(), 0);
+		Snapshot interval = current.minus(previous, periodNanos);
+		previous = current;
+		last = interval;
+		return interval;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getPublished() {
+		return published.sum();
+	}
+
+	@Override
+	public long getPublishedBytes() {
+		return publishedBytes.sum();
+	}
+
+	@Override
+	public long getConfirmed() {
+		return confirmed.sum();
+	}
+
+	@Override
+	public long getNacked() {
+		return nacked.sum();
+	}
+
+	@Override
+	public long getReturned() {
+		return returned.sum();
+	}
+
+	@Override
+	public double getPublishRate() {
+		return last.getPublishRate();
+	}
+
+	@Override
+	public double getConfirmLatencyP50Micros() {
+		return micros(last.confirmLatency.getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getConfirmLatencyP99Micros() {
+		return micros(last.confirmLatency.getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getConfirmLatencyP999Micros() {
+		return micros(last.confirmLatency.getValueAtPercentile(99.9));
+	}
+
+	@Override
+	public double getConfirmLatencyMaxMicros() {
+		return micros(last.confirmLatency.getMax());
+	}
+
+	static double micros(long nanos) {
+		return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+	}
+
+	/**
+	 * 描述：交换机指标快照（区间快照中计数为区间增量）
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static final class Snapshot {
+
+		private final String name;
+
+		private final long published;
+
+		private final long publishedBytes;
+
+		private final long confirmed;
+
+		private final long nacked;
+
+		private final long returned;
+
+		private final HistogramSnapshot confirmLatency;
+
+		private final long periodNanos;
+
+		Snapshot(String name, long published, long publishedBytes, long confirmed, long nacked, long returned, HistogramSnapshot confirmLatency,
+				long periodNanos) {
+			this.name = name;
+			this.published = published;
+			this.publishedBytes = publishedBytes;
+			this.confirmed = confirmed;
+			this.nacked = nacked;
+			this.returned = returned;
+			this.confirmLatency = confirmLatency;
+			this.periodNanos = periodNanos;
+		}
+
+		Snapshot minus(Snapshot earlier, long periodNanos) {
+			return new Snapshot(name, published - earlier.published, publishedBytes - earlier.publishedBytes, confirmed - earlier.confirmed,
+					nacked - earlier.nacked, returned - earlier.returned, confirmLatency.minus(earlier.confirmLatency), periodNanos);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getPublished() {
+			return published;
+		}
+
+		public long getPublishedBytes() {
+			return publishedBytes;
+		}
+
+		public long getConfirmed() {
+			return confirmed;
+		}
+
+		public long getNacked() {
+			return nacked;
+		}
+
+		public long getReturned() {
+			return returned;
+		}
+
+		/**
+		 * 确认延迟，单位纳秒
+		 */
+		public HistogramSnapshot getConfirmLatency() {
+			return confirmLatency;
+		}
+
+		public double getPublishRate() {
+			return periodNanos <= 0 ? 0 : published * 1e9 / periodNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("exchange %s: published=%d (%.0f/s, %d bytes) confirmed=%d nacked=%d returned=%d confirm[%s]", name, published,
+					getPublishRate(), publishedBytes, confirmed, nacked, returned, confirmLatency.toLatencyString());
+		}
+	}
+}
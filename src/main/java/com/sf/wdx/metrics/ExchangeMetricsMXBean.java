@@ -0,0 +1,36 @@
+package com.sf.wdx.metrics;
+
+/**
+ * 描述：交换机（发送端）指标的JMX视图
+ * 		计数为累计值；延迟为最近一个统计周期内的分布，单位微秒。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public interface ExchangeMetricsMXBean {
+
+	String getName();
+
+	long getPublished();
+
+	long getPublishedBytes();
+
+	long getConfirmed();
+
+	long getNacked();
+
+	long getReturned();
+
+	/**
+	 * 最近一个周期的发送速率（条/秒）
+	 */
+	double getPublishRate();
+
+	double getConfirmLatencyP50Micros();
+
+	double getConfirmLatencyP99Micros();
+
+	double getConfirmLatencyP999Micros();
+
+	double getConfirmLatencyMaxMicros();
+
+}
@@ -0,0 +1,105 @@
+package com.sf.wdx.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述：直方图某一时刻的不可变副本
+ * 		minus(earlier)得到两次快照之间的分布；百分位数返回桶内最大值，相对误差不超过1.6%。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class HistogramSnapshot {
+
+	static final HistogramSnapshot EMPTY = new HistogramSnapshot(new long[LatencyHistogram.BUCKETS], 0);
+
+	private final long[] counts;
+
+	private final long sum;
+
+	private final long count;
+
+	HistogramSnapshot(long[] counts, long sum) {
+		this.counts = counts;
+		this.sum = sum;
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		this.count = total;
+	}
+
+	/**
+	 * 本快照与更早的快照之间记录的值
+	 */
+	public HistogramSnapshot minus(HistogramSnapshot earlier) {
+		long[] diff = new long[counts.length];
+		for (int i = 0; i < diff.length; i++) {
+			diff[i] = counts[i] - earlier.counts[i];
+		}
+		return new HistogramSnapshot(diff, sum - earlier.sum);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	public long getMin() {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				return LatencyHistogram.highestValue(i);
+			}
+		}
+		return 0;
+	}
+
+	public long getMax() {
+		for (int i = counts.length - 1; i >= 0; i--) {
+			if (counts[i] > 0) {
+				return LatencyHistogram.highestValue(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * 百分位数
+	 *	@ReturnType	long	没有记录时为0
+	 *	@Date	2026年10月17日	下午11:58:20
+	 *  @Param  @param percentile	0-100，例：99.9
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return LatencyHistogram.highestValue(i);
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * 纳秒直方图的摘要，单位微秒
+	 */
+	public String toLatencyString() {
+		return String.format("n=%d mean=%.1f p50=%.1f p99=%.1f p99.9=%.1f max=%.1f us", count, getMean() / 1000,
+				micros(getValueAtPercentile(50)), micros(getValueAtPercentile(99)), micros(getValueAtPercentile(99.9)), micros(getMax()));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d mean=%.1f p50=%d p99=%d max=%d", count, getMean(), getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+	}
+
+	private static double micros(long nanos) {
+		return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+	}
+}
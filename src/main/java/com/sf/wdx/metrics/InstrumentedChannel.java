@@ -0,0 +1,746 @@
+package com.sf.wdx.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Command;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.Method;
+import com.rabbitmq.client.ReturnListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：记录指标的Channel装饰器，其余方法原样转发
+ * 		发送：按交换机计发送条数和字节数；通道处于confirm模式时记录basicPublish到broker ack/nack的延迟，以及退回条数。
+ * 		消费：basicConsume/basicGet按队列计投递数和handleDelivery耗时；手动ack时记录投递到basicAck/basicNack/basicReject的延迟和投递时的未确认数。
+ * 		发送序号和delivery tag登记在固定大小的环形数组中（按序号取模，不分配对象），
+ * 		同时在途超过RING_SIZE条时最早的记录被覆盖，这些消息只计数、不计延迟。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class InstrumentedChannel implements Channel {
+
+	static final int RING_SIZE = 8192;
+
+	private static final int RING_MASK = RING_SIZE - 1;
+
+	private final Channel delegate;
+
+	private final Connection connection;
+
+	private final ClientMetrics metrics;
+
+	private volatile boolean confirmMode;
+
+	/**
+	 * 保证取发送序号和发送是一个原子操作
+	 */
+	private final Object publishLock = new Object();
+
+	// ---- 未确认的发送，受confirms保护 ----
+	private final Object confirms = new Object();
+
+	private final long[] publishSeqs = new long[RING_SIZE];
+
+	private final long[] publishNanos = new long[RING_SIZE];
+
+	private final ExchangeMetrics[] publishTargets = new ExchangeMetrics[RING_SIZE];
+
+	private long confirmFloor = 1;
+
+	private long highestSeq;
+
+	// ---- 未确认的投递，受deliveries保护 ----
+	private final Object deliveries = new Object();
+
+	private final long[] deliveryTags = new long[RING_SIZE];
+
+	private final long[] deliveryNanos = new long[RING_SIZE];
+
+	private final QueueMetrics[] deliveryQueues = new QueueMetrics[RING_SIZE];
+
+	private long ackFloor = 1;
+
+	private long highestTag;
+
+	private int unacked;
+
+	public InstrumentedChannel(Channel delegate, Connection connection, ClientMetrics metrics) {
+		this.delegate = delegate;
+		this.connection = connection;
+		this.metrics = metrics;
+		this.confirmMode = delegate.getNextPublishSeqNo() > 0;
+		delegate.addConfirmListener(new ConfirmListener() {
+			@Override
+			public void handleAck(long deliveryTag, boolean multiple) {
+				confirmed(deliveryTag, multiple, true);
+			}
+
+			@Override
+			public void handleNack(long deliveryTag, boolean multiple) {
+				confirmed(deliveryTag, multiple, false);
+			}
+		});
+		delegate.addReturnListener(new ReturnListener() {
+			@Override
+			public void handleReturn(int replyCode, String replyText, String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) {
+				InstrumentedChannel.this.metrics.exchange(exchange).returned.increment();
+			}
+		});
+		// 通道关闭后未确认的投递由broker重新入队
+		delegate.addShutdownListener(new ShutdownListener() {
+			@Override
+			public void shutdownCompleted(ShutdownSignalException cause) {
+				forgetDeliveries();
+			}
+		});
+	}
+
+	/**
+	 * 被装饰的通道
+	 */
+	public Channel getDelegate() {
+		return delegate;
+	}
+
+	// ---------------- 发送 ----------------
+
+	@Override
+	public void basicPublish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) throws IOException {
+		basicPublish(exchange, routingKey, false, false, props, body);
+	}
+
+	@Override
+	public void basicPublish(String exchange, String routingKey, boolean mandatory, AMQP.BasicProperties props, byte[] body) throws IOException {
+		basicPublish(exchange, routingKey, mandatory, false, props, body);
+	}
+
+	@Override
+	public void basicPublish(String exchange, String routingKey, boolean mandatory, boolean immediate, AMQP.BasicProperties props, byte[] body)
+			throws IOException {
+		ExchangeMetrics target = metrics.exchange(exchange);
+		if (confirmMode) {
+			synchronized (publishLock) {
+				// 先登记再发送，confirm可能在basicPublish返回之前到达
+				long seq = delegate.getNextPublishSeqNo();
+				trackPublish(seq, System.nanoTime(), target);
+				try {
+					delegate.basicPublish(exchange, routingKey, mandatory, immediate, props, body);
+				} catch (IOException | RuntimeException e) {
+					untrackPublish(seq);
+					throw e;
+				}
+			}
+		} else {
+			delegate.basicPublish(exchange, routingKey, mandatory, immediate, props, body);
+		}
+		target.published.increment();
+		target.publishedBytes.add(body == null ? 0 : body.length);
+	}
+
+	@Override
+	public AMQP.Confirm.SelectOk confirmSelect() throws IOException {
+		AMQP.Confirm.SelectOk ok = delegate.confirmSelect();
+		confirmMode = true;
+		return ok;
+	}
+
+	private void trackPublish(long seq, long nanos, ExchangeMetrics target) {
+		synchronized (confirms) {
+			int slot = (int) (seq & RING_MASK);
+			publishSeqs[slot] = seq;
+			publishNanos[slot] = nanos;
+			publishTargets[slot] = target;
+			highestSeq = seq;
+		}
+	}
+
+	private void untrackPublish(long seq) {
+		synchronized (confirms) {
+			int slot = (int) (seq & RING_MASK);
+			if (publishSeqs[slot] == seq) {
+				publishSeqs[slot] = 0;
+				publishTargets[slot] = null;
+			}
+		}
+	}
+
+	private void confirmed(long seq, boolean multiple, boolean ack) {
+		long now = System.nanoTime();
+		synchronized (confirms) {
+			long from = Math.max(multiple ? confirmFloor : seq, seq - RING_SIZE + 1);
+			for (long s = from; s <= seq; s++) {
+				int slot = (int) (s & RING_MASK);
+				if (publishSeqs[slot] != s) {
+					continue;
+				}
+				ExchangeMetrics target = publishTargets[slot];
+				target.confirmLatency.record(now - publishNanos[slot]);
+				(ack ? target.confirmed : target.nacked).increment();
+				publishSeqs[slot] = 0;
+				publishTargets[slot] = null;
+			}
+			if (multiple) {
+				confirmFloor = Math.max(confirmFloor, seq + 1);
+			}
+			while (confirmFloor <= highestSeq && publishSeqs[(int) (confirmFloor & RING_MASK)] != confirmFloor) {
+				confirmFloor++;
+			}
+		}
+	}
+
+	// ---------------- 消费 ----------------
+
+	@Override
+	public String basicConsume(String queue, Consumer callback) throws IOException {
+		return basicConsume(queue, false, callback);
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, Consumer callback) throws IOException {
+		return delegate.basicConsume(queue, autoAck, wrap(queue, autoAck, callback));
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, Map<String, Object> arguments, Consumer callback) throws IOException {
+		return delegate.basicConsume(queue, autoAck, arguments, wrap(queue, autoAck, callback));
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, String consumerTag, Consumer callback) throws IOException {
+		return delegate.basicConsume(queue, autoAck, consumerTag, wrap(queue, autoAck, callback));
+	}
+
+	@Override
+	public String basicConsume(String queue, boolean autoAck, String consumerTag, boolean noLocal, boolean exclusive, Map<String, Object> arguments,
+			Consumer callback) throws IOException {
+		return delegate.basicConsume(queue, autoAck, consumerTag, noLocal, exclusive, arguments, wrap(queue, autoAck, callback));
+	}
+
+	@Override
+	public GetResponse basicGet(String queue, boolean autoAck) throws IOException {
+		long start = System.nanoTime();
+		GetResponse response = delegate.basicGet(queue, autoAck);
+		if (response != null) {
+			QueueMetrics target = metrics.queue(queue);
+			target.delivered.increment();
+			if (response.getEnvelope().isRedeliver()) {
+				target.redelivered.increment();
+			}
+			if (!autoAck) {
+				trackDelivery(response.getEnvelope().getDeliveryTag(), start, target);
+			}
+		}
+		return response;
+	}
+
+	@Override
+	public void basicAck(long deliveryTag, boolean multiple) throws IOException {
+		delegate.basicAck(deliveryTag, multiple);
+		settled(deliveryTag, multiple, true);
+	}
+
+	@Override
+	public void basicNack(long deliveryTag, boolean multiple, boolean requeue) throws IOException {
+		delegate.basicNack(deliveryTag, multiple, requeue);
+		settled(deliveryTag, multiple, false);
+	}
+
+	@Override
+	public void basicReject(long deliveryTag, boolean requeue) throws IOException {
+		delegate.basicReject(deliveryTag, requeue);
+		settled(deliveryTag, false, false);
+	}
+
+	@Override
+	public AMQP.Basic.RecoverOk basicRecover() throws IOException {
+		AMQP.Basic.RecoverOk ok = delegate.basicRecover();
+		forgetDeliveries();
+		return ok;
+	}
+
+	@Override
+	public AMQP.Basic.RecoverOk basicRecover(boolean requeue) throws IOException {
+		AMQP.Basic.RecoverOk ok = delegate.basicRecover(requeue);
+		forgetDeliveries();
+		return ok;
+	}
+
+	private Consumer wrap(String queue, boolean autoAck, Consumer callback) {
+		return new InstrumentedConsumer(callback, this, metrics, metrics.queue(queue), autoAck);
+	}
+
+	/**
+	 * 登记一次手动ack的投递，同时记录投递时的未确认数
+	 */
+	void trackDelivery(long deliveryTag, long nanos, QueueMetrics target) {
+		int occupancy;
+		synchronized (deliveries) {
+			int slot = (int) (deliveryTag & RING_MASK);
+			if (deliveryTags[slot] != 0) {
+				// 覆盖在途太久的记录，它不再计入未确认
+				deliveryQueues[slot].unacked.decrement();
+				unacked--;
+			}
+			deliveryTags[slot] = deliveryTag;
+			deliveryNanos[slot] = nanos;
+			deliveryQueues[slot] = target;
+			highestTag = Math.max(highestTag, deliveryTag);
+			occupancy = ++unacked;
+		}
+		target.unacked.increment();
+		target.occupancy.record(occupancy);
+	}
+
+	private void settled(long deliveryTag, boolean multiple, boolean ack) {
+		long now = System.nanoTime();
+		synchronized (deliveries) {
+			// multiple且tag为0表示所有未确认的投递
+			long tag = multiple && deliveryTag == 0 ? highestTag : deliveryTag;
+			long from = Math.max(multiple ? ackFloor : tag, tag - RING_SIZE + 1);
+			for (long t = from; t <= tag; t++) {
+				int slot = (int) (t & RING_MASK);
+				if (deliveryTags[slot] != t) {
+					continue;
+				}
+				QueueMetrics target = deliveryQueues[slot];
+				target.ackLatency.record(now - deliveryNanos[slot]);
+				(ack ? target.acked : target.rejected).increment();
+				target.unacked.decrement();
+				unacked--;
+				deliveryTags[slot] = 0;
+				deliveryQueues[slot] = null;
+			}
+			if (multiple) {
+				ackFloor = Math.max(ackFloor, tag + 1);
+			}
+			while (ackFloor <= highestTag && deliveryTags[(int) (ackFloor & RING_MASK)] != ackFloor) {
+				ackFloor++;
+			}
+		}
+	}
+
+	private void forgetDeliveries() {
+		synchronized (deliveries) {
+			for (int slot = 0; slot < RING_SIZE; slot++) {
+				if (deliveryTags[slot] != 0) {
+					deliveryQueues[slot].unacked.decrement();
+					deliveryTags[slot] = 0;
+					deliveryQueues[slot] = null;
+				}
+			}
+			unacked = 0;
+			ackFloor = highestTag + 1;
+		}
+	}
+
+	// ---------------- 原样转发 ----------------
+
+	@Override
+	public int getChannelNumber() {
+		return delegate.getChannelNumber();
+	}
+
+	@Override
+	public Connection getConnection() {
+		return connection;
+	}
+
+	@Override
+	public void close() throws IOException, TimeoutException {
+		delegate.close();
+	}
+
+	@Override
+	public void close(int closeCode, String closeMessage) throws IOException, TimeoutException {
+		delegate.close(closeCode, closeMessage);
+	}
+
+	@Override
+	@Deprecated
+	public boolean flowBlocked() {
+		return delegate.flowBlocked();
+	}
+
+	@Override
+	public void abort() throws IOException {
+		delegate.abort();
+	}
+
+	@Override
+	public void abort(int closeCode, String closeMessage) throws IOException {
+		delegate.abort(closeCode, closeMessage);
+	}
+
+	@Override
+	public void addReturnListener(ReturnListener listener) {
+		delegate.addReturnListener(listener);
+	}
+
+	@Override
+	public boolean removeReturnListener(ReturnListener listener) {
+		return delegate.removeReturnListener(listener);
+	}
+
+	@Override
+	public void clearReturnListeners() {
+		delegate.clearReturnListeners();
+	}
+
+	@Override
+	@Deprecated
+	public void addFlowListener(com.rabbitmq.client.FlowListener listener) {
+		delegate.addFlowListener(listener);
+	}
+
+	@Override
+	@Deprecated
+	public boolean removeFlowListener(com.rabbitmq.client.FlowListener listener) {
+		return delegate.removeFlowListener(listener);
+	}
+
+	@Override
+	@Deprecated
+	public void clearFlowListeners() {
+		delegate.clearFlowListeners();
+	}
+
+	@Override
+	public void addConfirmListener(ConfirmListener listener) {
+		delegate.addConfirmListener(listener);
+	}
+
+	@Override
+	public boolean removeConfirmListener(ConfirmListener listener) {
+		return delegate.removeConfirmListener(listener);
+	}
+
+	@Override
+	public void clearConfirmListeners() {
+		delegate.clearConfirmListeners();
+	}
+
+	@Override
+	public Consumer getDefaultConsumer() {
+		return delegate.getDefaultConsumer();
+	}
+
+	@Override
+	public void setDefaultConsumer(Consumer consumer) {
+		delegate.setDefaultConsumer(consumer);
+	}
+
+	@Override
+	public void basicQos(int prefetchSize, int prefetchCount, boolean global) throws IOException {
+		delegate.basicQos(prefetchSize, prefetchCount, global);
+	}
+
+	@Override
+	public void basicQos(int prefetchCount, boolean global) throws IOException {
+		delegate.basicQos(prefetchCount, global);
+	}
+
+	@Override
+	public void basicQos(int prefetchCount) throws IOException {
+		delegate.basicQos(prefetchCount);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type) throws IOException {
+		return delegate.exchangeDeclare(exchange, type);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type) throws IOException {
+		return delegate.exchangeDeclare(exchange, type);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable) throws IOException {
+		return delegate.exchangeDeclare(exchange, type, durable);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type, boolean durable) throws IOException {
+		return delegate.exchangeDeclare(exchange, type, durable);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete, Map<String, Object> arguments)
+			throws IOException {
+		return delegate.exchangeDeclare(exchange, type, durable, autoDelete, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type, boolean durable, boolean autoDelete,
+			Map<String, Object> arguments) throws IOException {
+		return delegate.exchangeDeclare(exchange, type, durable, autoDelete, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, String type, boolean durable, boolean autoDelete, boolean internal,
+			Map<String, Object> arguments) throws IOException {
+		return delegate.exchangeDeclare(exchange, type, durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclare(String exchange, BuiltinExchangeType type, boolean durable, boolean autoDelete, boolean internal,
+			Map<String, Object> arguments) throws IOException {
+		return delegate.exchangeDeclare(exchange, type, durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public void exchangeDeclareNoWait(String exchange, String type, boolean durable, boolean autoDelete, boolean internal, Map<String, Object> arguments)
+			throws IOException {
+		delegate.exchangeDeclareNoWait(exchange, type, durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public void exchangeDeclareNoWait(String exchange, BuiltinExchangeType type, boolean durable, boolean autoDelete, boolean internal,
+			Map<String, Object> arguments) throws IOException {
+		delegate.exchangeDeclareNoWait(exchange, type, durable, autoDelete, internal, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.DeclareOk exchangeDeclarePassive(String name) throws IOException {
+		return delegate.exchangeDeclarePassive(name);
+	}
+
+	@Override
+	public AMQP.Exchange.DeleteOk exchangeDelete(String exchange, boolean ifUnused) throws IOException {
+		AMQP.Exchange.DeleteOk ok = delegate.exchangeDelete(exchange, ifUnused);
+		metrics.removeExchange(exchange);
+		return ok;
+	}
+
+	@Override
+	public void exchangeDeleteNoWait(String exchange, boolean ifUnused) throws IOException {
+		delegate.exchangeDeleteNoWait(exchange, ifUnused);
+		metrics.removeExchange(exchange);
+	}
+
+	@Override
+	public AMQP.Exchange.DeleteOk exchangeDelete(String exchange) throws IOException {
+		AMQP.Exchange.DeleteOk ok = delegate.exchangeDelete(exchange);
+		metrics.removeExchange(exchange);
+		return ok;
+	}
+
+	@Override
+	public AMQP.Exchange.BindOk exchangeBind(String destination, String source, String routingKey) throws IOException {
+		return delegate.exchangeBind(destination, source, routingKey);
+	}
+
+	@Override
+	public AMQP.Exchange.BindOk exchangeBind(String destination, String source, String routingKey, Map<String, Object> arguments) throws IOException {
+		return delegate.exchangeBind(destination, source, routingKey, arguments);
+	}
+
+	@Override
+	public void exchangeBindNoWait(String destination, String source, String routingKey, Map<String, Object> arguments) throws IOException {
+		delegate.exchangeBindNoWait(destination, source, routingKey, arguments);
+	}
+
+	@Override
+	public AMQP.Exchange.UnbindOk exchangeUnbind(String destination, String source, String routingKey) throws IOException {
+		return delegate.exchangeUnbind(destination, source, routingKey);
+	}
+
+	@Override
+	public AMQP.Exchange.UnbindOk exchangeUnbind(String destination, String source, String routingKey, Map<String, Object> arguments)
+			throws IOException {
+		return delegate.exchangeUnbind(destination, source, routingKey, arguments);
+	}
+
+	@Override
+	public void exchangeUnbindNoWait(String destination, String source, String routingKey, Map<String, Object> arguments) throws IOException {
+		delegate.exchangeUnbindNoWait(destination, source, routingKey, arguments);
+	}
+
+	@Override
+	public AMQP.Queue.DeclareOk queueDeclare() throws IOException {
+		return delegate.queueDeclare();
+	}
+
+	@Override
+	public AMQP.Queue.DeclareOk queueDeclare(String queue, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments)
+			throws IOException {
+		AMQP.Queue.DeclareOk ok = delegate.queueDeclare(queue, durable, exclusive, autoDelete, arguments);
+		declared(ok.getQueue(), exclusive || autoDelete);
+		return ok;
+	}
+
+	@Override
+	public void queueDeclareNoWait(String queue, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments)
+			throws IOException {
+		delegate.queueDeclareNoWait(queue, durable, exclusive, autoDelete, arguments);
+		declared(queue, exclusive || autoDelete);
+	}
+
+	/**
+	 * 记下临时队列，最后一个消费者结束后移除它的指标（服务端命名的队列本来就合并统计）
+	 */
+	private void declared(String queue, boolean temporary) {
+		if (temporary && !queue.isEmpty() && !queue.startsWith(ClientMetrics.SERVER_NAMED_PREFIX)) {
+			metrics.queue(queue).temporary = true;
+		}
+	}
+
+	@Override
+	public AMQP.Queue.DeclareOk queueDeclarePassive(String queue) throws IOException {
+		return delegate.queueDeclarePassive(queue);
+	}
+
+	@Override
+	public AMQP.Queue.DeleteOk queueDelete(String queue) throws IOException {
+		AMQP.Queue.DeleteOk ok = delegate.queueDelete(queue);
+		metrics.removeQueue(queue);
+		return ok;
+	}
+
+	@Override
+	public AMQP.Queue.DeleteOk queueDelete(String queue, boolean ifUnused, boolean ifEmpty) throws IOException {
+		AMQP.Queue.DeleteOk ok = delegate.queueDelete(queue, ifUnused, ifEmpty);
+		metrics.removeQueue(queue);
+		return ok;
+	}
+
+	@Override
+	public void queueDeleteNoWait(String queue, boolean ifUnused, boolean ifEmpty) throws IOException {
+		delegate.queueDeleteNoWait(queue, ifUnused, ifEmpty);
+		metrics.removeQueue(queue);
+	}
+
+	@Override
+	public AMQP.Queue.BindOk queueBind(String queue, String exchange, String routingKey) throws IOException {
+		return delegate.queueBind(queue, exchange, routingKey);
+	}
+
+	@Override
+	public AMQP.Queue.BindOk queueBind(String queue, String exchange, String routingKey, Map<String, Object> arguments) throws IOException {
+		return delegate.queueBind(queue, exchange, routingKey, arguments);
+	}
+
+	@Override
+	public void queueBindNoWait(String queue, String exchange, String routingKey, Map<String, Object> arguments) throws IOException {
+		delegate.queueBindNoWait(queue, exchange, routingKey, arguments);
+	}
+
+	@Override
+	public AMQP.Queue.UnbindOk queueUnbind(String queue, String exchange, String routingKey) throws IOException {
+		return delegate.queueUnbind(queue, exchange, routingKey);
+	}
+
+	@Override
+	public AMQP.Queue.UnbindOk queueUnbind(String queue, String exchange, String routingKey, Map<String, Object> arguments) throws IOException {
+		return delegate.queueUnbind(queue, exchange, routingKey, arguments);
+	}
+
+	@Override
+	public AMQP.Queue.PurgeOk queuePurge(String queue) throws IOException {
+		return delegate.queuePurge(queue);
+	}
+
+	@Override
+	public void basicCancel(String consumerTag) throws IOException {
+		delegate.basicCancel(consumerTag);
+	}
+
+	@Override
+	public AMQP.Tx.SelectOk txSelect() throws IOException {
+		return delegate.txSelect();
+	}
+
+	@Override
+	public AMQP.Tx.CommitOk txCommit() throws IOException {
+		return delegate.txCommit();
+	}
+
+	@Override
+	public AMQP.Tx.RollbackOk txRollback() throws IOException {
+		return delegate.txRollback();
+	}
+
+	@Override
+	public long getNextPublishSeqNo() {
+		return delegate.getNextPublishSeqNo();
+	}
+
+	@Override
+	public boolean waitForConfirms() throws InterruptedException {
+		return delegate.waitForConfirms();
+	}
+
+	@Override
+	public boolean waitForConfirms(long timeout) throws InterruptedException, TimeoutException {
+		return delegate.waitForConfirms(timeout);
+	}
+
+	@Override
+	public void waitForConfirmsOrDie() throws IOException, InterruptedException {
+		delegate.waitForConfirmsOrDie();
+	}
+
+	@Override
+	public void waitForConfirmsOrDie(long timeout) throws IOException, InterruptedException, TimeoutException {
+		delegate.waitForConfirmsOrDie(timeout);
+	}
+
+	@Override
+	public void asyncRpc(Method method) throws IOException {
+		delegate.asyncRpc(method);
+	}
+
+	@Override
+	public Command rpc(Method method) throws IOException {
+		return delegate.rpc(method);
+	}
+
+	@Override
+	public long messageCount(String queue) throws IOException {
+		return delegate.messageCount(queue);
+	}
+
+	@Override
+	public long consumerCount(String queue) throws IOException {
+		return delegate.consumerCount(queue);
+	}
+
+	@Override
+	public void addShutdownListener(ShutdownListener listener) {
+		delegate.addShutdownListener(listener);
+	}
+
+	@Override
+	public void removeShutdownListener(ShutdownListener listener) {
+		delegate.removeShutdownListener(listener);
+	}
+
+	@Override
+	public ShutdownSignalException getCloseReason() {
+		return delegate.getCloseReason();
+	}
+
+	@Override
+	public void notifyListeners() {
+		delegate.notifyListeners();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public String toString() {
+		return "Instrumented(" + delegate + ")";
+	}
+}
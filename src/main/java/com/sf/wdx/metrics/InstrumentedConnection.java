@@ -0,0 +1,195 @@
+package com.sf.wdx.metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Map;
+
+import com.rabbitmq.client.BlockedListener;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ExceptionHandler;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：记录指标的Connection装饰器，createChannel返回InstrumentedChannel，其余方法原样转发
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class InstrumentedConnection implements Connection {
+
+	private final Connection delegate;
+
+	private final ClientMetrics metrics;
+
+	public InstrumentedConnection(Connection delegate, ClientMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * 被装饰的连接
+	 */
+	public Connection getDelegate() {
+		return delegate;
+	}
+
+	public ClientMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public Channel createChannel() throws IOException {
+		return wrap(delegate.createChannel());
+	}
+
+	@Override
+	public Channel createChannel(int channelNumber) throws IOException {
+		return wrap(delegate.createChannel(channelNumber));
+	}
+
+	private Channel wrap(Channel channel) {
+		// 通道号已被占用时返回null
+		return channel == null ? null : new InstrumentedChannel(channel, this, metrics);
+	}
+
+	@Override
+	public InetAddress getAddress() {
+		return delegate.getAddress();
+	}
+
+	@Override
+	public int getPort() {
+		return delegate.getPort();
+	}
+
+	@Override
+	public int getChannelMax() {
+		return delegate.getChannelMax();
+	}
+
+	@Override
+	public int getFrameMax() {
+		return delegate.getFrameMax();
+	}
+
+	@Override
+	public int getHeartbeat() {
+		return delegate.getHeartbeat();
+	}
+
+	@Override
+	public Map<String, Object> getClientProperties() {
+		return delegate.getClientProperties();
+	}
+
+	@Override
+	public String getClientProvidedName() {
+		return delegate.getClientProvidedName();
+	}
+
+	@Override
+	public Map<String, Object> getServerProperties() {
+		return delegate.getServerProperties();
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+
+	@Override
+	public void close(int closeCode, String closeMessage) throws IOException {
+		delegate.close(closeCode, closeMessage);
+	}
+
+	@Override
+	public void close(int timeout) throws IOException {
+		delegate.close(timeout);
+	}
+
+	@Override
+	public void close(int closeCode, String closeMessage, int timeout) throws IOException {
+		delegate.close(closeCode, closeMessage, timeout);
+	}
+
+	@Override
+	public void abort() {
+		delegate.abort();
+	}
+
+	@Override
+	public void abort(int closeCode, String closeMessage) {
+		delegate.abort(closeCode, closeMessage);
+	}
+
+	@Override
+	public void abort(int timeout) {
+		delegate.abort(timeout);
+	}
+
+	@Override
+	public void abort(int closeCode, String closeMessage, int timeout) {
+		delegate.abort(closeCode, closeMessage, timeout);
+	}
+
+	@Override
+	public void addBlockedListener(BlockedListener listener) {
+		delegate.addBlockedListener(listener);
+	}
+
+	@Override
+	public boolean removeBlockedListener(BlockedListener listener) {
+		return delegate.removeBlockedListener(listener);
+	}
+
+	@Override
+	public void clearBlockedListeners() {
+		delegate.clearBlockedListeners();
+	}
+
+	@Override
+	public ExceptionHandler getExceptionHandler() {
+		return delegate.getExceptionHandler();
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public void setId(String id) {
+		delegate.setId(id);
+	}
+
+	@Override
+	public void addShutdownListener(ShutdownListener listener) {
+		delegate.addShutdownListener(listener);
+	}
+
+	@Override
+	public void removeShutdownListener(ShutdownListener listener) {
+		delegate.removeShutdownListener(listener);
+	}
+
+	@Override
+	public ShutdownSignalException getCloseReason() {
+		return delegate.getCloseReason();
+	}
+
+	@Override
+	public void notifyListeners() {
+		delegate.notifyListeners();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public String toString() {
+		return "Instrumented(" + delegate + ")";
+	}
+}
@@ -0,0 +1,77 @@
+package com.sf.wdx.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.AddressResolver;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * 描述：创建InstrumentedConnection的连接工厂，实际连接由被装饰的工厂创建（可以是LoopbackConnectionFactory）
+ * 		地址、vhost、账号在构造时从被装饰的工厂复制，之后的set同时作用于两者，
+ * 		因此可以直接交给Spring的CachingConnectionFactory。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class InstrumentedConnectionFactory extends ConnectionFactory {
+
+	private final ConnectionFactory delegate;
+
+	private final ClientMetrics metrics;
+
+	public InstrumentedConnectionFactory(ConnectionFactory delegate, ClientMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+		super.setHost(delegate.getHost());
+		super.setPort(delegate.getPort());
+		super.setVirtualHost(delegate.getVirtualHost());
+		super.setUsername(delegate.getUsername());
+		super.setPassword(delegate.getPassword());
+	}
+
+	public ConnectionFactory getDelegate() {
+		return delegate;
+	}
+
+	public ClientMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public Connection newConnection(ExecutorService executor, AddressResolver addressResolver, String clientProvidedName)
+			throws IOException, TimeoutException {
+		return new InstrumentedConnection(delegate.newConnection(executor, addressResolver, clientProvidedName), metrics);
+	}
+
+	@Override
+	public void setHost(String host) {
+		super.setHost(host);
+		delegate.setHost(host);
+	}
+
+	@Override
+	public void setPort(int port) {
+		super.setPort(port);
+		delegate.setPort(port);
+	}
+
+	@Override
+	public void setVirtualHost(String virtualHost) {
+		super.setVirtualHost(virtualHost);
+		delegate.setVirtualHost(virtualHost);
+	}
+
+	@Override
+	public void setUsername(String username) {
+		super.setUsername(username);
+		delegate.setUsername(username);
+	}
+
+	@Override
+	public void setPassword(String password) {
+		super.setPassword(password);
+		delegate.setPassword(password);
+	}
+}
@@ -0,0 +1,93 @@
+package com.sf.wdx.metrics;
+
+import java.io.IOException;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：记录投递指标的Consumer装饰器（由InstrumentedChannel.basicConsume创建）
+ * 		投递计数、重新投递计数、handleDelivery耗时；手动ack时在调用业务代码之前登记delivery tag，用于计算ack延迟和预取占用。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+class InstrumentedConsumer implements Consumer {
+
+	private final Consumer delegate;
+
+	private final InstrumentedChannel channel;
+
+	private final QueueMetrics metrics;
+
+	private final ClientMetrics registry;
+
+	private final boolean autoAck;
+
+	InstrumentedConsumer(Consumer delegate, InstrumentedChannel channel, ClientMetrics registry, QueueMetrics metrics, boolean autoAck) {
+		this.delegate = delegate;
+		this.channel = channel;
+		this.registry = registry;
+		this.metrics = metrics;
+		this.autoAck = autoAck;
+	}
+
+	@Override
+	public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+		long start = System.nanoTime();
+		metrics.delivered.increment();
+		if (envelope.isRedeliver()) {
+			metrics.redelivered.increment();
+		}
+		if (!autoAck) {
+			channel.trackDelivery(envelope.getDeliveryTag(), start, metrics);
+		}
+		try {
+			delegate.handleDelivery(consumerTag, envelope, properties, body);
+		} finally {
+			metrics.serviceTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void handleConsumeOk(String consumerTag) {
+		metrics.consumers.incrementAndGet();
+		delegate.handleConsumeOk(consumerTag);
+	}
+
+	@Override
+	public void handleCancelOk(String consumerTag) {
+		release(metrics.temporary);
+		delegate.handleCancelOk(consumerTag);
+	}
+
+	/**
+	 * broker取消消费者（通常是队列被删除）
+	 */
+	@Override
+	public void handleCancel(String consumerTag) throws IOException {
+		release(true);
+		delegate.handleCancel(consumerTag);
+	}
+
+	@Override
+	public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+		release(metrics.temporary);
+		delegate.handleShutdownSignal(consumerTag, sig);
+	}
+
+	@Override
+	public void handleRecoverOk(String consumerTag) {
+		delegate.handleRecoverOk(consumerTag);
+	}
+
+	/**
+	 * 消费者结束，最后一个消费者结束且队列随之消失时移除指标
+	 */
+	private void release(boolean queueGone) {
+		if (metrics.consumers.decrementAndGet() <= 0 && queueGone) {
+			registry.remove(metrics);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.sf.wdx.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：HDR风格的对数-线性直方图（并发记录，不产生垃圾）
+ * 		小于64的值每个值一个桶（精确）；之后每个2的幂区间等分64个桶，相对误差不超过1/64（约1.6%）。
+ * 		记录上限2^41-1（纳秒约36分钟），更大的值计入最后一个桶。
+ * 		记录只是一次数组下标计算加一次原子自增；snapshot()复制当前计数，两次快照相减得到区间内的分布。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BITS = 6;
+
+	static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private static final int SUB_MASK = SUB_COUNT - 1;
+
+	private static final int MAX_EXPONENT = 40;
+
+	static final int BUCKETS = ((MAX_EXPONENT - SUB_BITS + 1) << SUB_BITS) + SUB_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * 记录一个值（负数按0记录）
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(index(value));
+		sum.add(value);
+	}
+
+	/**
+	 * 当前的累计分布
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new HistogramSnapshot(copy, sum.sum());
+	}
+
+	static int index(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (exponent - SUB_BITS)) & SUB_MASK);
+	}
+
+	/**
+	 * 桶内的最大值（与HDR的highestEquivalentValue一致）
+	 */
+	static long highestValue(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = (index >>> SUB_BITS) - 1;
+		long lowest = (long) (SUB_COUNT + (index & SUB_MASK)) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
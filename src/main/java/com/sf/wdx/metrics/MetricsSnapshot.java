@@ -0,0 +1,58 @@
+package com.sf.wdx.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 描述：一个统计周期内所有交换机和队列的指标（计数为周期内增量，直方图为周期内的分布）
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class MetricsSnapshot {
+
+	private final long timestamp;
+
+	private final long periodMillis;
+
+	private final List<ExchangeMetrics.Snapshot> exchanges;
+
+	private final List<QueueMetrics.Snapshot> queues;
+
+	MetricsSnapshot(long timestamp, long periodMillis, List<ExchangeMetrics.Snapshot> exchanges, List<QueueMetrics.Snapshot> queues) {
+		this.timestamp = timestamp;
+		this.periodMillis = periodMillis;
+		this.exchanges = Collections.unmodifiableList(exchanges);
+		this.queues = Collections.unmodifiableList(queues);
+	}
+
+	/**
+	 * 周期结束时刻（System.currentTimeMillis）
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public long getPeriodMillis() {
+		return periodMillis;
+	}
+
+	public List<ExchangeMetrics.Snapshot> getExchanges() {
+		return exchanges;
+	}
+
+	public List<QueueMetrics.Snapshot> getQueues() {
+		return queues;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("metrics (" + periodMillis + "ms)");
+		for (ExchangeMetrics.Snapshot exchange : exchanges) {
+			sb.append("\n  ").append(exchange);
+		}
+		for (QueueMetrics.Snapshot queue : queues) {
+			sb.append("\n  ").append(queue);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,240 @@
+package com.sf.wdx.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：一个队列的消费端指标：投递和重新投递条数、handleDelivery处理耗时、ack延迟（投递到basicAck）、预取窗口占用
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class QueueMetrics implements QueueMetricsMXBean {
+
+	private final String name;
+
+	final LongAdder delivered = new LongAdder();
+
+	final LongAdder redelivered = new LongAdder();
+
+	final LongAdder acked = new LongAdder();
+
+	final LongAdder rejected = new LongAdder();
+
+	final LongAdder unacked = new LongAdder();
+
+	final LatencyHistogram serviceTime = new LatencyHistogram();
+
+	final LatencyHistogram ackLatency = new LatencyHistogram();
+
+	/**
+	 * 每次投递时通道上的未确认消息数
+	 */
+	final LatencyHistogram occupancy = new LatencyHistogram();
+
+	/**
+	 * 经InstrumentedChannel订阅的消费者数
+	 */
+	final AtomicInteger consumers = new AtomicInteger();
+
+	/**
+	 * 声明为auto-delete或exclusive：最后一个消费者取消（或连接关闭）后队列随之删除，指标一起移除
+	 */
+	volatile boolean temporary;
+
+	private volatile Snapshot last;
+
+	private Snapshot previous;
+
+	QueueMetrics(String name) {
+		this.name = name;
+		this.previous = new Snapshot(name, 0, 0, 0, 0, 0, HistogramSnapshot.EMPTY, HistogramSnapshot.EMPTY, HistogramSnapshot.EMPTY, 0);
+		this.last = previous;
+	}
+
+	synchronized Snapshot roll(long periodNanos) {
+		Snapshot current = new Snapshot(name, delivered.sum(), redelivered.sum(), acked.sum(), rejected.sum(), unacked.sum(), serviceTime.snapshot(),
+				ackLatency.snapshot(), occupancy.snapshot(), 0);
+		Snapshot interval = current.minus(previous, periodNanos);
+		previous = current;
+		last = interval;
+		return interval;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getDelivered() {
+		return delivered.sum();
+	}
+
+	@Override
+	public long getRedelivered() {
+		return redelivered.sum();
+	}
+
+	@Override
+	public long getAcked() {
+		return acked.sum();
+	}
+
+	@Override
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	@Override
+	public long getUnacked() {
+		return unacked.sum();
+	}
+
+	@Override
+	public double getDeliveryRate() {
+		return last.getDeliveryRate();
+	}
+
+	@Override
+	public double getServiceTimeP50Micros() {
+		return ExchangeMetrics.micros(last.serviceTime.getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getServiceTimeP99Micros() {
+		return ExchangeMetrics.micros(last.serviceTime.getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getServiceTimeMaxMicros() {
+		return ExchangeMetrics.micros(last.serviceTime.getMax());
+	}
+
+	@Override
+	public double getAckLatencyP50Micros() {
+		return ExchangeMetrics.micros(last.ackLatency.getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getAckLatencyP99Micros() {
+		return ExchangeMetrics.micros(last.ackLatency.getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getAckLatencyMaxMicros() {
+		return ExchangeMetrics.micros(last.ackLatency.getMax());
+	}
+
+	@Override
+	public long getPrefetchOccupancyP50() {
+		return last.occupancy.getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getPrefetchOccupancyMax() {
+		return last.occupancy.getMax();
+	}
+
+	/**
+	 * 描述：队列指标快照（区间快照中计数为区间增量，unacked为快照时刻的值）
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static final class Snapshot {
+
+		private final String name;
+
+		private final long delivered;
+
+		private final long redelivered;
+
+		private final long acked;
+
+		private final long rejected;
+
+		private final long unacked;
+
+		private final HistogramSnapshot serviceTime;
+
+		private final HistogramSnapshot ackLatency;
+
+		private final HistogramSnapshot occupancy;
+
+		private final long periodNanos;
+
+		Snapshot(String name, long delivered, long redelivered, long acked, long rejected, long unacked, HistogramSnapshot serviceTime,
+				HistogramSnapshot ackLatency, HistogramSnapshot occupancy, long periodNanos) {
+			this.name = name;
+			this.delivered = delivered;
+			this.redelivered = redelivered;
+			this.acked = acked;
+			this.rejected = rejected;
+			this.unacked = unacked;
+			this.serviceTime = serviceTime;
+			this.ackLatency = ackLatency;
+			this.occupancy = occupancy;
+			this.periodNanos = periodNanos;
+		}
+
+		Snapshot minus(Snapshot earlier, long periodNanos) {
+			return new Snapshot(name, delivered - earlier.delivered, redelivered - earlier.redelivered, acked - earlier.acked,
+					rejected - earlier.rejected, unacked, serviceTime.minus(earlier.serviceTime), ackLatency.minus(earlier.ackLatency),
+					occupancy.minus(earlier.occupancy), periodNanos);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getDelivered() {
+			return delivered;
+		}
+
+		public long getRedelivered() {
+			return redelivered;
+		}
+
+		public long getAcked() {
+			return acked;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public long getUnacked() {
+			return unacked;
+		}
+
+		/**
+		 * handleDelivery耗时，单位纳秒
+		 */
+		public HistogramSnapshot getServiceTime() {
+			return serviceTime;
+		}
+
+		/**
+		 * 投递到确认的延迟，单位纳秒
+		 */
+		public HistogramSnapshot getAckLatency() {
+			return ackLatency;
+		}
+
+		/**
+		 * 投递时通道上的未确认消息数
+		 */
+		public HistogramSnapshot getOccupancy() {
+			return occupancy;
+		}
+
+		public double getDeliveryRate() {
+			return periodNanos <= 0 ? 0 : delivered * 1e9 / periodNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("queue %s: delivered=%d (%.0f/s) redelivered=%d acked=%d rejected=%d unacked=%d service[%s] ack[%s] occupancy[%s]", name,
+					delivered, getDeliveryRate(), redelivered, acked, rejected, unacked, serviceTime.toLatencyString(), ackLatency.toLatencyString(), occupancy);
+		}
+	}
+}
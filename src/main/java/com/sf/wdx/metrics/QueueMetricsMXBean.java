@@ -0,0 +1,50 @@
+package com.sf.wdx.metrics;
+
+/**
+ * 描述：队列（消费端）指标的JMX视图
+ * 		计数为累计值；延迟和预取占用为最近一个统计周期内的分布，延迟单位微秒。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public interface QueueMetricsMXBean {
+
+	String getName();
+
+	long getDelivered();
+
+	long getRedelivered();
+
+	long getAcked();
+
+	long getRejected();
+
+	/**
+	 * 当前已投递未确认的消息数（所有消费通道之和）
+	 */
+	long getUnacked();
+
+	/**
+	 * 最近一个周期的投递速率（条/秒）
+	 */
+	double getDeliveryRate();
+
+	double getServiceTimeP50Micros();
+
+	double getServiceTimeP99Micros();
+
+	double getServiceTimeMaxMicros();
+
+	double getAckLatencyP50Micros();
+
+	double getAckLatencyP99Micros();
+
+	double getAckLatencyMaxMicros();
+
+	/**
+	 * 投递时通道上未确认消息数的P50/最大值（与prefetch比较即预取窗口占用）
+	 */
+	long getPrefetchOccupancyP50();
+
+	long getPrefetchOccupancyMax();
+
+}
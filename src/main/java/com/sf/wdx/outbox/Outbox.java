@@ -0,0 +1,318 @@
+package com.sf.wdx.outbox;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.sf.wdx.publisher.ConfirmPublisher;
+
+/**
+ * 描述：发件箱模式发送
+ * 		publish只把消息追加到本地OutboxJournal（内存映射文件，微秒级），不等待、也不依赖broker；
+ * 		后台转发线程按日志顺序用publisher confirm发给broker，确认的序号写入checkpoint，全部确认的分段被删除。
+ * 		broker不可用或通道关闭时转发线程按指数退避重连，从第一条未确认的消息开始重发；进程重启后继续转发上次剩下的消息。
+ * 		投递语义是至少一次：重连或重启前已发出但确认没回来的消息会重复，消费端需要幂等。
+ * 		转发使用自己独占的连接，不与ChannelManager共享。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Outbox implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Outbox.class);
+
+	public static final int DEFAULT_WINDOW = 1024;
+
+	/**
+	 * close()等待转发完的时间
+	 */
+	public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * 中断转发线程后等它退出的时间，超过后abort连接再等一次
+	 */
+	private static final long STOP_GRACE_MILLIS = 1000;
+
+	private static final long MIN_BACKOFF_MILLIS = 100;
+
+	private static final long MAX_BACKOFF_MILLIS = 10000;
+
+	/**
+	 * 转发线程空闲时的最长休眠时间（publish会立即唤醒它）
+	 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final OutboxJournal journal;
+
+	private final ConnectionFactory factory;
+
+	private final int window;
+
+	private final Thread forwarder;
+
+	/**
+	 * 已发出未确认的日志序号
+	 */
+	private final ConcurrentSkipListSet<Long> inflight = new ConcurrentSkipListSet<Long>();
+
+	/**
+	 * 确认进度推进时通知awaitForwarded
+	 */
+	private final Object progress = new Object();
+
+	private final LongAdder forwarded = new LongAdder();
+
+	private final LongAdder connects = new LongAdder();
+
+	/**
+	 * 以下字段只由转发线程修改
+	 */
+	private volatile Connection connection;
+
+	private volatile ConfirmPublisher publisher;
+
+	private long lastSent;
+
+	/**
+	 * 当前通道上的发送失败（nack或通道关闭），转发线程看到后重连
+	 */
+	private volatile Throwable broken;
+
+	private volatile boolean parked;
+
+	private volatile boolean closed;
+
+	public Outbox(OutboxJournal journal, ConnectionFactory factory) {
+		this(journal, factory, DEFAULT_WINDOW);
+	}
+
+	/**
+	 *	@Param  @param journal		本地日志（由Outbox关闭）
+	 *	@Param  @param factory		转发用的连接工厂
+	 *	@Param  @param window		同时等待broker确认的消息数上限
+	 */
+	public Outbox(OutboxJournal journal, ConnectionFactory factory, int window) {
+		this.journal = journal;
+		this.factory = factory;
+		this.window = window;
+		this.lastSent = journal.getConfirmedSeq();
+		this.forwarder = new Thread(this::run, "outbox-forwarder-" + journal.getDir().getName());
+		this.forwarder.setDaemon(true);
+		this.forwarder.start();
+	}
+
+	/**
+	 * 写入发件箱（不访问broker）
+	 *	@ReturnType	long	消息在日志中的序号，可用于awaitForwarded
+	 *	@Date	2026年10月17日	下午11:42:10
+	 *  @Param  @param exchange
+	 *  @Param  @param routingKey
+	 *  @Param  @param props
+	 *  @Param  @param body
+	 *  @Param  @return
+	 *  @Param  @throws IOException		日志已满（OutboxFullException）或已关闭
+	 */
+	public long publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) throws IOException {
+		long seq = journal.append(exchange, routingKey, props, body);
+		if (parked) {
+			LockSupport.unpark(forwarder);
+		}
+		return seq;
+	}
+
+	/**
+	 * 等待序号不大于seq的消息全部被broker确认
+	 *	@ReturnType	boolean		超时返回false
+	 *	@Date	2026年10月17日	下午11:44:51
+	 */
+	public boolean awaitForwarded(long seq, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (progress) {
+			while (journal.getConfirmedSeq() < seq) {
+				long millis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (millis <= 0) {
+					return false;
+				}
+				progress.wait(millis);
+			}
+		}
+		return true;
+	}
+
+	private void run() {
+		long backoff = MIN_BACKOFF_MILLIS;
+		while (!closed) {
+			try {
+				// 1.没有通道时连接broker
+				if (publisher == null) {
+					connect();
+					backoff = MIN_BACKOFF_MILLIS;
+				}
+				// 2.推进确认进度，删除已确认的分段
+				advance();
+				Throwable failure = broken;
+				if (failure != null) {
+					throw new IOException("forwarding failed: " + failure.getMessage(), failure);
+				}
+				// 3.取下一条发出，没有新消息时休眠
+				OutboxJournal.Entry entry = journal.next();
+				if (entry == null) {
+					parked = true;
+					if (journal.getLastSeq() <= lastSent) {
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					}
+					parked = false;
+					continue;
+				}
+				send(entry);
+			} catch (InterruptedException e) {
+				break;
+			} catch (Exception e) {
+				// 4.断开重连，从第一条未确认的消息重发
+				if (closed) {
+					break;
+				}
+				LOG.warn("outbox forwarder failed, retry in {}ms", backoff, e);
+				disconnect();
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+				backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+			}
+		}
+		disconnect();
+	}
+
+	private void connect() throws Exception {
+		connection = factory.newConnection();
+		publisher = new ConfirmPublisher(connection.createChannel(), window);
+		broken = null;
+		inflight.clear();
+		lastSent = journal.getConfirmedSeq();
+		journal.rewind(lastSent + 1);
+		connects.increment();
+	}
+
+	private void send(OutboxJournal.Entry entry) throws IOException, InterruptedException {
+		final ConfirmPublisher current = publisher;
+		final long seq = entry.getSeq();
+		inflight.add(seq);
+		lastSent = seq;
+		current.publish(entry.getExchange(), entry.getRoutingKey(), entry.getProps(), entry.getBody()).whenComplete((v, e) -> {
+			if (e == null) {
+				inflight.remove(seq);
+				forwarded.increment();
+				if (parked) {
+					LockSupport.unpark(forwarder);
+				}
+			} else if (current == publisher) {
+				// 旧通道关闭引起的失败不影响新通道
+				broken = e;
+				LockSupport.unpark(forwarder);
+			}
+		});
+	}
+
+	/**
+	 * 第一条未确认消息之前的都已确认
+	 */
+	private void advance() {
+		Iterator<Long> it = inflight.iterator();
+		long confirmed = it.hasNext() ? it.next() - 1 : lastSent;
+		if (confirmed > journal.getConfirmedSeq()) {
+			journal.confirm(confirmed);
+			synchronized (progress) {
+				progress.notifyAll();
+			}
+		}
+	}
+
+	private void disconnect() {
+		ConfirmPublisher current = publisher;
+		publisher = null;
+		if (current != null) {
+			current.close();
+		}
+		Connection open = connection;
+		if (open != null) {
+			open.abort();
+			connection = null;
+		}
+	}
+
+	/**
+	 * 尚未被broker确认的消息数
+	 */
+	public long getPending() {
+		return journal.getPending();
+	}
+
+	/**
+	 * 已被broker确认的消息数（重发的消息重复计数）
+	 */
+	public long getForwarded() {
+		return forwarded.sum();
+	}
+
+	/**
+	 * 建立连接的次数（含第一次）
+	 */
+	public long getConnects() {
+		return connects.sum();
+	}
+
+	public boolean isConnected() {
+		return publisher != null;
+	}
+
+	public OutboxJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * 最多等待timeout让已写入的消息转发完，然后停止转发、记下最后收到的确认并关闭日志；没转发完的消息下次启动时继续转发
+	 * 		转发线程卡在连接或写socket上时abort连接；仍不退出则不关闭日志（它还在读映射的分段），留给进程退出处理。
+	 *	@ReturnType	boolean		全部转发完返回true
+	 *	@Date	2026年10月17日	下午11:50:32
+	 */
+	public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+		boolean drained = awaitForwarded(journal.getLastSeq(), timeout, unit);
+		closed = true;
+		// 1.转发线程可能正等在确认窗口上
+		forwarder.interrupt();
+		forwarder.join(STOP_GRACE_MILLIS);
+		if (forwarder.isAlive()) {
+			Connection open = connection;
+			if (open != null) {
+				open.abort();
+			}
+			forwarder.join(STOP_GRACE_MILLIS);
+		}
+		if (forwarder.isAlive()) {
+			LOG.warn("{} did not stop, leaving journal {} open", forwarder.getName(), journal.getDir());
+			return false;
+		}
+		// 2.转发线程退出前收到的确认写入checkpoint，下次启动不再重发
+		advance();
+		journal.close();
+		return drained;
+	}
+
+	/**
+	 * 最多等待DEFAULT_CLOSE_TIMEOUT_MILLIS让已写入的消息转发完，被中断时恢复中断标志后返回
+	 */
+	@Override
+	public void close() {
+		try {
+			close(DEFAULT_CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
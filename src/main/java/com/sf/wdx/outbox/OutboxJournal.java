@@ -0,0 +1,621 @@
+package com.sf.wdx.outbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+
+/**
+ * 描述：本地发件箱日志，消息先追加到磁盘上分段的内存映射文件，再由Outbox的转发线程发给broker
+ * 		每个分段文件以第一条消息的序号命名（%020d.seg），写满后封存并新建下一段；
+ * 		记录格式：[长度][CRC32][序号][exchange][routingKey][properties（AMQP线上编码）][body]，文件其余部分为0。
+ * 		checkpoint文件保存已被broker确认的最大序号，全部确认的封存分段直接删除。
+ * 		重启时逐条校验CRC恢复写入位置（末尾写了一半的记录被丢弃），从checkpoint之后开始重放；
+ * 		确认前重启的消息会再发一次（至少一次），消费端需要幂等。
+ * 		刷盘策略：NONE交给操作系统（进程崩溃不丢，机器掉电可能丢最近的数据），INTERVAL定时force，ALWAYS每条force。
+ * 		append可多线程并发调用；next、rewind、confirm只由一个转发线程调用。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class OutboxJournal implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OutboxJournal.class);
+
+	/**
+	 * 刷盘策略
+	 */
+	public enum Fsync {
+		/**
+		 * 不主动刷盘，由操作系统回写
+		 */
+		NONE,
+		/**
+		 * 每隔fsyncIntervalMillis刷一次盘
+		 */
+		INTERVAL,
+		/**
+		 * 每条消息追加后立即刷盘（最慢）
+		 */
+		ALWAYS
+	}
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+	public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 100;
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	private static final String CHECKPOINT_FILE = "checkpoint";
+
+	/**
+	 * 记录头：长度 + CRC32
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	private final File dir;
+
+	private final int segmentSize;
+
+	private final long maxBytes;
+
+	private final Fsync fsync;
+
+	/**
+	 * 所有未删除的分段：第一条消息的序号 -> 分段
+	 */
+	private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<Long, Segment>();
+
+	private final AtomicLong totalBytes = new AtomicLong();
+
+	private final Object writeLock = new Object();
+
+	/**
+	 * 刷盘和释放映射互斥（不能force一个已经释放的映射），不阻塞append
+	 */
+	private final Object syncLock = new Object();
+
+	private final MappedByteBuffer checkpoint;
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * 当前写入的分段（writeLock保护）
+	 */
+	private Segment active;
+
+	private volatile long nextSeq;
+
+	private volatile long confirmedSeq;
+
+	/**
+	 * 读游标（只由转发线程使用）
+	 */
+	private Segment readSegment;
+
+	private int readPos;
+
+	private long readFrom;
+
+	private volatile boolean closed;
+
+	public OutboxJournal(File dir) throws IOException {
+		this(dir, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_BYTES, Fsync.INTERVAL, DEFAULT_FSYNC_INTERVAL_MILLIS);
+	}
+
+	/**
+	 *	@Param  @param dir					日志目录（不存在时创建，同一时刻只能被一个进程打开）
+	 *	@Param  @param segmentSize			分段文件大小（超过它的单条消息独占一个更大的分段）
+	 *	@Param  @param maxBytes				所有分段的总大小上限，超过时append抛出OutboxFullException
+	 *	@Param  @param fsync				刷盘策略
+	 *	@Param  @param fsyncIntervalMillis	INTERVAL策略的刷盘间隔
+	 */
+	public OutboxJournal(File dir, int segmentSize, long maxBytes, Fsync fsync, long fsyncIntervalMillis) throws IOException {
+		if (segmentSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+		}
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("cannot create outbox directory " + dir);
+		}
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		this.maxBytes = maxBytes;
+		this.fsync = fsync;
+		// 1.读取checkpoint
+		this.checkpoint = map(new File(dir, CHECKPOINT_FILE), 8);
+		this.confirmedSeq = checkpoint.getLong(0);
+		// 2.按序号顺序恢复所有分段
+		recover();
+		this.readFrom = confirmedSeq + 1;
+		// 3.定时刷盘
+		if (fsync == Fsync.INTERVAL) {
+			this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+				Thread thread = new Thread(r, "outbox-fsync-" + dir.getName());
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.timer.scheduleWithFixedDelay(this::sync, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			this.timer = null;
+		}
+	}
+
+	private void recover() throws IOException {
+		File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+		Arrays.sort(files);
+		long lastSeq = confirmedSeq;
+		Segment last = null;
+		for (File file : files) {
+			long baseSeq = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+			Segment segment = new Segment(baseSeq, file, map(file, (int) file.length()));
+			boolean clean = segment.scan();
+			segment.sealed = true;
+			segments.put(baseSeq, segment);
+			totalBytes.addAndGet(segment.buffer.capacity());
+			lastSeq = Math.max(lastSeq, segment.lastSeq);
+			last = segment;
+			if (!clean) {
+				LOG.warn("outbox segment {} truncated at {} (torn write)", file.getName(), segment.limit);
+			}
+		}
+		nextSeq = lastSeq + 1;
+		// 最后一段完好时继续往里写，有残缺记录时封存，新消息写到新分段
+		if (last != null && last.limit < last.buffer.capacity() && last.clean) {
+			last.sealed = false;
+			active = last;
+		}
+		truncate();
+	}
+
+	/**
+	 * 追加一条消息
+	 *	@ReturnType	long	消息在日志中的序号
+	 *	@Date	2026年10月17日	下午11:20:36
+	 *  @Param  @param exchange
+	 *  @Param  @param routingKey
+	 *  @Param  @param props
+	 *  @Param  @param body
+	 *  @Param  @return
+	 *  @Param  @throws IOException		磁盘空间或maxBytes用尽
+	 */
+	public long append(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) throws IOException {
+		byte[] exchangeBytes = exchange.getBytes(StandardCharsets.UTF_8);
+		byte[] routingKeyBytes = routingKey.getBytes(StandardCharsets.UTF_8);
+		// properties使用AMQP的content header编码（去掉开头2字节的classId），headers等字段原样保留
+		byte[] propsBytes = props == null ? null : props.toFrame(0, body.length).getPayload();
+		int propsLength = propsBytes == null ? 0 : propsBytes.length - 2;
+		int length = 8 + 2 + exchangeBytes.length + 2 + routingKeyBytes.length + 4 + propsLength + 4 + body.length;
+		synchronized (writeLock) {
+			if (closed) {
+				throw new IOException("outbox journal closed");
+			}
+			// 1.当前分段放不下时封存，新建分段
+			Segment segment = active;
+			if (segment == null || segment.limit + HEADER_SIZE + length > segment.buffer.capacity()) {
+				segment = roll(HEADER_SIZE + length);
+			}
+			// 2.写记录体，计算CRC后写头部
+			long seq = nextSeq;
+			int pos = segment.limit;
+			ByteBuffer buffer = segment.buffer.duplicate();
+			buffer.position(pos + HEADER_SIZE);
+			buffer.putLong(seq);
+			buffer.putShort((short) exchangeBytes.length).put(exchangeBytes);
+			buffer.putShort((short) routingKeyBytes.length).put(routingKeyBytes);
+			buffer.putInt(propsBytes == null ? -1 : propsLength);
+			if (propsBytes != null) {
+				buffer.put(propsBytes, 2, propsLength);
+			}
+			buffer.putInt(body.length).put(body);
+			buffer.putInt(pos + 4, crc(segment.buffer, pos + HEADER_SIZE, length));
+			buffer.putInt(pos, length);
+			// 3.发布写入位置（转发线程只读到limit为止）
+			segment.lastSeq = seq;
+			nextSeq = seq + 1;
+			segment.limit = pos + HEADER_SIZE + length;
+			if (fsync == Fsync.ALWAYS) {
+				segment.buffer.force();
+			}
+			return seq;
+		}
+	}
+
+	private Segment roll(int recordSize) throws IOException {
+		int size = Math.max(segmentSize, recordSize);
+		if (totalBytes.get() + size > maxBytes) {
+			throw new OutboxFullException(totalBytes.get(), maxBytes);
+		}
+		if (active != null) {
+			// 封存的分段由刷盘线程补刷，不在写锁内force
+			active.sealed = true;
+		}
+		File file = new File(dir, String.format("%020d", nextSeq) + SEGMENT_SUFFIX);
+		Segment segment = new Segment(nextSeq, file, map(file, size));
+		totalBytes.addAndGet(size);
+		segments.put(segment.baseSeq, segment);
+		active = segment;
+		return segment;
+	}
+
+	/**
+	 * 读取下一条待转发的消息（转发线程调用）
+	 *	@ReturnType	Entry	没有新消息时返回null
+	 *	@Date	2026年10月17日	下午11:24:02
+	 */
+	Entry next() throws IOException {
+		while (true) {
+			Segment segment = readSegment;
+			if (segment == null) {
+				Map.Entry<Long, Segment> first = segments.firstEntry();
+				if (first == null) {
+					return null;
+				}
+				segment = readSegment = first.getValue();
+				readPos = 0;
+			}
+			// 先读sealed再读limit：封存后limit不再变化
+			boolean sealed = segment.sealed;
+			if (readPos < segment.limit) {
+				Entry entry = segment.read(readPos);
+				readPos += HEADER_SIZE + segment.buffer.getInt(readPos);
+				if (entry.seq >= readFrom) {
+					return entry;
+				}
+				continue;
+			}
+			if (!sealed) {
+				return null;
+			}
+			Map.Entry<Long, Segment> following = segments.higherEntry(segment.baseSeq);
+			if (following == null) {
+				return null;
+			}
+			readSegment = following.getValue();
+			readPos = 0;
+		}
+	}
+
+	/**
+	 * 把读游标退回到seq（重连后从第一条未确认的消息重发，转发线程调用）
+	 */
+	void rewind(long seq) {
+		Map.Entry<Long, Segment> floor = segments.floorEntry(seq);
+		if (floor == null) {
+			floor = segments.firstEntry();
+		}
+		readSegment = floor == null ? null : floor.getValue();
+		readPos = 0;
+		readFrom = seq;
+	}
+
+	/**
+	 * 记录broker已确认到seq（含），删除全部确认的封存分段（转发线程调用）
+	 */
+	void confirm(long seq) {
+		if (seq <= confirmedSeq) {
+			return;
+		}
+		confirmedSeq = seq;
+		checkpoint.putLong(0, seq);
+		if (fsync == Fsync.ALWAYS) {
+			checkpoint.force();
+		}
+		truncate();
+	}
+
+	private void truncate() {
+		Map.Entry<Long, Segment> first;
+		while ((first = segments.firstEntry()) != null) {
+			Segment segment = first.getValue();
+			// 读游标所在的分段等游标离开后再删
+			if (!segment.sealed || segment.lastSeq > confirmedSeq || segment == readSegment) {
+				return;
+			}
+			segments.remove(first.getKey());
+			totalBytes.addAndGet(-segment.buffer.capacity());
+			synchronized (syncLock) {
+				unmap(segment.buffer);
+			}
+			if (!segment.file.delete()) {
+				LOG.warn("cannot delete outbox segment {}", segment.file);
+			}
+		}
+	}
+
+	/**
+	 * 把未封存的分段、还没刷过的封存分段和checkpoint刷到磁盘
+	 */
+	public void sync() {
+		synchronized (syncLock) {
+			if (closed) {
+				return;
+			}
+			for (Segment segment : segments.values()) {
+				// 先读sealed：封存之后的force覆盖了全部内容
+				boolean sealed = segment.sealed;
+				if (!segment.forced) {
+					segment.buffer.force();
+					segment.forced = sealed;
+				}
+			}
+			checkpoint.force();
+		}
+	}
+
+	/**
+	 * 最后一条追加的消息序号
+	 */
+	public long getLastSeq() {
+		return nextSeq - 1;
+	}
+
+	/**
+	 * broker已确认的最大序号
+	 */
+	public long getConfirmedSeq() {
+		return confirmedSeq;
+	}
+
+	/**
+	 * 尚未被broker确认的消息数
+	 */
+	public long getPending() {
+		return nextSeq - 1 - confirmedSeq;
+	}
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * 所有分段文件的总大小（字节）
+	 */
+	public long getSize() {
+		return totalBytes.get();
+	}
+
+	public File getDir() {
+		return dir;
+	}
+
+	/**
+	 * 刷盘并释放内存映射，调用前转发线程必须已经停止
+	 */
+	@Override
+	public void close() {
+		if (timer != null) {
+			timer.shutdownNow();
+		}
+		synchronized (writeLock) {
+			synchronized (syncLock) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				for (Segment segment : segments.values()) {
+					if (fsync != Fsync.NONE) {
+						segment.buffer.force();
+					}
+					unmap(segment.buffer);
+				}
+				segments.clear();
+				checkpoint.force();
+				unmap(checkpoint);
+				active = null;
+				readSegment = null;
+			}
+		}
+	}
+
+	private static MappedByteBuffer map(File file, int size) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			if (raf.length() < size) {
+				raf.setLength(size);
+			}
+			// 关闭文件后映射仍然有效
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	private static int crc(MappedByteBuffer buffer, int offset, int length) {
+		ByteBuffer region = buffer.duplicate();
+		region.position(offset).limit(offset + length);
+		CRC32 crc = new CRC32();
+		crc.update(region);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * 立即释放映射（否则要等GC，Windows上映射未释放的文件删不掉），失败时退回等GC
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			try {
+				// JDK 9+
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				// JDK 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (Exception | LinkageError e) {
+			// 留给GC
+		}
+	}
+
+	/**
+	 * 描述：一个分段文件，limit之前是完整的记录
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Segment {
+
+		final long baseSeq;
+
+		final File file;
+
+		final MappedByteBuffer buffer;
+
+		volatile int limit;
+
+		volatile boolean sealed;
+
+		/**
+		 * 分段里最后一条消息的序号，空分段为baseSeq - 1
+		 */
+		volatile long lastSeq;
+
+		/**
+		 * 封存后是否已经刷过盘（刷盘线程使用）
+		 */
+		boolean forced;
+
+		/**
+		 * 恢复时是否读到了干净的结尾（0或文件末尾）
+		 */
+		boolean clean = true;
+
+		Segment(long baseSeq, File file, MappedByteBuffer buffer) {
+			this.baseSeq = baseSeq;
+			this.file = file;
+			this.buffer = buffer;
+			this.lastSeq = baseSeq - 1;
+		}
+
+		/**
+		 * 从头校验记录，确定limit和lastSeq
+		 *	@ReturnType	boolean		false表示遇到了残缺的记录
+		 */
+		boolean scan() {
+			int pos = 0;
+			int capacity = buffer.capacity();
+			while (pos + HEADER_SIZE <= capacity) {
+				int length = buffer.getInt(pos);
+				if (length == 0) {
+					break;
+				}
+				if (length < 8 || pos + HEADER_SIZE + length > capacity
+						|| buffer.getInt(pos + 4) != crc(buffer, pos + HEADER_SIZE, length)) {
+					clean = false;
+					break;
+				}
+				lastSeq = buffer.getLong(pos + HEADER_SIZE);
+				pos += HEADER_SIZE + length;
+			}
+			limit = pos;
+			return clean;
+		}
+
+		Entry read(int pos) throws IOException {
+			ByteBuffer in = buffer.duplicate();
+			in.position(pos + HEADER_SIZE);
+			long seq = in.getLong();
+			String exchange = readString(in);
+			String routingKey = readString(in);
+			int propsLength = in.getInt();
+			AMQP.BasicProperties props = null;
+			if (propsLength >= 0) {
+				byte[] propsBytes = new byte[propsLength];
+				in.get(propsBytes);
+				props = new AMQP.BasicProperties(new DataInputStream(new ByteArrayInputStream(propsBytes)));
+			}
+			byte[] body = new byte[in.getInt()];
+			in.get(body);
+			return new Entry(seq, exchange, routingKey, props, body);
+		}
+
+		private static String readString(ByteBuffer in) {
+			byte[] bytes = new byte[in.getShort() & 0xFFFF];
+			in.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * 描述：日志中的一条消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static final class Entry {
+
+		private final long seq;
+
+		private final String exchange;
+
+		private final String routingKey;
+
+		private final AMQP.BasicProperties props;
+
+		private final byte[] body;
+
+		Entry(long seq, String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+			this.seq = seq;
+			this.exchange = exchange;
+			this.routingKey = routingKey;
+			this.props = props;
+			this.body = body;
+		}
+
+		public long getSeq() {
+			return seq;
+		}
+
+		public String getExchange() {
+			return exchange;
+		}
+
+		public String getRoutingKey() {
+			return routingKey;
+		}
+
+		public AMQP.BasicProperties getProps() {
+			return props;
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+	}
+
+	/**
+	 * 描述：日志总大小达到上限（broker长时间不可用），消息没有写入
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static class OutboxFullException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		public OutboxFullException(long size, long maxBytes) {
+			super("outbox full: " + size + " of " + maxBytes + " bytes in use");
+		}
+	}
+}
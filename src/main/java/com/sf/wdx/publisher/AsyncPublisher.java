@@ -0,0 +1,440 @@
+package com.sf.wdx.publisher;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BlockedListener;
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.util.RingQueue;
+
+/**
+ * 描述：非阻塞发送，调用线程只把消息放进有界无锁队列，由专用I/O线程按批取出并调用basicPublish
+ * 		publish立即返回CompletableFuture：开启confirm时在broker确认后完成，否则在写出后完成。
+ * 		队列满时按Backpressure处理：BLOCK等待空位，FAIL立即以OverflowException失败，DROP_OLDEST丢弃最早的一条。
+ * 		broker发出connection.blocked（内存/磁盘告警）后I/O线程暂停写出，消息留在队列里，直到connection.unblocked；
+ * 		这期间FAIL模式的新消息立即失败，其余模式继续排队，队列满后按各自的策略处理。
+ * 		通道由本类独占（只有I/O线程使用）；future在I/O线程或连接线程中完成，回调里不要做耗时操作。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class AsyncPublisher implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncPublisher.class);
+
+	/**
+	 * 队列满（或连接被broker阻塞）时的处理方式
+	 */
+	public enum Backpressure {
+		/**
+		 * 调用线程等待队列出现空位
+		 */
+		BLOCK,
+		/**
+		 * 立即失败，连接被阻塞时也立即失败
+		 */
+		FAIL,
+		/**
+		 * 丢弃队列中最早的一条（它的future以OverflowException失败），新消息入队
+		 */
+		DROP_OLDEST
+	}
+
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	/**
+	 * I/O线程空闲时的最长休眠时间（有新消息时会被立即唤醒）
+	 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * close超时后中断I/O线程，再等这么久仍未退出就abort通道
+	 */
+	private static final long ABORT_GRACE_MILLIS = 1000;
+
+	private final Channel channel;
+
+	/**
+	 * 开启confirm时由它跟踪序号，否则为null
+	 */
+	private final ConfirmPublisher confirms;
+
+	private final RingQueue<Pending> queue;
+
+	private final Backpressure backpressure;
+
+	private final int batchSize;
+
+	private final Thread ioThread;
+
+	private final BlockedListener blockedListener = new BlockedListener() {
+		@Override
+		public void handleBlocked(String reason) {
+			blockedReason = reason == null ? "" : reason;
+		}
+
+		@Override
+		public void handleUnblocked() {
+			blockedReason = null;
+			LockSupport.unpark(ioThread);
+		}
+	};
+
+	/**
+	 * BLOCK模式下等待空位的调用线程在此等待，waiters为等待的线程数
+	 */
+	private final Object space = new Object();
+
+	private volatile int waiters;
+
+	private volatile String blockedReason;
+
+	private volatile boolean parked;
+
+	private volatile boolean closed;
+
+	private volatile boolean terminated;
+
+	private final LongAdder published = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	public AsyncPublisher(Channel channel, Backpressure backpressure) throws IOException {
+		this(channel, DEFAULT_CAPACITY, backpressure, true);
+	}
+
+	/**
+	 *	@Param  @param channel			发送用的通道（由本类独占）
+	 *	@Param  @param capacity			队列容量（向上取整到2的幂）
+	 *	@Param  @param backpressure		队列满时的处理方式
+	 *	@Param  @param confirm			是否开启publisher confirm（future在broker确认后完成）
+	 */
+	public AsyncPublisher(Channel channel, int capacity, Backpressure backpressure, boolean confirm) throws IOException {
+		this.channel = channel;
+		this.queue = new RingQueue<Pending>(capacity);
+		this.backpressure = backpressure;
+		this.batchSize = Math.min(DEFAULT_BATCH_SIZE, queue.capacity());
+		// confirm窗口与队列一样大：broker确认变慢时I/O线程停在窗口上，消息积压在队列里，由backpressure处理
+		this.confirms = confirm ? new ConfirmPublisher(channel, queue.capacity()) : null;
+		this.ioThread = new Thread(this::run, "async-publisher-" + channel.getChannelNumber());
+		this.ioThread.setDaemon(true);
+		channel.getConnection().addBlockedListener(blockedListener);
+		this.ioThread.start();
+	}
+
+	/**
+	 * 发送消息（不阻塞，BLOCK模式队列满时除外）
+	 *	@ReturnType	CompletableFuture<Void>		写出（或broker确认）后正常完成；被拒绝、丢弃、nack、通道关闭时异常完成
+	 *	@Date	2026年10月17日	下午9:40:12
+	 *  @Param  @param exchange
+	 *  @Param  @param routingKey
+	 *  @Param  @param props
+	 *  @Param  @param body
+	 *  @Param  @return
+	 */
+	public CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+		Pending pending = new Pending(exchange, routingKey, props, body);
+		if (closed) {
+			return reject(pending, "publisher closed");
+		}
+		// 1.连接被阻塞时FAIL模式直接失败，不再往队列里积压
+		String reason = blockedReason;
+		if (reason != null && backpressure == Backpressure.FAIL) {
+			return reject(pending, "connection blocked by broker: " + reason);
+		}
+		// 2.入队，满时按策略处理
+		if (!queue.offer(pending) && !overflow(pending)) {
+			return pending.future;
+		}
+		// 3.唤醒I/O线程
+		if (parked) {
+			LockSupport.unpark(ioThread);
+		}
+		if (terminated) {
+			// I/O线程已退出，入队的消息不会再被发送
+			failQueued("publisher closed");
+		}
+		return pending.future;
+	}
+
+	/**
+	 * 队列满时按策略处理
+	 *	@ReturnType	boolean		是否已入队
+	 */
+	private boolean overflow(Pending pending) {
+		switch (backpressure) {
+		case DROP_OLDEST:
+			while (!queue.offer(pending)) {
+				Pending oldest = queue.poll();
+				if (oldest != null) {
+					dropped.increment();
+					oldest.future.completeExceptionally(new OverflowException("dropped: queue full (" + queue.capacity() + ")"));
+				}
+			}
+			return true;
+		case BLOCK:
+			synchronized (space) {
+				waiters++;
+				try {
+					while (!queue.offer(pending)) {
+						if (closed) {
+							reject(pending, "publisher closed");
+							return false;
+						}
+						space.wait(10);
+					}
+					return true;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					reject(pending, "interrupted while waiting for queue space");
+					return false;
+				} finally {
+					waiters--;
+				}
+			}
+		default:
+			reject(pending, "queue full (" + queue.capacity() + ")");
+			return false;
+		}
+	}
+
+	private CompletableFuture<Void> reject(Pending pending, String message) {
+		rejected.increment();
+		pending.future.completeExceptionally(new OverflowException(message));
+		return pending.future;
+	}
+
+	/**
+	 * I/O线程：按批取出消息写出，队列空或连接被阻塞时休眠
+	 */
+	private void run() {
+		try {
+			while (true) {
+				// 1.连接被阻塞：暂停写出，等unblocked唤醒
+				if (blockedReason != null && !closed) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					continue;
+				}
+				Pending pending = queue.poll();
+				if (pending == null) {
+					if (closed) {
+						break;
+					}
+					// 2.队列空：先声明要休眠再检查一次，避免错过生产者的唤醒
+					parked = true;
+					if (queue.isEmpty() && !closed) {
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					}
+					parked = false;
+					continue;
+				}
+				// 3.写出一批
+				int count = 0;
+				do {
+					write(pending);
+				} while (++count < batchSize && (pending = queue.poll()) != null);
+				if (waiters > 0) {
+					synchronized (space) {
+						space.notifyAll();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			// close超时，放弃剩余消息
+		} finally {
+			terminated = true;
+			failQueued("publisher closed");
+			synchronized (space) {
+				space.notifyAll();
+			}
+		}
+	}
+
+	private void write(Pending pending) throws InterruptedException {
+		try {
+			if (confirms != null) {
+				confirms.publish(pending.exchange, pending.routingKey, pending.props, pending.body, pending.future);
+			} else {
+				channel.basicPublish(pending.exchange, pending.routingKey, pending.props, pending.body);
+				pending.future.complete(null);
+			}
+			published.increment();
+		} catch (InterruptedException e) {
+			// close超时中断了等在确认窗口上的I/O线程：这一条已出队，failQueued不会再处理它
+			reject(pending, "publisher closed");
+			throw e;
+		} catch (IOException | RuntimeException e) {
+			// 通道已关闭等，这一条失败，后面的继续尝试（同样会失败并各自完成future）
+			failed.increment();
+			pending.future.completeExceptionally(e);
+		}
+	}
+
+	private void failQueued(String message) {
+		Pending pending;
+		while ((pending = queue.poll()) != null) {
+			reject(pending, message);
+		}
+	}
+
+	/**
+	 * 队列中等待写出的消息数
+	 */
+	public int getQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * 已写出的消息数
+	 */
+	public long getPublished() {
+		return published.sum();
+	}
+
+	/**
+	 * 被拒绝（队列满、连接阻塞、已关闭）的消息数
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * DROP_OLDEST模式下被丢弃的消息数
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * 写出时出错的消息数
+	 */
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * 连接当前是否被broker阻塞
+	 */
+	public boolean isBlocked() {
+		return blockedReason != null;
+	}
+
+	public Channel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * 停止接收新消息，等待队列中的消息写出（开启confirm时还等待确认），超时后剩余消息以异常完成
+	 * 		超时后先中断I/O线程（等在确认窗口上时会退出）；仍卡在basicPublish里（socket写被阻塞）时abort通道，最多再等ABORT_GRACE_MILLIS。
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午9:44:30
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 *  @Param  @throws InterruptedException
+	 */
+	public void close(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		closed = true;
+		LockSupport.unpark(ioThread);
+		ioThread.join(Math.max(1, unit.toMillis(timeout)));
+		// 1.超时：中断I/O线程
+		if (ioThread.isAlive()) {
+			ioThread.interrupt();
+			ioThread.join(ABORT_GRACE_MILLIS);
+		}
+		// 2.仍未退出：abort通道让阻塞的写出失败，剩余消息由I/O线程以异常完成
+		if (ioThread.isAlive()) {
+			LOG.warn("{} did not stop after interrupt, aborting channel {}", ioThread.getName(), channel.getChannelNumber());
+			try {
+				channel.abort();
+			} catch (IOException | RuntimeException e) {
+				// 已关闭
+			}
+			ioThread.join(ABORT_GRACE_MILLIS);
+			if (ioThread.isAlive()) {
+				LOG.warn("{} is still blocked after abort", ioThread.getName());
+			}
+		}
+		channel.getConnection().removeBlockedListener(blockedListener);
+		if (confirms != null) {
+			if (channel.isOpen()) {
+				try {
+					confirms.waitForConfirms(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					LOG.warn("close {}: {}", ioThread.getName(), e.getMessage());
+				}
+			}
+			confirms.close();
+		}
+	}
+
+	/**
+	 * 最多等待30秒让队列中的消息写出；被中断时恢复中断标志后返回，需要处理中断的调用方用close(timeout, unit)
+	 */
+	@Override
+	public void close() {
+		try {
+			close(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 描述：待发送的消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Pending {
+
+		final String exchange;
+
+		final String routingKey;
+
+		final AMQP.BasicProperties props;
+
+		final byte[] body;
+
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		Pending(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+			this.exchange = exchange;
+			this.routingKey = routingKey;
+			this.props = props;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * 描述：消息没有被发送：队列满、被丢弃、连接被阻塞或发送器已关闭
+	 * 		过载时每秒可能产生大量这种异常，不填充调用栈
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static class OverflowException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		public OverflowException(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.sf.wdx.publisher;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.compress.Compression;
+
+/**
+ * 描述：批量发送，把发往同一个routingKey的多条小消息打包成一个AMQP消息体
+ * 		消息体格式：重复的[4字节大端长度][消息内容]，contentType为BATCH_CONTENT_TYPE，头部BATCH_COUNT_HEADER记录条数；
+ * 		消费者用consumer.Unbatcher拆包（不复制）。
+ * 		每个routingKey一个缓冲区，打包后达到maxBytes，或最早一条等待超过linger时发送。
+ * 		一批只对应一次basicPublish：帧、路由、确认、投递的开销由整批分摊；代价是最多linger的额外延迟，
+ * 		且一批是broker眼中的一条消息（整批路由、整批ack/重新投递）。
+ * 		设置了compression时整批压缩后发送（一批里的相似消息压缩率远高于单条），Unbatcher拆包前自动解压。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class BatchingPublisher implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchingPublisher.class);
+
+	public static final String BATCH_CONTENT_TYPE = "application/x-wdx-batch";
+
+	public static final String BATCH_COUNT_HEADER = "x-batch-count";
+
+	public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+	public static final long DEFAULT_LINGER_MILLIS = 10;
+
+	private final Channel channel;
+
+	private final String exchange;
+
+	private final int maxBytes;
+
+	private final long lingerNanos;
+
+	/**
+	 * 发送时携带的属性（contentType和批量条数头部由本类设置）
+	 */
+	private final AMQP.BasicProperties template;
+
+	private final Map<String, Batch> batches = new HashMap<String, Batch>();
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private Compression compression;
+
+	private long messages;
+
+	private long published;
+
+	private boolean closed;
+
+	public BatchingPublisher(Channel channel, String exchange) {
+		this(channel, exchange, null, DEFAULT_MAX_BYTES, DEFAULT_LINGER_MILLIS);
+	}
+
+	/**
+	 *	@Param  @param channel			发送用的通道（由本类独占）
+	 *	@Param  @param exchange			目标交换机
+	 *	@Param  @param template			消息属性模板（deliveryMode等），可为null
+	 *	@Param  @param maxBytes			一批的最大字节数（单条超过时单独成批）
+	 *	@Param  @param lingerMillis		一批最长等待时间
+	 */
+	public BatchingPublisher(Channel channel, String exchange, AMQP.BasicProperties template, int maxBytes, long lingerMillis) {
+		if (maxBytes <= 4 || lingerMillis <= 0) {
+			throw new IllegalArgumentException("maxBytes must exceed 4 and lingerMillis must be positive: " + maxBytes + ", " + lingerMillis);
+		}
+		this.channel = channel;
+		this.exchange = exchange;
+		this.template = template == null ? new AMQP.BasicProperties() : template;
+		this.maxBytes = maxBytes;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+		this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "batching-publisher-" + exchange);
+			thread.setDaemon(true);
+			return thread;
+		});
+		long tick = Math.max(1, lingerMillis / 2);
+		this.timer.scheduleWithFixedDelay(this::flushExpired, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 放入routingKey对应的批次，批次满了立即发送
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午10:12:40
+	 *  @Param  @param routingKey
+	 *  @Param  @param body
+	 *  @Param  @throws IOException
+	 */
+	public void publish(String routingKey, byte[] body) throws IOException {
+		publish(routingKey, body, 0, body.length);
+	}
+
+	/**
+	 * 放入body的[offset, offset + length)区间（内容复制进批次，返回后调用方可以复用body，如FastPublisher.buffer()）
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午2:40:18
+	 *  @Param  @param routingKey
+	 *  @Param  @param body
+	 *  @Param  @param offset
+	 *  @Param  @param length
+	 *  @Param  @throws IOException
+	 */
+	public synchronized void publish(String routingKey, byte[] body, int offset, int length) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("batching publisher is closed");
+		}
+		Batch batch = batches.get(routingKey);
+		if (batch == null) {
+			batch = new Batch(routingKey, maxBytes);
+			batches.put(routingKey, batch);
+		}
+		if (batch.count > 0 && batch.size + 4 + length > maxBytes) {
+			send(batch);
+		}
+		batch.append(body, offset, length);
+		messages++;
+		if (batch.size >= maxBytes) {
+			send(batch);
+		}
+	}
+
+	/**
+	 * 发送所有未满的批次
+	 */
+	public synchronized void flush() throws IOException {
+		for (Batch batch : batches.values()) {
+			if (batch.count > 0) {
+				send(batch);
+			}
+		}
+	}
+
+	/**
+	 * 整批压缩（null表示不压缩）
+	 */
+	public synchronized void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * 放入的消息条数
+	 */
+	public synchronized long getMessages() {
+		return messages;
+	}
+
+	/**
+	 * 实际发送的AMQP消息数（messages / published即平均每批条数）
+	 */
+	public synchronized long getPublished() {
+		return published;
+	}
+
+	/**
+	 * 发送剩余的批次并停止定时发送（不关闭通道）
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		timer.shutdownNow();
+		flush();
+	}
+
+	private void send(Batch batch) throws IOException {
+		Map<String, Object> headers = template.getHeaders();
+		if (headers == null || headers.isEmpty()) {
+			headers = Collections.<String, Object> singletonMap(BATCH_COUNT_HEADER, batch.count);
+		} else {
+			headers = new HashMap<String, Object>(headers);
+			headers.put(BATCH_COUNT_HEADER, batch.count);
+		}
+		AMQP.BasicProperties props = template.builder().contentType(BATCH_CONTENT_TYPE).headers(headers).build();
+		// basicPublish没有offset/length参数，每批复制出一个正好长度的数组（发送后即丢弃）；批次自己的缓冲区在reset后继续复用
+		byte[] body = Arrays.copyOf(batch.buffer, batch.size);
+		if (compression != null) {
+			Compression.Payload payload = compression.encode(props, body);
+			props = payload.getProperties();
+			body = payload.getBody();
+		}
+		channel.basicPublish(exchange, batch.routingKey, props, body);
+		published++;
+		batch.reset();
+	}
+
+	private void flushExpired() {
+		synchronized (this) {
+			long now = System.nanoTime();
+			try {
+				for (Batch batch : batches.values()) {
+					if (batch.count > 0 && now - batch.firstNanos >= lingerNanos) {
+						send(batch);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("flush expired batches to {} failed", exchange, e);
+			}
+		}
+	}
+
+	/**
+	 * 描述：一个routingKey的待发送批次，缓冲区发送后复用
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Batch {
+
+		final String routingKey;
+
+		byte[] buffer;
+
+		int size;
+
+		int count;
+
+		long firstNanos;
+
+		Batch(String routingKey, int maxBytes) {
+			this.routingKey = routingKey;
+			this.buffer = new byte[Math.min(maxBytes, 4096)];
+		}
+
+		void append(byte[] body, int offset, int length) {
+			if (size + 4 + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + 4 + length));
+			}
+			buffer[size] = (byte) (length >>> 24);
+			buffer[size + 1] = (byte) (length >>> 16);
+			buffer[size + 2] = (byte) (length >>> 8);
+			buffer[size + 3] = (byte) length;
+			System.arraycopy(body, offset, buffer, size + 4, length);
+			size += 4 + length;
+			if (count++ == 0) {
+				firstNanos = System.nanoTime();
+			}
+		}
+
+		void reset() {
+			size = 0;
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package com.sf.wdx.publisher;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：异步确认（publisher confirm）发送器
+ * 		通道开启confirmSelect后，broker对每条消息回复ack/nack，deliveryTag即发送时的序号。
+ * 		未确认的序号保存在按序号排序的并发Map中，broker回复multiple=true时一次性处理整段序号。
+ * 		同时在途（已发送未确认）的消息数受窗口限制，窗口满时publish阻塞，每条消息返回一个CompletableFuture。
+ * 		注意：future在连接的I/O线程中完成，回调里不要做耗时操作；close后通道仍处于confirm模式。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ConfirmPublisher implements AutoCloseable {
+
+	public static final int DEFAULT_WINDOW = 1024;
+
+	private final Channel channel;
+
+	/**
+	 * 在途窗口
+	 */
+	private final Semaphore window;
+
+	private final int windowSize;
+
+	/**
+	 * 未确认的消息：发送序号 -> future
+	 */
+	private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> outstanding = new ConcurrentSkipListMap<Long, CompletableFuture<Void>>();
+
+	/**
+	 * 保证取序号和发送是一个原子操作
+	 */
+	private final Object publishLock = new Object();
+
+	private final ConfirmListener confirmListener = new ConfirmListener() {
+		@Override
+		public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+			confirm(deliveryTag, multiple, null);
+		}
+
+		@Override
+		public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+			confirm(deliveryTag, multiple, new NackException(deliveryTag));
+		}
+	};
+
+	private final ShutdownListener shutdownListener = new ShutdownListener() {
+		@Override
+		public void shutdownCompleted(ShutdownSignalException cause) {
+			failAll(cause);
+		}
+	};
+
+	public ConfirmPublisher(Channel channel) throws IOException {
+		this(channel, DEFAULT_WINDOW);
+	}
+
+	public ConfirmPublisher(Channel channel, int windowSize) throws IOException {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+		}
+		this.channel = channel;
+		this.windowSize = windowSize;
+		this.window = new Semaphore(windowSize);
+		// 开启确认模式（对已开启的通道重复调用无副作用）
+		channel.confirmSelect();
+		channel.addConfirmListener(confirmListener);
+		channel.addShutdownListener(shutdownListener);
+	}
+
+	/**
+	 * 发送消息，窗口满时阻塞等待
+	 *	@ReturnType	CompletableFuture<Void>		broker确认后正常完成，nack或通道关闭时异常完成
+	 *	@Date	2026年10月17日	下午2:05:17
+	 *  @Param  @param exchange
+	 *  @Param  @param routingKey
+	 *  @Param  @param props
+	 *  @Param  @param body
+	 *  @Param  @return
+	 *  @Param  @throws IOException
+	 *  @Param  @throws InterruptedException
+	 */
+	public CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body)
+			throws IOException, InterruptedException {
+		window.acquire();
+		return doPublish(exchange, routingKey, props, body, new CompletableFuture<Void>());
+	}
+
+	/**
+	 * 发送消息，broker确认时完成调用方给出的future（AsyncPublisher的I/O线程使用），窗口满时阻塞等待
+	 */
+	void publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body, CompletableFuture<Void> future)
+			throws IOException, InterruptedException {
+		window.acquire();
+		doPublish(exchange, routingKey, props, body, future);
+	}
+
+	/**
+	 * 发送消息，窗口满时最多等待timeout
+	 *	@ReturnType	CompletableFuture<Void>
+	 *	@Date	2026年10月17日	下午2:06:40
+	 *  @Param  @throws TimeoutException		等待窗口超时
+	 */
+	public CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body,
+			long timeout, TimeUnit unit) throws IOException, InterruptedException, TimeoutException {
+		if (!window.tryAcquire(timeout, unit)) {
+			throw new TimeoutException("confirm window full (" + windowSize + ") for " + unit.toMillis(timeout) + "ms");
+		}
+		return doPublish(exchange, routingKey, props, body, new CompletableFuture<Void>());
+	}
+
+	private CompletableFuture<Void> doPublish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body,
+			CompletableFuture<Void> future) throws IOException {
+		synchronized (publishLock) {
+			long seqNo = channel.getNextPublishSeqNo();
+			outstanding.put(seqNo, future);
+			try {
+				channel.basicPublish(exchange, routingKey, props, body);
+			} catch (IOException | RuntimeException e) {
+				if (outstanding.remove(seqNo) != null) {
+					window.release();
+				}
+				throw e;
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * 等待所有在途消息被确认
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午2:08:12
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 *  @Param  @throws InterruptedException
+	 *  @Param  @throws TimeoutException
+	 */
+	public void waitForConfirms(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		// 把整个窗口拿到手即说明没有在途消息
+		if (!window.tryAcquire(windowSize, timeout, unit)) {
+			throw new TimeoutException(outstanding.size() + " messages still unconfirmed after " + unit.toMillis(timeout) + "ms");
+		}
+		window.release(windowSize);
+	}
+
+	/**
+	 * 当前在途（未确认）消息数
+	 */
+	public int getOutstanding() {
+		return windowSize - window.availablePermits();
+	}
+
+	public Channel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * 移除监听器，仍未确认的消息以异常完成
+	 */
+	@Override
+	public void close() {
+		channel.removeConfirmListener(confirmListener);
+		channel.removeShutdownListener(shutdownListener);
+		failAll(new IOException("confirm publisher closed"));
+	}
+
+	private void confirm(long deliveryTag, boolean multiple, Exception cause) {
+		if (multiple) {
+			// 序号<=deliveryTag的一整段一次处理
+			ConcurrentNavigableMap<Long, CompletableFuture<Void>> range = outstanding.headMap(deliveryTag, true);
+			int count = 0;
+			Map.Entry<Long, CompletableFuture<Void>> entry;
+			while ((entry = range.pollFirstEntry()) != null) {
+				complete(entry.getValue(), cause);
+				count++;
+			}
+			if (count > 0) {
+				window.release(count);
+			}
+		} else {
+			CompletableFuture<Void> future = outstanding.remove(deliveryTag);
+			if (future != null) {
+				complete(future, cause);
+				window.release();
+			}
+		}
+	}
+
+	private void failAll(Exception cause) {
+		int count = 0;
+		Map.Entry<Long, CompletableFuture<Void>> entry;
+		while ((entry = outstanding.pollFirstEntry()) != null) {
+			entry.getValue().completeExceptionally(cause);
+			count++;
+		}
+		if (count > 0) {
+			window.release(count);
+		}
+	}
+
+	private static void complete(CompletableFuture<Void> future, Exception cause) {
+		if (cause == null) {
+			future.complete(null);
+		} else {
+			future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * 描述：broker拒绝了消息（nack），消息未被投递，需要重发或另行处理
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static class NackException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long deliveryTag;
+
+		public NackException(long deliveryTag) {
+			super("message nacked by broker, deliveryTag=" + deliveryTag);
+			this.deliveryTag = deliveryTag;
+		}
+
+		public long getDeliveryTag() {
+			return deliveryTag;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.sf.wdx.publisher;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.codec.CodecBuffer;
+
+/**
+ * 描述：不产生垃圾的发送路径
+ * 		属性用构造时给定的不可变模板（AMQP.BasicProperties没有setter，多线程共用安全），每条消息不再build；
+ * 		routingKey用RoutingKeys里预先拼好的驻留字符串；
+ * 		消息体写进当前线程复用的CodecBuffer（buffer()取出），发送时复制到当前线程按长度缓存的数组中，
+ * 		长度不超过MAX_CACHED_LENGTH的消息稳定运行后每条消息不分配任何对象（更长的消息每条分配一个数组）。
+ * 		复用数组的前提是basicPublish同步序列化消息体、返回后不再引用它（amqp-client和LoopbackChannel都如此）；
+ * 		不能把这里发出的数组再交给会保留消息体的发送器（AsyncPublisher的队列等）。
+ * 		用法：CodecBuffer body = publisher.buffer(); body.writeBytes(...); publisher.publish(routingKey, body);
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class FastPublisher {
+
+	/**
+	 * 按长度缓存数组的上限，每个线程最多缓存约MAX_CACHED_LENGTH² / 2字节
+	 */
+	public static final int MAX_CACHED_LENGTH = 1024;
+
+	private final Channel channel;
+
+	private final String exchange;
+
+	private final AMQP.BasicProperties template;
+
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	/**
+	 *	@Param  @param channel		发送用的通道
+	 *	@Param  @param exchange		目标交换机
+	 *	@Param  @param template		消息属性模板，可为null（用template()或MessageProperties里的常量预先建好）
+	 */
+	public FastPublisher(Channel channel, String exchange, AMQP.BasicProperties template) {
+		this.channel = channel;
+		this.exchange = exchange;
+		this.template = template;
+	}
+
+	/**
+	 * 预先建好的属性模板
+	 *	@ReturnType	AMQP.BasicProperties
+	 *	@Date	2026年10月17日	下午2:25:10
+	 *  @Param  @param contentType
+	 *  @Param  @param persistent		是否持久化（deliveryMode 2）
+	 *  @Param  @return
+	 */
+	public static AMQP.BasicProperties template(String contentType, boolean persistent) {
+		return new AMQP.BasicProperties.Builder().contentType(contentType).deliveryMode(persistent ? 2 : 1).priority(0).build();
+	}
+
+	/**
+	 * 当前线程的消息体缓冲区（已清空），写完后交给publish；同一线程下次调用buffer()前有效
+	 */
+	public CodecBuffer buffer() {
+		CodecBuffer buffer = scratch.get().buffer;
+		buffer.reset();
+		return buffer;
+	}
+
+	/**
+	 * 用模板属性发送
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午2:27:36
+	 *  @Param  @param routingKey
+	 *  @Param  @param body		当前线程的缓冲区（或调用方自己的CodecBuffer）
+	 *  @Param  @throws IOException
+	 */
+	public void publish(String routingKey, CodecBuffer body) throws IOException {
+		publish(routingKey, template, body);
+	}
+
+	/**
+	 * 发送routingKey表中下标为index的key
+	 */
+	public void publish(RoutingKeys keys, int index, CodecBuffer body) throws IOException {
+		publish(keys.key(index), template, body);
+	}
+
+	/**
+	 * 用另一个（同样预先建好的）属性模板发送
+	 */
+	public void publish(String routingKey, AMQP.BasicProperties props, CodecBuffer body) throws IOException {
+		channel.basicPublish(exchange, routingKey, props, scratch.get().copy(body));
+	}
+
+	public Channel getChannel() {
+		return channel;
+	}
+
+	public AMQP.BasicProperties getTemplate() {
+		return template;
+	}
+
+	/**
+	 * 描述：一个线程的消息体缓冲区和按长度缓存的数组
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Scratch {
+
+		final CodecBuffer buffer = new CodecBuffer();
+
+		final byte[][] arrays = new byte[MAX_CACHED_LENGTH + 1][];
+
+		/**
+		 * basicPublish只接受整个数组作为消息体，复制到长度正好的数组
+		 */
+		byte[] copy(CodecBuffer body) {
+			int size = body.size();
+			if (size > MAX_CACHED_LENGTH) {
+				return Arrays.copyOf(body.array(), size);
+			}
+			byte[] array = arrays[size];
+			if (array == null) {
+				array = new byte[size];
+				arrays[size] = array;
+			}
+			System.arraycopy(body.array(), 0, array, 0, size);
+			return array;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.sf.wdx.publisher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 描述：固定取值空间的routingKey表，例如<country>.<person>.<level>的所有组合
+ * 		构造时把每一段的取值做笛卡尔积，拼好全部routingKey（驻留的String）和对应的UTF-8字节，
+ * 		发送时按下标取用，不再拼接字符串、不再编码，不产生垃圾。
+ * 		下标按第一段变化最慢排列：index = ((i0 × n1) + i1) × n2 + i2 ...；随机取一个下标等价于每段独立随机取值。
+ * 		构造后只读，可多线程共用。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class RoutingKeys {
+
+	/**
+	 * 组合数上限，避免误把大取值空间全部展开
+	 */
+	public static final int MAX_KEYS = 1 << 16;
+
+	private static final char SEPARATOR = '.';
+
+	private final String[] keys;
+
+	private final byte[][] bytes;
+
+	/**
+	 * 每一段的取值个数
+	 */
+	private final int[] radix;
+
+	private final Map<String, Integer> indexes;
+
+	private RoutingKeys(String[] keys, int[] radix) {
+		this.keys = keys;
+		this.radix = radix;
+		this.bytes = new byte[keys.length][];
+		this.indexes = new HashMap<String, Integer>(keys.length * 2);
+		for (int i = 0; i < keys.length; i++) {
+			bytes[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+			indexes.put(keys[i], i);
+		}
+	}
+
+	/**
+	 * 各段取值的全部组合，段之间用"."连接
+	 *	@ReturnType	RoutingKeys
+	 *	@Date	2026年10月17日	下午2:10:35
+	 *  @Param  @param segments		每一段的取值，例：{ COUNTRYS, PERSONS, LEVELS }
+	 *  @Param  @return
+	 */
+	public static RoutingKeys product(String[]... segments) {
+		if (segments.length == 0) {
+			throw new IllegalArgumentException("no segments");
+		}
+		int[] radix = new int[segments.length];
+		long count = 1;
+		for (int s = 0; s < segments.length; s++) {
+			radix[s] = segments[s].length;
+			count *= radix[s];
+			if (count == 0 || count > MAX_KEYS) {
+				throw new IllegalArgumentException("key space must have 1.." + MAX_KEYS + " keys: " + count);
+			}
+		}
+		String[] keys = new String[(int) count];
+		StringBuilder sb = new StringBuilder();
+		for (int index = 0; index < keys.length; index++) {
+			// 下标拆成各段的取值下标（最后一段变化最快）
+			sb.setLength(0);
+			int rest = index;
+			int divisor = keys.length;
+			for (int s = 0; s < segments.length; s++) {
+				divisor /= radix[s];
+				if (s > 0) {
+					sb.append(SEPARATOR);
+				}
+				sb.append(segments[s][rest / divisor]);
+				rest %= divisor;
+			}
+			keys[index] = sb.toString().intern();
+		}
+		return new RoutingKeys(keys, radix);
+	}
+
+	/**
+	 * 固定的几个routingKey（不做组合）
+	 */
+	public static RoutingKeys of(String... keys) {
+		if (keys.length == 0 || keys.length > MAX_KEYS) {
+			throw new IllegalArgumentException("key space must have 1.." + MAX_KEYS + " keys: " + keys.length);
+		}
+		String[] interned = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			interned[i] = keys[i].intern();
+		}
+		return new RoutingKeys(interned, new int[] { keys.length });
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public String key(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * routingKey的UTF-8字节（共享数组，调用方不能修改）
+	 */
+	public byte[] bytes(int index) {
+		return bytes[index];
+	}
+
+	/**
+	 * 随机一个下标（random由调用线程独占，如ThreadLocalRandom.current()）
+	 */
+	public int random(Random random) {
+		return random.nextInt(keys.length);
+	}
+
+	/**
+	 * 两段/三段取值下标对应的routingKey下标（避免可变参数的数组分配）
+	 */
+	public int index(int i0, int i1) {
+		checkSegments(2);
+		return i0 * radix[1] + i1;
+	}
+
+	public int index(int i0, int i1, int i2) {
+		checkSegments(3);
+		return (i0 * radix[1] + i1) * radix[2] + i2;
+	}
+
+	/**
+	 * routingKey的下标，不在表中时返回-1
+	 */
+	public int indexOf(String key) {
+		Integer index = indexes.get(key);
+		return index == null ? -1 : index;
+	}
+
+	private void checkSegments(int segments) {
+		if (radix.length != segments) {
+			throw new IllegalArgumentException("key space has " + radix.length + " segments, not " + segments);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RoutingKeys[size=" + keys.length + ", first=" + keys[0] + ", last=" + keys[keys.length - 1] + "]";
+	}
+}
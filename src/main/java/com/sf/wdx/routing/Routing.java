@@ -1,8 +1,7 @@
 package com.sf.wdx.routing;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.Test;
 import org.springframework.amqp.core.ExchangeTypes;
@@ -13,6 +12,16 @@ import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
+import com.sf.wdx.codec.CodecBuffer;
+import com.sf.wdx.compress.Compression;
+import com.sf.wdx.compress.Lz4Codec;
+import com.sf.wdx.consumer.Unbatcher;
+import com.sf.wdx.publisher.BatchingPublisher;
+import com.sf.wdx.publisher.RoutingKeys;
+import com.sf.wdx.topology.Topology;
+import com.sf.wdx.topology.TopologyRegistry;
+import com.sf.wdx.util.ChannelLease;
+import com.sf.wdx.util.ChannelManager;
 import com.sf.wdx.util.ConnectionUtil;
 import com.sf.wdx.util.DateUtils;
 
@@ -31,8 +40,27 @@ public class Routing {
 	
 	private static final String[] LEVELS = new String[]{INFO, WARN, ERROR}; 
 	
+	private static final RoutingKeys ROUTING_KEYS = RoutingKeys.of(LEVELS);
+	
+	/**
+	 * direct交换机（同一连接上只声明一次）
+	 */
+	private static final Topology TOPOLOGY = new Topology().exchange(EXCHANGE_NAME, ExchangeTypes.DIRECT);
+	
+	static {
+		// 交换机登记到进程共用的注册表，ChannelManager新建连接时先批量声明
+		TopologyRegistry.getDefault().register(TOPOLOGY);
+	}
+	
 	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
 	
+	/**
+	 * 批量发送：每批最多BATCH_BYTES字节，最多等待LINGER_MILLIS
+	 */
+	private static final int BATCH_BYTES = 16 * 1024;
+	
+	private static final long LINGER_MILLIS = 1000;
+	
 	/**
 	 * 只接收error消息
 	 *	@ReturnType	void 
@@ -48,17 +76,16 @@ public class Routing {
 	    // 3.声明随机队列（服务器自动生成，消费者停止时自动删除，非持久化）
 		String queueName = channel.queueDeclare().getQueue();
 		// 4.声明交换机（direct：路由模式。若不存在则创建，存在则使用）
-		channel.exchangeDeclare(EXCHANGE_NAME, ExchangeTypes.DIRECT);
-		// 5.绑定队列到交换机，只接收error消息
-		channel.queueBind(queueName, EXCHANGE_NAME, ERROR);
+		// 5.绑定队列到交换机，只接收error消息（与交换机一起批量发送，只等一次回复）
+		TopologyRegistry.getDefault().declare(connection, new Topology().include(TOPOLOGY).bind(queueName, EXCHANGE_NAME, ERROR));
 	    System.out.println(" [*] Waiting for messages. To exit press CTRL+C");
 	    // 6.创建消费者
 	    Consumer consumer = new DefaultConsumer(channel) {
 	      @Override
 	      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
 	          throws IOException {
-	        String message = new String(body, "UTF-8");
-	        System.out.println(" [x] Received '" + message + "'");
+	        // 批量打包的消息体逐条拆出（不复制）
+	        Unbatcher.forEach(properties, body, m -> System.out.println(" [x] Received '" + Unbatcher.utf8(m) + "'"));
 	      }
 	    };
 	    // 7.把消费者绑定到指定频道的指定队列中，监听消息
@@ -84,19 +111,20 @@ public class Routing {
 	    // 3.声明随机队列（服务器自动生成，消费者停止时自动删除，非持久化）
 		String queueName = channel.queueDeclare().getQueue();
 		// 4.声明交换机（direct：路由模式。若不存在则创建，存在则使用）
-		channel.exchangeDeclare(EXCHANGE_NAME, ExchangeTypes.DIRECT);
-		// 5.绑定队列到交换机
+		// 5.绑定队列到交换机（交换机和三个绑定NoWait批量发送，只等一次回复，不再每个绑定一次往返）
+		Topology topology = new Topology().include(TOPOLOGY);
 		for (String level : LEVELS) {
-			channel.queueBind(queueName, EXCHANGE_NAME, level);
+			topology.bind(queueName, EXCHANGE_NAME, level);
 		}
+		TopologyRegistry.getDefault().declare(connection, topology);
 	    System.out.println(" [*] Waiting for messages. To exit press CTRL+C");
 	    // 6.创建消费者
 	    Consumer consumer = new DefaultConsumer(channel) {
 	      @Override
 	      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
 	          throws IOException {
-	        String message = new String(body, "UTF-8");
-	        System.out.println(" [x] Received '" + message + "'");
+	        // 批量打包的消息体逐条拆出（不复制）
+	        Unbatcher.forEach(properties, body, m -> System.out.println(" [x] Received '" + Unbatcher.utf8(m) + "'"));
 	      }
 	    };
 	    // 7.把消费者绑定到指定频道的指定队列中，监听消息
@@ -115,22 +143,29 @@ public class Routing {
 	 */
 	@Test
 	public void producer() throws Exception{
-		// 1.获取连接
-		Connection connection = ConnectionUtil.getConnection();
-		// 2.创建一个通道
-		Channel channel = connection.createChannel();
-		// 3.声明交换机（fanout：广播分发模式，若不存在则创建，存在则使用）
-		channel.exchangeDeclare(EXCHANGE_NAME, ExchangeTypes.DIRECT);
+		// 1.从通道池借出通道（共享进程内的长连接，不再每次建立TCP连接）
+		ChannelLease lease = ChannelManager.getInstance().lease();
+		// 2.获取通道
+		Channel channel = lease.getChannel();
+		// 3.声明交换机（连接建立时已声明登记的交换机，这里命中缓存不再访问broker）
+		TopologyRegistry.getDefault().declare(channel.getConnection(), TOPOLOGY);
+		/** 按routingKey攒批发送，一批只调用一次basicPublish */
+		BatchingPublisher publisher = new BatchingPublisher(channel, EXCHANGE_NAME, null, BATCH_BYTES, LINGER_MILLIS);
+		/** 攒满的批次超过1KB后用LZ4压缩，消费端Unbatcher自动解压 */
+		publisher.setCompression(new Compression(Lz4Codec.ENCODING, Compression.DEFAULT_THRESHOLD));
+		/** 消息体写进复用的缓冲区，编码时不拼接字符串（批次会复制内容，打印出来的字符串只给人看） */
+		CodecBuffer body = new CodecBuffer();
 		// 4.发送消息到交换机（随机发送三种消息）
 		for (int i = 0; i < 100; i++) {
 			Thread.sleep(200);
-			String level = LEVELS[new Random().nextInt(1000) % 3];
-			String message = level + "---" + DateUtils.date2Str(new Date(), PATTERN) + "---" + i;
-			channel.basicPublish(EXCHANGE_NAME, level, null, message.getBytes());
-			System.out.println(" [x] Sent '" + message + "'");
+			int level = ROUTING_KEYS.random(ThreadLocalRandom.current());
+			body.reset();
+			body.writeBytes(ROUTING_KEYS.bytes(level)).writeAscii("---").writeBytes(DateUtils.nowBytes(PATTERN)).writeAscii("---").writeDecimal(i);
+			publisher.publish(ROUTING_KEYS.key(level), body.array(), 0, body.size());
+			System.out.println(" [x] Sent '" + new String(body.array(), 0, body.size(), "UTF-8") + "'");
 		}
-		// 5.关闭
-		channel.close();
-		connection.close();
+		// 5.发送剩余的批次，归还通道
+		publisher.close();
+		lease.close();
 	}
 }
@@ -0,0 +1,110 @@
+package com.sf.wdx.rpc;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述：斐波那契数列（快速倍增法，O(log n)次大数乘法）
+ * 		F(2k)   = F(k) * (2F(k+1) - F(k))
+ * 		F(2k+1) = F(k+1)^2 + F(k)^2
+ * 		n <= 92时结果在long范围内；更大的n用BigInteger。最近算过的结果放在有界的LRU表里。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Fibonacci {
+
+	/**
+	 * long能表示的最大项：F(92) = 7540113804746346429
+	 */
+	public static final int MAX_LONG_N = 92;
+
+	/**
+	 * 允许计算的最大项（F(100000)约两万位十进制数），防止恶意请求耗尽CPU
+	 */
+	public static final int MAX_N = 100000;
+
+	private static final int MEMO_SIZE = 1024;
+
+	/**
+	 * 有界memo表（按访问顺序淘汰最久未用的项）
+	 */
+	private static final Map<Integer, BigInteger> MEMO = new LinkedHashMap<Integer, BigInteger>(MEMO_SIZE * 4 / 3 + 1, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, BigInteger> eldest) {
+			return size() > MEMO_SIZE;
+		}
+	};
+
+	private Fibonacci() {
+	}
+
+	/**
+	 * 第n项，0 1 2 3 4 5 6 ... 对应 0,1,1,2,3,5,8 ...
+	 *	@ReturnType	long
+	 *	@Date	2026年10月17日	下午4:02:10
+	 *  @Param  @param n		0 <= n <= 92
+	 *  @Param  @return
+	 */
+	public static long fibLong(int n) {
+		if (n < 0 || n > MAX_LONG_N) {
+			throw new IllegalArgumentException("n out of long range [0, " + MAX_LONG_N + "]: " + n);
+		}
+		// a = F(k), b = F(k+1)，从最高位开始倍增
+		long a = 0;
+		long b = 1;
+		for (int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+			long c = a * (2 * b - a);
+			long d = a * a + b * b;
+			if ((n & bit) == 0) {
+				a = c;
+				b = d;
+			} else {
+				a = d;
+				b = c + d;
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * 第n项（任意精度，结果会被缓存）
+	 *	@ReturnType	BigInteger
+	 *	@Date	2026年10月17日	下午4:03:45
+	 *  @Param  @param n		0 <= n <= MAX_N
+	 *  @Param  @return
+	 */
+	public static BigInteger fib(int n) {
+		if (n < 0 || n > MAX_N) {
+			throw new IllegalArgumentException("n out of range [0, " + MAX_N + "]: " + n);
+		}
+		if (n <= MAX_LONG_N) {
+			return BigInteger.valueOf(fibLong(n));
+		}
+		synchronized (MEMO) {
+			BigInteger cached = MEMO.get(n);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		BigInteger a = BigInteger.ZERO;
+		BigInteger b = BigInteger.ONE;
+		for (int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+			BigInteger c = a.multiply(b.shiftLeft(1).subtract(a));
+			BigInteger d = a.multiply(a).add(b.multiply(b));
+			if ((n & bit) == 0) {
+				a = c;
+				b = d;
+			} else {
+				a = d;
+				b = c.add(d);
+			}
+		}
+		synchronized (MEMO) {
+			MEMO.put(n, a);
+		}
+		return a;
+	}
+}
@@ -0,0 +1,272 @@
+package com.sf.wdx.rpc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：可复用的RPC客户端，一个客户端多路复用多个并发请求
+ * 		整个客户端只声明一个响应队列、只启动一个消费者（或使用broker的direct reply-to伪队列），
+ * 		请求通过correlationId区分，响应到达后按correlationId找到对应的future完成它。
+ * 		请求可以流水线式并发发出，每个请求有独立超时，超时或被调用方取消的请求会从等待表中清除。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class RpcClient implements AutoCloseable {
+
+	/**
+	 * RabbitMQ的direct reply-to伪队列，不需要声明队列，响应直接发回到本通道的消费者
+	 */
+	public static final String DIRECT_REPLY_TO = "amq.rabbitmq.reply-to";
+
+	private final Channel channel;
+
+	private final String exchange;
+
+	private final String requestRoutingKey;
+
+	/**
+	 * 响应队列（server-named队列名，或DIRECT_REPLY_TO）
+	 */
+	private final String replyQueue;
+
+	private final String consumerTag;
+
+	/**
+	 * 等待响应的请求：correlationId -> 请求
+	 */
+	private final ConcurrentHashMap<String, PendingCall> pending = new ConcurrentHashMap<String, PendingCall>();
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * correlationId = 客户端前缀 + 自增序号，比每次生成UUID便宜
+	 */
+	private final String idPrefix = Long.toHexString(System.nanoTime()) + "-";
+
+	private final AtomicLong idSequence = new AtomicLong();
+
+	private final LongAdder timeouts = new LongAdder();
+
+	private final LongAdder lateReplies = new LongAdder();
+
+	private volatile boolean closed;
+
+	/**
+	 * 使用独占的server-named响应队列
+	 */
+	public RpcClient(Channel channel, String requestQueue) throws IOException {
+		this(channel, "", requestQueue, false);
+	}
+
+	/**
+	 *	@Param  @param channel				客户端独占的通道
+	 *	@Param  @param exchange				请求发送到的交换机（默认交换机传""）
+	 *	@Param  @param requestRoutingKey	请求的routingKey（默认交换机时即服务端队列名）
+	 *	@Param  @param directReplyTo		true使用direct reply-to，false声明一个长期存在的独占响应队列
+	 */
+	public RpcClient(Channel channel, String exchange, String requestRoutingKey, boolean directReplyTo) throws IOException {
+		this.channel = channel;
+		this.exchange = exchange;
+		this.requestRoutingKey = requestRoutingKey;
+		// 1.响应队列整个客户端只声明一次
+		this.replyQueue = directReplyTo ? DIRECT_REPLY_TO : channel.queueDeclare().getQueue();
+		// 2.超时清理线程
+		this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "rpc-client-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.timer.setRemoveOnCancelPolicy(true);
+		// 3.只启动一个消费者接收所有响应（direct reply-to要求no-ack，且必须在发送前开始消费）
+		this.consumerTag = channel.basicConsume(replyQueue, true, new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+				String correlationId = properties.getCorrelationId();
+				PendingCall call = correlationId == null ? null : pending.remove(correlationId);
+				if (call == null) {
+					// 已超时或已取消的请求迟到的响应
+					lateReplies.increment();
+					return;
+				}
+				call.cancelTimeout();
+				call.future.complete(body);
+			}
+
+			@Override
+			public void handleShutdownSignal(String consumerTag, ShutdownSignalException sig) {
+				failAll(sig);
+			}
+		});
+	}
+
+	/**
+	 * 发起调用，不等待响应
+	 *	@ReturnType	CompletableFuture<byte[]>	收到响应时完成，超时以TimeoutException异常完成
+	 *	@Date	2026年10月17日	下午3:21:48
+	 *  @Param  @param body
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 *  @Param  @return
+	 *  @Param  @throws IOException
+	 */
+	public CompletableFuture<byte[]> call(byte[] body, long timeout, TimeUnit unit) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("rpc client is closed");
+		}
+		final String correlationId = idPrefix + idSequence.incrementAndGet();
+		final PendingCall call = new PendingCall();
+		pending.put(correlationId, call);
+		// 超时：只有仍在等待表中的请求才会被置为超时
+		call.timeoutTask = timer.schedule(() -> {
+			if (pending.remove(correlationId, call)) {
+				timeouts.increment();
+				call.future.completeExceptionally(new TimeoutException("rpc " + correlationId + " timed out after " + unit.toMillis(timeout) + "ms"));
+			}
+		}, timeout, unit);
+		// 调用方取消future时同样清理
+		call.future.whenComplete((r, e) -> {
+			if (e != null && pending.remove(correlationId, call)) {
+				call.cancelTimeout();
+			}
+		});
+		AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().correlationId(correlationId).replyTo(replyQueue).build();
+		try {
+			// Channel发送不是线程安全的，并发调用时串行化发送
+			synchronized (channel) {
+				channel.basicPublish(exchange, requestRoutingKey, props, body);
+			}
+		} catch (IOException | RuntimeException e) {
+			pending.remove(correlationId);
+			call.cancelTimeout();
+			call.future.completeExceptionally(e);
+			throw e;
+		}
+		return call.future;
+	}
+
+	/**
+	 * 字符串请求、字符串响应（UTF-8）
+	 *	@ReturnType	CompletableFuture<String>
+	 *	@Date	2026年10月17日	下午3:23:10
+	 */
+	public CompletableFuture<String> call(String message, long timeout, TimeUnit unit) throws IOException {
+		CompletableFuture<byte[]> call = call(message.getBytes(StandardCharsets.UTF_8), timeout, unit);
+		CompletableFuture<String> result = call.thenApply(body -> new String(body, StandardCharsets.UTF_8));
+		// 取消的是转换后的future，要传回原请求，才会从等待表中清除
+		result.whenComplete((r, e) -> {
+			if (e instanceof CancellationException) {
+				call.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * 同步调用，阻塞直到收到响应或超时
+	 *	@ReturnType	String
+	 *	@Date	2026年10月17日	下午3:24:02
+	 *  @Param  @throws TimeoutException	超时
+	 */
+	public String callAndWait(String message, long timeout, TimeUnit unit) throws IOException, InterruptedException, TimeoutException {
+		try {
+			return call(message, timeout, unit).get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof TimeoutException) {
+				throw (TimeoutException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * 等待响应中的请求数
+	 */
+	public int getPending() {
+		return pending.size();
+	}
+
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * 请求超时或取消后才到达、被丢弃的响应数
+	 */
+	public long getLateReplies() {
+		return lateReplies.sum();
+	}
+
+	public String getReplyQueue() {
+		return replyQueue;
+	}
+
+	/**
+	 * 取消响应消费者，所有未完成的请求以异常完成（不关闭通道）
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (channel.isOpen()) {
+				channel.basicCancel(consumerTag);
+			}
+		} finally {
+			failAll(new IOException("rpc client closed"));
+			timer.shutdownNow();
+		}
+	}
+
+	private void failAll(Exception cause) {
+		Iterator<Map.Entry<String, PendingCall>> it = pending.entrySet().iterator();
+		while (it.hasNext()) {
+			PendingCall call = it.next().getValue();
+			it.remove();
+			call.cancelTimeout();
+			call.future.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * 描述：等待响应的请求
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static class PendingCall {
+
+		final CompletableFuture<byte[]> future = new CompletableFuture<byte[]>();
+
+		volatile ScheduledFuture<?> timeoutTask;
+
+		void cancelTimeout() {
+			ScheduledFuture<?> task = timeoutTask;
+			if (task != null) {
+				task.cancel(false);
+			}
+		}
+	}
+}
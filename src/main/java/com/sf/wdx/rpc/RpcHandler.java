@@ -0,0 +1,23 @@
+package com.sf.wdx.rpc;
+
+import com.rabbitmq.client.AMQP;
+
+/**
+ * 描述：RPC服务端的业务处理接口，在RpcServer的工作线程中调用
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public interface RpcHandler {
+
+	/**
+	 * 处理一个请求
+	 *	@ReturnType	byte[]		响应内容
+	 *	@Date	2026年10月17日	下午4:10:33
+	 *  @Param  @param body			请求内容
+	 *  @Param  @param properties	请求属性
+	 *  @Param  @return
+	 *  @Param  @throws Exception	抛出异常时回复空响应
+	 */
+	byte[] handle(byte[] body, AMQP.BasicProperties properties) throws Exception;
+
+}
@@ -0,0 +1,143 @@
+package com.sf.wdx.rpc;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * 描述：并发RPC服务端
+ * 		消费者的dispatch线程只负责把请求交给工作线程池，计算、回复、ack都在工作线程中完成，
+ * 		一个慢请求不会挡住其他请求。basicQos设为工作线程数，保证预取的请求数正好让每个工作线程都有活干。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class RpcServer implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RpcServer.class);
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final Channel channel;
+
+	private final String queueName;
+
+	private final int workers;
+
+	private final RpcHandler handler;
+
+	private final ExecutorService executor;
+
+	/**
+	 * 回复和ack在多个工作线程中执行，同一通道上串行写出
+	 */
+	private final Object replyLock = new Object();
+
+	private final LongAdder handled = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private volatile String consumerTag;
+
+	/**
+	 *	@Param  @param channel		服务端独占的通道
+	 *	@Param  @param queueName	请求队列
+	 *	@Param  @param workers		工作线程数（也是预取窗口大小）
+	 *	@Param  @param handler		业务处理
+	 */
+	public RpcServer(Channel channel, String queueName, int workers, RpcHandler handler) {
+		if (workers <= 0) {
+			throw new IllegalArgumentException("workers must be positive: " + workers);
+		}
+		this.channel = channel;
+		this.queueName = queueName;
+		this.workers = workers;
+		this.handler = handler;
+		final AtomicInteger threadIndex = new AtomicInteger();
+		// 预取窗口已经限制了在途请求数，任务队列不会无限增长
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+			Thread thread = new Thread(r, "rpc-server-" + queueName + "-" + threadIndex.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 设置预取窗口并开始消费请求
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午4:21:16
+	 *  @Param  @throws IOException
+	 */
+	public void start() throws IOException {
+		// 1.预取窗口与工作线程数一致
+		channel.basicQos(workers);
+		// 2.手动ack，处理完成后才确认
+		consumerTag = channel.basicConsume(queueName, false, new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, final Envelope envelope, final AMQP.BasicProperties properties, final byte[] body) {
+				executor.execute(() -> process(envelope, properties, body));
+			}
+		});
+	}
+
+	private void process(Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+		byte[] response = EMPTY;
+		try {
+			response = handler.handle(body, properties);
+			handled.increment();
+		} catch (Exception e) {
+			failed.increment();
+			LOG.warn("rpc request {} failed", properties.getCorrelationId(), e);
+		}
+		try {
+			synchronized (replyLock) {
+				// 1.回复到请求指定的响应队列，携带请求的correlationId
+				String replyTo = properties.getReplyTo();
+				if (replyTo != null) {
+					AMQP.BasicProperties replyProps = new AMQP.BasicProperties.Builder().correlationId(properties.getCorrelationId()).build();
+					channel.basicPublish("", replyTo, replyProps, response == null ? EMPTY : response);
+				}
+				// 2.确认请求
+				channel.basicAck(envelope.getDeliveryTag(), false);
+			}
+		} catch (IOException e) {
+			// 通道已关闭，未确认的请求由broker重新投递
+			LOG.warn("reply to {} failed", properties.getReplyTo(), e);
+		}
+	}
+
+	public long getHandled() {
+		return handled.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * 停止消费，等待已接收的请求处理完
+	 */
+	@Override
+	public void close() throws IOException {
+		if (consumerTag != null && channel.isOpen()) {
+			channel.basicCancel(consumerTag);
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.sf.wdx.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.sf.wdx.util.Hashing;
+
+/**
+ * 描述：一致性哈希环
+ * 		每个节点在环上放replicas个虚拟点（由节点的toString()和序号经Hashing.hash64得到），key顺时针找到的第一个点的节点即为归属节点。
+ * 		增删一个节点只影响与它相邻的那一段key，其余key的归属不变。
+ * 		环保存在排好序的long数组里，查找是一次二分，不分配对象；增删节点时整体重建（写时复制），查找和增删可以并发。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class HashRing<T> {
+
+	public static final int DEFAULT_REPLICAS = 128;
+
+	private final int replicas;
+
+	private volatile Ring<T> ring = new Ring<T>(new long[0], new Object[0], Collections.<T> emptyList());
+
+	public HashRing() {
+		this(DEFAULT_REPLICAS);
+	}
+
+	/**
+	 *	@Param  @param replicas		每个节点的虚拟点数，越多分布越均匀
+	 */
+	public HashRing(int replicas) {
+		if (replicas <= 0) {
+			throw new IllegalArgumentException("replicas must be positive: " + replicas);
+		}
+		this.replicas = replicas;
+	}
+
+	public synchronized HashRing<T> add(T node) {
+		List<T> nodes = new ArrayList<T>(ring.nodes);
+		if (!nodes.contains(node)) {
+			nodes.add(node);
+			ring = build(nodes);
+		}
+		return this;
+	}
+
+	public synchronized boolean remove(T node) {
+		List<T> nodes = new ArrayList<T>(ring.nodes);
+		if (!nodes.remove(node)) {
+			return false;
+		}
+		ring = build(nodes);
+		return true;
+	}
+
+	/**
+	 * key的归属节点，环为空时返回null
+	 */
+	public T get(CharSequence key) {
+		return get(Hashing.hash64(key));
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(long hash) {
+		Ring<T> current = ring;
+		int size = current.points.length;
+		if (size == 0) {
+			return null;
+		}
+		return (T) current.owners[current.indexOf(hash)];
+	}
+
+	/**
+	 * 从key的位置顺时针经过的所有不同节点（第一个即get(key)），用于归属节点不可用时依次退让
+	 *	@ReturnType	List<T>
+	 *	@Date	2026年10月17日	下午10:12:40
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> walk(CharSequence key) {
+		Ring<T> current = ring;
+		int size = current.points.length;
+		List<T> result = new ArrayList<T>(current.nodes.size());
+		if (size == 0) {
+			return result;
+		}
+		int start = current.indexOf(Hashing.hash64(key));
+		for (int i = 0; i < size && result.size() < current.nodes.size(); i++) {
+			T owner = (T) current.owners[(start + i) % size];
+			if (!result.contains(owner)) {
+				result.add(owner);
+			}
+		}
+		return result;
+	}
+
+	public List<T> getNodes() {
+		return ring.nodes;
+	}
+
+	public int size() {
+		return ring.nodes.size();
+	}
+
+	private Ring<T> build(List<T> nodes) {
+		int size = nodes.size() * replicas;
+		long[] points = new long[size];
+		Long[] keys = new Long[size];
+		for (int n = 0; n < nodes.size(); n++) {
+			String name = String.valueOf(nodes.get(n));
+			for (int r = 0; r < replicas; r++) {
+				keys[n * replicas + r] = Hashing.hash64(name + "#" + r);
+			}
+		}
+		// 按哈希值排序，哈希相同时按节点名排序，保证各进程用相同的节点集合构建出相同的环
+		Integer[] index = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			index[i] = i;
+		}
+		Arrays.sort(index, (a, b) -> {
+			int c = Long.compare(keys[a], keys[b]);
+			return c != 0 ? c : String.valueOf(nodes.get(a / replicas)).compareTo(String.valueOf(nodes.get(b / replicas)));
+		});
+		Object[] owners = new Object[size];
+		for (int i = 0; i < size; i++) {
+			points[i] = keys[index[i]];
+			owners[i] = nodes.get(index[i] / replicas);
+		}
+		return new Ring<T>(points, owners, Collections.unmodifiableList(nodes));
+	}
+
+	/**
+	 * 描述：不可变的环
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Ring<T> {
+
+		final long[] points;
+
+		final Object[] owners;
+
+		final List<T> nodes;
+
+		Ring(long[] points, Object[] owners, List<T> nodes) {
+			this.points = points;
+			this.owners = owners;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * 第一个>=hash的点，超过最后一个点时回到0
+		 */
+		int indexOf(long hash) {
+			int i = Arrays.binarySearch(points, hash);
+			if (i < 0) {
+				i = -i - 1;
+			}
+			return i == points.length ? 0 : i;
+		}
+	}
+}
@@ -0,0 +1,542 @@
+package com.sf.wdx.shard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * 描述：分片工作队列的消费者组成员，组内成员自动瓜分ShardedQueues的物理队列
+ * 		成员关系：每个成员定时向name.members（fanout交换机）广播心跳，连续MISSED_HEARTBEATS个周期没有心跳的成员视为离开；
+ * 		分片分配：所有成员用相同的成员集合计算相同的分配结果——分片沿成员的一致性哈希环找归属成员，
+ * 		每个成员最多分到ceil(分片数/成员数)个，满了顺时针让给下一个成员（有界负载），成员增减时只有少量分片换主。
+ * 		换主时的顺序：每个分片一个通道、独占消费（exclusive consumer），旧成员取消消费并把已投递的消息处理完、关闭通道之后，
+ * 		新成员的basicConsume才会成功（之前被broker拒绝，下个周期重试），同一个分片不会有两个成员同时处理，同一个key的消息保持顺序。
+ * 		成员崩溃时连接断开，broker释放独占并把未确认消息重新入队，其他成员在心跳超时后接手。
+ * 		处理失败的消息重新入队后会立即再投递给同一个成员（独占、有序），同一条消息连续失败maxAttempts次后不再重新入队，
+ * 		basicNack(requeue=false)：队列配置了死信交换机（ShardedQueues.withDeadLetterQueue()）时进入死信队列，否则丢弃，后面的消息继续处理。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ShardConsumer implements AutoCloseable {
+
+	/**
+	 * 分片消息的处理器，同一分片的消息在同一个线程上按顺序调用，正常返回后ack，抛异常时nack
+	 */
+	public interface Handler {
+
+		void handle(int shard, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws Exception;
+
+	}
+
+	public static final long DEFAULT_HEARTBEAT_MILLIS = 1000;
+
+	public static final int DEFAULT_PREFETCH = 32;
+
+	/**
+	 * 同一条消息最多处理的次数（含第一次），超过后不再重新入队
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+	/**
+	 * 每个分片通道最多记录的失败消息数
+	 */
+	static final int MAX_TRACKED_FAILURES = 1024;
+
+	private static final Logger LOG = LoggerFactory.getLogger(ShardConsumer.class);
+
+	static final int MISSED_HEARTBEATS = 3;
+
+	private static final String JOIN = "join";
+
+	private static final String HEARTBEAT = "heartbeat";
+
+	private static final String LEAVE = "leave";
+
+	private final Connection connection;
+
+	private final ShardedQueues queues;
+
+	private final String memberId;
+
+	private final Handler handler;
+
+	private final int prefetch;
+
+	private final long heartbeatMillis;
+
+	private final String membersExchange;
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private boolean requeueRejected = true;
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	private Channel control;
+
+	// ---- 以下只在timer线程中访问 ----
+
+	/**
+	 * 成员 -> 最近一次心跳的时间（纳秒）
+	 */
+	private final Map<String, Long> members = new HashMap<String, Long>();
+
+	private final Map<Integer, ShardChannel> active = new TreeMap<Integer, ShardChannel>();
+
+	private volatile List<Integer> owned = Collections.emptyList();
+
+	private volatile List<String> memberList = Collections.emptyList();
+
+	private volatile boolean closed;
+
+	private final LongAdder handled = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder poisoned = new LongAdder();
+
+	private final LongAdder rebalances = new LongAdder();
+
+	public ShardConsumer(Connection connection, ShardedQueues queues, Handler handler) {
+		this(connection, queues, UUID.randomUUID().toString(), handler, DEFAULT_PREFETCH, DEFAULT_HEARTBEAT_MILLIS);
+	}
+
+	/**
+	 *	@Param  @param connection			成员使用的连接（每个分片一个通道，另有一个控制通道）
+	 *	@Param  @param queues				分片队列
+	 *	@Param  @param memberId				成员标识，组内唯一
+	 *	@Param  @param handler				消息处理器
+	 *	@Param  @param prefetch				每个分片通道的预取数
+	 *	@Param  @param heartbeatMillis		心跳周期
+	 */
+	public ShardConsumer(Connection connection, ShardedQueues queues, String memberId, Handler handler, int prefetch, long heartbeatMillis) {
+		if (prefetch <= 0 || heartbeatMillis <= 0) {
+			throw new IllegalArgumentException("prefetch and heartbeatMillis must be positive: " + prefetch + ", " + heartbeatMillis);
+		}
+		this.connection = connection;
+		this.queues = queues;
+		this.memberId = memberId;
+		this.handler = handler;
+		this.prefetch = prefetch;
+		this.heartbeatMillis = heartbeatMillis;
+		this.membersExchange = queues.getName() + ".members";
+		this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "shard-consumer-" + memberId);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 处理失败的消息是否重新入队（默认true；false时由队列的死信配置处理）
+	 */
+	public void setRequeueRejected(boolean requeueRejected) {
+		this.requeueRejected = requeueRejected;
+	}
+
+	/**
+	 * 同一条消息连续失败多少次后放弃（不再重新入队），默认DEFAULT_MAX_ATTEMPTS
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * 声明队列，加入消费者组，开始心跳和分片分配
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午10:31:20
+	 *  @Param  @throws IOException
+	 */
+	public void start() throws IOException {
+		// 1.控制通道：声明分片队列和成员交换机
+		control = connection.createChannel();
+		queues.declare(control);
+		control.exchangeDeclare(membersExchange, BuiltinExchangeType.FANOUT, false, false, null);
+		// 2.接收其他成员的心跳（每个成员一个独占的临时队列）
+		String inbox = control.queueDeclare().getQueue();
+		control.queueBind(inbox, membersExchange, "");
+		control.basicConsume(inbox, true, new DefaultConsumer(control) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+				String member = new String(body, StandardCharsets.UTF_8);
+				String type = properties.getType();
+				execute(() -> onMember(member, type));
+			}
+		});
+		// 3.宣布加入，之后按心跳周期维护成员和分配
+		execute(() -> members.put(memberId, System.nanoTime()));
+		announce(JOIN);
+		timer.scheduleWithFixedDelay(this::tick, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void tick() {
+		if (closed) {
+			return;
+		}
+		try {
+			announce(HEARTBEAT);
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("heartbeat of {} failed: {}", memberId, e.toString());
+		}
+		// 1.移除心跳超时的成员
+		long expiry = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(heartbeatMillis * MISSED_HEARTBEATS);
+		members.put(memberId, System.nanoTime());
+		Iterator<Map.Entry<String, Long>> it = members.entrySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().getValue() - expiry < 0) {
+				it.remove();
+			}
+		}
+		// 2.按当前成员重新分配（也负责重试上个周期没抢到的分片）
+		rebalance();
+	}
+
+	private void onMember(String member, String type) {
+		if (closed || memberId.equals(member)) {
+			return;
+		}
+		boolean changed;
+		if (LEAVE.equals(type)) {
+			changed = members.remove(member) != null;
+		} else {
+			changed = members.put(member, System.nanoTime()) == null;
+		}
+		if (changed) {
+			rebalance();
+		}
+	}
+
+	private void rebalance() {
+		if (closed) {
+			return;
+		}
+		memberList = Collections.unmodifiableList(new ArrayList<String>(new TreeSet<String>(members.keySet())));
+		Map<Integer, String> assignment = assign(queues.getShards(), members.keySet());
+		List<Integer> mine = new ArrayList<Integer>();
+		for (Map.Entry<Integer, String> entry : assignment.entrySet()) {
+			if (memberId.equals(entry.getValue())) {
+				mine.add(entry.getKey());
+			}
+		}
+		// 1.释放不再属于自己的分片
+		for (Integer shard : new ArrayList<Integer>(active.keySet())) {
+			if (!mine.contains(shard)) {
+				active.remove(shard).release();
+				rebalances.increment();
+			}
+		}
+		// 2.认领新分配的分片（旧成员还没释放时被拒绝，下个周期重试）
+		for (Integer shard : mine) {
+			if (!active.containsKey(shard)) {
+				claim(shard);
+			}
+		}
+		owned = Collections.unmodifiableList(new ArrayList<Integer>(active.keySet()));
+	}
+
+	private void claim(int shard) {
+		Channel channel = null;
+		try {
+			channel = connection.createChannel();
+			channel.basicQos(prefetch);
+			ShardChannel shardChannel = new ShardChannel(shard, channel);
+			// 通道异常关闭（连接断开等）后下个周期重新认领
+			channel.addShutdownListener(cause -> {
+				shardChannel.released.complete(null);
+				execute(() -> active.remove(shard, shardChannel));
+			});
+			shardChannel.consumerTag = channel.basicConsume(queues.queueName(shard), false, "", false, true, null, shardChannel);
+			active.put(shard, shardChannel);
+		} catch (IOException | RuntimeException e) {
+			// ACCESS_REFUSED：上一个成员还在消费，broker已关闭这个通道
+			if (channel != null && channel.isOpen()) {
+				try {
+					channel.abort();
+				} catch (IOException ignore) {
+					// 已关闭
+				}
+			}
+		}
+	}
+
+	/**
+	 * 分片分配：分片沿成员哈希环依次找成员，每个成员最多ceil(shards / members)个
+	 *	@ReturnType	Map<Integer,String>		分片序号 -> 成员
+	 *	@Date	2026年10月17日	下午10:36:02
+	 *  @Param  @param shards
+	 *  @Param  @param members
+	 *  @Param  @return
+	 */
+	public static Map<Integer, String> assign(int shards, Collection<String> members) {
+		Map<Integer, String> assignment = new TreeMap<Integer, String>();
+		if (members.isEmpty()) {
+			return assignment;
+		}
+		HashRing<String> ring = new HashRing<String>();
+		for (String member : members) {
+			ring.add(member);
+		}
+		int limit = (shards + members.size() - 1) / members.size();
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (int shard = 0; shard < shards; shard++) {
+			for (String member : ring.walk("shard-" + shard)) {
+				Integer count = counts.get(member);
+				int n = count == null ? 0 : count;
+				if (n < limit) {
+					counts.put(member, n + 1);
+					assignment.put(shard, member);
+					break;
+				}
+			}
+		}
+		return assignment;
+	}
+
+	private void announce(String type) throws IOException {
+		AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().type(type).build();
+		synchronized (control) {
+			control.basicPublish(membersExchange, "", props, memberId.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private void execute(Runnable task) {
+		try {
+			timer.execute(task);
+		} catch (RejectedExecutionException e) {
+			// 已关闭
+		}
+	}
+
+	public String getMemberId() {
+		return memberId;
+	}
+
+	/**
+	 * 当前在消费的分片
+	 */
+	public List<Integer> getOwnedShards() {
+		return owned;
+	}
+
+	/**
+	 * 当前看到的组成员（含自己）
+	 */
+	public List<String> getMembers() {
+		return memberList;
+	}
+
+	public long getHandled() {
+		return handled.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * 失败次数达到上限、不再重新入队的消息数
+	 */
+	public long getPoisoned() {
+		return poisoned.sum();
+	}
+
+	/**
+	 * 释放分片的次数
+	 */
+	public long getRebalances() {
+		return rebalances.sum();
+	}
+
+	/**
+	 * 离开消费者组：广播离开，取消所有分片的消费，等已投递的消息处理完后关闭通道
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午10:40:11
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 */
+	public void close(long timeout, TimeUnit unit) throws InterruptedException {
+		if (closed) {
+			return;
+		}
+		List<CompletableFuture<Void>> released = new ArrayList<CompletableFuture<Void>>();
+		try {
+			timer.submit(() -> {
+				closed = true;
+				for (ShardChannel shardChannel : active.values()) {
+					released.add(shardChannel.release());
+				}
+				active.clear();
+				owned = Collections.emptyList();
+			}).get();
+			announce(LEAVE);
+			CompletableFuture.allOf(released.toArray(new CompletableFuture<?>[0])).get(timeout, unit);
+		} catch (IOException | ExecutionException | TimeoutException | RuntimeException e) {
+			LOG.warn("leaving {} failed: {}", queues, e.toString());
+		} finally {
+			timer.shutdownNow();
+			if (control != null && control.isOpen()) {
+				try {
+					control.close();
+				} catch (IOException | TimeoutException e) {
+					// 连接已关闭
+				}
+			}
+		}
+	}
+
+	/**
+	 * 最多等待30秒让已投递的消息处理完，被中断时保留中断标志直接返回
+	 */
+	@Override
+	public void close() {
+		try {
+			close(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 描述：一个分片的独占消费通道，通道的分发线程按顺序处理该分片的消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private final class ShardChannel extends DefaultConsumer {
+
+		final int shard;
+
+		volatile String consumerTag;
+
+		final CompletableFuture<Void> released = new CompletableFuture<Void>();
+
+		/**
+		 * 失败过的消息（messageId，没有时按消息体）-> 失败次数，只在本通道的分发线程上访问；
+		 * 预取的其他消息会插在重新投递之间，不能只记上一条
+		 */
+		private final Map<Object, Integer> failures = new LinkedHashMap<Object, Integer>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Integer> eldest) {
+				return size() > MAX_TRACKED_FAILURES;
+			}
+		};
+
+		ShardChannel(int shard, Channel channel) {
+			super(channel);
+			this.shard = shard;
+		}
+
+		@Override
+		public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+			try {
+				handler.handle(shard, envelope, properties, body);
+				handled.increment();
+				if (!failures.isEmpty()) {
+					failures.remove(identity(properties, body));
+				}
+				getChannel().basicAck(envelope.getDeliveryTag(), false);
+			} catch (Exception e) {
+				failed.increment();
+				// 重新入队的消息回到队首，很快又投递给本通道：按消息计数
+				Object identity = identity(properties, body);
+				Integer previous = failures.get(identity);
+				int attempt = previous == null ? 1 : previous + 1;
+				if (requeueRejected && attempt < maxAttempts) {
+					failures.put(identity, attempt);
+					LOG.warn("shard {} delivery failed (attempt {}/{}), requeueing: {}", shard, attempt, maxAttempts, e.toString());
+					getChannel().basicNack(envelope.getDeliveryTag(), false, true);
+				} else {
+					failures.remove(identity);
+					if (requeueRejected) {
+						poisoned.increment();
+					}
+					LOG.error("shard {} delivery failed (attempt {}/{}), rejecting without requeue: {}", shard, attempt, maxAttempts, e.toString());
+					getChannel().basicNack(envelope.getDeliveryTag(), false, false);
+				}
+			}
+		}
+
+		private Object identity(AMQP.BasicProperties properties, byte[] body) {
+			String messageId = properties == null ? null : properties.getMessageId();
+			return messageId != null ? messageId : ByteBuffer.wrap(body);
+		}
+
+		/**
+		 * 取消消费，cancel-ok在已投递的消息之后到达，届时关闭通道（未投递的预取消息重新入队）
+		 */
+		CompletableFuture<Void> release() {
+			try {
+				getChannel().basicCancel(consumerTag);
+			} catch (IOException | RuntimeException e) {
+				closeChannel();
+			}
+			return released;
+		}
+
+		@Override
+		public void handleCancelOk(String consumerTag) {
+			closeLater();
+		}
+
+		@Override
+		public void handleCancel(String consumerTag) {
+			// broker取消了消费（队列被删除等），下个周期重新认领
+			execute(() -> active.remove(shard, this));
+			closeLater();
+		}
+
+		private void closeLater() {
+			// 不在分发线程上关闭自己的通道
+			try {
+				timer.execute(this::closeChannel);
+			} catch (RejectedExecutionException e) {
+				closeChannel();
+			}
+		}
+
+		private void closeChannel() {
+			try {
+				if (getChannel().isOpen()) {
+					getChannel().close();
+				}
+			} catch (IOException | TimeoutException | RuntimeException e) {
+				// 已关闭
+			} finally {
+				released.complete(null);
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.sf.wdx.shard;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+
+/**
+ * 描述：分片的工作队列：一个逻辑队列由shards个物理队列（name.0 ~ name.N-1）组成
+ * 		生产者按消息key经一致性哈希环选择分片，同一个key总是进入同一个物理队列，
+ * 		而每个物理队列同一时刻只有一个消费者（ShardConsumer独占消费），所以同一个key的消息按发送顺序处理；
+ * 		吞吐量随分片数扩展（每个队列在broker上是一个独立的进程/核）。
+ * 		所有生产者和消费者必须使用相同的name和shards；增加分片时只有约1/N的key换到新分片。
+ * 		withDeadLetterQueue()后物理队列带死信交换机name.dlx，ShardConsumer放弃的消息进入name.dead；
+ * 		队列参数不能修改，已经存在的不带死信参数的队列要先删除，否则声明时broker返回PRECONDITION_FAILED。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ShardedQueues {
+
+	private final String name;
+
+	private final int shards;
+
+	private final boolean durable;
+
+	private final String[] queueNames;
+
+	private final HashRing<Integer> ring = new HashRing<Integer>();
+
+	private boolean deadLetter;
+
+	public ShardedQueues(String name, int shards) {
+		this(name, shards, true);
+	}
+
+	/**
+	 *	@Param  @param name			逻辑队列名，物理队列为name.序号
+	 *	@Param  @param shards		分片数
+	 *	@Param  @param durable		物理队列是否持久化
+	 */
+	public ShardedQueues(String name, int shards, boolean durable) {
+		if (shards <= 0) {
+			throw new IllegalArgumentException("shards must be positive: " + shards);
+		}
+		this.name = name;
+		this.shards = shards;
+		this.durable = durable;
+		this.queueNames = new String[shards];
+		for (int i = 0; i < shards; i++) {
+			queueNames[i] = name + "." + i;
+			ring.add(i);
+		}
+	}
+
+	/**
+	 * 物理队列带死信交换机（所有生产者和消费者要一致），在declare之前调用
+	 */
+	public ShardedQueues withDeadLetterQueue() {
+		this.deadLetter = true;
+		return this;
+	}
+
+	/**
+	 * 声明所有物理队列（生产者和消费者都可以调用，重复声明无副作用）
+	 */
+	public void declare(Channel channel) throws IOException {
+		Map<String, Object> arguments = null;
+		if (deadLetter) {
+			channel.exchangeDeclare(getDeadLetterExchange(), BuiltinExchangeType.FANOUT, durable, false, null);
+			channel.queueDeclare(getDeadLetterQueue(), durable, false, false, null);
+			channel.queueBind(getDeadLetterQueue(), getDeadLetterExchange(), "");
+			arguments = Collections.<String, Object>singletonMap("x-dead-letter-exchange", getDeadLetterExchange());
+		}
+		for (String queue : queueNames) {
+			channel.queueDeclare(queue, durable, false, false, arguments);
+		}
+	}
+
+	/**
+	 * key所在的分片序号
+	 */
+	public int shardFor(CharSequence key) {
+		return ring.get(key);
+	}
+
+	public String queueName(int shard) {
+		return queueNames[shard];
+	}
+
+	/**
+	 * 按key发送到对应的物理队列（经默认交换机）
+	 *	@ReturnType	int		消息进入的分片序号
+	 *	@Date	2026年10月17日	下午10:20:05
+	 *  @Param  @param channel
+	 *  @Param  @param key			消息key（如订单号），决定分片
+	 *  @Param  @param props
+	 *  @Param  @param body
+	 *  @Param  @return
+	 *  @Param  @throws IOException
+	 */
+	public int publish(Channel channel, CharSequence key, AMQP.BasicProperties props, byte[] body) throws IOException {
+		int shard = shardFor(key);
+		channel.basicPublish("", queueNames[shard], props, body);
+		return shard;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getShards() {
+		return shards;
+	}
+
+	public String getDeadLetterExchange() {
+		return deadLetter ? name + ".dlx" : null;
+	}
+
+	public String getDeadLetterQueue() {
+		return deadLetter ? name + ".dead" : null;
+	}
+
+	@Override
+	public String toString() {
+		return name + "[" + shards + " shards]";
+	}
+}
@@ -0,0 +1,18 @@
+package com.sf.wdx.spring;
+
+import java.util.List;
+
+/**
+ * 描述：批量消费的监听器契约，一次收到一批已转换的消息
+ * 		正常返回后整批确认（一次multiple ack）；抛出异常时整批拒绝。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public interface BatchListener<T> {
+
+	/**
+	 *	@Param  @param messages		按投递顺序排列，至少一条
+	 */
+	void onBatch(List<T> messages) throws Exception;
+
+}
@@ -0,0 +1,257 @@
+package com.sf.wdx.spring;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.DisposableBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.codec.CodecMessageConverter;
+
+/**
+ * 描述：把监听容器逐条投递的消息攒成批，一次调用BatchListener（或POJO的listen(List)方法），整批一次ack
+ * 		攒满batchSize条立即在容器的消费线程上交付；不满时最早一条等待超过flushMillis后由定时线程交付。
+ * 		交付成功后对该批最后一条basicAck(multiple=true)，失败时basicNack(multiple=true, requeueRejected)。
+ * 		转换失败的消息不进批次，立即单独basicReject(requeue=false)（重新投递也还是转换失败），队列配置了死信交换机时进入死信队列；
+ * 		否则它会被下一批的multiple ack一起确认，等于没处理就丢了。
+ * 		delivery tag按通道区分，每个消费通道（容器的每个并发消费者）各自攒批。
+ * 		容器必须配置acknowledge="manual"，且prefetch不小于batchSize，否则批次永远攒不满、只能按时间交付。
+ * 		交付在锁内进行，同一通道上的批次严格按顺序处理；停止时未交付的消息不确认，由broker重新投递。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class BatchMessageListener implements ChannelAwareMessageListener, DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchMessageListener.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	public static final long DEFAULT_FLUSH_MILLIS = 200;
+
+	private final BatchListener<Object> listener;
+
+	private MessageConverter messageConverter = new CodecMessageConverter();
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private long flushMillis = DEFAULT_FLUSH_MILLIS;
+
+	private boolean requeueRejected = true;
+
+	/**
+	 * 消费通道 -> 待交付的批次
+	 */
+	private final Map<Channel, Batch> batches = new IdentityHashMap<Channel, Batch>();
+
+	private ScheduledThreadPoolExecutor timer;
+
+	private volatile boolean destroyed;
+
+	@SuppressWarnings("unchecked")
+	public BatchMessageListener(BatchListener<?> listener) {
+		this.listener = (BatchListener<Object>) listener;
+	}
+
+	/**
+	 * 以POJO的方法作为批量监听器
+	 *	@Param  @param delegate		例：com.sf.wdx.spring.Consumer
+	 *	@Param  @param methodName	参数为java.util.List的方法，例：listen
+	 */
+	public BatchMessageListener(final Object delegate, String methodName) {
+		final Method method = findMethod(delegate.getClass(), methodName);
+		this.listener = messages -> {
+			try {
+				method.invoke(delegate, messages);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof Exception ? (Exception) cause : e;
+			}
+		};
+	}
+
+	/**
+	 * 每条消息的转换器（默认CodecMessageConverter）
+	 */
+	public void setMessageConverter(MessageConverter messageConverter) {
+		this.messageConverter = messageConverter;
+	}
+
+	public void setBatchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	public void setFlushMillis(long flushMillis) {
+		if (flushMillis <= 0) {
+			throw new IllegalArgumentException("flushMillis must be positive: " + flushMillis);
+		}
+		this.flushMillis = flushMillis;
+	}
+
+	/**
+	 * 交付失败时整批重新入队（默认true），false时由broker丢弃或进入死信
+	 */
+	public void setRequeueRejected(boolean requeueRejected) {
+		this.requeueRejected = requeueRejected;
+	}
+
+	@Override
+	public void onMessage(Message message, Channel channel) throws Exception {
+		long deliveryTag = message.getMessageProperties().getDeliveryTag();
+		Object value;
+		try {
+			value = messageConverter.fromMessage(message);
+		} catch (RuntimeException e) {
+			LOG.warn("reject delivery {}: conversion failed", deliveryTag, e);
+			channel.basicReject(deliveryTag, false);
+			return;
+		}
+		Batch batch;
+		synchronized (batches) {
+			if (destroyed) {
+				throw new IllegalStateException("batch listener is destroyed");
+			}
+			startTimer();
+			batch = batches.get(channel);
+			if (batch == null) {
+				batch = new Batch(channel, batchSize);
+				batches.put(channel, batch);
+			}
+		}
+		synchronized (batch) {
+			batch.add(value, deliveryTag);
+			if (batch.values.size() >= batchSize) {
+				deliver(batch);
+			}
+		}
+	}
+
+	/**
+	 * 停止定时交付，丢弃未交付的批次（未确认，通道关闭后broker重新投递）
+	 */
+	@Override
+	public void destroy() {
+		synchronized (batches) {
+			destroyed = true;
+			if (timer != null) {
+				timer.shutdownNow();
+			}
+			batches.clear();
+		}
+	}
+
+	private void startTimer() {
+		if (timer != null) {
+			return;
+		}
+		timer = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "batch-listener-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long tick = Math.max(1, flushMillis / 2);
+		timer.scheduleWithFixedDelay(this::flushExpired, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	private void flushExpired() {
+		List<Batch> snapshot;
+		synchronized (batches) {
+			snapshot = new ArrayList<Batch>(batches.values());
+		}
+		long now = System.nanoTime();
+		long flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+		for (Batch batch : snapshot) {
+			synchronized (batch) {
+				if (!batch.values.isEmpty() && now - batch.firstNanos >= flushNanos) {
+					deliver(batch);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 交付并确认，调用方持有batch的锁
+	 */
+	private void deliver(Batch batch) {
+		List<Object> values = batch.values;
+		long lastTag = batch.lastTag;
+		// 交付的列表交给监听器，不再复用
+		batch.values = new ArrayList<Object>(batchSize);
+		boolean success = false;
+		try {
+			listener.onBatch(values);
+			success = true;
+		} catch (Exception e) {
+			LOG.warn("batch of {} up to delivery {} rejected", values.size(), lastTag, e);
+		}
+		try {
+			// 1.整批确认或拒绝（multiple：lastTag及之前所有未确认的消息）
+			if (success) {
+				batch.channel.basicAck(lastTag, true);
+			} else {
+				batch.channel.basicNack(lastTag, true, requeueRejected);
+			}
+		} catch (IOException | RuntimeException e) {
+			// 2.通道已关闭：这一批会被broker重新投递，以后也不会再有这个通道的消息
+			LOG.warn("settle batch up to delivery {} failed", lastTag, e);
+			synchronized (batches) {
+				batches.remove(batch.channel);
+			}
+		}
+	}
+
+	private static Method findMethod(Class<?> type, String methodName) {
+		for (Method method : type.getMethods()) {
+			Class<?>[] parameters = method.getParameterTypes();
+			if (method.getName().equals(methodName) && parameters.length == 1 && parameters[0].isAssignableFrom(List.class)
+					&& parameters[0] != Object.class) {
+				return method;
+			}
+		}
+		throw new IllegalArgumentException("no public method " + methodName + "(java.util.List) on " + type.getName());
+	}
+
+	/**
+	 * 描述：一个消费通道上待交付的消息
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Batch {
+
+		final Channel channel;
+
+		List<Object> values;
+
+		long lastTag;
+
+		long firstNanos;
+
+		Batch(Channel channel, int batchSize) {
+			this.channel = channel;
+			this.values = new ArrayList<Object>(batchSize);
+		}
+
+		void add(Object value, long deliveryTag) {
+			if (values.isEmpty()) {
+				firstNanos = System.nanoTime();
+			}
+			values.add(value);
+			lastTag = deliveryTag;
+		}
+	}
+}
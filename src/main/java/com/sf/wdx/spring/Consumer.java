@@ -1,5 +1,7 @@
 package com.sf.wdx.spring;
 
+import java.util.List;
+
 /***
  * 描述：消费者
  * @author 80002888
@@ -16,4 +18,14 @@ public class Consumer {
     public void listen(String message) {
         System.out.println("消费者收到消息： " + message);
     }
+
+    /**
+     * 批量监听的方法（由BatchMessageListener攒批后调用，整批一次确认）
+     *	@ReturnType	void 
+     *	@Date	2026年10月17日	下午11:40:12
+     *  @Param  @param messages
+     */
+    public void listen(List<String> messages) {
+        System.out.println("消费者收到一批消息（" + messages.size() + "条）： " + messages);
+    }
 }
\ No newline at end of file
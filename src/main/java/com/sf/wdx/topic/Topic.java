@@ -1,8 +1,7 @@
 package com.sf.wdx.topic;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.Test;
 import org.springframework.amqp.core.ExchangeTypes;
@@ -13,6 +12,16 @@ import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
+import com.sf.wdx.codec.CodecBuffer;
+import com.sf.wdx.compress.Compression;
+import com.sf.wdx.compress.Lz4Codec;
+import com.sf.wdx.consumer.Unbatcher;
+import com.sf.wdx.publisher.BatchingPublisher;
+import com.sf.wdx.publisher.RoutingKeys;
+import com.sf.wdx.topology.Topology;
+import com.sf.wdx.topology.TopologyRegistry;
+import com.sf.wdx.util.ChannelLease;
+import com.sf.wdx.util.ChannelManager;
 import com.sf.wdx.util.ConnectionUtil;
 import com.sf.wdx.util.DateUtils;
 
@@ -46,8 +55,30 @@ public class Topic {
 	private static final String[] COUNTRYS = new String[]{CN, US, KR};
 	private static final String[] PERSONS = new String[]{MING, HONG, LI};
 	
+	/**
+	 * 3*3*3种routingKey预先拼好、编码好
+	 */
+	private static final RoutingKeys ROUTING_KEYS = RoutingKeys.product(COUNTRYS, PERSONS, LEVELS);
+	
+	/**
+	 * topic交换机（同一连接上只声明一次）
+	 */
+	private static final Topology TOPOLOGY = new Topology().exchange(EXCHANGE_NAME, ExchangeTypes.TOPIC);
+	
+	static {
+		// 交换机登记到进程共用的注册表，ChannelManager新建连接时先批量声明
+		TopologyRegistry.getDefault().register(TOPOLOGY);
+	}
+	
 	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
 	
+	/**
+	 * 批量发送：每批最多BATCH_BYTES字节，最多等待LINGER_MILLIS
+	 */
+	private static final int BATCH_BYTES = 16 * 1024;
+	
+	private static final long LINGER_MILLIS = 1000;
+	
 	/**
 	 * 消费者二号，接收routingKey为*.ming.*的数据
 	 *	@ReturnType	void 
@@ -73,8 +104,8 @@ public class Topic {
 	      @Override
 	      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
 	          throws IOException {
-	        String message = new String(body, "UTF-8");
-	        System.out.println(" [x] Received '" + message + "'");
+	        // 批量打包的消息体逐条拆出（不复制）
+	        Unbatcher.forEach(properties, body, m -> System.out.println(" [x] Received '" + Unbatcher.utf8(m) + "'"));
 	      }
 	    };
 	    // 7.把消费者绑定到指定频道的指定队列中，监听消息
@@ -101,21 +132,20 @@ public class Topic {
 		String queueName = channel.queueDeclare().getQueue();
 		// 4.声明交换机（topic：通配符模式）
 		channel.exchangeDeclare(EXCHANGE_NAME, ExchangeTypes.TOPIC);
-		// 5.绑定队列到交换机
+		// 5.创建消费者（在客户端按routingKey分发，每个模式一个处理器）
 		String routingKey1 = CN + ".#";
 		String routingKey2 = "*.*." + ERROR;
-		channel.queueBind(queueName, EXCHANGE_NAME, routingKey1);
-		channel.queueBind(queueName, EXCHANGE_NAME, routingKey2);
+		TopicDispatcher consumer = new TopicDispatcher(channel);
+		TopicDispatcher.DeliveryHandler handler = new TopicDispatcher.DeliveryHandler() {
+			@Override
+			public void handle(String pattern, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				Unbatcher.forEach(properties, body, m -> System.out.println(" [x] Received by '" + pattern + "' '" + Unbatcher.utf8(m) + "'"));
+			}
+		};
+		consumer.on(routingKey1, handler).on(routingKey2, handler);
+		// 6.用所有模式绑定队列到交换机
+		consumer.bind(queueName, EXCHANGE_NAME);
 	    System.out.println(" [*] Waiting for messages. To exit press CTRL+C");
-	    // 6.创建消费者
-	    Consumer consumer = new DefaultConsumer(channel) {
-	      @Override
-	      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
-	          throws IOException {
-	        String message = new String(body, "UTF-8");
-	        System.out.println(" [x] Received '" + message + "'");
-	      }
-	    };
 	    // 7.把消费者绑定到指定频道的指定队列中，监听消息
     	channel.basicConsume(queueName, true, consumer);
     	System.in.read();
@@ -132,25 +162,29 @@ public class Topic {
 	 */
 	@Test
 	public void producer() throws Exception{
-		// 1.获取连接
-		Connection connection = ConnectionUtil.getConnection();
-		// 2.创建一个通道
-		Channel channel = connection.createChannel();
-		// 3.声明交换机（fanout：广播分发模式，若不存在则创建，存在则使用）
-		channel.exchangeDeclare(EXCHANGE_NAME, ExchangeTypes.TOPIC);
-		// 4.发送消息到交换机（随机发送3*3*3种routingKey的消息）
+		// 1.从通道池借出通道（共享进程内的长连接，不再每次建立TCP连接）
+		ChannelLease lease = ChannelManager.getInstance().lease();
+		// 2.获取通道
+		Channel channel = lease.getChannel();
+		// 3.声明交换机（连接建立时已声明登记的交换机，这里命中缓存不再访问broker）
+		TopologyRegistry.getDefault().declare(channel.getConnection(), TOPOLOGY);
+		/** 按routingKey攒批发送，一批只调用一次basicPublish */
+		BatchingPublisher publisher = new BatchingPublisher(channel, EXCHANGE_NAME, null, BATCH_BYTES, LINGER_MILLIS);
+		/** 攒满的批次超过1KB后用LZ4压缩，消费端Unbatcher自动解压 */
+		publisher.setCompression(new Compression(Lz4Codec.ENCODING, Compression.DEFAULT_THRESHOLD));
+		/** 消息体写进复用的缓冲区，编码时不拼接字符串（批次会复制内容） */
+		CodecBuffer body = new CodecBuffer();
+		// 4.发送消息到交换机（随机发送3*3*3种routingKey的消息；编码和发送不分配对象，只有演示用的打印会）
 		for (int i = 0; i < 100; i++) {
 			Thread.sleep(200);
-			String country = COUNTRYS[new Random().nextInt(1000) % 3];
-			String person = PERSONS[new Random().nextInt(1000) % 3];
-			String level = LEVELS[new Random().nextInt(1000) % 3];
-			String routingKey = country + "." + person + "." + level;
-			String message = routingKey + "---" + DateUtils.date2Str(new Date(), PATTERN) + "---" + i;
-			channel.basicPublish(EXCHANGE_NAME, routingKey, null, message.getBytes());
-			System.out.println(" [x] Sent '" + message + "'");
+			int key = ROUTING_KEYS.random(ThreadLocalRandom.current());
+			body.reset();
+			body.writeBytes(ROUTING_KEYS.bytes(key)).writeAscii("---").writeBytes(DateUtils.nowBytes(PATTERN)).writeAscii("---").writeDecimal(i);
+			publisher.publish(ROUTING_KEYS.key(key), body.array(), 0, body.size());
+			System.out.println(" [x] Sent '" + new String(body.array(), 0, body.size(), "UTF-8") + "'");
 		}
-		// 5.关闭
-		channel.close();
-		connection.close();
+		// 5.发送剩余的批次，归还通道
+		publisher.close();
+		lease.close();
 	}
 }
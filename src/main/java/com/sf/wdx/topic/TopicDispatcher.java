@@ -0,0 +1,119 @@
+package com.sf.wdx.topic;
+
+import java.io.IOException;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * 描述：按routingKey在客户端分发消息的消费者
+ * 		一个队列用所有模式绑定到topic交换机，消息到达后用TopicMatcher找出匹配的模式，交给对应的处理器；
+ * 		几百个模式只需要一个队列，不必为每个模式建一个队列。
+ * 		匹配不上任何模式的消息交给fallback（默认忽略）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class TopicDispatcher extends DefaultConsumer {
+
+	/**
+	 * 描述：消息处理器
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public interface DeliveryHandler {
+
+		void handle(String pattern, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException;
+
+	}
+
+	private final TopicMatcher<DeliveryHandler> matcher = new TopicMatcher<DeliveryHandler>();
+
+	private DeliveryHandler fallback;
+
+	/**
+	 * dispatch线程每次只处理一条消息，当前消息放在字段中，visitor不必每次新建
+	 */
+	private Envelope currentEnvelope;
+	private AMQP.BasicProperties currentProperties;
+	private byte[] currentBody;
+	private IOException currentError;
+
+	private final TopicMatcher.Visitor<DeliveryHandler> visitor = new TopicMatcher.Visitor<DeliveryHandler>() {
+		@Override
+		public void visit(String pattern, DeliveryHandler handler) {
+			try {
+				handler.handle(pattern, currentEnvelope, currentProperties, currentBody);
+			} catch (IOException e) {
+				if (currentError == null) {
+					currentError = e;
+				}
+			}
+		}
+	};
+
+	public TopicDispatcher(Channel channel) {
+		super(channel);
+	}
+
+	/**
+	 * 注册模式和处理器（在basicConsume之前完成）
+	 *	@ReturnType	TopicDispatcher
+	 *	@Date	2026年10月17日	下午7:40:02
+	 *  @Param  @param pattern
+	 *  @Param  @param handler
+	 *  @Param  @return
+	 */
+	public TopicDispatcher on(String pattern, DeliveryHandler handler) {
+		matcher.add(pattern, handler);
+		return this;
+	}
+
+	/**
+	 * 没有模式匹配时的处理器
+	 */
+	public TopicDispatcher otherwise(DeliveryHandler handler) {
+		this.fallback = handler;
+		return this;
+	}
+
+	/**
+	 * 用所有已注册的模式把队列绑定到交换机
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	下午7:41:15
+	 *  @Param  @param queueName
+	 *  @Param  @param exchangeName
+	 *  @Param  @throws IOException
+	 */
+	public void bind(String queueName, String exchangeName) throws IOException {
+		for (String pattern : matcher.getPatterns()) {
+			getChannel().queueBind(queueName, exchangeName, pattern);
+		}
+	}
+
+	public TopicMatcher<DeliveryHandler> getMatcher() {
+		return matcher;
+	}
+
+	@Override
+	public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+		currentEnvelope = envelope;
+		currentProperties = properties;
+		currentBody = body;
+		currentError = null;
+		try {
+			int matched = matcher.match(envelope.getRoutingKey(), visitor);
+			if (matched == 0 && fallback != null) {
+				fallback.handle(null, envelope, properties, body);
+			}
+			if (currentError != null) {
+				throw currentError;
+			}
+		} finally {
+			currentEnvelope = null;
+			currentProperties = null;
+			currentBody = null;
+		}
+	}
+}
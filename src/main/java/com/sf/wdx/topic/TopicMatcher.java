@@ -0,0 +1,335 @@
+package com.sf.wdx.topic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述：AMQP topic模式匹配器（与topic交换机的匹配规则一致）
+ * 			routingKey按"."切分成单词，*匹配一个单词，#匹配零个或多个单词
+ * 		所有模式编译成一棵单词trie，相同的单词只保留一个String实例；
+ * 		匹配时直接在routingKey上按下标比较单词，不切分字符串，不产生垃圾。
+ * 		注册（add）要在匹配之前完成，注册和匹配不能并发进行；注册完成后可多线程并发匹配。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class TopicMatcher<H> {
+
+	/**
+	 * 匹配结果回调
+	 */
+	public interface Visitor<H> {
+
+		/**
+		 * 每个匹配的（模式，处理器）调用一次
+		 *	@Param  @param pattern		匹配上的模式
+		 *	@Param  @param handler		该模式注册的处理器
+		 */
+		void visit(String pattern, H handler);
+
+	}
+
+	private static final char SEPARATOR = '.';
+
+	private static final String STAR = "*";
+
+	private static final String HASH = "#";
+
+	private final Node<H> root = new Node<H>(0);
+
+	/**
+	 * 单词驻留表
+	 */
+	private final Map<String, String> words = new HashMap<String, String>();
+
+	private final List<String> patterns = new ArrayList<String>();
+
+	private int nodeCount = 1;
+
+	/**
+	 * 每个线程的去重标记（同一个模式可能经由多条#路径到达，只回调一次）
+	 */
+	private final ThreadLocal<MatchState> states = new ThreadLocal<MatchState>() {
+		@Override
+		protected MatchState initialValue() {
+			return new MatchState();
+		}
+	};
+
+	/**
+	 * 注册模式和处理器
+	 *	@ReturnType	TopicMatcher<H>
+	 *	@Date	2026年10月17日	下午7:10:21
+	 *  @Param  @param pattern		例：cn.#、*.*.error
+	 *  @Param  @param handler
+	 *  @Param  @return
+	 */
+	public TopicMatcher<H> add(String pattern, H handler) {
+		Node<H> node = root;
+		if (!pattern.isEmpty()) {
+			int start = 0;
+			while (true) {
+				int end = pattern.indexOf(SEPARATOR, start);
+				String word = intern(pattern.substring(start, end < 0 ? pattern.length() : end));
+				if (STAR.equals(word)) {
+					if (node.star == null) {
+						node.star = new Node<H>(nodeCount++);
+					}
+					node = node.star;
+				} else if (HASH.equals(word)) {
+					if (node.hash == null) {
+						node.hash = new Node<H>(nodeCount++);
+					}
+					node = node.hash;
+				} else {
+					Node<H> child = node.get(word, 0, word.length(), word.hashCode());
+					if (child == null) {
+						child = new Node<H>(nodeCount++);
+						node.put(word, child);
+					}
+					node = child;
+				}
+				if (end < 0) {
+					break;
+				}
+				start = end + 1;
+			}
+		}
+		if (node.pattern == null) {
+			node.pattern = pattern;
+			patterns.add(pattern);
+		}
+		node.handlers.add(handler);
+		return this;
+	}
+
+	/**
+	 * 匹配routingKey，对每个匹配的（模式，处理器）回调visitor
+	 *	@ReturnType	int		匹配上的处理器个数
+	 *	@Date	2026年10月17日	下午7:12:45
+	 *  @Param  @param routingKey
+	 *  @Param  @param visitor
+	 *  @Param  @return
+	 */
+	public int match(String routingKey, Visitor<H> visitor) {
+		MatchState state = states.get();
+		state.begin(nodeCount);
+		int length = routingKey.length();
+		// 空routingKey没有单词
+		return match(root, routingKey, length == 0 ? 1 : 0, length, visitor, state);
+	}
+
+	/**
+	 * 是否至少匹配一个模式
+	 */
+	public boolean matches(String routingKey) {
+		return match(routingKey, null) > 0;
+	}
+
+	/**
+	 * 匹配上的所有处理器（会创建List，仅用于非热点路径）
+	 *	@ReturnType	List<H>
+	 *	@Date	2026年10月17日	下午7:13:30
+	 */
+	public List<H> handlersFor(String routingKey) {
+		final List<H> result = new ArrayList<H>();
+		match(routingKey, new Visitor<H>() {
+			@Override
+			public void visit(String pattern, H handler) {
+				result.add(handler);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * 已注册的模式（用于绑定队列）
+	 */
+	public List<String> getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 * @param pos	下一个单词的起始下标，pos > length表示单词已经全部消耗
+	 */
+	private int match(Node<H> node, String key, int pos, int length, Visitor<H> visitor, MatchState state) {
+		int matched = 0;
+		if (pos > length) {
+			matched += emit(node, visitor, state);
+			// 末尾的#可以匹配零个单词
+			if (node.hash != null) {
+				matched += match(node.hash, key, pos, length, visitor, state);
+			}
+			return matched;
+		}
+		int end = key.indexOf(SEPARATOR, pos);
+		if (end < 0) {
+			end = length;
+		}
+		// 1.精确单词
+		if (node.size > 0) {
+			Node<H> child = node.get(key, pos, end, hash(key, pos, end));
+			if (child != null) {
+				matched += match(child, key, end + 1, length, visitor, state);
+			}
+		}
+		// 2.*匹配当前单词
+		if (node.star != null) {
+			matched += match(node.star, key, end + 1, length, visitor, state);
+		}
+		// 3.#匹配从当前单词开始的零个或多个单词
+		if (node.hash != null) {
+			matched += match(node.hash, key, pos, length, visitor, state);
+			int next = end;
+			while (true) {
+				matched += match(node.hash, key, next + 1, length, visitor, state);
+				if (next >= length) {
+					break;
+				}
+				next = key.indexOf(SEPARATOR, next + 1);
+				if (next < 0) {
+					next = length;
+				}
+			}
+		}
+		return matched;
+	}
+
+	private int emit(Node<H> node, Visitor<H> visitor, MatchState state) {
+		if (node.pattern == null || state.marks[node.id] == state.epoch) {
+			return 0;
+		}
+		state.marks[node.id] = state.epoch;
+		List<H> handlers = node.handlers;
+		int size = handlers.size();
+		if (visitor != null) {
+			for (int i = 0; i < size; i++) {
+				visitor.visit(node.pattern, handlers.get(i));
+			}
+		}
+		return size;
+	}
+
+	private String intern(String word) {
+		String interned = words.get(word);
+		if (interned == null) {
+			words.put(word, word);
+			interned = word;
+		}
+		return interned;
+	}
+
+	/**
+	 * 与String.hashCode()相同的算法，只计算[start, end)区间
+	 */
+	private static int hash(String s, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + s.charAt(i);
+		}
+		return h;
+	}
+
+	/**
+	 * 描述：trie节点，精确单词子节点保存在开放寻址表中
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Node<H> {
+
+		final int id;
+
+		String[] words = new String[4];
+		int[] hashes = new int[4];
+		/** 不能创建泛型数组，用通配符数组转换（只存放Node<H>） */
+		@SuppressWarnings("unchecked")
+		Node<H>[] children = (Node<H>[]) new Node<?>[4];
+		int size;
+
+		Node<H> star;
+		Node<H> hash;
+
+		/**
+		 * 终止于此节点的模式及其处理器
+		 */
+		String pattern;
+		final List<H> handlers = new ArrayList<H>(1);
+
+		Node(int id) {
+			this.id = id;
+		}
+
+		Node<H> get(String key, int start, int end, int h) {
+			int len = end - start;
+			int mask = words.length - 1;
+			for (int i = mix(h) & mask; words[i] != null; i = (i + 1) & mask) {
+				String word = words[i];
+				if (hashes[i] == h && word.length() == len && key.regionMatches(start, word, 0, len)) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		@SuppressWarnings("unchecked")
+		void put(String word, Node<H> child) {
+			// 负载因子不超过0.5
+			if ((size + 1) * 2 > words.length) {
+				String[] oldWords = words;
+				int[] oldHashes = hashes;
+				Node<H>[] oldChildren = children;
+				words = new String[oldWords.length * 2];
+				hashes = new int[oldWords.length * 2];
+				children = (Node<H>[]) new Node<?>[oldWords.length * 2];
+				for (int i = 0; i < oldWords.length; i++) {
+					if (oldWords[i] != null) {
+						insert(oldWords[i], oldHashes[i], oldChildren[i]);
+					}
+				}
+			}
+			insert(word, word.hashCode(), child);
+			size++;
+		}
+
+		private void insert(String word, int h, Node<H> child) {
+			int mask = words.length - 1;
+			int i = mix(h) & mask;
+			while (words[i] != null) {
+				i = (i + 1) & mask;
+			}
+			words[i] = word;
+			hashes[i] = h;
+			children[i] = child;
+		}
+
+		private static int mix(int h) {
+			return h ^ (h >>> 16);
+		}
+	}
+
+	/**
+	 * 描述：线程私有的去重标记，每次匹配epoch加一，标记数组只在节点数增长时扩容
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class MatchState {
+
+		int[] marks = new int[0];
+
+		int epoch;
+
+		void begin(int nodeCount) {
+			if (marks.length < nodeCount) {
+				marks = new int[Math.max(nodeCount, marks.length * 2)];
+				epoch = 0;
+			}
+			if (++epoch == 0) {
+				// 溢出回绕时清空标记
+				Arrays.fill(marks, 0);
+				epoch = 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.sf.wdx.topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 描述：一组交换机、队列和绑定的描述（只描述，不连接broker），由TopologyRegistry声明
+ * 		重复添加相同的声明只保留一份；声明时按交换机、队列、绑定的顺序发送，添加顺序不影响依赖关系。
+ * 		只支持命名队列：服务器命名的队列（queueDeclare()）要先同步声明拿到名字，再把它的绑定放进Topology。
+ * 		构建完成后只读使用，可多线程共用。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class Topology {
+
+	/**
+	 * 声明类型，同时也是发送顺序
+	 */
+	public enum Kind {
+		EXCHANGE, QUEUE, BINDING
+	}
+
+	private final Set<Declaration> declarations = new LinkedHashSet<Declaration>();
+
+	/**
+	 * 非持久化、不自动删除的交换机（与channel.exchangeDeclare(name, type)相同）
+	 */
+	public Topology exchange(String name, String type) {
+		return exchange(name, type, false, false, null);
+	}
+
+	/**
+	 * 交换机
+	 *	@ReturnType	Topology
+	 *	@Date	2026年10月17日	下午3:05:12
+	 *  @Param  @param name
+	 *  @Param  @param type			direct、fanout、topic、headers
+	 *  @Param  @param durable
+	 *  @Param  @param autoDelete
+	 *  @Param  @param arguments	可为null
+	 *  @Param  @return
+	 */
+	public Topology exchange(String name, String type, boolean durable, boolean autoDelete, Map<String, Object> arguments) {
+		if (name == null || name.isEmpty() || type == null) {
+			throw new IllegalArgumentException("exchange needs a name and a type: '" + name + "', " + type);
+		}
+		declarations.add(new Declaration(Kind.EXCHANGE, name, type, null, durable, false, autoDelete, arguments));
+		return this;
+	}
+
+	/**
+	 * 队列
+	 *	@ReturnType	Topology
+	 *	@Date	2026年10月17日	下午3:06:40
+	 *  @Param  @param name			不能为空（服务器命名的队列不能批量声明）
+	 *  @Param  @param durable
+	 *  @Param  @param exclusive	排他队列属于声明它的连接，每个连接各声明一次
+	 *  @Param  @param autoDelete
+	 *  @Param  @param arguments	可为null
+	 *  @Param  @return
+	 */
+	public Topology queue(String name, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("server-named queues cannot be declared in a batch, declare them with channel.queueDeclare()");
+		}
+		declarations.add(new Declaration(Kind.QUEUE, name, null, null, durable, exclusive, autoDelete, arguments));
+		return this;
+	}
+
+	/**
+	 * 队列绑定到交换机
+	 */
+	public Topology bind(String queue, String exchange, String routingKey) {
+		return bind(queue, exchange, routingKey, null);
+	}
+
+	public Topology bind(String queue, String exchange, String routingKey, Map<String, Object> arguments) {
+		if (queue == null || queue.isEmpty() || exchange == null || exchange.isEmpty()) {
+			throw new IllegalArgumentException("binding needs a queue and an exchange: '" + queue + "', '" + exchange + "'");
+		}
+		declarations.add(new Declaration(Kind.BINDING, queue, exchange, routingKey == null ? "" : routingKey, false, false, false, arguments));
+		return this;
+	}
+
+	/**
+	 * 合并另一个Topology的全部声明
+	 */
+	public Topology include(Topology other) {
+		declarations.addAll(other.declarations);
+		return this;
+	}
+
+	/**
+	 * 按发送顺序排列的声明（交换机、队列、绑定）
+	 */
+	public List<Declaration> getDeclarations() {
+		List<Declaration> ordered = new ArrayList<Declaration>(declarations.size());
+		for (Kind kind : Kind.values()) {
+			for (Declaration declaration : declarations) {
+				if (declaration.kind == kind) {
+					ordered.add(declaration);
+				}
+			}
+		}
+		return ordered;
+	}
+
+	public int size() {
+		return declarations.size();
+	}
+
+	@Override
+	public String toString() {
+		return "Topology" + getDeclarations();
+	}
+
+	/**
+	 * 描述：一条声明（不可变，可作为缓存的key）
+	 * 		EXCHANGE：name、type；QUEUE：name；BINDING：name是队列，type是交换机，routingKey是绑定键。
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static final class Declaration {
+
+		final Kind kind;
+
+		final String name;
+
+		final String type;
+
+		final String routingKey;
+
+		final boolean durable;
+
+		final boolean exclusive;
+
+		final boolean autoDelete;
+
+		final Map<String, Object> arguments;
+
+		private final int hash;
+
+		Declaration(Kind kind, String name, String type, String routingKey, boolean durable, boolean exclusive, boolean autoDelete,
+				Map<String, Object> arguments) {
+			this.kind = kind;
+			this.name = name;
+			this.type = type;
+			this.routingKey = routingKey;
+			this.durable = durable;
+			this.exclusive = exclusive;
+			this.autoDelete = autoDelete;
+			this.arguments = arguments == null || arguments.isEmpty() ? null
+					: Collections.unmodifiableMap(new HashMap<String, Object>(arguments));
+			this.hash = Objects.hash(kind, name, type, routingKey, durable, exclusive, autoDelete, this.arguments);
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * 排他队列只在声明它的连接上存在
+		 */
+		public boolean isExclusive() {
+			return exclusive;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Declaration)) {
+				return false;
+			}
+			Declaration other = (Declaration) obj;
+			return hash == other.hash && kind == other.kind && name.equals(other.name) && Objects.equals(type, other.type)
+					&& Objects.equals(routingKey, other.routingKey) && durable == other.durable && exclusive == other.exclusive
+					&& autoDelete == other.autoDelete && Objects.equals(arguments, other.arguments);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			switch (kind) {
+			case EXCHANGE:
+				return "exchange '" + name + "' (" + type + (durable ? ", durable" : "") + (autoDelete ? ", auto-delete" : "") + ")";
+			case QUEUE:
+				return "queue '" + name + "'" + (durable ? " durable" : "") + (exclusive ? " exclusive" : "") + (autoDelete ? " auto-delete" : "");
+			default:
+				return "binding '" + name + "' -> '" + type + "' [" + routingKey + "]";
+			}
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package com.sf.wdx.topology;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Recoverable;
+import com.rabbitmq.client.RecoveryListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+/**
+ * 描述：拓扑注册表，按连接缓存已声明过的交换机、队列和绑定，批量声明
+ * 		declare(connection, topology)只发送这个连接上还没声明过的部分，全部声明过时不访问broker；
+ * 		发送时用NoWait方法连续发出一批（最多batchSize条）不等待回复，最后用一个同步方法等broker按顺序处理完，
+ * 		一批只有一次往返。某条声明失败时broker关闭通道，再逐条同步声明这一批，找出失败的那条抛出DeclarationException。
+ * 		register(topology)登记进程启动时的拓扑，apply(connection)在每个新连接上声明（ChannelManager建立连接时调用），
+ * 		自动恢复的连接（Recoverable）恢复后重新apply。连接断开后该连接的缓存失效。
+ * 		每个连接保留一个声明用的通道；缓存只记录"本连接声明过"，别处删除了队列或交换机时用forget清空后重新声明。
+ * 		broker会自行删除的不缓存，每次declare都发送：服务器命名（amq.gen-）、排他或自动删除的队列，自动删除的交换机，以及绑定到它们的绑定。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class TopologyRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TopologyRegistry.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	/**
+	 * 服务器命名队列的前缀
+	 */
+	static final String SERVER_NAMED_PREFIX = "amq.gen-";
+
+	private static final TopologyRegistry DEFAULT = new TopologyRegistry(DEFAULT_BATCH_SIZE);
+
+	private final int batchSize;
+
+	/**
+	 * 启动时的拓扑（每个连接都要声明）
+	 */
+	private final Topology registered = new Topology();
+
+	private final ConcurrentHashMap<Connection, State> states = new ConcurrentHashMap<Connection, State>();
+
+	private final LongAdder sent = new LongAdder();
+
+	private final LongAdder skipped = new LongAdder();
+
+	private final LongAdder roundTrips = new LongAdder();
+
+	public TopologyRegistry(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * 进程共用的注册表（ChannelManager.getInstance()的连接建立时apply）
+	 */
+	public static TopologyRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * 登记启动时的拓扑，之后apply的连接都会声明（已经apply过的连接要再apply一次）
+	 *	@ReturnType	TopologyRegistry
+	 *	@Date	2026年10月17日	下午3:20:11
+	 *  @Param  @param topology
+	 *  @Param  @return
+	 */
+	public TopologyRegistry register(Topology topology) {
+		synchronized (registered) {
+			registered.include(topology);
+		}
+		return this;
+	}
+
+	/**
+	 * 在连接上声明登记过的拓扑
+	 *	@ReturnType	int		实际发送的声明数
+	 *	@Date	2026年10月17日	下午3:21:36
+	 *  @Param  @param connection
+	 *  @Param  @throws IOException
+	 */
+	public int apply(Connection connection) throws IOException {
+		Topology snapshot;
+		synchronized (registered) {
+			if (registered.size() == 0) {
+				return 0;
+			}
+			snapshot = new Topology().include(registered);
+		}
+		return declare(connection, snapshot);
+	}
+
+	/**
+	 * 在连接上声明topology中还没声明过的部分（不登记，重连后不会自动重新声明）
+	 *	@ReturnType	int		实际发送的声明数，0表示全部命中缓存
+	 *	@Date	2026年10月17日	下午3:23:02
+	 *  @Param  @param connection
+	 *  @Param  @param topology
+	 *  @Param  @throws DeclarationException	某条声明被broker拒绝（之前的声明已生效）
+	 *  @Param  @throws IOException
+	 */
+	public int declare(Connection connection, Topology topology) throws IOException {
+		State state = state(connection);
+		List<Topology.Declaration> declarations = topology.getDeclarations();
+		// 1.全部声明过时不加锁、不访问broker
+		if (state.declared.containsAll(declarations)) {
+			skipped.add(declarations.size());
+			return 0;
+		}
+		Set<Topology.Declaration> uncached = uncached(declarations);
+		synchronized (state) {
+			List<Topology.Declaration> pending = new ArrayList<Topology.Declaration>();
+			for (Topology.Declaration declaration : declarations) {
+				if (!state.declared.contains(declaration)) {
+					pending.add(declaration);
+				}
+			}
+			skipped.add(declarations.size() - pending.size());
+			// 2.分批发送，每批一次往返
+			for (int from = 0; from < pending.size(); from += batchSize) {
+				send(state, pending.subList(from, Math.min(pending.size(), from + batchSize)), uncached);
+			}
+			return pending.size();
+		}
+	}
+
+	/**
+	 * 清空连接的缓存（之后的declare重新发送全部声明）
+	 */
+	public void forget(Connection connection) {
+		State state = states.get(connection);
+		if (state != null) {
+			state.declared.clear();
+		}
+	}
+
+	/**
+	 * 连接上已声明过的数量
+	 */
+	public int getDeclaredCount(Connection connection) {
+		State state = states.get(connection);
+		return state == null ? 0 : state.declared.size();
+	}
+
+	/**
+	 * 发送给broker的声明数
+	 */
+	public long getSent() {
+		return sent.sum();
+	}
+
+	/**
+	 * 命中缓存、没有发送的声明数
+	 */
+	public long getSkipped() {
+		return skipped.sum();
+	}
+
+	/**
+	 * 等待broker回复的次数（每批一次，失败重试时每条一次）
+	 */
+	public long getRoundTrips() {
+		return roundTrips.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "TopologyRegistry[connections=" + states.size() + ", sent=" + getSent() + ", skipped=" + getSkipped() + ", roundTrips="
+				+ getRoundTrips() + "]";
+	}
+
+	private State state(Connection connection) {
+		State state = states.get(connection);
+		if (state != null) {
+			return state;
+		}
+		State created = new State(connection);
+		state = states.putIfAbsent(connection, created);
+		if (state != null) {
+			return state;
+		}
+		// 连接断开后缓存失效；自动恢复的连接恢复后重新声明登记的拓扑
+		connection.addShutdownListener(created);
+		if (connection instanceof Recoverable) {
+			((Recoverable) connection).addRecoveryListener(created);
+		}
+		return created;
+	}
+
+	/**
+	 * broker会自行删除的声明（连接关闭、最后一个消费者取消、最后一个绑定解除时），缓存了会让之后的declare跳过重新声明
+	 */
+	static Set<Topology.Declaration> uncached(List<Topology.Declaration> declarations) {
+		Set<Topology.Declaration> uncached = new HashSet<Topology.Declaration>();
+		Set<String> queues = new HashSet<String>();
+		Set<String> exchanges = new HashSet<String>();
+		for (Topology.Declaration d : declarations) {
+			if (d.kind == Topology.Kind.QUEUE && (d.exclusive || d.autoDelete || d.name.startsWith(SERVER_NAMED_PREFIX))) {
+				queues.add(d.name);
+				uncached.add(d);
+			} else if (d.kind == Topology.Kind.EXCHANGE && d.autoDelete) {
+				exchanges.add(d.name);
+				uncached.add(d);
+			}
+		}
+		// getDeclarations按交换机、队列、绑定排序，绑定在最后
+		for (Topology.Declaration d : declarations) {
+			if (d.kind == Topology.Kind.BINDING
+					&& (d.name.startsWith(SERVER_NAMED_PREFIX) || queues.contains(d.name) || exchanges.contains(d.type))) {
+				uncached.add(d);
+			}
+		}
+		return uncached;
+	}
+
+	private void send(State state, List<Topology.Declaration> batch, Set<Topology.Declaration> uncached) throws IOException {
+		try {
+			Channel channel = state.channel();
+			for (Topology.Declaration declaration : batch) {
+				sendNoWait(channel, declaration);
+			}
+			// 同一通道上的方法按顺序处理，同步方法返回时之前的NoWait声明都已成功
+			channel.basicQos(0);
+			roundTrips.increment();
+			sent.add(batch.size());
+			for (Topology.Declaration declaration : batch) {
+				if (!uncached.contains(declaration)) {
+					state.declared.add(declaration);
+				}
+			}
+		} catch (IOException | ShutdownSignalException e) {
+			// 通道已被关闭，逐条同步声明找出失败的那条
+			state.closeChannel();
+			for (Topology.Declaration declaration : batch) {
+				if (state.declared.contains(declaration)) {
+					continue;
+				}
+				try {
+					sendSync(state.channel(), declaration);
+				} catch (IOException | ShutdownSignalException cause) {
+					state.closeChannel();
+					throw new DeclarationException(declaration, cause);
+				} finally {
+					roundTrips.increment();
+				}
+				sent.increment();
+				if (!uncached.contains(declaration)) {
+					state.declared.add(declaration);
+				}
+			}
+		}
+	}
+
+	private static void sendNoWait(Channel channel, Topology.Declaration d) throws IOException {
+		switch (d.kind) {
+		case EXCHANGE:
+			channel.exchangeDeclareNoWait(d.name, d.type, d.durable, d.autoDelete, false, d.arguments);
+			break;
+		case QUEUE:
+			channel.queueDeclareNoWait(d.name, d.durable, d.exclusive, d.autoDelete, d.arguments);
+			break;
+		default:
+			channel.queueBindNoWait(d.name, d.type, d.routingKey, d.arguments);
+		}
+	}
+
+	private static void sendSync(Channel channel, Topology.Declaration d) throws IOException {
+		switch (d.kind) {
+		case EXCHANGE:
+			channel.exchangeDeclare(d.name, d.type, d.durable, d.autoDelete, false, d.arguments);
+			break;
+		case QUEUE:
+			channel.queueDeclare(d.name, d.durable, d.exclusive, d.autoDelete, d.arguments);
+			break;
+		default:
+			channel.queueBind(d.name, d.type, d.routingKey, d.arguments);
+		}
+	}
+
+	/**
+	 * 描述：声明被broker拒绝（例如与已存在的同名队列参数不一致）
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static class DeclarationException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Topology.Declaration declaration;
+
+		public DeclarationException(Topology.Declaration declaration, Throwable cause) {
+			super("failed to declare " + declaration + ": " + cause.getMessage(), cause);
+			this.declaration = declaration;
+		}
+
+		public Topology.Declaration getDeclaration() {
+			return declaration;
+		}
+	}
+
+	/**
+	 * 描述：一个连接的缓存和声明用的通道
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private final class State implements ShutdownListener, RecoveryListener {
+
+		final Connection connection;
+
+		final Set<Topology.Declaration> declared = ConcurrentHashMap.newKeySet();
+
+		private Channel channel;
+
+		State(Connection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * 调用方持有State的锁
+		 */
+		Channel channel() throws IOException {
+			if (channel == null || !channel.isOpen()) {
+				channel = connection.createChannel();
+				if (channel == null) {
+					throw new IOException("no channel available on " + connection);
+				}
+			}
+			return channel;
+		}
+
+		void closeChannel() {
+			if (channel != null) {
+				try {
+					if (channel.isOpen()) {
+						channel.abort();
+					}
+				} catch (IOException e) {
+					// 通道已不可用，忽略
+				}
+				channel = null;
+			}
+		}
+
+		@Override
+		public void shutdownCompleted(ShutdownSignalException cause) {
+			declared.clear();
+			if (!(connection instanceof Recoverable)) {
+				states.remove(connection, this);
+			}
+		}
+
+		@Override
+		public void handleRecovery(Recoverable recoverable) {
+			declared.clear();
+			try {
+				apply(connection);
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("topology re-apply after recovery of {} failed", connection, e);
+			}
+		}
+
+		@Override
+		public void handleRecoveryStarted(Recoverable recoverable) {
+		}
+	}
+}
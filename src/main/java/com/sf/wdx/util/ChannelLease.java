@@ -0,0 +1,55 @@
+package com.sf.wdx.util;
+
+import com.rabbitmq.client.Channel;
+
+/**
+ * 描述：从通道池借出的通道，配合try-with-resources使用，close时归还而不是关闭通道
+ * 		try (ChannelLease lease = ChannelManager.getInstance().lease()) {
+ * 			lease.getChannel().basicPublish(...);
+ * 		}
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ChannelLease implements AutoCloseable {
+
+	private final ChannelPool pool;
+
+	private final Channel channel;
+
+	private boolean released;
+
+	ChannelLease(ChannelPool pool, Channel channel) {
+		this.pool = pool;
+		this.channel = channel;
+	}
+
+	public Channel getChannel() {
+		if (released) {
+			throw new IllegalStateException("channel lease already released");
+		}
+		return channel;
+	}
+
+	/**
+	 * 通道出现异常时调用，关闭后不再放回池中
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	上午10:31:05
+	 */
+	public void invalidate() {
+		if (!released) {
+			released = true;
+			pool.invalidate(channel);
+		}
+	}
+
+	/**
+	 * 归还通道
+	 */
+	@Override
+	public void close() {
+		if (!released) {
+			released = true;
+			pool.giveBack(channel);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.sf.wdx.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.sf.wdx.topology.TopologyRegistry;
+
+/**
+ * 描述：进程级的连接、通道管理器
+ * 		进程内只保持少量（默认1个）长连接，每个连接一个有界通道池；
+ * 		线程按线程id固定落到某个连接上，借出的通道用完归还，避免每次发送都建立TCP连接和通道。
+ * 		连接断开后在下一次借出时自动重建；设置了TopologyRegistry时，每个新建的连接先声明登记的拓扑。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ChannelManager implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ChannelManager.class);
+
+	public static final int DEFAULT_CONNECTIONS = 1;
+
+	public static final int DEFAULT_CHANNELS_PER_CONNECTION = 16;
+
+	public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5000;
+
+	private final ConnectionFactory factory;
+
+	private final int channelsPerConnection;
+
+	private final long borrowTimeoutMillis;
+
+	private final ChannelPool[] pools;
+
+	private volatile TopologyRegistry topology;
+
+	private volatile boolean closed;
+
+	/**
+	 * 默认实例，使用ConnectionUtil的连接配置，进程退出时关闭
+	 */
+	private static class Holder {
+		private static final ChannelManager INSTANCE = new ChannelManager(ConnectionUtil.getConnectionFactory(),
+				DEFAULT_CONNECTIONS, DEFAULT_CHANNELS_PER_CONNECTION, DEFAULT_BORROW_TIMEOUT_MILLIS);
+		static {
+			INSTANCE.setTopology(TopologyRegistry.getDefault());
+			Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "channel-manager-shutdown"));
+		}
+	}
+
+	public static ChannelManager getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	public ChannelManager(ConnectionFactory factory, int connections, int channelsPerConnection, long borrowTimeoutMillis) {
+		if (connections <= 0) {
+			throw new IllegalArgumentException("connections must be positive: " + connections);
+		}
+		this.factory = factory;
+		this.channelsPerConnection = channelsPerConnection;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.pools = new ChannelPool[connections];
+	}
+
+	/**
+	 * 新建连接时声明的拓扑（null表示不声明），之后新建的连接生效
+	 */
+	public void setTopology(TopologyRegistry topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * 借出当前线程所属连接上的一个通道
+	 *	@ReturnType	ChannelLease
+	 *	@Date	2026年10月17日	上午10:40:52
+	 *  @Param  @return
+	 *  @Param  @throws Exception
+	 */
+	public ChannelLease lease() throws Exception {
+		ChannelPool pool = pool(slot());
+		return new ChannelLease(pool, pool.borrow(borrowTimeoutMillis, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * 获取当前线程所属的共享连接（用于创建长期持有的消费者通道），调用方不要关闭它
+	 *	@ReturnType	Connection
+	 *	@Date	2026年10月17日	上午10:41:30
+	 *  @Param  @return
+	 *  @Param  @throws Exception
+	 */
+	public Connection getConnection() throws Exception {
+		return pool(slot()).getConnection();
+	}
+
+	/**
+	 * 所有连接的通道池统计汇总
+	 *	@ReturnType	PoolStats
+	 *	@Date	2026年10月17日	上午10:42:03
+	 *  @Param  @return
+	 */
+	public ChannelPool.PoolStats getStats() {
+		ChannelPool.PoolStats stats = new ChannelPool.PoolStats(0, 0, 0, 0, 0, 0, 0, 0);
+		for (int i = 0; i < pools.length; i++) {
+			ChannelPool pool = pools[i];
+			if (pool != null) {
+				stats = stats.plus(pool.getStats());
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * 关闭所有通道和连接
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		for (int i = 0; i < pools.length; i++) {
+			ChannelPool pool = pools[i];
+			if (pool == null) {
+				continue;
+			}
+			pool.close();
+			try {
+				if (pool.getConnection().isOpen()) {
+					pool.getConnection().close();
+				}
+			} catch (IOException e) {
+				LOG.warn("close pooled connection {} failed", i, e);
+			}
+			pools[i] = null;
+		}
+	}
+
+	private int slot() {
+		return (int) (Thread.currentThread().getId() % pools.length);
+	}
+
+	private ChannelPool pool(int slot) throws Exception {
+		ChannelPool pool = pools[slot];
+		if (pool != null && pool.getConnection().isOpen()) {
+			return pool;
+		}
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("channel manager is closed");
+			}
+			pool = pools[slot];
+			if (pool == null || !pool.getConnection().isOpen()) {
+				// 连接不存在或已断开，重建连接和通道池
+				if (pool != null) {
+					pool.close();
+				}
+				Connection connection = factory.newConnection();
+				// 新连接先声明登记的拓扑（批量，一次往返），失败时不使用这个连接
+				TopologyRegistry registry = topology;
+				if (registry != null) {
+					try {
+						registry.apply(connection);
+					} catch (IOException | RuntimeException e) {
+						connection.abort();
+						throw e;
+					}
+				}
+				pool = new ChannelPool(connection, channelsPerConnection);
+				pools[slot] = pool;
+			}
+			return pool;
+		}
+	}
+}
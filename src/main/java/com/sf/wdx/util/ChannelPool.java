@@ -0,0 +1,282 @@
+package com.sf.wdx.util;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+/**
+ * 描述：单个连接上的有界通道池
+ * 		借出（borrow）时先占用一个许可，再优先复用空闲通道（命中），没有空闲通道时新建（未命中）；
+ * 		归还（giveBack）时通道放回队头，下一次借出优先拿到最近用过的通道。
+ * 		通道本身不是线程安全的，借出期间归借用线程独占。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class ChannelPool {
+
+	private final Connection connection;
+
+	private final int maxSize;
+
+	/**
+	 * 借出许可，数量等于池的容量，保证同时存在的通道数不超过maxSize
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * 空闲通道（后进先出）
+	 */
+	private final BlockingDeque<Channel> idle = new LinkedBlockingDeque<Channel>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder waits = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	private volatile boolean closed;
+
+	public ChannelPool(Connection connection, int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+		}
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * 借出通道，池满时最多等待timeout
+	 *	@ReturnType	Channel
+	 *	@Date	2026年10月17日	上午10:12:31
+	 *  @Param  @param timeout
+	 *  @Param  @param unit
+	 *  @Param  @return
+	 *  @Param  @throws IOException				新建通道失败
+	 *  @Param  @throws TimeoutException		等待超时
+	 *  @Param  @throws InterruptedException
+	 */
+	public Channel borrow(long timeout, TimeUnit unit) throws IOException, TimeoutException, InterruptedException {
+		if (closed) {
+			throw new IllegalStateException("channel pool is closed");
+		}
+		// 1.占用许可（无需等待时不计入等待统计）
+		if (!permits.tryAcquire()) {
+			long start = System.nanoTime();
+			boolean acquired = permits.tryAcquire(timeout, unit);
+			recordWait(System.nanoTime() - start);
+			if (!acquired) {
+				timeouts.increment();
+				throw new TimeoutException("no channel available within " + unit.toMillis(timeout) + "ms, pool size " + maxSize);
+			}
+		}
+		// 2.优先复用空闲通道，已关闭的直接丢弃
+		try {
+			Channel channel;
+			while ((channel = idle.pollFirst()) != null) {
+				if (channel.isOpen()) {
+					hits.increment();
+					return channel;
+				}
+			}
+			// 3.新建通道
+			misses.increment();
+			channel = connection.createChannel();
+			if (channel == null) {
+				throw new IOException("channel max reached on connection " + connection);
+			}
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 归还通道，已关闭的通道不再放回池中
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	上午10:13:02
+	 *  @Param  @param channel
+	 */
+	public void giveBack(Channel channel) {
+		try {
+			if (!closed && channel.isOpen()) {
+				idle.offerFirst(channel);
+			} else if (closed) {
+				closeQuietly(channel);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * 作废通道（发生通道级异常后调用），关闭通道并释放许可
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	上午10:13:40
+	 *  @Param  @param channel
+	 */
+	public void invalidate(Channel channel) {
+		try {
+			closeQuietly(channel);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * 关闭池中所有空闲通道，之后不能再借出
+	 *	@ReturnType	void
+	 *	@Date	2026年10月17日	上午10:14:11
+	 */
+	public void close() {
+		closed = true;
+		Channel channel;
+		while ((channel = idle.pollFirst()) != null) {
+			closeQuietly(channel);
+		}
+	}
+
+	public Connection getConnection() {
+		return connection;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 当前借出中的通道数
+	 */
+	public int getLeased() {
+		return maxSize - permits.availablePermits();
+	}
+
+	public int getIdle() {
+		return idle.size();
+	}
+
+	/**
+	 * 统计快照
+	 *	@ReturnType	PoolStats
+	 *	@Date	2026年10月17日	上午10:15:20
+	 *  @Param  @return
+	 */
+	public PoolStats getStats() {
+		return new PoolStats(hits.sum(), misses.sum(), timeouts.sum(), waits.sum(), waitNanos.sum(), maxWaitNanos.get(),
+				getLeased(), getIdle());
+	}
+
+	private void recordWait(long nanos) {
+		waits.increment();
+		waitNanos.add(nanos);
+		long max;
+		while (nanos > (max = maxWaitNanos.get())) {
+			if (maxWaitNanos.compareAndSet(max, nanos)) {
+				break;
+			}
+		}
+	}
+
+	private static void closeQuietly(Channel channel) {
+		try {
+			if (channel.isOpen()) {
+				channel.close();
+			}
+		} catch (Exception e) {
+			// 连接已断开时关闭通道会抛异常，忽略即可
+		}
+	}
+
+	/**
+	 * 描述：通道池统计快照
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	public static class PoolStats {
+
+		private final long hits;
+		private final long misses;
+		private final long timeouts;
+		private final long waits;
+		private final long waitNanos;
+		private final long maxWaitNanos;
+		private final int leased;
+		private final int idle;
+
+		public PoolStats(long hits, long misses, long timeouts, long waits, long waitNanos, long maxWaitNanos, int leased, int idle) {
+			this.hits = hits;
+			this.misses = misses;
+			this.timeouts = timeouts;
+			this.waits = waits;
+			this.waitNanos = waitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.leased = leased;
+			this.idle = idle;
+		}
+
+		/**
+		 * 合并两个快照（多连接时汇总用）
+		 */
+		public PoolStats plus(PoolStats other) {
+			return new PoolStats(hits + other.hits, misses + other.misses, timeouts + other.timeouts, waits + other.waits,
+					waitNanos + other.waitNanos, Math.max(maxWaitNanos, other.maxWaitNanos), leased + other.leased, idle + other.idle);
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public long getTimeouts() {
+			return timeouts;
+		}
+
+		public long getWaits() {
+			return waits;
+		}
+
+		public long getWaitNanos() {
+			return waitNanos;
+		}
+
+		public long getMaxWaitNanos() {
+			return maxWaitNanos;
+		}
+
+		public int getLeased() {
+			return leased;
+		}
+
+		public int getIdle() {
+			return idle;
+		}
+
+		public double getHitRate() {
+			long total = hits + misses;
+			return total == 0 ? 0 : (double) hits / total;
+		}
+
+		public double getAvgWaitMicros() {
+			return waits == 0 ? 0 : waitNanos / 1000.0 / waits;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("hits=%d, misses=%d, hitRate=%.2f%%, timeouts=%d, waits=%d, avgWait=%.1fus, maxWait=%.1fus, leased=%d, idle=%d",
+					hits, misses, getHitRate() * 100, timeouts, waits, getAvgWaitMicros(), maxWaitNanos / 1000.0, leased, idle);
+		}
+	}
+}
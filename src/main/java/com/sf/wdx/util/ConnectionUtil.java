@@ -1,15 +1,44 @@
 package com.sf.wdx.util;
 
+import java.util.Arrays;
+import java.util.List;
+
+import com.rabbitmq.client.Address;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.Connection;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.metrics.ClientMetrics;
+import com.sf.wdx.metrics.InstrumentedConnectionFactory;
 
 /**
  * 描述：RabbitMQ连接工具类
+ * 		getConnection()每次新建一个TCP连接，适合需要独占连接的场景；
+ * 		短任务、多线程发送请使用ChannelManager.getInstance()共享的长连接和通道池。
+ * 		启动参数-Dwdx.mq.transport=loopback时连接进程内的LoopbackBroker，不需要RabbitMQ服务器。
+ * 		启动参数-Dwdx.mq.metrics=true时连接和通道都经过InstrumentedConnectionFactory，指标注册到JMX（ClientMetrics.getDefault()）。
+ * 		集群地址用-Dwdx.mq.addresses=host1:5672,host2:5672指定，供FailoverConnection使用。
  * @author 80002888
  * @date   2018年8月20日
  */
 public class ConnectionUtil {
 
+	/**
+	 * 传输方式的系统属性，取值loopback或amqp（默认）
+	 */
+	public static final String TRANSPORT_PROPERTY = "wdx.mq.transport";
+
+	public static final String TRANSPORT_LOOPBACK = "loopback";
+
+	/**
+	 * 是否记录客户端指标的系统属性，取值true或false（默认）
+	 */
+	public static final String METRICS_PROPERTY = "wdx.mq.metrics";
+
+	/**
+	 * broker集群地址的系统属性，逗号分隔的host:port，默认localhost:5672
+	 */
+	public static final String ADDRESSES_PROPERTY = "wdx.mq.addresses";
+
 	/**
 	 * 获取rabbitmq的连接
 	 *	@ReturnType	Connection 
@@ -19,7 +48,21 @@ public class ConnectionUtil {
 	 */
     public static Connection getConnection() throws Exception {
         // 1.获取连接工厂
-        ConnectionFactory factory = new ConnectionFactory();
+        ConnectionFactory factory = getConnectionFactory();
+        // 2.获取连接
+        Connection connection = factory.newConnection();
+        return connection;
+    }
+
+    /**
+     * 获取配置好的连接工厂
+     *	@ReturnType	ConnectionFactory
+     *	@Date	2026年10月17日	上午10:02:14
+     *  @Param  @return
+     */
+    public static ConnectionFactory getConnectionFactory() {
+        // 1.获取连接工厂（loopback时host、端口、账号被忽略，按vhost选择进程内broker）
+        ConnectionFactory factory = TRANSPORT_LOOPBACK.equals(System.getProperty(TRANSPORT_PROPERTY)) ? new LoopbackConnectionFactory() : new ConnectionFactory();
         // 2.设置rabbitmq服务器地址
         factory.setHost("localhost");
         // 3.设置端口
@@ -28,9 +71,21 @@ public class ConnectionUtil {
         factory.setVirtualHost("/wdx");
         factory.setUsername("wdx");
         factory.setPassword("wdx");
-        // 5.获取连接
-        Connection connection = factory.newConnection();
-        return connection;
+        // 5.需要时包装成记录指标的工厂
+        if (Boolean.getBoolean(METRICS_PROPERTY)) {
+            factory = new InstrumentedConnectionFactory(factory, ClientMetrics.getDefault());
+        }
+        return factory;
+    }
+
+    /**
+     * 获取broker集群地址（FailoverConnection按这个列表故障转移）
+     *	@ReturnType	List<Address>
+     *	@Date	2026年10月17日	下午4:52:20
+     *  @Param  @return
+     */
+    public static List<Address> getAddresses() {
+        return Arrays.asList(Address.parseAddresses(System.getProperty(ADDRESSES_PROPERTY, "localhost:5672")));
     }
 
 }
@@ -1,12 +1,28 @@
 package com.sf.wdx.util;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 描述：时间转换工具类
+ * 		date2Str/str2Date使用全局锁和SimpleDateFormat，保留兼容；
+ * 		生产者等热点路径请使用format/parse/now，格式器按pattern缓存，无锁。
  * @author 80002888
  * @date   2018年8月20日
  */
@@ -14,6 +30,16 @@ public class DateUtils {
 
 	private static Lock lock = new ReentrantLock();	
 	
+	/**
+	 * pattern -> 格式器
+	 */
+	private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<String, DateTimeFormatter>();
+	
+	/**
+	 * pattern -> 当前毫秒的格式化结果
+	 */
+	private static final ConcurrentMap<String, AtomicReference<Tick>> TICKS = new ConcurrentHashMap<String, AtomicReference<Tick>>();
+	
 	/**
 	 * 时间转字符串
 	 *	@ReturnType	String 
@@ -51,4 +77,156 @@ public class DateUtils {
 		}
 	}
 	
+	/**
+	 * 时间转字符串（无锁，格式器按pattern缓存复用，热点路径使用）
+	 *	@ReturnType	String 
+	 *	@Date	2026年10月17日	下午4:40:12
+	 *  @Param  @param date
+	 *  @Param  @param pattern		DateTimeFormatter格式
+	 *  @Param  @return
+	 */
+	public static String format(Date date, String pattern){
+		return formatter(pattern).format(date.toInstant());
+	}
+	
+	/**
+	 * 毫秒时间戳转字符串，追加到调用方提供的StringBuilder中
+	 *	@ReturnType	StringBuilder 
+	 *	@Date	2026年10月17日	下午4:41:03
+	 *  @Param  @param epochMillis
+	 *  @Param  @param pattern
+	 *  @Param  @param sb
+	 *  @Param  @return
+	 */
+	public static StringBuilder formatTo(long epochMillis, String pattern, StringBuilder sb){
+		formatter(pattern).formatTo(Instant.ofEpochMilli(epochMillis), sb);
+		return sb;
+	}
+	
+	/**
+	 * 字符串转时间（无锁），pattern只有日期时取当天零点
+	 *	@ReturnType	Date 
+	 *	@Date	2026年10月17日	下午4:41:47
+	 *  @Param  @param dateStr
+	 *  @Param  @param pattern
+	 *  @Param  @return
+	 *  @Param  @throws DateTimeParseException
+	 */
+	public static Date parse(String dateStr, String pattern){
+		DateTimeFormatter formatter = formatter(pattern);
+		TemporalAccessor parsed = formatter.parse(dateStr);
+		LocalDate date = parsed.query(TemporalQueries.localDate());
+		LocalTime time = parsed.query(TemporalQueries.localTime());
+		if (date == null) {
+			throw new DateTimeParseException("pattern has no date part: " + pattern, dateStr, 0);
+		}
+		ZonedDateTime dateTime = ZonedDateTime.of(date, time == null ? LocalTime.MIDNIGHT : time, formatter.getZone());
+		return Date.from(dateTime.toInstant());
+	}
+	
+	/**
+	 * 当前时间的字符串，同一毫秒内重复调用直接返回缓存的字符串，不再格式化
+	 *	@ReturnType	String 
+	 *	@Date	2026年10月17日	下午4:42:30
+	 *  @Param  @param pattern
+	 *  @Param  @return
+	 */
+	public static String now(String pattern){
+		return cachedNow(pattern).text;
+	}
+	
+	/**
+	 * 当前时间追加到StringBuilder（缓存命中时不产生垃圾）
+	 *	@ReturnType	StringBuilder 
+	 *	@Date	2026年10月17日	下午4:43:05
+	 *  @Param  @param pattern
+	 *  @Param  @param sb
+	 *  @Param  @return
+	 */
+	public static StringBuilder appendNow(String pattern, StringBuilder sb){
+		return sb.append(cachedNow(pattern).text);
+	}
+	
+	/**
+	 * 当前时间以UTF-8字节写入ByteBuffer（缓存命中时不产生垃圾）
+	 *	@ReturnType	ByteBuffer 
+	 *	@Date	2026年10月17日	下午4:43:38
+	 *  @Param  @param pattern
+	 *  @Param  @param buffer
+	 *  @Param  @return
+	 */
+	public static ByteBuffer putNow(String pattern, ByteBuffer buffer){
+		return buffer.put(cachedNow(pattern).bytes);
+	}
+	
+	/**
+	 * 当前时间的UTF-8字节（缓存命中时不产生垃圾）
+	 * 		返回的是缓存里的共享数组，同一毫秒内的所有调用方拿到的是同一个数组：不能修改，也不能持有引用，需要保留时先复制（putNow、CodecBuffer.writeBytes都是复制）
+	 *	@ReturnType	byte[] 
+	 *	@Date	2026年10月17日	下午2:42:51
+	 *  @Param  @param pattern
+	 *  @Param  @return
+	 */
+	public static byte[] nowBytes(String pattern){
+		return cachedNow(pattern).bytes;
+	}
+	
+	/**
+	 * 按pattern缓存的格式器（DateTimeFormatter不可变，线程安全），使用系统默认时区
+	 *	@ReturnType	DateTimeFormatter 
+	 *	@Date	2026年10月17日	下午4:44:10
+	 *  @Param  @param pattern
+	 *  @Param  @return
+	 */
+	public static DateTimeFormatter formatter(String pattern){
+		DateTimeFormatter formatter = FORMATTERS.get(pattern);
+		if (formatter == null) {
+			formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+			DateTimeFormatter previous = FORMATTERS.putIfAbsent(pattern, formatter);
+			if (previous != null) {
+				formatter = previous;
+			}
+		}
+		return formatter;
+	}
+	
+	private static Tick cachedNow(String pattern){
+		AtomicReference<Tick> ref = TICKS.get(pattern);
+		if (ref == null) {
+			ref = new AtomicReference<Tick>(new Tick(Long.MIN_VALUE, "", new byte[0]));
+			AtomicReference<Tick> previous = TICKS.putIfAbsent(pattern, ref);
+			if (previous != null) {
+				ref = previous;
+			}
+		}
+		long millis = System.currentTimeMillis();
+		Tick tick = ref.get();
+		if (tick.millis == millis) {
+			return tick;
+		}
+		// 每毫秒最多格式化一次，并发刷新时谁先写入都一样
+		String text = formatter(pattern).format(Instant.ofEpochMilli(millis));
+		tick = new Tick(millis, text, text.getBytes(StandardCharsets.UTF_8));
+		ref.set(tick);
+		return tick;
+	}
+	
+	/**
+	 * 描述：某一毫秒的格式化结果
+	 * @author 80002888
+	 * @date   2026年10月17日
+	 */
+	private static final class Tick {
+		
+		final long millis;
+		final String text;
+		final byte[] bytes;
+		
+		Tick(long millis, String text, byte[] bytes) {
+			this.millis = millis;
+			this.text = text;
+			this.bytes = bytes;
+		}
+	}
+	
 }
@@ -0,0 +1,228 @@
+package com.sf.wdx.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * 描述：有界的long集合（开放寻址、线性探测），超过容量或存活时间的元素按插入顺序淘汰
+ * 		哈希表和插入顺序环都是LongBuffer，offHeap为true时放在堆外直接内存，不占堆、不增加GC的扫描和复制量。
+ * 		表的每个槽位是相邻的[值, 插入序号]，环的每一项是相邻的[值, 插入时间]，一次查找通常只碰一条缓存行。
+ * 		每个元素约占48字节（表按2倍容量分配槽位）。
+ * 		remove只从表中删除，环里的记录仍占着容量，直到按顺序被淘汰。
+ * 		0用作空槽标记，add(0)按1处理；元素本身是64位哈希时这点冲突可以忽略。
+ * 		非线程安全，多线程使用时由调用方分段加锁（见DedupFilter）。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class ExpiringLongSet {
+
+	private static final long EMPTY = 0L;
+
+	private final int maxEntries;
+
+	private final long ttlNanos;
+
+	/**
+	 * 哈希表，槽位数是2的幂；槽位i的值在2i，插入序号在2i+1
+	 * 淘汰时用插入序号判断表中的元素是不是环头那一次插入的（remove后可能重新加入）
+	 */
+	private final LongBuffer table;
+
+	private final int mask;
+
+	/**
+	 * 插入顺序环：第i项的值在2i，插入时间在2i+1
+	 */
+	private final LongBuffer ring;
+
+	/**
+	 * 环中最早一个元素的下标
+	 */
+	private int head;
+
+	private int size;
+
+	/**
+	 * 累计插入次数，环头元素的插入序号为inserted - size
+	 */
+	private long inserted;
+
+	/**
+	 *	@Param  @param maxEntries	最多保留的元素数，满了淘汰最早插入的
+	 *	@Param  @param ttlNanos		元素的存活时间，<=0表示只按数量淘汰
+	 *	@Param  @param offHeap		是否分配在堆外
+	 */
+	public ExpiringLongSet(int maxEntries, long ttlNanos, boolean offHeap) {
+		if (maxEntries <= 0 || maxEntries > (1 << 25)) {
+			throw new IllegalArgumentException("maxEntries out of range: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.ttlNanos = ttlNanos;
+		int slots = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+		this.mask = slots - 1;
+		this.table = allocate(slots * 2, offHeap);
+		this.ring = allocate(maxEntries * 2, offHeap);
+	}
+
+	private static LongBuffer allocate(int longs, boolean offHeap) {
+		if (offHeap) {
+			// allocateDirect返回的内存已置0，即全部是空槽
+			return ByteBuffer.allocateDirect(longs * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+		return LongBuffer.allocate(longs);
+	}
+
+	/**
+	 * 是否包含value（会先淘汰过期的元素）
+	 *	@ReturnType	boolean
+	 *	@Date	2026年10月17日	下午12:10:32
+	 *  @Param  @param value
+	 *  @Param  @param now		当前时间（System.nanoTime()）
+	 */
+	public boolean contains(long value, long now) {
+		expire(now);
+		return indexOf(normalize(value)) >= 0;
+	}
+
+	/**
+	 * 加入value，满了先淘汰最早插入的元素
+	 *	@ReturnType	boolean		已存在时返回false（不刷新插入时间）
+	 *	@Date	2026年10月17日	下午12:12:05
+	 */
+	public boolean add(long value, long now) {
+		expire(now);
+		long key = normalize(value);
+		int slot = slot(key);
+		long current;
+		while ((current = table.get(slot << 1)) != EMPTY) {
+			if (current == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == maxEntries) {
+			evictOldest();
+			// 淘汰会移动表中的元素，重新找空槽
+			slot = slot(key);
+			while (table.get(slot << 1) != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+		}
+		table.put(slot << 1, key);
+		table.put((slot << 1) + 1, inserted++);
+		int tail = head + size;
+		if (tail >= maxEntries) {
+			tail -= maxEntries;
+		}
+		ring.put(tail << 1, key);
+		ring.put((tail << 1) + 1, now);
+		size++;
+		return true;
+	}
+
+	/**
+	 * 删除value（处理失败，允许它再次出现）
+	 *	@ReturnType	boolean		是否存在
+	 *	@Date	2026年10月17日	下午12:14:40
+	 */
+	public boolean remove(long value) {
+		int slot = indexOf(normalize(value));
+		if (slot < 0) {
+			return false;
+		}
+		delete(slot);
+		return true;
+	}
+
+	/**
+	 * 环中的记录数（含已remove但还没轮到淘汰的）
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return maxEntries;
+	}
+
+	public void clear() {
+		for (int i = 0; i <= mask; i++) {
+			table.put(i << 1, EMPTY);
+		}
+		head = 0;
+		size = 0;
+		inserted = 0;
+	}
+
+	/**
+	 * 淘汰超过存活时间的元素（环是按插入时间排序的，只看头部）
+	 */
+	private void expire(long now) {
+		if (ttlNanos <= 0) {
+			return;
+		}
+		while (size > 0 && now - ring.get((head << 1) + 1) > ttlNanos) {
+			evictOldest();
+		}
+	}
+
+	private void evictOldest() {
+		int slot = indexOf(ring.get(head << 1));
+		// 表中的是remove之后重新加入的那一次时保留
+		if (slot >= 0 && table.get((slot << 1) + 1) == inserted - size) {
+			delete(slot);
+		}
+		if (++head == maxEntries) {
+			head = 0;
+		}
+		size--;
+	}
+
+	private int indexOf(long key) {
+		int slot = slot(key);
+		long current;
+		while ((current = table.get(slot << 1)) != EMPTY) {
+			if (current == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * 线性探测的删除：把后面同一探测链上的元素前移填洞，不留墓碑
+	 */
+	private void delete(int hole) {
+		int slot = hole;
+		while (true) {
+			slot = (slot + 1) & mask;
+			long current = table.get(slot << 1);
+			if (current == EMPTY) {
+				break;
+			}
+			int home = slot(current);
+			// home不在(hole, slot]区间内时，该元素可以移到hole
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				table.put(hole << 1, current);
+				table.put((hole << 1) + 1, table.get((slot << 1) + 1));
+				hole = slot;
+			}
+		}
+		table.put(hole << 1, EMPTY);
+	}
+
+	private int slot(long key) {
+		// murmur3 fmix64的前半段，足够打散低位
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	private static long normalize(long value) {
+		return value == EMPTY ? 1L : value;
+	}
+}
@@ -0,0 +1,65 @@
+package com.sf.wdx.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 描述：64位非加密哈希（一致性哈希环的节点位置、去重key等）
+ * 		结果跨进程、跨版本稳定：哈希环按它分配分片，改动算法会让各进程的分片归属不一致。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public final class Hashing {
+
+	private Hashing() {
+	}
+
+	/**
+	 * 字符串的64位哈希：按字符做FNV-1a，再用murmur3的fmix64打散（String.hashCode只有32位，且相近的字符串哈希值相近）
+	 */
+	public static long hash64(CharSequence key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0, length = key.length(); i < length; i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return fmix64(h);
+	}
+
+	/**
+	 * 字节数组的64位哈希：每次取8字节按murmur3的方式混合，最后fmix64
+	 */
+	public static long hash64(byte[] bytes) {
+		ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		long h = 0x9368e53c2f6af274L ^ bytes.length;
+		int i = 0;
+		for (int end = bytes.length - 7; i < end; i += 8) {
+			h = mix(h, in.getLong(i));
+		}
+		long tail = 0;
+		for (int shift = 0; i < bytes.length; i++, shift += 8) {
+			tail |= (bytes[i] & 0xFFL) << shift;
+		}
+		return fmix64(mix(h, tail));
+	}
+
+	/**
+	 * murmur3的64位终结混合，输入的每一位都影响输出的每一位
+	 */
+	public static long fmix64(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static long mix(long h, long k) {
+		k *= 0x87c37b91114253d5L;
+		k = Long.rotateLeft(k, 31);
+		k *= 0x4cf5ad432745937fL;
+		h ^= k;
+		return Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+	}
+}
@@ -0,0 +1,119 @@
+package com.sf.wdx.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 描述：有界无锁队列，多生产者多消费者（Vyukov的环形数组队列）
+ * 		每个槽位带一个序号：序号等于写位置表示可写，等于写位置+1表示可读，读完后序号加上容量留给下一圈。
+ * 		生产者和消费者各自只CAS自己的位置，不加锁，不在入队/出队时分配对象；队列满时offer立即返回false。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class RingQueue<E> {
+
+	private final int mask;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicReferenceArray<E> elements;
+
+	/**
+	 * 下一个读位置
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * 下一个写位置
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 *	@Param  @param capacity		容量，向上取整到2的幂
+	 */
+	public RingQueue(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("capacity out of range: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		this.elements = new AtomicReferenceArray<E>(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * 入队，队列满时返回false
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		long pos = tail.get();
+		while (true) {
+			int slot = (int) pos & mask;
+			long diff = sequences.get(slot) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					elements.lazySet(slot, element);
+					// 发布：序号写入之后消费者才能读到元素
+					sequences.lazySet(slot, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			} else if (diff < 0) {
+				// 这个槽位上一圈的元素还没被取走
+				return false;
+			} else {
+				// 被其他生产者抢先
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * 出队，队列空时返回null
+	 */
+	public E poll() {
+		long pos = head.get();
+		while (true) {
+			int slot = (int) pos & mask;
+			long diff = sequences.get(slot) - (pos + 1);
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					E element = elements.get(slot);
+					elements.lazySet(slot, null);
+					sequences.lazySet(slot, pos + mask + 1);
+					return element;
+				}
+				pos = head.get();
+			} else if (diff < 0) {
+				return null;
+			} else {
+				pos = head.get();
+			}
+		}
+	}
+
+	/**
+	 * 当前元素个数（并发修改时是近似值）
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return size < 0 ? 0 : (int) Math.min(size, mask + 1);
+	}
+
+	public boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,113 @@
+package com.sf.wdx.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 描述：串行执行器，提交的任务按提交顺序一个接一个执行，但不独占线程
+ * 		任务在backing执行器上运行，同一时刻最多一个线程在执行本执行器的任务；
+ * 		一次最多连续执行batchSize个任务，然后把剩余任务重新提交，让出线程给其他串行执行器。
+ * 		backing为null时任务在提交线程上执行，任务中再提交的任务排队到外层循环执行，不会递归。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class SerialExecutor implements Executor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SerialExecutor.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final Executor backing;
+
+	private final int batchSize;
+
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	private final Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			drain();
+		}
+	};
+
+	/**
+	 *	@Param  @param backing		执行任务的线程池，null表示在提交线程上执行
+	 */
+	public SerialExecutor(Executor backing) {
+		this(backing, DEFAULT_BATCH_SIZE);
+	}
+
+	public SerialExecutor(Executor backing, int batchSize) {
+		this.backing = backing;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		tasks.add(task);
+		schedule();
+	}
+
+	/**
+	 * 尚未执行的任务数
+	 */
+	public int getPending() {
+		return tasks.size();
+	}
+
+	private void schedule() {
+		if (running.compareAndSet(false, true)) {
+			if (backing == null) {
+				drain();
+				return;
+			}
+			try {
+				backing.execute(drain);
+			} catch (RuntimeException e) {
+				running.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private void drain() {
+		while (true) {
+			try {
+				for (int i = 0; i < batchSize; i++) {
+					Runnable task = tasks.poll();
+					if (task == null) {
+						break;
+					}
+					try {
+						task.run();
+					} catch (Throwable t) {
+						// 一个任务失败不影响后面的任务
+						LOG.error("serial task failed", t);
+					}
+				}
+			} finally {
+				running.set(false);
+			}
+			// 释放之后又有新任务（或本批没执行完）
+			if (tasks.isEmpty()) {
+				return;
+			}
+			if (backing != null) {
+				// 重新提交到线程池，让出当前线程
+				schedule();
+				return;
+			}
+			// 同线程执行时就地继续循环，避免递归
+			if (!running.compareAndSet(false, true)) {
+				return;
+			}
+		}
+	}
+}
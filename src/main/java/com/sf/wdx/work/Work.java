@@ -1,8 +1,9 @@
 package com.sf.wdx.work;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.Date;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -13,6 +14,16 @@ import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.compress.Compression;
+import com.sf.wdx.compress.DeflateCodec;
+import com.sf.wdx.consumer.AckCoalescer;
+import com.sf.wdx.consumer.DedupConsumer;
+import com.sf.wdx.consumer.DedupFilter;
+import com.sf.wdx.outbox.Outbox;
+import com.sf.wdx.outbox.OutboxJournal;
+import com.sf.wdx.publisher.ConfirmPublisher;
+import com.sf.wdx.util.ChannelLease;
+import com.sf.wdx.util.ChannelManager;
 import com.sf.wdx.util.ConnectionUtil;
 import com.sf.wdx.util.DateUtils;
 
@@ -29,6 +40,40 @@ public class Work {
 	
 	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
 	
+	/**
+	 * 消费者预取数（必须大于ACK_BATCH，否则每次确认都要等定时刷新）
+	 */
+	private static final int PREFETCH = 64;
+	
+	/**
+	 * 连续处理完ACK_BATCH条或最早一条等待ACK_DELAY_MILLIS后，合并成一次multiple ack
+	 */
+	private static final int ACK_BATCH = 32;
+	
+	private static final long ACK_DELAY_MILLIS = 100;
+	
+	private static final int CONFIRM_WINDOW = 256;
+	
+	/**
+	 * 任务消息超过1KB时用deflate压缩（消费端按contentEncoding自动解压）
+	 */
+	private static final Compression COMPRESSION = new Compression(DeflateCodec.ENCODING, Compression.DEFAULT_THRESHOLD);
+	
+	/**
+	 * 发件箱根目录的系统属性，默认工作目录下的outbox（已在.gitignore中）
+	 */
+	private static final String OUTBOX_DIR_PROPERTY = "wdx.mq.outbox.dir";
+	
+	/**
+	 * 发件箱模式的本地日志目录
+	 */
+	private static final File OUTBOX_DIR = new File(System.getProperty(OUTBOX_DIR_PROPERTY, "outbox"), TASK_QUEUE_NAME);
+	
+	/**
+	 * 记住最近处理过的消息（最多10万条、10分钟），重新投递或发件箱重发的消息不再处理
+	 */
+	private static final DedupFilter DEDUP = new DedupFilter(100000, 10, TimeUnit.MINUTES, true);
+	
 	/**
 	 * 消费者
 	 *	@ReturnType	void 
@@ -44,8 +89,9 @@ public class Work {
 		// 3.绑定队列
 		channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
 		System.out.println(" [*] Waiting for messages. To exit press CTRL+C");
-		// 4.设置为work模式（参数设为1：每次只接受一条消息，这时要关闭自动反馈，要在任务结束后手动反馈）
-		channel.basicQos(1);
+		// 4.设置为work模式（最多预取PREFETCH条未确认的消息，这时要关闭自动反馈，要在任务结束后手动反馈）
+		channel.basicQos(PREFETCH);
+		AckCoalescer acks = new AckCoalescer(channel, ACK_BATCH, ACK_DELAY_MILLIS);
 		// 5.定义消费者（启动多个消费者，其中有sleep(0)的和sleep(1000)的，能明显看出能者多劳的模式）
 		int r = (new Random().nextInt(1000)) % 2;
 		System.out.println(r == 0 ? "work slow..." : "work fast...");
@@ -54,7 +100,7 @@ public class Work {
 			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
 					byte[] body) throws IOException {
 				try {
-					String message = new String(body, "UTF-8");
+					String message = new String(Compression.decode(properties, body), "UTF-8");
 					try {
 						Thread.sleep(r == 0 ? 1000 : 0);
 					} catch (InterruptedException e) {
@@ -63,15 +109,17 @@ public class Work {
 					System.out.println(" [x] Received '" + message + "'");
 				} finally {
 					System.out.println(" [x] Done");
-					// 手动在消费完毕时进行反馈
-					channel.basicAck(envelope.getDeliveryTag(), false);
+					// 手动在消费完毕时进行反馈（合并成multiple ack批量发送）
+					acks.ack(envelope.getDeliveryTag());
 				}
 			}
 		};
-		// 6.消费消息（第二个参数为自动给服务器端的反馈：为false时，服务器无法确定消息被消费不从queue中删除；为true时，服务器确认消息被消费会从queue中删除）
-		channel.basicConsume(TASK_QUEUE_NAME, false, consumer);
+		// 6.消费消息，重复的消息直接确认（第二个参数为自动给服务器端的反馈：为false时，服务器无法确定消息被消费不从queue中删除；为true时，服务器确认消息被消费会从queue中删除）
+		channel.basicConsume(TASK_QUEUE_NAME, false, new DedupConsumer(channel, consumer, DEDUP, acks));
 		System.in.read();
-		// 7.关闭
+		System.out.println(" [*] " + DEDUP);
+		// 7.关闭（先发出已合并但未发送的确认）
+		acks.close();
 		channel.close();
 		connection.close();
 	}
@@ -84,23 +132,66 @@ public class Work {
 	 */
 	@Test
 	public void producer() throws Exception{
-		// 1.获取连接
-		Connection connection = ConnectionUtil.getConnection();
+		// 1.从通道池借出通道（共享进程内的长连接，不再每次建立TCP连接）
+		ChannelLease lease = ChannelManager.getInstance().lease();
 		// 2.获取通道
-		Channel channel = connection.createChannel();
+		Channel channel = lease.getChannel();
 		/** 3.绑定队列（durable：设置队列为持久化，若为true当服务器停止队列也不会丢失） */
 		channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
+		/** 开启异步确认：broker落盘后回复ack，最多CONFIRM_WINDOW条消息同时等待确认 */
+		ConfirmPublisher publisher = new ConfirmPublisher(channel, CONFIRM_WINDOW);
 		// 4.发送消息
 		for (int i = 0; i < 100; i++) {
 			Thread.sleep(200);
-			String message = "Hello World!" + DateUtils.date2Str(new Date(), PATTERN) + "----" + i;
-			/** 设置消息为持久化 */
-			channel.basicPublish("", TASK_QUEUE_NAME, MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes("UTF-8"));
+			String message = "Hello World!" + DateUtils.now(PATTERN) + "----" + i;
+			/** 设置消息为持久化（达到阈值时压缩） */
+			Compression.Payload payload = COMPRESSION.encode(MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes("UTF-8"));
+			publisher.publish("", TASK_QUEUE_NAME, payload.getProperties(), payload.getBody())
+					.whenComplete((v, e) -> {
+						if (e != null) {
+							System.out.println(" [!] Not confirmed '" + message + "': " + e.getMessage());
+						}
+					});
 			System.out.println(" [x] Sent '" + message + "'");
 		}
-		// 5.关闭
-		channel.close();
-		connection.close();
+		// 5.等待所有消息被确认
+		publisher.waitForConfirms(10, TimeUnit.SECONDS);
+		publisher.close();
+		// 6.通道已处于confirm模式，不能放回池中给别人用，关闭它（池里会补一个新通道）
+		lease.invalidate();
+	}
+	
+	/**
+	 * 生产者（发件箱模式）：消息先写入本地日志，broker慢或不可用时生产者照常发送，恢复后由后台线程补发；
+	 * 上次没转发完的消息在启动时自动重发
+	 *	@ReturnType	void 
+	 *	@Date	2026年10月17日	下午11:58:06
+	 *  @Param  @throws Exception
+	 */
+	@Test
+	public void outboxProducer() throws Exception{
+		// 1.声明队列（broker不可用时跳过，消息留在发件箱里）
+		try (ChannelLease lease = ChannelManager.getInstance().lease()) {
+			lease.getChannel().queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
+		} catch (Exception e) {
+			System.out.println(" [!] broker unavailable, spooling to " + OUTBOX_DIR + ": " + e.getMessage());
+		}
+		// 2.打开发件箱（每100ms刷一次盘），转发线程使用独占连接
+		OutboxJournal journal = new OutboxJournal(OUTBOX_DIR);
+		Outbox outbox = new Outbox(journal, ConnectionUtil.getConnectionFactory());
+		System.out.println(" [*] " + journal.getPending() + " messages left from last run");
+		// 3.发送消息（只写本地日志，不等待broker）
+		for (int i = 0; i < 100; i++) {
+			Thread.sleep(200);
+			String message = "Hello World!" + DateUtils.now(PATTERN) + "----" + i;
+			Compression.Payload payload = COMPRESSION.encode(MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes("UTF-8"));
+			long seq = outbox.publish("", TASK_QUEUE_NAME, payload.getProperties(), payload.getBody());
+			System.out.println(" [x] Spooled #" + seq + " '" + message + "', pending " + outbox.getPending());
+		}
+		// 4.最多等10秒转发完，剩下的下次启动时继续
+		if (!outbox.close(10, TimeUnit.SECONDS)) {
+			System.out.println(" [!] " + journal.getPending() + " messages kept in " + OUTBOX_DIR);
+		}
 	}
 	
 }
@@ -1,23 +1,33 @@
 package com.sf.wdx.work;
 
-import java.io.IOException;
-import java.util.Date;
+import java.util.Collections;
 import java.util.Random;
 
 import org.junit.Test;
+import org.springframework.amqp.core.ExchangeTypes;
 
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.Consumer;
-import com.rabbitmq.client.DefaultConsumer;
-import com.rabbitmq.client.Envelope;
+import com.sf.wdx.codec.CodecBuffer;
+import com.sf.wdx.consumer.AckCoalescer;
+import com.sf.wdx.consumer.AdaptivePrefetch;
+import com.sf.wdx.consumer.PriorityConsumer;
+import com.sf.wdx.publisher.FastPublisher;
+import com.sf.wdx.topology.Topology;
+import com.sf.wdx.topology.TopologyRegistry;
+import com.sf.wdx.util.ChannelLease;
+import com.sf.wdx.util.ChannelManager;
 import com.sf.wdx.util.ConnectionUtil;
 import com.sf.wdx.util.DateUtils;
 
 /**
  * 描述：RabbitMQ的Work模式（又叫task-worker模式）
- * 		其中的公平模式（能者多劳模式Fair dispatch）：每次队列只发送一条消息给消费者（设置队列的basicQos(1)），消费者设置手动ack，当一条消息消费完并成功反馈给服务端，才会接收下一条消息。
+ * 		其中的公平模式（能者多劳模式Fair dispatch）：队列最多给消费者发送预取数条未确认的消息（设置通道的basicQos），消费者设置手动ack，消息消费完并成功反馈给服务端，才会接收后面的消息。
+ * 		确认由AckCoalescer合并成multiple ack；预取数由AdaptivePrefetch按处理耗时和往返时间调整，
+ * 		快消费者不用每条消息等一个往返，慢消费者的窗口收缩到下限（略高于并行度），不会积压消息。
+ * 		预取到的消息由PriorityConsumer按优先级和截止时间调度，最多PARALLELISM条同时处理（JDK 21+在虚拟线程上），每次取最紧急的一条，
+ * 		I/O型的慢处理不会挡住同一通道上的其他投递；过期的消息不处理，直接拒绝，经死信交换机进入DEAD_LETTER_QUEUE。
  * @author 80002888
  * @date   2018年8月22日
  */
@@ -25,8 +35,59 @@ public class WorkFair {
 	
 	private static final String TASK_QUEUE_NAME = "task_queue_fair";
 	
+	/**
+	 * 过期（或处理失败且不重新入队）的消息经死信交换机进入死信队列，不会被丢弃
+	 */
+	private static final String DEAD_LETTER_EXCHANGE = TASK_QUEUE_NAME + ".dlx";
+	
+	private static final String DEAD_LETTER_QUEUE = TASK_QUEUE_NAME + ".dead";
+	
+	/**
+	 * 生产者和消费者声明的队列参数要一致（broker上已有不带死信参数的task_queue_fair时先删除）
+	 */
+	private static final Topology TOPOLOGY = new Topology()
+			.exchange(DEAD_LETTER_EXCHANGE, ExchangeTypes.FANOUT)
+			.queue(DEAD_LETTER_QUEUE, false, false, false, null)
+			.bind(DEAD_LETTER_QUEUE, DEAD_LETTER_EXCHANGE, "")
+			.queue(TASK_QUEUE_NAME, false, false, false, Collections.<String, Object>singletonMap("x-dead-letter-exchange", DEAD_LETTER_EXCHANGE));
+	
+	static {
+		// 登记到进程共用的注册表，ChannelManager新建连接时先批量声明
+		TopologyRegistry.getDefault().register(TOPOLOGY);
+	}
+	
 	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
 	
+	/**
+	 * 每个消费者期望同时处理的消息数（处理器是I/O型的，用于计算自适应预取窗口）
+	 */
+	private static final int PARALLELISM = 20;
+	
+	/**
+	 * 连续处理完ACK_BATCH条或最早一条等待ACK_DELAY_MILLIS后，合并成一次multiple ack
+	 */
+	private static final int ACK_BATCH = 5;
+	
+	/**
+	 * 自适应预取的上下限：下限高于PARALLELISM，PARALLELISM条都在处理时堆里仍有消息可供按优先级挑选
+	 */
+	private static final int MIN_PREFETCH = PARALLELISM + ACK_BATCH;
+	
+	private static final int MAX_PREFETCH = 100;
+	
+	private static final long ACK_DELAY_MILLIS = 100;
+	
+	/**
+	 * 每URGENT_EVERY条消息有一条紧急消息（优先级9），普通消息优先级0；都在EXPIRATION_MILLIS内没开始处理就作废
+	 */
+	private static final int URGENT_EVERY = 10;
+	
+	private static final String EXPIRATION_MILLIS = "5000";
+	
+	private static final AMQP.BasicProperties NORMAL = new AMQP.BasicProperties.Builder().priority(0).expiration(EXPIRATION_MILLIS).build();
+	
+	private static final AMQP.BasicProperties URGENT = new AMQP.BasicProperties.Builder().priority(PriorityConsumer.MAX_PRIORITY).expiration(EXPIRATION_MILLIS).build();
+	
 	/**
 	 * 消费者
 	 *	@ReturnType	void 
@@ -39,37 +100,38 @@ public class WorkFair {
 		Connection connection = ConnectionUtil.getConnection();
 		// 2.获取通道
 		Channel channel = connection.createChannel();
-		// 3.绑定队列
-		channel.queueDeclare(TASK_QUEUE_NAME, false, false, false, null);
+		// 3.绑定队列（带死信交换机）
+		TopologyRegistry.getDefault().declare(connection, TOPOLOGY);
 		System.out.println(" [*] Waiting for messages. To exit press CTRL+C");
-		// 4.设置为work模式（参数设为1：每次只接受一条消息，这时要关闭自动反馈，要在任务结束后手动反馈）
-		channel.basicQos(1);
-		// 5.定义消费者（启动多个消费者，其中有sleep(0)的和sleep(1000)的，能明显看出能者多劳的模式）
+		// 4.设置为work模式（预取窗口自适应调整，这时要关闭自动反馈，要在任务结束后手动反馈）
+		AckCoalescer acks = new AckCoalescer(channel, ACK_BATCH, ACK_DELAY_MILLIS);
+		AdaptivePrefetch prefetch = new AdaptivePrefetch(channel, MIN_PREFETCH, MAX_PREFETCH).parallelism(PARALLELISM).ackBatching(ACK_BATCH, ACK_DELAY_MILLIS);
+		prefetch.start();
+		// 5.定义消费者（启动多个消费者，其中有sleep(0)的和sleep(1000)的；sleep模拟I/O型的慢处理，不再占住通道的分发线程，紧急消息先处理）
 		int r = (new Random().nextInt(1000)) % 2;
 		System.out.println(r == 0 ? "work slow..." : "work fast...");
-		Consumer consumer = new DefaultConsumer(channel) {
-			@Override
-			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
-					byte[] body) throws IOException {
-				try {
-					String message = new String(body, "UTF-8");
-					try {
-						Thread.sleep(r == 0 ? 1000 : 0);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-					System.out.println(" [x] Received '" + message + "'");
-				} finally {
-					System.out.println(" [x] Done");
-					// 手动在消费完毕时进行反馈
-					channel.basicAck(envelope.getDeliveryTag(), false);
-				}
+		PriorityConsumer consumer = new PriorityConsumer(channel, (envelope, properties, body) -> {
+			long begin = System.nanoTime();
+			try {
+				String message = new String(body, "UTF-8");
+				Thread.sleep(r == 0 ? 1000 : 0);
+				System.out.println(" [x] Received '" + message + "'");
+			} finally {
+				System.out.println(" [x] Done");
+				prefetch.record(System.nanoTime() - begin);
 			}
-		};
+			// 正常返回后由PriorityConsumer经AckCoalescer确认（合并成multiple ack批量发送）
+		}, acks, PARALLELISM);
 		// 6.消费消息（第二个参数为自动给服务器端的反馈：为false时，服务器无法确定消息被消费不从queue中删除，需要手动应答）
-		channel.basicConsume(TASK_QUEUE_NAME, false, consumer);
+		String consumerTag = channel.basicConsume(TASK_QUEUE_NAME, false, consumer);
 		System.in.read();
-		// 7.关闭
+		// 7.关闭（停止接收，等待处理中的消息完成，再发出已合并但未发送的确认）
+		channel.basicCancel(consumerTag);
+		consumer.close();
+		System.out.println(" [*] " + consumer + " urgent wait " + consumer.getWaitTime(PriorityConsumer.MAX_PRIORITY).toLatencyString()
+				+ ", normal wait " + consumer.getWaitTime(0).toLatencyString());
+		prefetch.close();
+		acks.close();
 		channel.close();
 		connection.close();
 	}
@@ -82,21 +144,23 @@ public class WorkFair {
 	 */
 	@Test
 	public void producer() throws Exception{
-		// 1.获取连接
-		Connection connection = ConnectionUtil.getConnection();
+		// 1.从通道池借出通道（共享进程内的长连接，不再每次建立TCP连接）
+		ChannelLease lease = ChannelManager.getInstance().lease();
 		// 2.获取通道
-		Channel channel = connection.createChannel();
-		// 3.绑定队列
-		channel.queueDeclare(TASK_QUEUE_NAME, false, false, false, null);
+		Channel channel = lease.getChannel();
+		// 3.绑定队列（连接建立时已声明登记的拓扑，这里命中缓存不再访问broker）
+		TopologyRegistry.getDefault().declare(channel.getConnection(), TOPOLOGY);
+		/** 消息体写进当前线程复用的缓冲区，按长度复用发送数组，属性用预先建好的两个模板，编码和发送不产生垃圾（打印仅为演示） */
+		FastPublisher publisher = new FastPublisher(channel, "", null);
 		// 4.发送消息
 		for (int i = 0; i < 100; i++) {
 			Thread.sleep(200);
-			String message = "Hello World!" + DateUtils.date2Str(new Date(), PATTERN) + "----" + i;
-			channel.basicPublish("", TASK_QUEUE_NAME, null, message.getBytes("UTF-8"));
-			System.out.println(" [x] Sent '" + message + "'");
+			CodecBuffer body = publisher.buffer();
+			body.writeAscii("Hello World!").writeBytes(DateUtils.nowBytes(PATTERN)).writeAscii("----").writeDecimal(i);
+			publisher.publish(TASK_QUEUE_NAME, i % URGENT_EVERY == 0 ? URGENT : NORMAL, body);
+			System.out.println(" [x] Sent '" + new String(body.array(), 0, body.size(), "UTF-8") + "'");
 		}
-		// 5.关闭
-		channel.close();
-		connection.close();
+		// 5.归还通道
+		lease.close();
 	}
 }
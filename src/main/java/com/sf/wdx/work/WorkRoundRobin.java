@@ -1,17 +1,19 @@
 package com.sf.wdx.work;
 
 import java.io.IOException;
-import java.util.Date;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
 import com.rabbitmq.client.AMQP;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.failover.FailoverConnection;
+import com.sf.wdx.topology.Topology;
+import com.sf.wdx.topology.TopologyRegistry;
 import com.sf.wdx.util.ConnectionUtil;
 import com.sf.wdx.util.DateUtils;
 
@@ -19,6 +21,7 @@ import com.sf.wdx.util.DateUtils;
  * 描述：RabbitMQ的Work模式（又叫task-worker模式）
  * 		其中的轮询模式（Round-robin dispatching）：消息按顺序平分给所有消费者（默认basicQos(0)：轮询分配消息给消费者），可能出现消息在消费者堆积。
  * 			即使消费者中有的消费慢，有的消费快，消息依然是平分
+ * 		连接用FailoverConnection：-Dwdx.mq.addresses中的节点宕机时切换到其他节点，消费者和未确认的消息自动恢复。
  * @author 80002888
  * @date   2018年8月20日
  */
@@ -29,26 +32,28 @@ public class WorkRoundRobin {
 	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
 	
 	/**
-	 * 消费者
+	 * 队列声明（消费者和生产者一致，每次连上broker都重新声明）
+	 */
+	private static final TopologyRegistry TOPOLOGY = new TopologyRegistry(TopologyRegistry.DEFAULT_BATCH_SIZE)
+			.register(new Topology().queue(TASK_QUEUE_NAME, true, false, false, null));
+	
+	/**
+	 * 消费者（连接集群中的一个节点，节点宕机后切换到其他节点并重建消费者）
 	 *	@ReturnType	void 
 	 *	@Date	2018年8月20日	下午3:14:49
 	 *  @Param  @throws Exception
 	 */
 	@Test
 	public void consumer() throws Exception{
-		// 1.获取连接
-		Connection connection = ConnectionUtil.getConnection();
-		// 2.获取通道
-		Channel channel = connection.createChannel();
-		// 3.绑定队列
-		channel.queueDeclare(TASK_QUEUE_NAME, true, false, false, null);
+		// 1.获取连接（-Dwdx.mq.addresses指定集群地址，打乱顺序让消费者分散到各节点）
+		FailoverConnection connection = new FailoverConnection(ConnectionUtil.getConnectionFactory(), ConnectionUtil.getAddresses(), true)
+				.setTopology(TOPOLOGY).start();
 		System.out.println(" [*] Waiting for messages. To exit press CTRL+C");
-		// 4.设置为work模式中的轮询模式（不设置的话，默认也是0）
-		channel.basicQos(0);
-		// 5.定义消费者（启动多个消费者）
+		// 2.定义消费者（启动多个消费者）
 		int r = (new Random().nextInt(1000)) % 2;
 		System.out.println(r == 0 ? "work slow..." : "work fast...");
-		Consumer consumer = new DefaultConsumer(channel) {
+		// 3.设置为work模式中的轮询模式（不设置的话，默认也是0），消费消息（自动反馈）；恢复后在新通道上重建
+		connection.consume(TASK_QUEUE_NAME, 0, true, channel -> new DefaultConsumer(channel) {
 			@Override
 			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
 				String message = new String(body, "UTF-8");
@@ -59,38 +64,35 @@ public class WorkRoundRobin {
 				}
 				System.out.println(" [x] Received '" + message + "'");
 			}
-		};
-		// 6.消费消息（自动反馈）
-		channel.basicConsume(TASK_QUEUE_NAME, true, consumer);
+		});
 		System.in.read();
-		// 7.关闭
-		channel.close();
+		// 4.关闭
+		System.out.println(" [*] " + connection);
 		connection.close();
 	}
 	
 	/**
-	 * 生产者
+	 * 生产者（节点宕机时未确认的消息在新节点上重发，可能重复）
 	 *	@ReturnType	void 
 	 *	@Date	2018年8月20日	下午3:14:38
 	 *  @Param  @throws Exception
 	 */
 	@Test
 	public void producer() throws Exception{
-		// 1.获取连接
-		Connection connection = ConnectionUtil.getConnection();
-		// 2.获取通道
-		Channel channel = connection.createChannel();
-		// 3.绑定队列
-		channel.queueDeclare(TASK_QUEUE_NAME, false, false, false, null);
-		// 4.发送消息
+		// 1.获取连接（按顺序优先连接第一个地址）
+		FailoverConnection connection = new FailoverConnection(ConnectionUtil.getConnectionFactory(), ConnectionUtil.getAddresses(), false)
+				.setTopology(TOPOLOGY).start();
+		// 2.发送消息（broker确认后future完成，断开期间先积压，恢复后按顺序发送）
+		CompletableFuture<Void> last = null;
 		for (int i = 0; i < 100; i++) {
 			Thread.sleep(200);
-			String message = "Hello World!" + DateUtils.date2Str(new Date(), PATTERN) + "----" + i;
-			channel.basicPublish("", TASK_QUEUE_NAME, null, message.getBytes("UTF-8"));
+			String message = "Hello World!" + DateUtils.now(PATTERN) + "----" + i;
+			last = connection.publish("", TASK_QUEUE_NAME, MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes("UTF-8"));
 			System.out.println(" [x] Sent '" + message + "'");
 		}
-		// 5.关闭
-		channel.close();
+		// 3.等待全部确认后关闭（确认按顺序到达，最后一条确认时之前的都已确认）
+		last.get(30, TimeUnit.SECONDS);
+		System.out.println(" [*] " + connection);
 		connection.close();
 	}
 	
@@ -0,0 +1,80 @@
+package com.sf.wdx.work;
+
+import org.junit.Test;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.shard.ShardConsumer;
+import com.sf.wdx.shard.ShardedQueues;
+import com.sf.wdx.util.ChannelLease;
+import com.sf.wdx.util.ChannelManager;
+import com.sf.wdx.util.ConnectionUtil;
+import com.sf.wdx.util.DateUtils;
+
+/**
+ * 描述：RabbitMQ的Work模式（分片）
+ * 		一个task_queue只能用到broker的一个核，多个消费者竞争同一个队列时同一实体的消息会被并行处理、打乱顺序。
+ * 		分片模式：任务按key（如订单号）一致性哈希到SHARDS个物理队列，每个物理队列同一时刻只由一个消费者独占消费，
+ * 		同一个key的任务按发送顺序处理；启动多个消费者时分片自动均分，消费者加入或退出时自动重新分配。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class WorkSharded {
+	
+	/**
+	 * 处理失败达到上限的消息进入task_queue_sharded.dead
+	 */
+	private static final ShardedQueues TASK_QUEUES = new ShardedQueues("task_queue_sharded", 8).withDeadLetterQueue();
+	
+	private final static String PATTERN = "yyyy-MM-dd HH:mm:ss";
+	
+	/**
+	 * 消费者（可以启动多个，观察分片的分配和重新分配）
+	 *	@ReturnType	void 
+	 *	@Date	2026年10月17日	下午10:52:16
+	 *  @Param  @throws Exception
+	 */
+	@Test
+	public void consumer() throws Exception{
+		// 1.获取连接
+		Connection connection = ConnectionUtil.getConnection();
+		// 2.加入消费者组（声明分片队列，认领分到的分片，每个分片一个通道、顺序处理）
+		ShardConsumer consumer = new ShardConsumer(connection, TASK_QUEUES, (shard, envelope, properties, body) -> {
+			System.out.println(" [x] Received shard " + shard + " '" + new String(body, "UTF-8") + "'");
+		});
+		consumer.start();
+		System.out.println(" [*] " + consumer.getMemberId() + " waiting for messages. To exit press CTRL+C");
+		System.in.read();
+		// 3.离开消费者组（处理完已投递的消息后释放分片，其他消费者接手）
+		System.out.println(" [*] owned " + consumer.getOwnedShards() + ", handled " + consumer.getHandled());
+		consumer.close();
+		connection.close();
+	}
+	
+	/**
+	 * 生产者
+	 *	@ReturnType	void 
+	 *	@Date	2026年10月17日	下午10:53:40
+	 *  @Param  @throws Exception
+	 */
+	@Test
+	public void producer() throws Exception{
+		// 1.从通道池借出通道
+		ChannelLease lease = ChannelManager.getInstance().lease();
+		Channel channel = lease.getChannel();
+		// 2.声明分片队列
+		TASK_QUEUES.declare(channel);
+		// 3.按订单号发送，同一订单的消息进入同一个分片
+		for (int i = 0; i < 100; i++) {
+			Thread.sleep(200);
+			String orderNo = "order-" + (i % 10);
+			String message = orderNo + " step " + (i / 10) + " " + DateUtils.now(PATTERN);
+			int shard = TASK_QUEUES.publish(channel, orderNo, MessageProperties.PERSISTENT_TEXT_PLAIN, message.getBytes("UTF-8"));
+			System.out.println(" [x] Sent shard " + shard + " '" + message + "'");
+		}
+		// 4.归还通道
+		lease.close();
+	}
+	
+}
@@ -0,0 +1,97 @@
+package com.sf.wdx.consumer;
+
+import static com.sf.wdx.loopback.LoopbackTestSupport.await;
+import static com.sf.wdx.loopback.LoopbackTestSupport.recording;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.loopback.LoopbackTestSupport;
+
+/**
+ * 描述：DedupFilter在LoopbackBroker上的行为：发送端重发和broker重新投递的消息只处理一次，处理失败的消息重新投递后再处理
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class DedupFilterTest {
+
+	private static final String QUEUE = "dedup_test";
+
+	@Rule
+	public LoopbackTestSupport loopback = new LoopbackTestSupport();
+
+	/**
+	 * 同一messageId发两次（发送端重发）：处理一次，两条都确认
+	 */
+	@Test
+	public void skipsResentMessage() throws Exception {
+		Channel channel = loopback.declare(QUEUE);
+		DedupFilter filter = new DedupFilter();
+		List<String> handled = new CopyOnWriteArrayList<String>();
+		channel.basicConsume(QUEUE, false, new DedupConsumer(channel, recording(channel, handled, true), filter, null));
+		publish(channel, "m1", "a");
+		publish(channel, "m2", "b");
+		publish(channel, "m1", "a");
+		await(() -> loopback.broker().getAcknowledged() == 3);
+		assertEquals("[a, b]", handled.toString());
+		assertEquals(1, filter.getDuplicates());
+		assertEquals(0, loopback.broker().messageCount(QUEUE));
+	}
+
+	/**
+	 * 处理完但确认前通道关闭：broker重新投递给另一个通道，共用的过滤器直接确认，不再处理
+	 */
+	@Test
+	public void skipsRedeliveryAfterChannelClose() throws Exception {
+		DedupFilter filter = new DedupFilter();
+		List<String> handled = new CopyOnWriteArrayList<String>();
+		// 1.第一个通道处理了但不确认
+		Channel first = loopback.declare(QUEUE);
+		first.basicConsume(QUEUE, false, new DedupConsumer(first, recording(first, handled, false), filter, null));
+		publish(first, "m1", "a");
+		await(() -> handled.size() == 1);
+		// 2.通道关闭，未确认的消息重新投递给第二个通道
+		first.close();
+		Channel second = loopback.connection().createChannel();
+		second.basicConsume(QUEUE, false, new DedupConsumer(second, recording(second, handled, true), filter, null));
+		await(() -> loopback.broker().getAcknowledged() == 1);
+		assertEquals("[a]", handled.toString());
+		assertEquals(1, filter.getDuplicates());
+		assertEquals(1, loopback.broker().getRequeued());
+	}
+
+	/**
+	 * 处理失败时key被释放：nack重新入队后再处理一次
+	 */
+	@Test
+	public void reprocessesAfterFailure() throws Exception {
+		Channel channel = loopback.declare(QUEUE);
+		DedupFilter filter = new DedupFilter();
+		AtomicInteger calls = new AtomicInteger();
+		DispatchingConsumer consumer = new DispatchingConsumer(channel, (envelope, properties, body) -> {
+			if (calls.incrementAndGet() == 1) {
+				throw new IllegalStateException("first attempt fails");
+			}
+		}, null).deduplicatedBy(filter);
+		channel.basicConsume(QUEUE, false, consumer);
+		publish(channel, "m1", "a");
+		await(() -> loopback.broker().getAcknowledged() == 1);
+		consumer.close();
+		assertEquals(2, calls.get());
+		assertEquals(1, consumer.getFailed());
+		assertEquals(1, consumer.getHandled());
+		assertEquals(0, filter.getDuplicates());
+	}
+
+	private static void publish(Channel channel, String messageId, String body) throws IOException {
+		LoopbackTestSupport.publish(channel, QUEUE, new AMQP.BasicProperties.Builder().messageId(messageId).build(), body);
+	}
+}
@@ -0,0 +1,145 @@
+package com.sf.wdx.consumer;
+
+import static com.sf.wdx.loopback.LoopbackTestSupport.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.sf.wdx.loopback.LoopbackTestSupport;
+
+/**
+ * 描述：PriorityConsumer在LoopbackBroker上的行为：处理任务都在忙时定时清理过期消息进死信队列、紧急消息先处理、通道关闭后停止
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class PriorityConsumerTest {
+
+	private static final String QUEUE = "priority_test";
+
+	private static final String DEAD_LETTER_QUEUE = QUEUE + ".dead";
+
+	@Rule
+	public LoopbackTestSupport loopback = new LoopbackTestSupport();
+
+	/**
+	 * 唯一的处理任务卡在慢消息上，堆里的消息过期后仍被清理，经死信交换机进入死信队列
+	 */
+	@Test
+	public void sweepsExpiredMessagesWhileBusy() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			Channel channel = declare();
+			PriorityConsumer consumer = new PriorityConsumer(channel, (envelope, properties, body) -> release.await(), null, 1);
+			channel.basicConsume(QUEUE, false, consumer);
+			AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().expiration("200").build();
+			for (int i = 0; i < 11; i++) {
+				channel.basicPublish("", QUEUE, props, new byte[] { (byte) i });
+			}
+			await(() -> consumer.getExpired() == 10);
+			assertEquals(0, consumer.getQueued());
+			assertEquals(0, consumer.getHandled());
+			await(() -> loopback.broker().messageCount(DEAD_LETTER_QUEUE) == 10);
+			release.countDown();
+			assertTrue(consumer.close(5, TimeUnit.SECONDS));
+			assertEquals(1, consumer.getHandled());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	/**
+	 * 处理任务空出来时先取优先级高的，同优先级按到达顺序
+	 */
+	@Test
+	public void runsUrgentMessagesFirst() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			Channel channel = declare();
+			List<String> order = new CopyOnWriteArrayList<String>();
+			PriorityConsumer consumer = new PriorityConsumer(channel, (envelope, properties, body) -> {
+				String message = new String(body, "UTF-8");
+				order.add(message);
+				if (message.equals("blocker")) {
+					release.await();
+				}
+			}, null, 1);
+			channel.basicConsume(QUEUE, false, consumer);
+			// 1.第一条占住唯一的处理任务
+			publish(channel, "blocker", 0);
+			await(() -> order.size() == 1);
+			// 2.普通消息先到，紧急消息后到
+			for (int i = 0; i < 5; i++) {
+				publish(channel, "normal-" + i, 0);
+			}
+			publish(channel, "urgent", PriorityConsumer.MAX_PRIORITY);
+			await(() -> consumer.getQueued() == 6);
+			release.countDown();
+			await(() -> consumer.getHandled() == 7);
+			assertEquals(Arrays.asList("blocker", "urgent", "normal-0", "normal-1", "normal-2", "normal-3", "normal-4"), order);
+			assertTrue(consumer.close(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	/**
+	 * 通道关闭后堆被清空，正在处理的消息做完后close立即返回
+	 */
+	@Test
+	public void stopsOnChannelShutdown() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			Channel channel = declare();
+			PriorityConsumer consumer = new PriorityConsumer(channel, (envelope, properties, body) -> release.await(), null, 1);
+			channel.basicConsume(QUEUE, false, consumer);
+			for (int i = 0; i < 5; i++) {
+				publish(channel, "m" + i, 0);
+			}
+			await(() -> consumer.getQueued() == 4);
+			channel.abort();
+			await(() -> consumer.getQueued() == 0);
+			release.countDown();
+			assertTrue(consumer.close(1, TimeUnit.SECONDS));
+			assertEquals(1, consumer.getHandled());
+			// 未确认的消息回到队列
+			await(() -> loopback.broker().messageCount(QUEUE) == 5);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void deadlineSaturates() {
+		long now = System.currentTimeMillis();
+		AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().timestamp(new Date(now)).expiration("1000").build();
+		assertEquals(now + 1000, PriorityConsumer.deadlineOf(props, 0));
+		props = props.builder().expiration(Long.toString(Long.MAX_VALUE)).build();
+		assertEquals(Long.MAX_VALUE, PriorityConsumer.deadlineOf(props, 0));
+		assertEquals(Long.MAX_VALUE, PriorityConsumer.deadlineOf(null, now));
+	}
+
+	/**
+	 * 测试队列带死信交换机，预取足够多的消息
+	 */
+	private Channel declare() throws Exception {
+		Channel channel = loopback.declareWithDeadLetter(QUEUE);
+		channel.basicQos(50);
+		return channel;
+	}
+
+	private static void publish(Channel channel, String body, int priority) throws IOException {
+		LoopbackTestSupport.publish(channel, QUEUE, new AMQP.BasicProperties.Builder().priority(priority).build(), body);
+	}
+}
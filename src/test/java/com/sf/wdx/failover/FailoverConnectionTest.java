@@ -0,0 +1,208 @@
+package com.sf.wdx.failover;
+
+import static com.sf.wdx.loopback.LoopbackTestSupport.await;
+import static com.sf.wdx.loopback.LoopbackTestSupport.recording;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.AddressResolver;
+import com.rabbitmq.client.Connection;
+import com.sf.wdx.loopback.LoopbackBroker;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+import com.sf.wdx.loopback.LoopbackTestSupport;
+import com.sf.wdx.topology.Topology;
+import com.sf.wdx.topology.TopologyRegistry;
+
+/**
+ * 描述：FailoverConnection在LoopbackBroker上的行为：节点宕机后切换到其他地址、重发未确认的消息、恢复消费者，close唤醒等待的publish
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class FailoverConnectionTest {
+
+	private static final String QUEUE = "failover_test";
+
+	private static final Address NODE_1 = new Address("f1", 5672);
+
+	private static final Address NODE_2 = new Address("f2", 5672);
+
+	@Rule
+	public LoopbackTestSupport loopback = new LoopbackTestSupport();
+
+	/**
+	 * 发送过程中节点宕机：切换到另一个节点，每条消息的future都完成，消费端一条不少
+	 */
+	@Test
+	public void failsOverWithoutLosingMessages() throws Exception {
+		LoopbackBroker broker = loopback.broker();
+		Set<String> received = ConcurrentHashMap.newKeySet();
+		FailoverConnection consumer = failover(NODE_1, NODE_2).start();
+		FailoverConnection producer = failover(NODE_1, NODE_2).start();
+		try {
+			consumer.consume(QUEUE, 100, false, channel -> recording(channel, received, true));
+			List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+			for (int i = 0; i < 2000; i++) {
+				futures.add(producer.publish("", QUEUE, null, Integer.toString(i).getBytes("UTF-8")));
+				if (i == 1000) {
+					assertEquals(2, broker.kill(LoopbackBroker.node(NODE_1)));
+				}
+			}
+			for (CompletableFuture<Void> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+			await(() -> received.size() == 2000);
+			// 恢复次数在重建消费者、重发完成之后才计数
+			await(() -> producer.getRecoveries() == 1 && consumer.getRecoveries() == 1);
+			assertEquals(NODE_2, producer.getAddress());
+			assertEquals(NODE_2, consumer.getAddress());
+			assertEquals(0, producer.getUnconfirmed());
+		} finally {
+			producer.close();
+			consumer.close();
+		}
+	}
+
+	/**
+	 * 断开期间登记的消费者在恢复后建立
+	 */
+	@Test
+	public void startsConsumerRegisteredWhileDisconnected() throws Exception {
+		LoopbackBroker broker = loopback.broker();
+		Set<String> received = ConcurrentHashMap.newKeySet();
+		FailoverConnection consumer = failover(NODE_1).start();
+		try {
+			broker.kill(LoopbackBroker.node(NODE_1));
+			await(() -> !consumer.isConnected());
+			consumer.consume(QUEUE, 10, false, channel -> recording(channel, received, true));
+			broker.restart(LoopbackBroker.node(NODE_1));
+			await(consumer::isConnected);
+			Connection connection = loopback.factory().newConnection(Arrays.asList(NODE_1));
+			try {
+				connection.createChannel().basicPublish("", QUEUE, null, "after".getBytes("UTF-8"));
+			} finally {
+				connection.close();
+			}
+			await(() -> received.contains("after"));
+		} finally {
+			consumer.close();
+		}
+	}
+
+	/**
+	 * 未确认的消息达到上限时publish等待；close让它们的future异常完成，并唤醒等待的publish
+	 */
+	@Test
+	public void closeWakesBlockedPublisher() throws Exception {
+		LoopbackBroker broker = loopback.broker();
+		FailoverConnection producer = failover(NODE_1).setMaxUnconfirmed(2).start();
+		broker.kill(LoopbackBroker.node(NODE_1));
+		await(() -> !producer.isConnected());
+		CompletableFuture<Void> first = producer.publish("", QUEUE, null, new byte[1]);
+		producer.publish("", QUEUE, null, new byte[1]);
+		CompletableFuture<Throwable> blocked = new CompletableFuture<Throwable>();
+		Thread publisher = new Thread(() -> {
+			try {
+				producer.publish("", QUEUE, null, new byte[1]);
+				blocked.complete(null);
+			} catch (Throwable e) {
+				blocked.complete(e);
+			}
+		});
+		publisher.start();
+		Thread.sleep(100);
+		assertFalse(blocked.isDone());
+		producer.close();
+		assertTrue(blocked.get(2, TimeUnit.SECONDS) instanceof IllegalStateException);
+		try {
+			first.get(1, TimeUnit.SECONDS);
+			fail("unconfirmed message should fail on close");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	/**
+	 * 恢复线程正卡在newConnection里（中断停不下）时close：之后连上的连接被丢弃，不留下连接和消费者
+	 */
+	@Test
+	public void closeDuringRecoveryDiscardsNewConnection() throws Exception {
+		LoopbackBroker broker = loopback.broker();
+		CountDownLatch connecting = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		AtomicInteger attempts = new AtomicInteger();
+		AtomicReference<Connection> recovered = new AtomicReference<Connection>();
+		LoopbackConnectionFactory factory = new LoopbackConnectionFactory(broker) {
+			@Override
+			public Connection newConnection(ExecutorService executor, AddressResolver addressResolver, String clientProvidedName) throws IOException {
+				if (attempts.incrementAndGet() == 1) {
+					return super.newConnection(executor, addressResolver, clientProvidedName);
+				}
+				// 恢复时的连接：等测试放行，期间的中断不理会（相当于阻塞在socket上）
+				connecting.countDown();
+				boolean interrupted = false;
+				while (proceed.getCount() > 0) {
+					try {
+						proceed.await();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				Connection connection = super.newConnection(executor, addressResolver, clientProvidedName);
+				recovered.set(connection);
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				return connection;
+			}
+		};
+		FailoverConnection consumer = failover(factory, NODE_1).start();
+		Set<String> received = ConcurrentHashMap.newKeySet();
+		consumer.consume(QUEUE, 10, false, channel -> recording(channel, received, true));
+		await(() -> broker.consumerCount(QUEUE) == 1);
+		// 1.节点宕机，恢复线程卡在newConnection里
+		broker.kill(LoopbackBroker.node(NODE_1));
+		broker.restart(LoopbackBroker.node(NODE_1));
+		assertTrue(connecting.await(5, TimeUnit.SECONDS));
+		// 2.close之后恢复线程才连上
+		consumer.close();
+		proceed.countDown();
+		await(() -> recovered.get() != null && !recovered.get().isOpen());
+		assertFalse(consumer.isConnected());
+		assertEquals(0, broker.consumerCount(QUEUE));
+		assertEquals(0, consumer.getRecoveries());
+	}
+
+	/**
+	 * 按顺序连接addresses（未start），每次连上后声明测试队列
+	 */
+	private FailoverConnection failover(Address... addresses) {
+		return failover(loopback.factory(), addresses);
+	}
+
+	private static FailoverConnection failover(LoopbackConnectionFactory factory, Address... addresses) {
+		TopologyRegistry topology = new TopologyRegistry(TopologyRegistry.DEFAULT_BATCH_SIZE)
+				.register(new Topology().queue(QUEUE, true, false, false, null));
+		return new FailoverConnection(factory, Arrays.asList(addresses), false)
+				.setBackoff(10, 100).setTopology(topology);
+	}
+}
@@ -0,0 +1,136 @@
+package com.sf.wdx.loopback;
+
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import org.junit.rules.ExternalResource;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+/**
+ * 描述：LoopbackBroker上的测试夹具：每个测试方法一个独立的虚拟主机，连接按需创建、测试结束后关闭
+ * 		另有声明队列、发送、记录消息体和等待条件成立的公共方法。
+ * 		用法：@Rule public LoopbackTestSupport loopback = new LoopbackTestSupport();
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class LoopbackTestSupport extends ExternalResource {
+
+	/**
+	 * await等待条件成立的最长时间
+	 */
+	private static final long AWAIT_MILLIS = 5000;
+
+	private String virtualHost;
+
+	private LoopbackBroker broker;
+
+	private Connection connection;
+
+	@Override
+	public Statement apply(Statement base, Description description) {
+		virtualHost = "/" + description.getTestClass().getSimpleName() + "." + description.getMethodName();
+		return super.apply(base, description);
+	}
+
+	@Override
+	protected void after() {
+		if (connection != null && connection.isOpen()) {
+			try {
+				connection.close();
+			} catch (IOException e) {
+				// 已关闭
+			}
+		}
+	}
+
+	/**
+	 * 当前测试方法的broker
+	 */
+	public LoopbackBroker broker() {
+		if (broker == null) {
+			broker = LoopbackBroker.forVirtualHost(virtualHost);
+		}
+		return broker;
+	}
+
+	public LoopbackConnectionFactory factory() {
+		return new LoopbackConnectionFactory(broker());
+	}
+
+	/**
+	 * 当前测试方法共用的连接，测试结束后关闭
+	 */
+	public Connection connection() throws Exception {
+		if (connection == null) {
+			connection = factory().newConnection();
+		}
+		return connection;
+	}
+
+	/**
+	 * 新建通道并声明非持久队列
+	 */
+	public Channel declare(String queue) throws Exception {
+		Channel channel = connection().createChannel();
+		channel.queueDeclare(queue, false, false, false, null);
+		return channel;
+	}
+
+	/**
+	 * 新建通道并声明带死信的队列：死信交换机queue.dlx（fanout）绑定死信队列queue.dead
+	 */
+	public Channel declareWithDeadLetter(String queue) throws Exception {
+		Channel channel = connection().createChannel();
+		channel.exchangeDeclare(queue + ".dlx", "fanout");
+		channel.queueDeclare(queue + ".dead", false, false, false, null);
+		channel.queueBind(queue + ".dead", queue + ".dlx", "");
+		channel.queueDeclare(queue, false, false, false, Collections.<String, Object>singletonMap("x-dead-letter-exchange", queue + ".dlx"));
+		return channel;
+	}
+
+	/**
+	 * 经默认交换机发送UTF-8消息体
+	 */
+	public static void publish(Channel channel, String queue, AMQP.BasicProperties props, String body) throws IOException {
+		channel.basicPublish("", queue, props, body.getBytes("UTF-8"));
+	}
+
+	/**
+	 * 记录收到的消息体，ack为false时不确认（模拟确认前崩溃）
+	 */
+	public static DefaultConsumer recording(Channel channel, Collection<String> received, boolean ack) {
+		return new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+				received.add(new String(body, "UTF-8"));
+				if (ack) {
+					channel.basicAck(envelope.getDeliveryTag(), false);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 每10ms检查一次，AWAIT_MILLIS内条件不成立则测试失败
+	 */
+	public static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("condition not met within " + AWAIT_MILLIS + "ms");
+			}
+			Thread.sleep(10);
+		}
+	}
+}
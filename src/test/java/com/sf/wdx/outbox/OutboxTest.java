@@ -0,0 +1,135 @@
+package com.sf.wdx.outbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.GetResponse;
+import com.sf.wdx.loopback.LoopbackBroker;
+import com.sf.wdx.loopback.LoopbackConnectionFactory;
+
+/**
+ * 描述：Outbox在LoopbackBroker上的行为：重启后重放日志里未确认的消息、broker恢复后继续转发、已确认的消息不再重发
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class OutboxTest {
+
+	private static final String QUEUE = "outbox_test";
+
+	private static final String NODE = "localhost:5672";
+
+	private static final int SEGMENT_SIZE = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * 转发前进程退出：重新打开日志后全部按顺序转发
+	 */
+	@Test
+	public void replaysJournalAfterRestart() throws Exception {
+		LoopbackBroker broker = LoopbackBroker.forVirtualHost("/test-outbox-replay");
+		declareQueue(broker);
+		File dir = folder.newFolder();
+		// 1.只写日志，不转发就关闭（相当于写完即崩溃）
+		OutboxJournal journal = journal(dir);
+		for (int i = 0; i < 100; i++) {
+			journal.append("", QUEUE, null, Integer.toString(i).getBytes("UTF-8"));
+		}
+		journal.close();
+		assertEquals(0, broker.messageCount(QUEUE));
+		// 2.重启后从checkpoint之后开始重放
+		Outbox outbox = new Outbox(journal(dir), new LoopbackConnectionFactory(broker));
+		try {
+			assertTrue(outbox.awaitForwarded(100, 5, TimeUnit.SECONDS));
+		} finally {
+			outbox.close();
+		}
+		assertEquals(100, broker.messageCount(QUEUE));
+		Connection connection = new LoopbackConnectionFactory(broker).newConnection();
+		try {
+			Channel channel = connection.createChannel();
+			for (int i = 0; i < 100; i++) {
+				GetResponse response = channel.basicGet(QUEUE, true);
+				assertEquals(Integer.toString(i), new String(response.getBody(), "UTF-8"));
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * broker不可用时publish照常写入，恢复后转发
+	 */
+	@Test
+	public void forwardsOnceBrokerIsBack() throws Exception {
+		LoopbackBroker broker = LoopbackBroker.forVirtualHost("/test-outbox-down");
+		declareQueue(broker);
+		broker.kill(NODE);
+		Outbox outbox = new Outbox(journal(folder.newFolder()), new LoopbackConnectionFactory(broker));
+		try {
+			long last = 0;
+			for (int i = 0; i < 50; i++) {
+				last = outbox.publish("", QUEUE, null, new byte[] { (byte) i });
+			}
+			assertFalse(outbox.awaitForwarded(last, 200, TimeUnit.MILLISECONDS));
+			assertEquals(50, outbox.getPending());
+			broker.restart(NODE);
+			assertTrue(outbox.awaitForwarded(last, 10, TimeUnit.SECONDS));
+		} finally {
+			outbox.close();
+		}
+		assertEquals(50, broker.messageCount(QUEUE));
+	}
+
+	/**
+	 * 确认的序号写入checkpoint，重新打开后不再重发
+	 */
+	@Test
+	public void doesNotReplayConfirmedMessages() throws Exception {
+		LoopbackBroker broker = LoopbackBroker.forVirtualHost("/test-outbox-checkpoint");
+		declareQueue(broker);
+		File dir = folder.newFolder();
+		Outbox outbox = new Outbox(journal(dir), new LoopbackConnectionFactory(broker));
+		long last = 0;
+		for (int i = 0; i < 20; i++) {
+			last = outbox.publish("", QUEUE, null, new byte[] { (byte) i });
+		}
+		assertTrue(outbox.awaitForwarded(last, 5, TimeUnit.SECONDS));
+		assertTrue(outbox.close(5, TimeUnit.SECONDS));
+		// 重新打开：没有待转发的消息，队列里仍是20条
+		OutboxJournal reopened = journal(dir);
+		assertEquals(last, reopened.getConfirmedSeq());
+		assertEquals(0, reopened.getPending());
+		outbox = new Outbox(reopened, new LoopbackConnectionFactory(broker));
+		try {
+			Thread.sleep(200);
+		} finally {
+			outbox.close();
+		}
+		assertEquals(20, broker.messageCount(QUEUE));
+	}
+
+	private static OutboxJournal journal(File dir) throws Exception {
+		return new OutboxJournal(dir, SEGMENT_SIZE, OutboxJournal.DEFAULT_MAX_BYTES, OutboxJournal.Fsync.NONE, 0);
+	}
+
+	private static void declareQueue(LoopbackBroker broker) throws Exception {
+		Connection connection = new LoopbackConnectionFactory(broker).newConnection();
+		try {
+			connection.createChannel().queueDeclare(QUEUE, true, false, false, null);
+		} finally {
+			connection.close();
+		}
+	}
+}
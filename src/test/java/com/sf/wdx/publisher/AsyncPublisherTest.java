@@ -0,0 +1,83 @@
+package com.sf.wdx.publisher;
+
+import static com.sf.wdx.loopback.LoopbackTestSupport.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.sf.wdx.loopback.LoopbackTestSupport;
+
+/**
+ * 描述：AsyncPublisher在LoopbackBroker上的行为：确认窗口满时close超时，所有返回的future都完成
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class AsyncPublisherTest {
+
+	private static final String QUEUE = "async_publisher_test";
+
+	private static final int CAPACITY = 16;
+
+	@Rule
+	public LoopbackTestSupport loopback = new LoopbackTestSupport();
+
+	/**
+	 * broker不回确认：窗口满后I/O线程停在窗口上，手里还拿着一条已出队的消息；close超时中断它后这一条也要完成
+	 */
+	@Test
+	public void closeCompletesMessageHeldByStalledWriter() throws Exception {
+		Channel channel = loopback.declare(QUEUE);
+		CountDownLatch release = new CountDownLatch(1);
+		// 先于ConfirmPublisher注册：卡住通道的分发线程，后面的确认回调都排不上
+		channel.addConfirmListener(new ConfirmListener() {
+			@Override
+			public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+				awaitRelease();
+			}
+
+			@Override
+			public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+				awaitRelease();
+			}
+
+			private void awaitRelease() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		try {
+			AsyncPublisher publisher = new AsyncPublisher(channel, CAPACITY, AsyncPublisher.Backpressure.FAIL, true);
+			List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+			// 1.窗口（与队列一样大）占满，再多一条被I/O线程取出后等在窗口上
+			for (int i = 0; i <= CAPACITY; i++) {
+				futures.add(publisher.publish("", QUEUE, null, new byte[] { (byte) i }));
+			}
+			await(() -> publisher.getPublished() == CAPACITY && publisher.getQueued() == 0);
+			// 2.再排满队列
+			for (int i = 0; i < CAPACITY; i++) {
+				futures.add(publisher.publish("", QUEUE, null, new byte[] { (byte) i }));
+			}
+			publisher.close(100, TimeUnit.MILLISECONDS);
+			for (CompletableFuture<Void> future : futures) {
+				assertTrue(future.isCompletedExceptionally());
+			}
+			assertEquals(CAPACITY + 1, publisher.getRejected());
+		} finally {
+			release.countDown();
+		}
+	}
+}
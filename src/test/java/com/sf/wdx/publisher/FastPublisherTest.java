@@ -0,0 +1,101 @@
+package com.sf.wdx.publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.MessageProperties;
+import com.sf.wdx.codec.CodecBuffer;
+import com.sf.wdx.loopback.LoopbackTestSupport;
+import com.sf.wdx.util.DateUtils;
+
+/**
+ * 描述：FastPublisher + RoutingKeys的发送路径（Topic.producer的写法）预热后每条消息不分配对象
+ * 		用com.sun.management.ThreadMXBean统计当前线程分配的字节数；交换机上没有绑定队列，broker按不可路由丢弃。
+ * 		LoopbackChannel会像网络发送一样复制消息体、包装消息，这部分先用现成数组直接basicPublish量出来，再从结果里扣掉。
+ * @author 80002888
+ * @date   2026年10月17日
+ */
+public class FastPublisherTest {
+
+	private static final String EXCHANGE_NAME = "fast_publisher_test";
+
+	private static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+	private static final RoutingKeys ROUTING_KEYS = RoutingKeys.product(new String[] { "cn", "us", "kr" },
+			new String[] { "ming", "hong", "li" }, new String[] { "info", "warn", "error" });
+
+	private static final int WARMUP = 200000;
+
+	private static final int MESSAGES = 100000;
+
+	@Rule
+	public LoopbackTestSupport loopback = new LoopbackTestSupport();
+
+	/**
+	 * 扣掉broker自身的分配后每条消息不到1字节（DateUtils每毫秒格式化一次时间，均摊后就是这个量级）
+	 */
+	@Test
+	public void allocatesNothingPerMessage() throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		Channel channel = loopback.connection().createChannel();
+		channel.exchangeDeclare(EXCHANGE_NAME, "topic");
+		FastPublisher publisher = new FastPublisher(channel, EXCHANGE_NAME, MessageProperties.TEXT_PLAIN);
+		long thread = Thread.currentThread().getId();
+		// 1.预热：填满按长度缓存的数组，让JIT编译两条发送路径
+		byte[][] samples = samples(publisher);
+		sendSamples(channel, samples, WARMUP);
+		send(publisher, 0, WARMUP);
+		threads.getThreadAllocatedBytes(thread);
+		// 2.broker自身的分配：同样的routingKey和同样长的消息体，不经过FastPublisher
+		long before = threads.getThreadAllocatedBytes(thread);
+		sendSamples(channel, samples, MESSAGES);
+		long broker = threads.getThreadAllocatedBytes(thread) - before;
+		// 3.FastPublisher
+		before = threads.getThreadAllocatedBytes(thread);
+		send(publisher, WARMUP, MESSAGES);
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		assertTrue(allocated + " bytes for " + MESSAGES + " messages, broker alone " + broker, (double) (allocated - broker) / MESSAGES < 1);
+		assertEquals(2 * (WARMUP + MESSAGES), loopback.broker().getUnroutable());
+	}
+
+	/**
+	 * 每个routingKey一条与send写出的消息等长的消息体（计数都是6位数）
+	 */
+	private static byte[][] samples(FastPublisher publisher) {
+		byte[][] samples = new byte[ROUTING_KEYS.size()][];
+		for (int key = 0; key < samples.length; key++) {
+			CodecBuffer body = publisher.buffer();
+			body.writeBytes(ROUTING_KEYS.bytes(key)).writeAscii("---").writeBytes(DateUtils.nowBytes(PATTERN)).writeAscii("---").writeDecimal(WARMUP);
+			samples[key] = Arrays.copyOf(body.array(), body.size());
+		}
+		return samples;
+	}
+
+	private static void sendSamples(Channel channel, byte[][] samples, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			int key = ROUTING_KEYS.random(ThreadLocalRandom.current());
+			channel.basicPublish(EXCHANGE_NAME, ROUTING_KEYS.key(key), MessageProperties.TEXT_PLAIN, samples[key]);
+		}
+	}
+
+	private static void send(FastPublisher publisher, int from, int count) throws IOException {
+		for (int i = from; i < from + count; i++) {
+			int key = ROUTING_KEYS.random(ThreadLocalRandom.current());
+			CodecBuffer body = publisher.buffer();
+			body.writeBytes(ROUTING_KEYS.bytes(key)).writeAscii("---").writeBytes(DateUtils.nowBytes(PATTERN)).writeAscii("---").writeDecimal(i);
+			publisher.publish(ROUTING_KEYS, key, body);
+		}
+	}
+}